@@ -15,9 +15,6 @@
  */
 package org.jiemamy.utils.gtree.converter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.jiemamy.utils.gtree.model.Sequence;
 import org.jiemamy.utils.gtree.model.Value;
 
@@ -43,25 +40,32 @@ public enum ArrayConverter implements ConverterDriver {
 	 * なお、配列以外の要素が指定された場合や、配列の要素に変換できない値が含まれていた場合は
 	 * この呼び出しは{@code null}を返す。
 	 * </p>
+	 * <p>
+	 * ただし、{@code int}, {@code long}, {@code double}, {@code byte}, {@code short}の配列は
+	 * 要素ごとに{@code converter}を利用せず、{@link Sequence#packed(int[])}などによって
+	 * 配列のまま保持する{@link Sequence}に変換する。
+	 * それぞれの要素は{@link org.jiemamy.utils.gtree.model.Terminal#ofLong(long)}または
+	 * {@link org.jiemamy.utils.gtree.model.Terminal#ofDouble(double)}の結果と同値である。
+	 * </p>
 	 */
 	public Value convert(Object object, ObjectConverter converter) { // CHECKSTYLE IGNORE THIS LINE
 		if (object instanceof int[]) {
-			return convertArray((int[]) object, converter);
+			return Sequence.packed((int[]) object);
 		}
 		if (object instanceof long[]) {
-			return convertArray((long[]) object, converter);
+			return Sequence.packed((long[]) object);
 		}
 		if (object instanceof float[]) {
 			return convertArray((float[]) object, converter);
 		}
 		if (object instanceof double[]) {
-			return convertArray((double[]) object, converter);
+			return Sequence.packed((double[]) object);
 		}
 		if (object instanceof byte[]) {
-			return convertArray((byte[]) object, converter);
+			return Sequence.packed((byte[]) object);
 		}
 		if (object instanceof short[]) {
-			return convertArray((short[]) object, converter);
+			return Sequence.packed((short[]) object);
 		}
 		if (object instanceof char[]) {
 			return convertArray((char[]) object, converter);
@@ -75,68 +79,8 @@ public enum ArrayConverter implements ConverterDriver {
 		return null;
 	}
 	
-	private Value convertArray(int[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
-		for (Object elem : array) {
-			Value value = converter.convert(elem);
-			if (value == null) {
-				return null;
-			}
-			values.add(value);
-		}
-		return Sequence.ordered(values);
-	}
-	
-	private Value convertArray(long[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
-		for (Object elem : array) {
-			Value value = converter.convert(elem);
-			if (value == null) {
-				return null;
-			}
-			values.add(value);
-		}
-		return Sequence.ordered(values);
-	}
-	
 	private Value convertArray(float[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
-		for (Object elem : array) {
-			Value value = converter.convert(elem);
-			if (value == null) {
-				return null;
-			}
-			values.add(value);
-		}
-		return Sequence.ordered(values);
-	}
-	
-	private Value convertArray(double[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
-		for (Object elem : array) {
-			Value value = converter.convert(elem);
-			if (value == null) {
-				return null;
-			}
-			values.add(value);
-		}
-		return Sequence.ordered(values);
-	}
-	
-	private Value convertArray(byte[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
-		for (Object elem : array) {
-			Value value = converter.convert(elem);
-			if (value == null) {
-				return null;
-			}
-			values.add(value);
-		}
-		return Sequence.ordered(values);
-	}
-	
-	private Value convertArray(short[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
+		Sequence.Builder values = new Sequence.Builder(Value.Kind.ORDERED_LIST, array.length);
 		for (Object elem : array) {
 			Value value = converter.convert(elem);
 			if (value == null) {
@@ -144,11 +88,11 @@ public enum ArrayConverter implements ConverterDriver {
 			}
 			values.add(value);
 		}
-		return Sequence.ordered(values);
+		return values.build();
 	}
 	
 	private Value convertArray(char[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
+		Sequence.Builder values = new Sequence.Builder(Value.Kind.ORDERED_LIST, array.length);
 		for (Object elem : array) {
 			Value value = converter.convert(elem);
 			if (value == null) {
@@ -156,11 +100,11 @@ public enum ArrayConverter implements ConverterDriver {
 			}
 			values.add(value);
 		}
-		return Sequence.ordered(values);
+		return values.build();
 	}
 	
 	private Value convertArray(boolean[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
+		Sequence.Builder values = new Sequence.Builder(Value.Kind.ORDERED_LIST, array.length);
 		for (Object elem : array) {
 			Value value = converter.convert(elem);
 			if (value == null) {
@@ -168,11 +112,11 @@ public enum ArrayConverter implements ConverterDriver {
 			}
 			values.add(value);
 		}
-		return Sequence.ordered(values);
+		return values.build();
 	}
 	
 	private Value convertArray(Object[] array, ObjectConverter converter) {
-		List<Value> values = new ArrayList<Value>(array.length);
+		Sequence.Builder values = new Sequence.Builder(Value.Kind.ORDERED_LIST, array.length);
 		for (Object elem : array) {
 			Value value = converter.convert(elem);
 			if (value == null) {
@@ -180,6 +124,6 @@ public enum ArrayConverter implements ConverterDriver {
 			}
 			values.add(value);
 		}
-		return Sequence.ordered(values);
+		return values.build();
 	}
 }
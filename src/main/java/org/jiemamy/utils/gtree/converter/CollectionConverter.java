@@ -15,9 +15,7 @@
  */
 package org.jiemamy.utils.gtree.converter;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Set;
 
 import org.jiemamy.utils.gtree.model.Sequence;
@@ -50,7 +48,9 @@ public enum CollectionConverter implements ConverterDriver {
 	public Value convert(Object object, ObjectConverter converter) {
 		if (object instanceof Collection<?>) {
 			Collection<?> c = (Collection<?>) object;
-			List<Value> values = new ArrayList<Value>(c.size());
+			// Setのときはunorderedで
+			Value.Kind kind = c instanceof Set<?> ? Value.Kind.UNORDERED_LIST : Value.Kind.ORDERED_LIST;
+			Sequence.Builder values = new Sequence.Builder(kind, c.size());
 			for (Object elem : c) {
 				Value value = converter.convert(elem);
 				// ひとつでも変換できないと失敗
@@ -59,13 +59,7 @@ public enum CollectionConverter implements ConverterDriver {
 				}
 				values.add(value);
 			}
-			
-			// Setのときはunorderedで
-			if (c instanceof Set<?>) {
-				return Sequence.unordered(values);
-			} else {
-				return Sequence.ordered(values);
-			}
+			return values.build();
 		}
 		return null;
 	}
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.jiemamy.utils.gtree.model.Value;
+import org.jiemamy.utils.gtree.model.ValueInterner;
 
 /**
  * {@link ConverterDriver}の組み合わせによる{@link ObjectConverter}の実装。
@@ -69,9 +70,39 @@ public class DefaultObjectConverter implements ObjectConverter {
 		return new DefaultObjectConverter(drivers);
 	}
 	
+	/**
+	 * 標準的なドライバセットに拡張のドライバセットを追加し、
+	 * 変換結果を集約する変換器を生成して返す。
+	 * <p>
+	 * 生成される変換器のドライバセットは{@link #newInstance(List)}と同様である。
+	 * ただし、この変換器が返す値およびその部分木は、すべて{@code interner}によって集約される。
+	 * </p>
+	 * @param extraDrivers ユーザ定義のドライバ一覧
+	 * @param interner 変換結果を集約する{@link ValueInterner}
+	 * @return 生成したオブジェクト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #newInstance(List)
+	 */
+	public static DefaultObjectConverter newInstance(List<? extends ConverterDriver> extraDrivers,
+			ValueInterner interner) {
+		if (extraDrivers == null) {
+			throw new NullPointerException("extraDrivers"); //$NON-NLS-1$
+		}
+		if (interner == null) {
+			throw new NullPointerException("interner"); //$NON-NLS-1$
+		}
+		DefaultObjectConverter base = newInstance(extraDrivers);
+		return new DefaultObjectConverter(base.drivers, interner);
+	}
+	
 
 	private final List<ConverterDriver> drivers;
 	
+	/**
+	 * 変換結果を集約する{@link ValueInterner}、集約しない場合は{@code null}。
+	 */
+	private final ValueInterner interner;
+	
 
 	/**
 	 * インスタンスを生成する。
@@ -97,12 +128,39 @@ public class DefaultObjectConverter implements ObjectConverter {
 			throw new NullPointerException("drivers"); //$NON-NLS-1$
 		}
 		this.drivers = new ArrayList<ConverterDriver>(drivers);
+		this.interner = null;
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * <p>
+	 * ドライバの扱いは{@link #DefaultObjectConverter(List)}と同様である。
+	 * ただし、この変換器が返す値およびその部分木は、すべて{@code interner}によって集約される。
+	 * 部分木は内側から順に変換されるため、それぞれの値の集約は子要素の数に比例する時間で完了する。
+	 * </p>
+	 * @param drivers この変換器に登録するドライバの一覧
+	 * @param interner 変換結果を集約する{@link ValueInterner}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public DefaultObjectConverter(List<ConverterDriver> drivers, ValueInterner interner) {
+		super();
+		if (drivers == null) {
+			throw new NullPointerException("drivers"); //$NON-NLS-1$
+		}
+		if (interner == null) {
+			throw new NullPointerException("interner"); //$NON-NLS-1$
+		}
+		this.drivers = new ArrayList<ConverterDriver>(drivers);
+		this.interner = interner;
 	}
 	
 	public Value convert(Object object) {
 		for (ConverterDriver drv : drivers) {
 			Value result = drv.convert(object, this);
 			if (result != null) {
+				if (interner != null) {
+					return interner.intern(result);
+				}
 				return result;
 			}
 		}
@@ -17,17 +17,14 @@ package org.jiemamy.utils.gtree.converter;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.jiemamy.utils.gtree.model.Entry;
 import org.jiemamy.utils.gtree.model.Record;
-import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.SymbolTable;
 import org.jiemamy.utils.gtree.model.Value;
 
 /**
@@ -92,7 +89,7 @@ public class InterfaceBeanConverter implements ConverterDriver {
 	
 	private Record convertEach(Object object, Collection<Method> methods, ObjectConverter converter) {
 		
-		List<Entry> entries = new ArrayList<Entry>(methods.size());
+		Record.Builder entries = new Record.Builder(methods.size());
 		for (Method m : methods) {
 			try {
 				Object result = m.invoke(object, EMPTY_ARGS);
@@ -100,19 +97,19 @@ public class InterfaceBeanConverter implements ConverterDriver {
 					// 自己返戻くらいは防いでおく
 					return null;
 				}
-				Value key = Terminal.of(toBeanName(m));
+				Value key = SymbolTable.getGlobal().intern(toBeanName(m));
 				Value value = converter.convert(result);
 				if (value == null) {
 					// 変換に失敗したら全体を失敗させる
 					return null;
 				}
-				entries.add(Entry.of(key, value));
+				entries.add(key, value);
 			} catch (Exception e) {
 				// あらゆる例外で失敗
 				return null;
 			}
 		}
-		return Record.of(entries);
+		return entries.build();
 	}
 	
 	private String toBeanName(Method m) throws AssertionError {
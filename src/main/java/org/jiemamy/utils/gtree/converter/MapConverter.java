@@ -15,11 +15,8 @@
  */
 package org.jiemamy.utils.gtree.converter;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
-import org.jiemamy.utils.gtree.model.Entry;
 import org.jiemamy.utils.gtree.model.Record;
 import org.jiemamy.utils.gtree.model.Value;
 
@@ -44,7 +41,7 @@ public enum MapConverter implements ConverterDriver {
 	public Value convert(Object object, ObjectConverter converter) {
 		if (object instanceof Map<?, ?>) {
 			Map<?, ?> map = (Map<?, ?>) object;
-			List<Entry> entries = new ArrayList<Entry>(map.size());
+			Record.Builder entries = new Record.Builder(map.size());
 			for (Map.Entry<?, ?> entry : map.entrySet()) {
 				Value key = converter.convert(entry.getKey());
 				Value value = converter.convert(entry.getValue());
@@ -52,9 +49,9 @@ public enum MapConverter implements ConverterDriver {
 				if (value == null) {
 					return null;
 				}
-				entries.add(Entry.of(key, value));
+				entries.add(key, value);
 			}
-			return Record.of(entries);
+			return entries.build();
 		}
 		return null;
 	}
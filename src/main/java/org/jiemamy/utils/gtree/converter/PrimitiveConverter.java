@@ -74,12 +74,22 @@ public enum PrimitiveConverter implements ConverterDriver {
 	 * <p>
 	 * {@code null}が引数に渡された場合、空文字列として返す。
 	 * </p>
+	 * <p>
+	 * 整数および{@link Double}は、文字列表現を生成せずに数値を保持する終端値に変換する。
+	 * {@link Float}は{@link Double}と文字列表現が異なるため、ほかの値と同様に文字列として変換する。
+	 * </p>
 	 */
 	public Value convert(Object object, ObjectConverter converter) {
 		if (object == null) {
 			return Terminal.of(""); //$NON-NLS-1$
 		}
 		Class<? extends Object> klass = object.getClass();
+		if (klass == Integer.class || klass == Long.class || klass == Short.class || klass == Byte.class) {
+			return Terminal.ofLong(((Number) object).longValue());
+		}
+		if (klass == Double.class) {
+			return Terminal.ofDouble(((Double) object).doubleValue());
+		}
 		if (TARGETS.contains(klass)) {
 			String representation = String.valueOf(object);
 			return Terminal.of(representation);
@@ -15,8 +15,8 @@
  */
 package org.jiemamy.utils.gtree.model;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.text.MessageFormat;
 
 /**
  * 名前と値のペア。
@@ -167,9 +167,31 @@ public final class Entry extends Element implements Comparable<Entry>, Serializa
 		return true;
 	}
 	
+	/**
+	 * このエントリの文字列表現を、指定の出力先に直接書き出す。
+	 * <p>
+	 * 出力される文字列は{@link #toString()}と同じ形式である。
+	 * 文字列表現が{@code limit}文字を超える場合の扱いは{@link Value#appendTo(Appendable, int)}と同様である。
+	 * </p>
+	 * @param output 出力先
+	 * @param limit 出力する最大の文字数 ({@code "..."}を除く)
+	 * @return すべて出力した場合は{@code true}、途中で打ち切った場合は{@code false}
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 最大の文字数に負の値が指定された場合
+	 */
+	public boolean appendTo(Appendable output, int limit) throws IOException {
+		if (output == null) {
+			throw new NullPointerException("output"); //$NON-NLS-1$
+		}
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit < 0"); //$NON-NLS-1$
+		}
+		return ValueRenderer.render(this, output, limit);
+	}
+	
 	@Override
 	public String toString() {
-		return MessageFormat.format("\"{0}\":\"{1}\"", //$NON-NLS-1$
-				getKey(), getValue());
+		return ValueRenderer.toString(this);
 	}
 }
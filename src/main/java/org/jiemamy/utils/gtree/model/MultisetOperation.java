@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+/**
+ * 整列済みの値の列を多重集合とみなして行う演算。
+ * <p>
+ * いずれの演算も、2つの列を先頭から1度だけ走査して併合するため、要素数の線形時間で完了する。
+ * 同値な要素が両方の列に含まれる場合、結果には左の列の要素を優先して含める。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+enum MultisetOperation {
+	
+	/**
+	 * 和 (各要素の個数は両者の多いほう)。
+	 */
+	UNION {
+		
+		@Override
+		int count(int left, int right) {
+			return Math.max(left, right);
+		}
+	},
+	
+	/**
+	 * 共通部分 (各要素の個数は両者の少ないほう)。
+	 */
+	INTERSECTION {
+		
+		@Override
+		int count(int left, int right) {
+			return Math.min(left, right);
+		}
+	},
+	
+	/**
+	 * 差 (各要素の個数は左の個数から右の個数を引いたもの)。
+	 */
+	DIFFERENCE {
+		
+		@Override
+		int count(int left, int right) {
+			return Math.max(left - right, 0);
+		}
+	},
+	
+	/**
+	 * 対称差 (各要素の個数は両者の個数の差)。
+	 */
+	SYMMETRIC_DIFFERENCE {
+		
+		@Override
+		int count(int left, int right) {
+			return Math.abs(left - right);
+		}
+	};
+	
+	/**
+	 * 同値な要素の個数から、演算結果に含める個数を返す。
+	 * @param left 左の列に含まれる個数
+	 * @param right 右の列に含まれる個数
+	 * @return 演算結果に含める個数
+	 */
+	abstract int count(int left, int right);
+	
+	/**
+	 * 2つの整列済みの配列に対して演算を行う。
+	 * @param left 左の列 (自然な順序で整列済み)
+	 * @param leftSize 左の列の要素数
+	 * @param right 右の列 (自然な順序で整列済み)
+	 * @param rightSize 右の列の要素数
+	 * @return 演算結果の要素を整列された順序で含む、要素数ちょうどの配列
+	 */
+	Value[] apply(Value[] left, int leftSize, Value[] right, int rightSize) {
+		assert left != null;
+		assert right != null;
+		Value[] results = new Value[leftSize + rightSize];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < leftSize || j < rightSize) {
+			Value head;
+			if (j >= rightSize) {
+				head = left[i];
+			} else if (i >= leftSize) {
+				head = right[j];
+			} else {
+				head = left[i].compareTo(right[j]) <= 0 ? left[i] : right[j];
+			}
+			int leftStart = i;
+			while (i < leftSize && left[i].compareTo(head) == 0) {
+				i++;
+			}
+			int rightStart = j;
+			while (j < rightSize && right[j].compareTo(head) == 0) {
+				j++;
+			}
+			int leftCount = i - leftStart;
+			int rightCount = j - rightStart;
+			int count = count(leftCount, rightCount);
+			int fromLeft = Math.min(count, leftCount);
+			System.arraycopy(left, leftStart, results, size, fromLeft);
+			System.arraycopy(right, rightStart, results, size + fromLeft, count - fromLeft);
+			size += count;
+		}
+		if (size == results.length) {
+			return results;
+		}
+		Value[] trimmed = new Value[size];
+		System.arraycopy(results, 0, trimmed, 0, size);
+		return trimmed;
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+/**
+ * 数値を保持する終端値。
+ * <p>
+ * 文字列表現は{@link String#valueOf(long)}または{@link String#valueOf(double)}
+ * によって必要になった時点で生成され、以降はキャッシュされる。
+ * 整数どうしの同値性と順序は、文字列表現を生成せずに数値から直接計算する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class NumericTerminal extends Terminal {
+	
+	private static final long serialVersionUID = 2962217587066262715L;
+	
+	/**
+	 * 基数。
+	 */
+	private static final int RADIX = 10;
+	
+	/**
+	 * {@code long}の10進表現の最大桁数。
+	 */
+	private static final int MAX_DIGITS = 19;
+	
+	/**
+	 * {@code 10}のべき乗の表。
+	 */
+	private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS];
+	static {
+		long power = 1L;
+		for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = power;
+			power *= RADIX;
+		}
+	}
+	
+	/**
+	 * 整数の場合はその値、浮動小数点数の場合は{@link Double#doubleToLongBits(double)}の値。
+	 */
+	private final long bits;
+	
+	/**
+	 * 浮動小数点数である場合に{@code true}。
+	 */
+	private final boolean floating;
+	
+	/**
+	 * キャッシュされた文字列表現、未生成の場合は{@code null}。
+	 */
+	private transient volatile String text;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param bits 整数の値、または浮動小数点数のビット表現
+	 * @param floating 浮動小数点数である場合に{@code true}
+	 */
+	private NumericTerminal(long bits, boolean floating) {
+		super(null);
+		this.bits = bits;
+		this.floating = floating;
+	}
+	
+	/**
+	 * 指定の整数を表現する終端値を生成する。
+	 * @param value 対象の整数
+	 * @return 生成したインスタンス
+	 */
+	static NumericTerminal integer(long value) {
+		return new NumericTerminal(value, false);
+	}
+	
+	/**
+	 * 指定の浮動小数点数を表現する終端値を生成する。
+	 * @param value 対象の浮動小数点数
+	 * @return 生成したインスタンス
+	 */
+	static NumericTerminal real(double value) {
+		return new NumericTerminal(Double.doubleToLongBits(value), true);
+	}
+	
+	/**
+	 * 浮動小数点数を表現する場合のみ{@code true}を返す。
+	 * @return 浮動小数点数である場合に{@code true}
+	 */
+	boolean isFloating() {
+		return floating;
+	}
+	
+	/**
+	 * 整数の場合はその値を、浮動小数点数の場合は{@link Double#doubleToLongBits(double)}の値を返す。
+	 * @return 整数の値、または浮動小数点数のビット表現
+	 */
+	long getBits() {
+		return bits;
+	}
+	
+	@Override
+	public String getRepresentation() {
+		String result = text;
+		if (result == null) {
+			result = floating ? String.valueOf(Double.longBitsToDouble(bits)) : String.valueOf(bits);
+			text = result;
+		}
+		return result;
+	}
+	
+	@Override
+	long computeFingerprint() {
+		if (floating || bits == Long.MIN_VALUE) {
+			return super.computeFingerprint();
+		}
+		return integralFingerprint(bits);
+	}
+	
+	/**
+	 * 指定の整数の10進表現を持つ終端値のフィンガープリントを、文字列表現を生成せずに計算する。
+	 * <p>
+	 * 結果は{@code Terminal.of(String.valueOf(value))}に対する{@link #computeFingerprint()}に等しい。
+	 * </p>
+	 * @param value 対象の整数 ({@link Long#MIN_VALUE}を除く)
+	 * @return 対応するフィンガープリント
+	 */
+	static long integralFingerprint(long value) {
+		assert value != Long.MIN_VALUE;
+		long result = FINGERPRINT_SEED;
+		int length = 0;
+		long magnitude = value;
+		if (value < 0) {
+			result ^= '-';
+			result *= FINGERPRINT_PRIME;
+			length++;
+			magnitude = -value;
+		}
+		int digits = digits(magnitude);
+		for (int i = digits - 1; i >= 0; i--) {
+			result ^= '0' + (magnitude / POWERS_OF_TEN[i]) % RADIX;
+			result *= FINGERPRINT_PRIME;
+		}
+		length += digits;
+		return mix(result ^ length);
+	}
+	
+	@Override
+	long estimateShallowBytes() {
+		long self = OBJECT_HEADER_BYTES + VALUE_FIELD_BYTES + REFERENCE_BYTES * 2 + INT_BYTES * 3;
+		String cached = text;
+		if (cached == null) {
+			return self;
+		}
+		long string = OBJECT_HEADER_BYTES + REFERENCE_BYTES + INT_BYTES * 3;
+		long chars = OBJECT_HEADER_BYTES + INT_BYTES + CHAR_BYTES * cached.length();
+		return self + string + chars;
+	}
+	
+	@Override
+	boolean equalsRepresentation(Terminal other) {
+		if (other instanceof NumericTerminal) {
+			NumericTerminal numeric = (NumericTerminal) other;
+			if (floating == numeric.floating) {
+				// doubleToLongBits は NaN を正規化し、-0.0 と 0.0 を区別するため、文字列表現の同値性と一致する
+				return bits == numeric.bits;
+			}
+		}
+		return super.equalsRepresentation(other);
+	}
+	
+	@Override
+	int compareRepresentation(Terminal other) {
+		if (other instanceof NumericTerminal) {
+			NumericTerminal numeric = (NumericTerminal) other;
+			if (floating == false && numeric.floating == false
+					&& bits != Long.MIN_VALUE && numeric.bits != Long.MIN_VALUE) {
+				return compareDecimal(bits, numeric.bits);
+			}
+		}
+		return super.compareRepresentation(other);
+	}
+	
+	/**
+	 * 2つの整数の10進表現を辞書式順序で比較する。
+	 * @param a 比較する整数 ({@link Long#MIN_VALUE}を除く)
+	 * @param b 比較する整数 ({@link Long#MIN_VALUE}を除く)
+	 * @return {@link Comparable}の規約に従った比較結果
+	 */
+	static int compareDecimal(long a, long b) {
+		assert a != Long.MIN_VALUE && b != Long.MIN_VALUE;
+		if (a == b) {
+			return 0;
+		}
+		// '-' は数字よりも小さい
+		if ((a < 0) != (b < 0)) {
+			return a < 0 ? -1 : +1;
+		}
+		if (a < 0) {
+			return compareDigits(-a, -b);
+		}
+		return compareDigits(a, b);
+	}
+	
+	/**
+	 * 2つの異なる非負整数の10進表現を辞書式順序で比較する。
+	 * @param a 比較する非負整数
+	 * @param b 比較する非負整数
+	 * @return {@link Comparable}の規約に従った比較結果
+	 */
+	private static int compareDigits(long a, long b) {
+		assert a >= 0 && b >= 0 && a != b;
+		int aDigits = digits(a);
+		int bDigits = digits(b);
+		if (aDigits > bDigits) {
+			// a の先頭 bDigits 桁が b に等しければ、b は a の接頭辞となる
+			long prefix = a / POWERS_OF_TEN[aDigits - bDigits];
+			if (prefix == b) {
+				return +1;
+			}
+			return prefix < b ? -1 : +1;
+		} else if (aDigits < bDigits) {
+			long prefix = b / POWERS_OF_TEN[bDigits - aDigits];
+			if (prefix == a) {
+				return -1;
+			}
+			return a < prefix ? -1 : +1;
+		}
+		return a < b ? -1 : +1;
+	}
+	
+	private static int digits(long value) {
+		assert value >= 0;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			if (value < POWERS_OF_TEN[i]) {
+				return i;
+			}
+		}
+		return MAX_DIGITS;
+	}
+}
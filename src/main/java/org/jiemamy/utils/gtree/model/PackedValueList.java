@@ -0,0 +1,242 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * プリミティブ型の配列を保持し、各要素を数値の終端値として公開するリスト。
+ * <p>
+ * 要素の終端値は{@link #get(int)}のたびに生成されるため、同じ位置の要素が
+ * 同一のインスタンスであるとは限らない。
+ * 保持する配列は生成時に複製され、以降変更されない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class PackedValueList extends ValueList {
+	
+	private static final long serialVersionUID = 7005400744216227339L;
+	
+	/**
+	 * 要素の型。
+	 */
+	private final Class<?> type;
+	
+	/**
+	 * 要素を保持するプリミティブ型の配列。
+	 */
+	private final Object array;
+	
+	/**
+	 * 要素数。
+	 */
+	private final int size;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param type 要素の型
+	 * @param array 要素を保持するプリミティブ型の配列 (呼び出し元で変更してはならない)
+	 * @param size 要素数
+	 */
+	private PackedValueList(Class<?> type, Object array, int size) {
+		assert type != null;
+		assert array != null;
+		assert array.getClass().getComponentType() == type;
+		this.type = type;
+		this.array = array;
+		this.size = size;
+	}
+	
+	/**
+	 * 指定の配列の複製を保持するリストを返す。
+	 * @param values 要素の一覧
+	 * @return 対応するリスト
+	 */
+	static PackedValueList of(byte[] values) {
+		return new PackedValueList(byte.class, values.clone(), values.length);
+	}
+	
+	/**
+	 * 指定の配列の複製を保持するリストを返す。
+	 * @param values 要素の一覧
+	 * @return 対応するリスト
+	 */
+	static PackedValueList of(short[] values) {
+		return new PackedValueList(short.class, values.clone(), values.length);
+	}
+	
+	/**
+	 * 指定の配列の複製を保持するリストを返す。
+	 * @param values 要素の一覧
+	 * @return 対応するリスト
+	 */
+	static PackedValueList of(int[] values) {
+		return new PackedValueList(int.class, values.clone(), values.length);
+	}
+	
+	/**
+	 * 指定の配列の複製を保持するリストを返す。
+	 * @param values 要素の一覧
+	 * @return 対応するリスト
+	 */
+	static PackedValueList of(long[] values) {
+		return new PackedValueList(long.class, values.clone(), values.length);
+	}
+	
+	/**
+	 * 指定の配列の複製を保持するリストを返す。
+	 * @param values 要素の一覧
+	 * @return 対応するリスト
+	 */
+	static PackedValueList of(double[] values) {
+		return new PackedValueList(double.class, values.clone(), values.length);
+	}
+	
+	/**
+	 * 要素の型を返す。
+	 * @return 要素の型
+	 */
+	Class<?> getType() {
+		return type;
+	}
+	
+	/**
+	 * このリストが占めるメモリ量の推定値をバイト単位で返す。
+	 * @return このリストと配列の推定メモリ量
+	 */
+	long estimateBytes() {
+		int width;
+		if (type == byte.class) {
+			width = 1;
+		} else if (type == short.class) {
+			width = 2;
+		} else if (type == int.class) {
+			width = 4; // CHECKSTYLE IGNORE THIS LINE
+		} else {
+			width = 8; // CHECKSTYLE IGNORE THIS LINE
+		}
+		long self = Value.OBJECT_HEADER_BYTES + Value.REFERENCE_BYTES * 2 + Value.INT_BYTES;
+		long elements = Value.OBJECT_HEADER_BYTES + Value.INT_BYTES + (long) width * Array.getLength(array);
+		return self + elements;
+	}
+	
+	/**
+	 * 要素を保持する配列の複製を返す。
+	 * @return 要素を保持する配列の複製
+	 */
+	Object toPrimitiveArray() {
+		if (type == byte.class) {
+			return ((byte[]) array).clone();
+		} else if (type == short.class) {
+			return ((short[]) array).clone();
+		} else if (type == int.class) {
+			return ((int[]) array).clone();
+		} else if (type == long.class) {
+			return ((long[]) array).clone();
+		} else {
+			return ((double[]) array).clone();
+		}
+	}
+	
+	/**
+	 * 指定の位置にある整数の要素を返す。
+	 * @param index 対象の位置
+	 * @return 対応する要素
+	 */
+	private long getLong(int index) {
+		if (type == byte.class) {
+			return ((byte[]) array)[index];
+		} else if (type == short.class) {
+			return ((short[]) array)[index];
+		} else if (type == int.class) {
+			return ((int[]) array)[index];
+		} else {
+			assert type == long.class;
+			return ((long[]) array)[index];
+		}
+	}
+	
+	@Override
+	public Value get(int index) {
+		checkIndex(index);
+		if (type == double.class) {
+			return Terminal.ofDouble(((double[]) array)[index]);
+		}
+		return Terminal.ofLong(getLong(index));
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	long fingerprintAt(int index) {
+		checkIndex(index);
+		if (type != double.class) {
+			long value = getLong(index);
+			if (value != Long.MIN_VALUE) {
+				return Value.normalizeFingerprint(NumericTerminal.integralFingerprint(value));
+			}
+		}
+		return super.fingerprintAt(index);
+	}
+	
+	@Override
+	ValueList slice(int from, int to) {
+		checkRange(from, to);
+		if (from == 0 && to == size) {
+			return this;
+		}
+		int length = to - from;
+		if (length <= LEAF_SIZE) {
+			return super.slice(from, to);
+		}
+		Object results = Array.newInstance(type, length);
+		System.arraycopy(array, from, results, 0, length);
+		return new PackedValueList(type, results, length);
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof PackedValueList) {
+			PackedValueList other = (PackedValueList) o;
+			if (type == other.type) {
+				if (type == byte.class) {
+					return Arrays.equals((byte[]) array, (byte[]) other.array);
+				} else if (type == short.class) {
+					return Arrays.equals((short[]) array, (short[]) other.array);
+				} else if (type == int.class) {
+					return Arrays.equals((int[]) array, (int[]) other.array);
+				} else if (type == long.class) {
+					return Arrays.equals((long[]) array, (long[]) other.array);
+				} else {
+					// doubleToLongBits による比較は、終端値の文字列表現の比較と一致する
+					return Arrays.equals((double[]) array, (double[]) other.array);
+				}
+			}
+		}
+		return super.equals(o);
+	}
+	
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+}
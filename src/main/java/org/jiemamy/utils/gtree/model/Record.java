@@ -15,9 +15,13 @@
  */
 package org.jiemamy.utils.gtree.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * 名前つきの値の列。
@@ -29,34 +33,60 @@ public final class Record extends Value {
 	private static final long serialVersionUID = 6668732562104736964L;
 	
 	/**
-	 * レコードの一覧。
+	 * エントリを持たないレコード。
 	 */
-	private final ArrayList<Entry> entries;
+	private static final Record EMPTY = new Record(RecordShape.EMPTY, new Value[0]);
+	
+	/**
+	 * このレコードのキーの並び。
+	 */
+	private final RecordShape shape;
+	
+	/**
+	 * キーの並びに対応する値の一覧。
+	 */
+	private final Value[] values;
+	
+	/**
+	 * {@link #getEntries()}が返すリスト、未生成の場合は{@code null}。
+	 */
+	private transient List<Entry> entryList;
 	
 
 	/**
 	 * インスタンスを生成する。
-	 * @param entries エントリの一覧
+	 * @param shape キーの並び
+	 * @param values キーの並びに対応する値の一覧
 	 */
-	private Record(ArrayList<Entry> entries) {
+	private Record(RecordShape shape, Value[] values) {
 		super();
-		assert entries != null;
-		this.entries = entries;
+		assert shape != null;
+		assert values != null;
+		assert shape.size() == values.length;
+		this.shape = shape;
+		this.values = values;
 	}
 	
 	/**
 	 * 指定のエントリの一覧からなるレコードを作成して返す。
+	 * <p>
+	 * 作成されるレコードはエントリのキーと値のみを保持し、
+	 * 引数に指定された{@link Entry}オブジェクト自体は保持しない。
+	 * また、同じキーの並びを持つレコードどうしは、キーの並びを共有する。
+	 * </p>
+	 * <p>
+	 * 引数のエントリの一覧がすでに整列されている場合、整列は行われない。
+	 * </p>
 	 * @param entries エントリの一覧
 	 * @return 生成したインスタンス
-	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     または引数に{@code null}が含まれる場合
 	 */
 	public static Record of(List<? extends Entry> entries) {
 		if (entries == null) {
 			throw new NullPointerException("entries"); //$NON-NLS-1$
 		}
-		ArrayList<Entry> copy = new ArrayList<Entry>(entries);
-		Collections.sort(copy);
-		return new Record(copy);
+		return new Builder(entries.size()).addAll(entries).build();
 	}
 	
 	/**
@@ -68,16 +98,365 @@ public final class Record extends Value {
 		return Value.Kind.RECORD;
 	}
 	
+	/**
+	 * このレコードのキーと、指定の値の一覧からなるレコードを返す。
+	 * <p>
+	 * 引数の配列は、このレコードの値をそれぞれ同値なものに置き換えたものでなければならない。
+	 * 返されるレコードはこの引数をそのまま利用し、エントリの整列は行わない。
+	 * </p>
+	 * @param replacedKeys 同値なキーに置き換えたキーの一覧
+	 * @param replacedValues 同値な値に置き換えた値の一覧
+	 * @return 生成したインスタンス
+	 */
+	Record derive(Value[] replacedKeys, Value[] replacedValues) {
+		assert replacedKeys != null;
+		assert replacedValues != null;
+		assert RecordShape.of(replacedKeys) == shape;
+		return new Record(RecordShape.of(replacedKeys), replacedValues);
+	}
+	
+	/**
+	 * 指定のキーの並びと値の一覧からなるレコードを返す。
+	 * <p>
+	 * 引数の配列はそのままレコード内で利用されるため、呼び出し元で変更してはならない。
+	 * </p>
+	 * @param shape キーの並び
+	 * @param values キーの並びに対応する値の一覧
+	 * @return 生成したインスタンス
+	 */
+	static Record of(RecordShape shape, Value[] values) {
+		assert shape != null;
+		assert values != null;
+		if (values.length == 0) {
+			return EMPTY;
+		}
+		return new Record(shape, values);
+	}
+	
+	/**
+	 * エントリの個数を返す。
+	 * @return エントリの個数
+	 */
+	int size() {
+		return values.length;
+	}
+	
+	/**
+	 * このレコードのキーの並びを返す。
+	 * @return キーの並び
+	 */
+	RecordShape getShape() {
+		return shape;
+	}
+	
+	/**
+	 * 指定の位置にあるエントリのキーを返す。
+	 * @param index 対象の位置
+	 * @return 対応するキー
+	 */
+	Value getKey(int index) {
+		return shape.getKey(index);
+	}
+	
+	/**
+	 * 指定の位置にあるエントリの値を返す。
+	 * @param index 対象の位置
+	 * @return 対応する値
+	 */
+	Value getValue(int index) {
+		return values[index];
+	}
+	
 	/**
 	 * エントリの一覧を返す。
 	 * <p>
 	 * 返されるエントリの一覧は、エントリの自然な順序で整列されている。
 	 * 返されるリストは変更できない。
 	 * </p>
+	 * <p>
+	 * このレコードは内部に{@link Entry}オブジェクトを保持しておらず、
+	 * 返されるリストは要素が参照されるたびに対応する{@link Entry}を生成する。
+	 * </p>
 	 * @return エントリの一覧
 	 */
 	public List<Entry> getEntries() {
-		return Collections.unmodifiableList(entries);
+		List<Entry> list = entryList;
+		if (list == null) {
+			list = new EntryList();
+			entryList = list;
+		}
+		return list;
+	}
+	
+	/**
+	 * 指定のキーを持つエントリの値を返す。
+	 * <p>
+	 * 指定のキーを持つエントリが複数存在する場合、それらのうち値の自然な順序で最小のものを返す。
+	 * </p>
+	 * @param key 対象のキー
+	 * @return 対応する値、存在しない場合は{@code null}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Value get(Value key) {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		int[] range = shape.findRange(key);
+		if (range == null) {
+			return null;
+		}
+		return values[range[0]];
+	}
+	
+	/**
+	 * 指定のキーを持つすべてのエントリの値を返す。
+	 * <p>
+	 * 返されるリストは値の自然な順序で整列されており、変更できない。
+	 * </p>
+	 * @param key 対象のキー
+	 * @return 対応する値の一覧、存在しない場合は空のリスト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public List<Value> getAll(Value key) {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		int[] range = shape.findRange(key);
+		if (range == null) {
+			return Collections.emptyList();
+		}
+		List<Value> results = new ArrayList<Value>(range[1] - range[0]);
+		for (int i = range[0]; i < range[1]; i++) {
+			results.add(values[i]);
+		}
+		return Collections.unmodifiableList(results);
+	}
+	
+	/**
+	 * 指定のキーを持つエントリが存在する場合のみ{@code true}を返す。
+	 * @param key 対象のキー
+	 * @return 指定のキーを持つエントリが存在する場合に{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public boolean containsKey(Value key) {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		return shape.findRange(key) != null;
+	}
+	
+	/**
+	 * 指定のキーを持つエントリの値を、指定の値に置き換えたレコードを返す。
+	 * <p>
+	 * 指定のキーを持つエントリが存在しない場合はエントリを追加し、
+	 * 複数存在する場合はそれらを単一のエントリに置き換える。
+	 * このレコードは変更されず、ほかのエントリの値はこのレコードと共有される。
+	 * また、キーの並びが変化しない場合はキーの並びも共有する。
+	 * </p>
+	 * @param key 対象のキー
+	 * @param value 置き換える値
+	 * @return 置き換えたレコード
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Record with(Value key, Value value) {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		int[] range = shape.findRange(key);
+		if (range == null) {
+			int position = shape.lowerBound(key);
+			return splice(position, position, key, value);
+		}
+		if (range[1] - range[0] == 1) {
+			Value[] replaced = values.clone();
+			replaced[range[0]] = value;
+			return new Record(shape, replaced);
+		}
+		return splice(range[0], range[1], key, value);
+	}
+	
+	/**
+	 * 指定のキーと値からなるエントリを追加したレコードを返す。
+	 * <p>
+	 * {@link #with(Value, Value)}と異なり、
+	 * 指定のキーを持つエントリがすでに存在する場合もそれらを残したままエントリを追加する。
+	 * このレコードは変更されず、ほかのエントリの値はこのレコードと共有される。
+	 * </p>
+	 * @param key 追加するエントリのキー
+	 * @param value 追加するエントリの値
+	 * @return 追加したレコード
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Record insert(Value key, Value value) {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		int position = shape.lowerBound(key);
+		while (position < values.length && shape.getKey(position).equals(key)
+				&& values[position].compareTo(value) <= 0) {
+			position++;
+		}
+		return splice(position, position, key, value);
+	}
+	
+	/**
+	 * 指定のキーを持つすべてのエントリを除去したレコードを返す。
+	 * <p>
+	 * このレコードは変更されず、残りのエントリの値はこのレコードと共有される。
+	 * </p>
+	 * @param key 対象のキー
+	 * @return 除去したレコード、指定のキーを持つエントリが存在しない場合はこのレコード
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Record without(Value key) {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		int[] range = shape.findRange(key);
+		if (range == null) {
+			return this;
+		}
+		return splice(range[0], range[1], null, null);
+	}
+	
+	/**
+	 * 指定のキーを持つエントリのうち、{@link #get(Value)}が返す値を持つ1つのエントリのみを、
+	 * 指定の値に置き換えたレコードを返す。
+	 * <p>
+	 * {@link #with(Value, Value)}と異なり、同じキーを持つほかのエントリはそのまま残す。
+	 * このレコードは変更されず、ほかのエントリの値とキーの並びはこのレコードと共有される。
+	 * </p>
+	 * @param key 対象のキー
+	 * @param value 置き換える値
+	 * @return 置き換えたレコード
+	 * @throws IllegalArgumentException 指定のキーを持つエントリが存在しない場合
+	 */
+	Record replaceFirst(Value key, Value value) {
+		assert key != null;
+		assert value != null;
+		int[] range = shape.findRange(key);
+		if (range == null) {
+			throw new IllegalArgumentException(String.valueOf(key));
+		}
+		Value[] replaced = values.clone();
+		int position = range[0];
+		while (position + 1 < range[1] && replaced[position + 1].compareTo(value) < 0) {
+			replaced[position] = replaced[position + 1];
+			position++;
+		}
+		replaced[position] = value;
+		return new Record(shape, replaced);
+	}
+	
+	/**
+	 * このレコードと指定のレコードのエントリをキーごとに併合したレコードを返す。
+	 * <p>
+	 * 一方のレコードにのみ含まれるキーのエントリは、そのまま結果に含める。
+	 * 両方のレコードに含まれるキーについては、指定のポリシーによって結果に含める値を決定する。
+	 * いずれのレコードもキーの順に整列されているため、2つのレコードを先頭から1度だけ走査して併合し、
+	 * 結果を再度整列することはない。
+	 * </p>
+	 * <p>
+	 * このレコードと指定のレコードは変更されず、結果のエントリの値はそれらと共有される。
+	 * </p>
+	 * @param other 併合するレコード
+	 * @param policy キーが衝突した場合のポリシー
+	 * @return 併合したレコード
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     またはポリシーが{@code null}を返した場合
+	 * @throws IllegalArgumentException ポリシーが衝突を拒否した場合
+	 */
+	public Record merge(Record other, MergePolicy policy) {
+		if (other == null) {
+			throw new NullPointerException("other"); //$NON-NLS-1$
+		}
+		if (policy == null) {
+			throw new NullPointerException("policy"); //$NON-NLS-1$
+		}
+		if (other.values.length == 0) {
+			return this;
+		}
+		if (values.length == 0) {
+			return other;
+		}
+		Builder results = new Builder(values.length + other.values.length);
+		int i = 0;
+		int j = 0;
+		while (i < values.length || j < other.values.length) {
+			int keyOrder;
+			if (j >= other.values.length) {
+				keyOrder = -1;
+			} else if (i >= values.length) {
+				keyOrder = +1;
+			} else {
+				keyOrder = shape.getKey(i).compareTo(other.shape.getKey(j));
+			}
+			Value key = keyOrder <= 0 ? shape.getKey(i) : other.shape.getKey(j);
+			int mineEnd = keyOrder <= 0 ? shape.findEnd(i) : i;
+			int theirsEnd = keyOrder >= 0 ? other.shape.findEnd(j) : j;
+			if (keyOrder == 0) {
+				List<? extends Value> resolved = policy.resolve(key,
+						Collections.unmodifiableList(Arrays.asList(values).subList(i, mineEnd)),
+						Collections.unmodifiableList(Arrays.asList(other.values).subList(j, theirsEnd)));
+				if (resolved == null) {
+					throw new NullPointerException("resolved"); //$NON-NLS-1$
+				}
+				Value[] resolvedValues = resolved.toArray(new Value[resolved.size()]);
+				Arrays.sort(resolvedValues);
+				for (Value value : resolvedValues) {
+					results.add(key, value);
+				}
+			} else {
+				for (int k = i; k < mineEnd; k++) {
+					results.add(key, values[k]);
+				}
+				for (int k = j; k < theirsEnd; k++) {
+					results.add(key, other.values[k]);
+				}
+			}
+			i = mineEnd;
+			j = theirsEnd;
+		}
+		return results.build();
+	}
+	
+	/**
+	 * このレコードの{@code [from, to)}の範囲のエントリを、指定のエントリに置き換えたレコードを返す。
+	 * @param from 置き換える最初の位置
+	 * @param to 置き換える最後の位置の次
+	 * @param key 置き換えるエントリのキー、エントリを除去するのみの場合は{@code null}
+	 * @param value 置き換えるエントリの値、エントリを除去するのみの場合は{@code null}
+	 * @return 置き換えたレコード
+	 */
+	private Record splice(int from, int to, Value key, Value value) {
+		assert 0 <= from && from <= to && to <= values.length;
+		assert (key == null) == (value == null);
+		int inserted = key == null ? 0 : 1;
+		int size = values.length - (to - from) + inserted;
+		if (size == 0) {
+			return EMPTY;
+		}
+		Value[] newKeys = new Value[size];
+		Value[] newValues = new Value[size];
+		for (int i = 0; i < from; i++) {
+			newKeys[i] = shape.getKey(i);
+		}
+		System.arraycopy(values, 0, newValues, 0, from);
+		if (key != null) {
+			newKeys[from] = key;
+			newValues[from] = value;
+		}
+		for (int i = to; i < values.length; i++) {
+			newKeys[i - to + from + inserted] = shape.getKey(i);
+		}
+		System.arraycopy(values, to, newValues, from + inserted, values.length - to);
+		return new Record(RecordShape.of(newKeys), newValues);
 	}
 	
 	/**
@@ -91,6 +470,34 @@ public final class Record extends Value {
 		return visitor.visitRecord(this, context);
 	}
 	
+	@Override
+	int childCount() {
+		return values.length;
+	}
+	
+	@Override
+	Value childAt(int index) {
+		return values[index];
+	}
+	
+	@Override
+	long estimateShallowBytes() {
+		// この値, 値の配列 (キーの一覧は同じ形状のレコード間で共有されるため含めない)
+		long self = OBJECT_HEADER_BYTES + VALUE_FIELD_BYTES + REFERENCE_BYTES * 3;
+		long array = OBJECT_HEADER_BYTES + INT_BYTES + REFERENCE_BYTES * values.length;
+		return self + array;
+	}
+	
+	@Override
+	long computeFingerprint() {
+		long result = Value.Kind.RECORD.ordinal() + 1;
+		for (int i = 0; i < values.length; i++) {
+			result = result * FINGERPRINT_MULTIPLIER + shape.getKey(i).getFingerprint();
+			result = result * FINGERPRINT_MULTIPLIER + values[i].getFingerprint();
+		}
+		return mix(result ^ values.length);
+	}
+	
 	/**
 	 * このオブジェクトのハッシュ値を返す。
 	 * @return このオブジェクトのハッシュ値
@@ -98,10 +505,7 @@ public final class Record extends Value {
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + entries.hashCode();
-		return result;
+		return fingerprintHash();
 	}
 	
 	/**
@@ -122,7 +526,13 @@ public final class Record extends Value {
 			return false;
 		}
 		Record other = (Record) obj;
-		if (entries.equals(other.entries) == false) {
+		if (getFingerprint() != other.getFingerprint()) {
+			return false;
+		}
+		if (shape.equals(other.shape) == false) {
+			return false;
+		}
+		if (Arrays.equals(values, other.values) == false) {
 			return false;
 		}
 		return true;
@@ -195,7 +605,26 @@ public final class Record extends Value {
 			return this.getKind().compareTo(that.getKind());
 		}
 		Record other = (Record) that;
-		return compareList(this.entries, other.entries);
+		if (values.length < other.values.length) {
+			return -1;
+		} else if (values.length > other.values.length) {
+			return +1;
+		}
+		for (int i = 0; i < values.length; i++) {
+			Value key = shape.getKey(i);
+			Value otherKey = other.shape.getKey(i);
+			if (key != otherKey) {
+				int keyOrder = key.compareTo(otherKey);
+				if (keyOrder != 0) {
+					return keyOrder;
+				}
+			}
+			int valueOrder = values[i].compareTo(other.values[i]);
+			if (valueOrder != 0) {
+				return valueOrder;
+			}
+		}
+		return +-0; // CHECKSTYLE IGNORE THIS LINE
 	}
 	
 	/**
@@ -204,16 +633,297 @@ public final class Record extends Value {
 	 */
 	@Override
 	public String toString() {
-		StringBuilder buf = new StringBuilder();
-		buf.append('{');
-		if (entries.isEmpty() == false) {
-			buf.append(entries.get(0));
-			for (int i = 1, n = entries.size(); i < n; i++) {
-				buf.append(", "); //$NON-NLS-1$
-				buf.append(entries.get(i));
+		return ValueRenderer.toString(this);
+	}
+	
+
+	/**
+	 * このレコードのエントリを必要に応じて生成するリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private class EntryList extends AbstractList<Entry> implements RandomAccess {
+		
+		/**
+		 * インスタンスを生成する。
+		 */
+		EntryList() {
+			super();
+		}
+		
+		@Override
+		public Entry get(int index) {
+			if (index < 0 || index >= values.length) {
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return Entry.of(shape.getKey(index), values[index]);
+		}
+		
+		@Override
+		public int size() {
+			return values.length;
+		}
+	}
+	
+	/**
+	 * {@link Record#merge(Record, MergePolicy)}で、両方のレコードに含まれるキーの値を決定する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	public interface MergePolicy {
+		
+		/**
+		 * 併合先のレコードの値を優先する。
+		 */
+		MergePolicy PREFER_THIS = new MergePolicy() {
+			
+			public List<? extends Value> resolve(Value key, List<Value> mine, List<Value> theirs) {
+				return mine;
+			}
+		};
+		
+		/**
+		 * 併合するレコードの値を優先する。
+		 */
+		MergePolicy PREFER_OTHER = new MergePolicy() {
+			
+			public List<? extends Value> resolve(Value key, List<Value> mine, List<Value> theirs) {
+				return theirs;
+			}
+		};
+		
+		/**
+		 * 両方のレコードの値を多重集合の和として保持する。
+		 * <p>
+		 * 同値な値が両方に含まれる場合、それぞれに含まれる個数のうち大きい方の個数だけ保持する。
+		 * たとえば一方に{@code 'a'}が2つ、もう一方に{@code 'a'}が1つ含まれる場合、結果には{@code 'a'}が2つ含まれる。
+		 * </p>
+		 */
+		MergePolicy KEEP_BOTH = new MergePolicy() {
+			
+			public List<? extends Value> resolve(Value key, List<Value> mine, List<Value> theirs) {
+				Value[] left = mine.toArray(new Value[mine.size()]);
+				Value[] right = theirs.toArray(new Value[theirs.size()]);
+				return Arrays.asList(MultisetOperation.UNION.apply(left, left.length, right, right.length));
+			}
+		};
+		
+		/**
+		 * キーの衝突を許さず、{@link IllegalArgumentException}を送出する。
+		 */
+		MergePolicy REJECT = new MergePolicy() {
+			
+			public List<? extends Value> resolve(Value key, List<Value> mine, List<Value> theirs) {
+				throw new IllegalArgumentException(key.toString());
+			}
+		};
+		
+
+		/**
+		 * 両方のレコードに含まれるキーについて、結果のレコードに含める値を返す。
+		 * <p>
+		 * 引数の値の一覧はそれぞれ値の自然な順序で整列されており、少なくとも1つの値を含む。
+		 * 空のリストを返した場合、結果のレコードはそのキーを含まない。
+		 * </p>
+		 * @param key 衝突したキー
+		 * @param mine 併合先のレコードに含まれる、キーに対応する値の一覧
+		 * @param theirs 併合するレコードに含まれる、キーに対応する値の一覧
+		 * @return 結果のレコードに含める値の一覧
+		 * @throws IllegalArgumentException 衝突を許さない場合
+		 */
+		List<? extends Value> resolve(Value key, List<Value> mine, List<Value> theirs);
+	}
+	
+	/**
+	 * {@link Record}を構築する。
+	 * <p>
+	 * エントリのキーと値は内部の配列に直接追加され、{@link #build()}の際に
+	 * 配列がちょうど埋まっていればその配列を複製せずに構築したレコードに引き渡す。
+	 * そのため、事前にエントリ数がわかっている場合は
+	 * {@link #Builder(int)}でエントリ数を指定するとよい。
+	 * </p>
+	 * <p>
+	 * エントリが追加されるたびに直前のエントリとの順序を確認し、
+	 * すべてのエントリが整列された順序で追加された場合、構築時の整列は行われない。
+	 * また、エントリ数が多い場合は{@link SortKeyEncoder}のキーを利用して整列する。
+	 * </p>
+	 * <p>
+	 * このクラスのインスタンスは複数のスレッドから同時に利用できない。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	public static final class Builder {
+		
+		/**
+		 * 要素を持たない配列。
+		 */
+		private static final Value[] NO_VALUES = new Value[0];
+		
+		/**
+		 * 追加されたエントリのキーを保持する配列。
+		 */
+		private Value[] keys;
+		
+		/**
+		 * 追加されたエントリの値を保持する配列。
+		 */
+		private Value[] values;
+		
+		/**
+		 * 追加されたエントリの個数。
+		 */
+		private int size;
+		
+		/**
+		 * 追加されたエントリが自然な順序で整列されている場合のみ{@code true}。
+		 */
+		private boolean sorted;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 */
+		public Builder() {
+			this(0);
+		}
+		
+		/**
+		 * 追加するエントリのおおよその個数を指定してインスタンスを生成する。
+		 * @param expectedSize 追加するエントリのおおよその個数
+		 * @throws IllegalArgumentException 引数に負の値が指定された場合
+		 */
+		public Builder(int expectedSize) {
+			if (expectedSize < 0) {
+				throw new IllegalArgumentException("expectedSize < 0"); //$NON-NLS-1$
+			}
+			reset(expectedSize);
+		}
+		
+		/**
+		 * 指定のキーと値からなるエントリを追加する。
+		 * @param key エントリのキー
+		 * @param value エントリの値
+		 * @return このオブジェクト
+		 * @throws NullPointerException 引数に{@code null}が指定された場合
+		 */
+		public Builder add(Value key, Value value) {
+			if (key == null) {
+				throw new NullPointerException("key"); //$NON-NLS-1$
+			}
+			if (value == null) {
+				throw new NullPointerException("value"); //$NON-NLS-1$
+			}
+			if (size == keys.length) {
+				grow(Math.max(size * 2, 4)); // CHECKSTYLE IGNORE THIS LINE
+			}
+			if (sorted && size > 0) {
+				int keyOrder = keys[size - 1].compareTo(key);
+				if (keyOrder > 0 || (keyOrder == 0 && values[size - 1].compareTo(value) > 0)) {
+					sorted = false;
+				}
+			}
+			keys[size] = key;
+			values[size] = value;
+			size++;
+			return this;
+		}
+		
+		/**
+		 * 指定のエントリを追加する。
+		 * @param entry 追加するエントリ
+		 * @return このオブジェクト
+		 * @throws NullPointerException 引数に{@code null}が指定された場合
+		 */
+		public Builder add(Entry entry) {
+			if (entry == null) {
+				throw new NullPointerException("entry"); //$NON-NLS-1$
+			}
+			return add(entry.getKey(), entry.getValue());
+		}
+		
+		/**
+		 * 指定のエントリの一覧を順に追加する。
+		 * @param entries 追加するエントリの一覧
+		 * @return このオブジェクト
+		 * @throws NullPointerException 引数に{@code null}が指定された場合、
+		 *     または引数に{@code null}が含まれる場合
+		 */
+		public Builder addAll(Collection<? extends Entry> entries) {
+			if (entries == null) {
+				throw new NullPointerException("entries"); //$NON-NLS-1$
+			}
+			int required = size + entries.size();
+			if (required > keys.length) {
+				grow(required);
+			}
+			for (Entry entry : entries) {
+				add(entry);
+			}
+			return this;
+		}
+		
+		/**
+		 * これまでに追加されたエントリの個数を返す。
+		 * @return 追加されたエントリの個数
+		 */
+		public int size() {
+			return size;
+		}
+		
+		/**
+		 * これまでに追加されたエントリからなるレコードを構築して返す。
+		 * <p>
+		 * 構築後、このオブジェクトはエントリを持たない状態に戻る。
+		 * </p>
+		 * @return 構築したレコード
+		 */
+		public Record build() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			if (size != keys.length) {
+				grow(size);
 			}
+			if (sorted == false) {
+				if (size >= SortKeyEncoder.SORT_THRESHOLD) {
+					SortKeyEncoder.sortEntries(keys, values, size);
+				} else {
+					sortEntries();
+				}
+			}
+			Record built = new Record(RecordShape.of(keys), values);
+			reset(0);
+			return built;
+		}
+		
+		private void sortEntries() {
+			Entry[] entries = new Entry[size];
+			for (int i = 0; i < size; i++) {
+				entries[i] = Entry.of(keys[i], values[i]);
+			}
+			Arrays.sort(entries);
+			for (int i = 0; i < size; i++) {
+				keys[i] = entries[i].getKey();
+				values[i] = entries[i].getValue();
+			}
+		}
+		
+		private void grow(int capacity) {
+			assert capacity >= size;
+			Value[] newKeys = new Value[capacity];
+			Value[] newValues = new Value[capacity];
+			System.arraycopy(keys, 0, newKeys, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			keys = newKeys;
+			values = newValues;
+		}
+		
+		private void reset(int capacity) {
+			keys = capacity == 0 ? NO_VALUES : new Value[capacity];
+			values = capacity == 0 ? NO_VALUES : new Value[capacity];
+			size = 0;
+			sorted = true;
 		}
-		buf.append('}');
-		return buf.toString();
 	}
 }
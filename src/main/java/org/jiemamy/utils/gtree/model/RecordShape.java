@@ -0,0 +1,241 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link Record}のキーの並び。
+ * <p>
+ * 同じキーの並びを持つレコードは、このクラスの単一のインスタンスを共有する。
+ * そのため、同一のスキーマを持つ多数のレコードでは、
+ * それぞれのレコードは値の並びのみを保持すればよい。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class RecordShape implements Serializable {
+	
+	private static final long serialVersionUID = -1784163392640931522L;
+	
+	/**
+	 * キーの検索にハッシュ表を利用する最小のキー数。
+	 */
+	private static final int INDEX_THRESHOLD = 16;
+	
+	/**
+	 * 集約されたインスタンスの表。
+	 */
+	private static final WeakInternTable<RecordShape> SHAPES = new WeakInternTable<RecordShape>(0);
+	
+	/**
+	 * キーを持たないインスタンス。
+	 */
+	static final RecordShape EMPTY = SHAPES.intern(new RecordShape(new Value[0]));
+	
+	/**
+	 * 整列済みのキーの一覧。
+	 */
+	private final Value[] keys;
+	
+	/**
+	 * このオブジェクトのハッシュ値。
+	 */
+	private final int hash;
+	
+	/**
+	 * キーと、そのキーを持つ位置の範囲{@code [start, end)}の対応表。
+	 * 必要になるまで構築しない。
+	 */
+	private transient volatile Map<Value, int[]> keyIndex;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param keys 整列済みのキーの一覧
+	 */
+	private RecordShape(Value[] keys) {
+		assert keys != null;
+		this.keys = keys;
+		this.hash = Arrays.hashCode(keys);
+	}
+	
+	/**
+	 * 指定のキーの並びを持つ、集約されたインスタンスを返す。
+	 * <p>
+	 * 引数の配列はそのままインスタンス内で利用される場合があるため、呼び出し元で変更してはならない。
+	 * </p>
+	 * @param sortedKeys 自然な順序で整列されたキーの一覧
+	 * @return 対応するインスタンス
+	 */
+	static RecordShape of(Value[] sortedKeys) {
+		assert sortedKeys != null;
+		if (sortedKeys.length == 0) {
+			return EMPTY;
+		}
+		return SHAPES.intern(new RecordShape(sortedKeys));
+	}
+	
+	/**
+	 * キーの個数を返す。
+	 * @return キーの個数
+	 */
+	int size() {
+		return keys.length;
+	}
+	
+	/**
+	 * 指定の位置にあるキーを返す。
+	 * @param index 対象の位置
+	 * @return 対応するキー
+	 */
+	Value getKey(int index) {
+		return keys[index];
+	}
+	
+	/**
+	 * 指定のキーを持つ位置の範囲を返す。
+	 * <p>
+	 * キーの個数が少ない場合は二分探索を行い、
+	 * そうでない場合は初回の呼び出し時に構築したハッシュ表を利用する。
+	 * ハッシュ表は同じキーの並びを持つすべてのレコードで共有される。
+	 * </p>
+	 * @param key 対象のキー
+	 * @return 位置の範囲{@code [start, end)}、存在しない場合は{@code null}
+	 */
+	int[] findRange(Value key) {
+		assert key != null;
+		if (keys.length < INDEX_THRESHOLD) {
+			int start = lowerBound(key);
+			int end = start;
+			while (end < keys.length && keys[end].equals(key)) {
+				end++;
+			}
+			return start == end ? null : new int[] {
+				start,
+				end
+			};
+		}
+		Map<Value, int[]> index = keyIndex;
+		if (index == null) {
+			index = buildIndex();
+			keyIndex = index;
+		}
+		return index.get(key);
+	}
+	
+	/**
+	 * 指定の位置にあるキーと異なるキーを持つ、その位置以降の最初の位置を返す。
+	 * @param start 対象の位置
+	 * @return 対応する位置、存在しない場合はキーの個数
+	 */
+	int findEnd(int start) {
+		assert 0 <= start && start < keys.length;
+		int end = start + 1;
+		while (end < keys.length && keys[end].equals(keys[start])) {
+			end++;
+		}
+		return end;
+	}
+	
+	/**
+	 * 指定のキー以上のキーを持つ最初の位置を返す。
+	 * @param key 対象のキー
+	 * @return 対応する位置、存在しない場合はキーの個数
+	 */
+	int lowerBound(Value key) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private Map<Value, int[]> buildIndex() {
+		Map<Value, int[]> results = new HashMap<Value, int[]>();
+		int start = 0;
+		for (int i = 1; i <= keys.length; i++) {
+			if (i == keys.length || keys[i].equals(keys[start]) == false) {
+				results.put(keys[start], new int[] {
+					start,
+					i
+				});
+				start = i;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 復元したインスタンスを集約されたものに置き換える。
+	 * @return 集約されたインスタンス
+	 */
+	private Object readResolve() {
+		return of(keys);
+	}
+	
+	/**
+	 * このオブジェクトのハッシュ値を返す。
+	 * @return このオブジェクトのハッシュ値
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	/**
+	 * このオブジェクトとほかのオブジェクトを比較し、同値性を返す。
+	 * @param obj 比較するオブジェクト
+	 * @return 同値性
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		RecordShape other = (RecordShape) obj;
+		if (hash != other.hash) {
+			return false;
+		}
+		return Arrays.equals(keys, other.keys);
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * @return このオブジェクトの文字列表現
+	 */
+	@Override
+	public String toString() {
+		return Arrays.toString(keys);
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+/**
+ * 連続する同値な要素を、1つの要素とその個数の組 (ラン) として保持するリスト。
+ * <p>
+ * 整列済みの順序を考慮しないリストでは、同値な要素はすべて隣接するため、
+ * このリストは各要素とその個数からなる多重集合の表現となる。
+ * 順序つきのリストでは、連長圧縮された表現となる。
+ * いずれの場合も、リストとしての振る舞いは展開した表現と変わらない。
+ * </p>
+ * <p>
+ * 位置を指定した要素の参照は、ランの個数の対数時間で完了する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class RunLengthValueList extends ValueList {
+	
+	private static final long serialVersionUID = -4466312659262766163L;
+	
+	/**
+	 * 圧縮を試みる最小の要素数。
+	 */
+	static final int MIN_SIZE = 8;
+	
+	/**
+	 * 各ランの要素。
+	 */
+	private final Value[] values;
+	
+	/**
+	 * 各ランの終端の位置 (その位置を含まない)。
+	 */
+	private final int[] ends;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param values 各ランの要素
+	 * @param ends 各ランの終端の位置 (狭義単調増加)
+	 */
+	private RunLengthValueList(Value[] values, int[] ends) {
+		super();
+		assert values != null;
+		assert ends != null;
+		assert values.length == ends.length;
+		assert values.length > 0;
+		this.values = values;
+		this.ends = ends;
+	}
+	
+	/**
+	 * 指定の配列の先頭から{@code size}個の要素を、連続する同値な要素をまとめて保持するリストを返す。
+	 * <p>
+	 * ランの個数が要素数の半分を超える場合など、圧縮による効果が小さい場合は{@code null}を返す。
+	 * </p>
+	 * @param elements 要素の一覧
+	 * @param size 要素の個数
+	 * @return 圧縮したリスト、圧縮しない場合は{@code null}
+	 */
+	static RunLengthValueList compress(Value[] elements, int size) {
+		assert elements != null;
+		assert 0 <= size && size <= elements.length;
+		if (size < MIN_SIZE) {
+			return null;
+		}
+		int limit = size / 2;
+		int runs = 1;
+		for (int i = 1; i < size; i++) {
+			if (isSameRun(elements[i - 1], elements[i]) == false) {
+				runs++;
+				if (runs > limit) {
+					return null;
+				}
+			}
+		}
+		Value[] values = new Value[runs];
+		int[] ends = new int[runs];
+		int run = 0;
+		values[0] = elements[0];
+		for (int i = 1; i < size; i++) {
+			if (isSameRun(values[run], elements[i]) == false) {
+				ends[run] = i;
+				run++;
+				values[run] = elements[i];
+			}
+		}
+		ends[run] = size;
+		assert run == runs - 1;
+		return new RunLengthValueList(values, ends);
+	}
+	
+	private static boolean isSameRun(Value a, Value b) {
+		if (a == b) {
+			return true;
+		}
+		if (a.getKind() != b.getKind()) {
+			return false;
+		}
+		return a.equals(b);
+	}
+	
+	/**
+	 * ランの個数を返す。
+	 * @return ランの個数
+	 */
+	int getRunCount() {
+		return values.length;
+	}
+	
+	/**
+	 * このリストが占めるメモリ量の推定値をバイト単位で返す。
+	 * @return このリストと配列の推定メモリ量
+	 */
+	long estimateBytes() {
+		long self = Value.OBJECT_HEADER_BYTES + Value.REFERENCE_BYTES * 2;
+		long valueArray = Value.OBJECT_HEADER_BYTES + Value.INT_BYTES + Value.REFERENCE_BYTES * values.length;
+		long endArray = Value.OBJECT_HEADER_BYTES + Value.INT_BYTES + Value.INT_BYTES * ends.length;
+		return self + valueArray + endArray;
+	}
+	
+	@Override
+	public Value get(int index) {
+		checkIndex(index);
+		return values[findRun(index)];
+	}
+	
+	@Override
+	public int size() {
+		return ends[ends.length - 1];
+	}
+	
+	@Override
+	long fingerprintAt(int index) {
+		checkIndex(index);
+		return values[findRun(index)].getFingerprint();
+	}
+	
+	@Override
+	void copyTo(int from, int to, Value[] destination, int offset) {
+		if (from >= to) {
+			return;
+		}
+		int run = findRun(from);
+		for (int i = from; i < to; i++) {
+			if (i >= ends[run]) {
+				run++;
+			}
+			destination[offset + i - from] = values[run];
+		}
+	}
+	
+	@Override
+	ValueList slice(int from, int to) {
+		checkRange(from, to);
+		if (from == 0 && to == size()) {
+			return this;
+		}
+		if (from == to) {
+			return EMPTY;
+		}
+		int first = findRun(from);
+		int last = findRun(to - 1);
+		int runs = last - first + 1;
+		if (runs * 2 > to - from) {
+			return super.slice(from, to);
+		}
+		Value[] newValues = new Value[runs];
+		int[] newEnds = new int[runs];
+		System.arraycopy(values, first, newValues, 0, runs);
+		for (int i = 0; i < runs; i++) {
+			newEnds[i] = Math.min(ends[first + i], to) - from;
+		}
+		return new RunLengthValueList(newValues, newEnds);
+	}
+	
+	/**
+	 * 指定の位置の要素を含むランを返す。
+	 * @param index 対象の位置
+	 * @return 対応するランの番号
+	 */
+	private int findRun(int index) {
+		int low = 0;
+		int high = ends.length - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ends[mid] <= index) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
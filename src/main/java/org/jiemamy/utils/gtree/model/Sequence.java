@@ -15,8 +15,8 @@
  */
 package org.jiemamy.utils.gtree.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -28,6 +28,16 @@ public final class Sequence extends Value {
 	
 	private static final long serialVersionUID = 8037951917602590075L;
 	
+	/**
+	 * 要素を持たない順序つきのリスト。
+	 */
+	private static final Sequence EMPTY_ORDERED = new Sequence(Value.Kind.ORDERED_LIST, ValueList.EMPTY);
+	
+	/**
+	 * 要素を持たない順序を考慮しないリスト。
+	 */
+	private static final Sequence EMPTY_UNORDERED = new Sequence(Value.Kind.UNORDERED_LIST, ValueList.EMPTY);
+	
 	/**
 	 * 一覧の特性
 	 * ({@link Value.Kind#UNORDERED_LIST}または{@link Value.Kind#ORDERED_LIST})
@@ -37,7 +47,7 @@ public final class Sequence extends Value {
 	/**
 	 * 値の一覧
 	 */
-	private final ArrayList<Value> values;
+	private final ValueList values;
 	
 
 	/**
@@ -45,7 +55,7 @@ public final class Sequence extends Value {
 	 * @param kind 値の種類
 	 * @param values 値の一覧
 	 */
-	private Sequence(Value.Kind kind, ArrayList<Value> values) {
+	private Sequence(Value.Kind kind, ValueList values) {
 		super();
 		assert values != null;
 		assert kind != null;
@@ -73,14 +83,14 @@ public final class Sequence extends Value {
 	 * </p>
 	 * @param values 値の一覧
 	 * @return 生成したインスタンス
-	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     または引数に{@code null}が含まれる場合
 	 */
 	public static Sequence ordered(List<? extends Value> values) {
 		if (values == null) {
 			throw new NullPointerException("values"); //$NON-NLS-1$
 		}
-		ArrayList<Value> copy = new ArrayList<Value>(values);
-		return new Sequence(Value.Kind.ORDERED_LIST, copy);
+		return new Builder(Value.Kind.ORDERED_LIST, values.size()).addAll(values).build();
 	}
 	
 	/**
@@ -90,17 +100,149 @@ public final class Sequence extends Value {
 	 * {@link Sequence#getValues()}によって
 	 * {@link Value}の自然順序関係によって整列されたリストを返す。
 	 * </p>
+	 * <p>
+	 * 引数の値の一覧がすでに整列されている場合、整列は行われない。
+	 * </p>
 	 * @param values 値の一覧
 	 * @return 生成したインスタンス
-	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     または引数に{@code null}が含まれる場合
 	 */
 	public static Sequence unordered(List<? extends Value> values) {
 		if (values == null) {
 			throw new NullPointerException("values"); //$NON-NLS-1$
 		}
-		ArrayList<Value> copy = new ArrayList<Value>(values);
-		Collections.sort(copy);
-		return new Sequence(Value.Kind.UNORDERED_LIST, copy);
+		return new Builder(Value.Kind.UNORDERED_LIST, values.size()).addAll(values).build();
+	}
+	
+	/**
+	 * 指定の配列の各要素を数値の終端値として含む、順序つきのリストを返す。
+	 * <p>
+	 * 返されるリストは要素ごとの{@link Terminal}を生成せず、配列の複製をそのまま保持する。
+	 * 各要素は{@link Terminal#ofLong(long)}で生成した終端値と同値であり、
+	 * 同じ要素を持つ通常のリストとも同値となる。
+	 * </p>
+	 * @param values 要素の一覧
+	 * @return 生成したインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static Sequence packed(byte[] values) {
+		if (values == null) {
+			throw new NullPointerException("values"); //$NON-NLS-1$
+		}
+		return wrap(Value.Kind.ORDERED_LIST, PackedValueList.of(values));
+	}
+	
+	/**
+	 * 指定の配列の各要素を数値の終端値として含む、順序つきのリストを返す。
+	 * @param values 要素の一覧
+	 * @return 生成したインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #packed(byte[])
+	 */
+	public static Sequence packed(short[] values) {
+		if (values == null) {
+			throw new NullPointerException("values"); //$NON-NLS-1$
+		}
+		return wrap(Value.Kind.ORDERED_LIST, PackedValueList.of(values));
+	}
+	
+	/**
+	 * 指定の配列の各要素を数値の終端値として含む、順序つきのリストを返す。
+	 * @param values 要素の一覧
+	 * @return 生成したインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #packed(byte[])
+	 */
+	public static Sequence packed(int[] values) {
+		if (values == null) {
+			throw new NullPointerException("values"); //$NON-NLS-1$
+		}
+		return wrap(Value.Kind.ORDERED_LIST, PackedValueList.of(values));
+	}
+	
+	/**
+	 * 指定の配列の各要素を数値の終端値として含む、順序つきのリストを返す。
+	 * @param values 要素の一覧
+	 * @return 生成したインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #packed(byte[])
+	 */
+	public static Sequence packed(long[] values) {
+		if (values == null) {
+			throw new NullPointerException("values"); //$NON-NLS-1$
+		}
+		return wrap(Value.Kind.ORDERED_LIST, PackedValueList.of(values));
+	}
+	
+	/**
+	 * 指定の配列の各要素を数値の終端値として含む、順序つきのリストを返す。
+	 * <p>
+	 * 各要素は{@link Terminal#ofDouble(double)}で生成した終端値と同値である。
+	 * </p>
+	 * @param values 要素の一覧
+	 * @return 生成したインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #packed(byte[])
+	 */
+	public static Sequence packed(double[] values) {
+		if (values == null) {
+			throw new NullPointerException("values"); //$NON-NLS-1$
+		}
+		return wrap(Value.Kind.ORDERED_LIST, PackedValueList.of(values));
+	}
+	
+	/**
+	 * このリストがプリミティブ型の配列で要素を保持している場合、その要素型を返す。
+	 * @return 要素型 ({@code byte}, {@code short}, {@code int}, {@code long}, {@code double}のいずれか)、
+	 *     配列で保持していない場合は{@code null}
+	 * @see #packed(int[])
+	 */
+	public Class<?> getPackedType() {
+		if (values instanceof PackedValueList) {
+			return ((PackedValueList) values).getType();
+		}
+		return null;
+	}
+	
+	/**
+	 * このリストがプリミティブ型の配列で要素を保持している場合、その配列の複製を返す。
+	 * @return 要素を保持する配列の複製、配列で保持していない場合は{@code null}
+	 * @see #getPackedType()
+	 */
+	public Object toPackedArray() {
+		if (values instanceof PackedValueList) {
+			return ((PackedValueList) values).toPrimitiveArray();
+		}
+		return null;
+	}
+	
+	/**
+	 * 整列済みの値を要素にもつ、順序を考慮しないリストを返す。
+	 * <p>
+	 * 引数の配列はそのままリスト内で利用されるため、呼び出し元で変更してはならない。
+	 * </p>
+	 * @param sorted 自然な順序で整列された値の一覧
+	 * @return 生成したインスタンス
+	 */
+	static Sequence sorted(Value[] sorted) {
+		assert sorted != null;
+		return wrap(Value.Kind.UNORDERED_LIST, toList(sorted, sorted.length));
+	}
+	
+	/**
+	 * この一覧と同じ種類で、指定の値を要素にもつリストを返す。
+	 * <p>
+	 * 引数の配列は、この一覧の値をそれぞれ同値なものに置き換えたものでなければならない。
+	 * 返されるリストはこの引数をそのまま利用し、要素の整列は行わない。
+	 * </p>
+	 * @param replaced 同値な値に置き換えた値の一覧
+	 * @return 生成したインスタンス
+	 */
+	Sequence derive(Value[] replaced) {
+		assert replaced != null;
+		assert Arrays.asList(replaced).equals(values);
+		return new Sequence(kind, toList(replaced, replaced.length));
 	}
 	
 	/**
@@ -110,10 +252,285 @@ public final class Sequence extends Value {
 	 * リストに含まれる要素の順序は、
 	 * このリストを変更することはできない。
 	 * </p>
+	 * <p>
+	 * 返されるリストはこのオブジェクトが内部に保持するものであり、
+	 * 呼び出しごとに新しいオブジェクトを生成することはない。
+	 * </p>
 	 * @return 値の一覧
 	 */
 	public List<Value> getValues() {
-		return Collections.unmodifiableList(values);
+		return values;
+	}
+	
+	/**
+	 * 指定の位置の要素を置き換えたリストを返す。
+	 * <p>
+	 * このリストは変更されず、置き換えた位置以外の要素はこのリストと共有される。
+	 * 順序を考慮しないリストでは、置き換えた値は自然な順序に従った位置に移動する。
+	 * </p>
+	 * @param index 対象の位置
+	 * @param value 置き換える値
+	 * @return 置き換えたリスト
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 * @throws NullPointerException 引数{@code value}に{@code null}が指定された場合
+	 */
+	public Sequence replaceAt(int index, Value value) {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		values.checkIndex(index);
+		if (kind == Value.Kind.ORDERED_LIST) {
+			return new Sequence(kind, values.update(index, value));
+		}
+		ValueList removed = values.delete(index);
+		return new Sequence(kind, removed.insert(lowerBound(removed, value), value));
+	}
+	
+	/**
+	 * 指定の位置に要素を挿入したリストを返す。
+	 * <p>
+	 * このリストは変更されず、挿入した値以外の要素はこのリストと共有される。
+	 * 順序を考慮しないリストでは、値は位置によらず自然な順序に従った位置に挿入される。
+	 * </p>
+	 * @param index 挿入する位置
+	 * @param value 挿入する値
+	 * @return 挿入したリスト
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 * @throws NullPointerException 引数{@code value}に{@code null}が指定された場合
+	 */
+	public Sequence insert(int index, Value value) {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		if (index < 0 || index > values.size()) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		if (kind == Value.Kind.ORDERED_LIST) {
+			return new Sequence(kind, values.insert(index, value));
+		}
+		return new Sequence(kind, values.insert(lowerBound(values, value), value));
+	}
+	
+	/**
+	 * 指定の位置の要素を除去したリストを返す。
+	 * <p>
+	 * このリストは変更されず、残りの要素はこのリストと共有される。
+	 * </p>
+	 * @param index 対象の位置
+	 * @return 除去したリスト
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 */
+	public Sequence without(int index) {
+		return wrap(kind, values.delete(index));
+	}
+	
+	/**
+	 * このリストの要素の一部からなるリストを返す。
+	 * <p>
+	 * このリストは変更されず、返されるリストの要素はこのリストと共有される。
+	 * </p>
+	 * @param from 範囲の最初の位置
+	 * @param to 範囲の最後の位置の次
+	 * @return {@code [from, to)}の範囲の要素からなるリスト
+	 * @throws IndexOutOfBoundsException 範囲が不正である場合
+	 */
+	public Sequence slice(int from, int to) {
+		ValueList sliced = values.slice(from, to);
+		if (sliced == values) {
+			return this;
+		}
+		return wrap(kind, sliced);
+	}
+	
+	/**
+	 * このリストの要素に続けて、指定のリストの要素を含むリストを返す。
+	 * <p>
+	 * 返されるリストはこのリストと同じ種類を持つ。
+	 * 順序つきのリストでは、それぞれのリストの要素を共有したまま連結する。
+	 * 順序を考慮しないリストでは、2つのリストの要素を自然な順序に従って併合する。
+	 * </p>
+	 * @param other 連結するリスト
+	 * @return 連結したリスト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Sequence concat(Sequence other) {
+		if (other == null) {
+			throw new NullPointerException("other"); //$NON-NLS-1$
+		}
+		if (kind == Value.Kind.ORDERED_LIST) {
+			return wrap(kind, ValueList.concat(values, other.values));
+		}
+		if (other.values.isEmpty()) {
+			return this;
+		}
+		int leftSize = values.size();
+		int rightSize = other.values.size();
+		Value[] left = new Value[leftSize];
+		values.copyTo(0, leftSize, left, 0);
+		Value[] right = new Value[rightSize];
+		other.values.copyTo(0, rightSize, right, 0);
+		if (other.kind != Value.Kind.UNORDERED_LIST) {
+			Arrays.sort(right);
+		}
+		Value[] merged = new Value[leftSize + rightSize];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < merged.length; k++) {
+			if (j >= rightSize || (i < leftSize && left[i].compareTo(right[j]) <= 0)) {
+				merged[k] = left[i++];
+			} else {
+				merged[k] = right[j++];
+			}
+		}
+		return new Sequence(kind, ValueList.of(merged));
+	}
+	
+	/**
+	 * このリストと指定のリストの和を、順序を考慮しないリストとして返す。
+	 * <p>
+	 * 2つのリストを多重集合とみなし、結果の各要素の個数はそれぞれのリストに含まれる個数の多いほうとなる。
+	 * 順序を考慮しないリストどうしの場合、整列済みの要素を1度だけ走査して併合するため、
+	 * 要素数の線形時間で完了する。
+	 * そうでないリストは、先に要素を整列してから併合する。
+	 * </p>
+	 * @param other 対象のリスト
+	 * @return 和集合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Sequence union(Sequence other) {
+		if (other == null) {
+			throw new NullPointerException("other"); //$NON-NLS-1$
+		}
+		if (kind == Value.Kind.UNORDERED_LIST && other.values.isEmpty()) {
+			return this;
+		}
+		return apply(MultisetOperation.UNION, other);
+	}
+	
+	/**
+	 * このリストと指定のリストの共通部分を、順序を考慮しないリストとして返す。
+	 * <p>
+	 * 2つのリストを多重集合とみなし、結果の各要素の個数はそれぞれのリストに含まれる個数の少ないほうとなる。
+	 * 計算量は{@link #union(Sequence)}と同様である。
+	 * </p>
+	 * @param other 対象のリスト
+	 * @return 共通部分
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Sequence intersect(Sequence other) {
+		if (other == null) {
+			throw new NullPointerException("other"); //$NON-NLS-1$
+		}
+		if (values.isEmpty() || other.values.isEmpty()) {
+			return EMPTY_UNORDERED;
+		}
+		return apply(MultisetOperation.INTERSECTION, other);
+	}
+	
+	/**
+	 * このリストから指定のリストの要素を取り除いた差を、順序を考慮しないリストとして返す。
+	 * <p>
+	 * 2つのリストを多重集合とみなし、結果の各要素の個数はこのリストに含まれる個数から
+	 * 指定のリストに含まれる個数を引いたものとなる。
+	 * 計算量は{@link #union(Sequence)}と同様である。
+	 * </p>
+	 * @param other 取り除く要素のリスト
+	 * @return 差集合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Sequence subtract(Sequence other) {
+		if (other == null) {
+			throw new NullPointerException("other"); //$NON-NLS-1$
+		}
+		if (kind == Value.Kind.UNORDERED_LIST && other.values.isEmpty()) {
+			return this;
+		}
+		return apply(MultisetOperation.DIFFERENCE, other);
+	}
+	
+	/**
+	 * このリストと指定のリストの対称差を、順序を考慮しないリストとして返す。
+	 * <p>
+	 * 2つのリストを多重集合とみなし、結果の各要素の個数はそれぞれのリストに含まれる個数の差となる。
+	 * 計算量は{@link #union(Sequence)}と同様である。
+	 * </p>
+	 * @param other 対象のリスト
+	 * @return 対称差
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Sequence symmetricDifference(Sequence other) {
+		if (other == null) {
+			throw new NullPointerException("other"); //$NON-NLS-1$
+		}
+		if (kind == Value.Kind.UNORDERED_LIST && other.values.isEmpty()) {
+			return this;
+		}
+		return apply(MultisetOperation.SYMMETRIC_DIFFERENCE, other);
+	}
+	
+	private Sequence apply(MultisetOperation operation, Sequence other) {
+		assert operation != null;
+		assert other != null;
+		Value[] left = toSortedArray();
+		Value[] right = other.toSortedArray();
+		return sorted(operation.apply(left, left.length, right, right.length));
+	}
+	
+	/**
+	 * このリストの要素を自然な順序で整列した配列を返す。
+	 * @return 整列した要素の配列
+	 */
+	private Value[] toSortedArray() {
+		int size = values.size();
+		Value[] results = new Value[size];
+		values.copyTo(0, size, results, 0);
+		if (kind != Value.Kind.UNORDERED_LIST) {
+			if (size >= SortKeyEncoder.SORT_THRESHOLD) {
+				SortKeyEncoder.sort(results, size);
+			} else {
+				Arrays.sort(results);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 指定の配列の先頭から{@code size}個の要素を順に含むリストを返す。
+	 * <p>
+	 * 同値な要素が連続する箇所が多い場合、それらをまとめて保持するリストを返す。
+	 * </p>
+	 * @param elements 要素の一覧
+	 * @param size 要素の個数
+	 * @return 対応するリスト
+	 * @see RunLengthValueList
+	 */
+	private static ValueList toList(Value[] elements, int size) {
+		ValueList compressed = RunLengthValueList.compress(elements, size);
+		if (compressed != null) {
+			return compressed;
+		}
+		return ValueList.of(elements, size);
+	}
+	
+	private static Sequence wrap(Value.Kind kind, ValueList values) {
+		if (values.isEmpty()) {
+			return kind == Value.Kind.ORDERED_LIST ? EMPTY_ORDERED : EMPTY_UNORDERED;
+		}
+		return new Sequence(kind, values);
+	}
+	
+	private static int lowerBound(ValueList sorted, Value value) {
+		int low = 0;
+		int high = sorted.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted.get(mid).compareTo(value) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
 	}
 	
 	/**
@@ -127,6 +544,44 @@ public final class Sequence extends Value {
 		return visitor.visitSequence(this, context);
 	}
 	
+	@Override
+	int childCount() {
+		return values.size();
+	}
+	
+	@Override
+	Value childAt(int index) {
+		return values.get(index);
+	}
+	
+	@Override
+	boolean isFlat() {
+		return values instanceof PackedValueList;
+	}
+	
+	@Override
+	long estimateShallowBytes() {
+		// この値, 要素のリスト
+		long self = OBJECT_HEADER_BYTES + VALUE_FIELD_BYTES + REFERENCE_BYTES * 2;
+		if (values instanceof PackedValueList) {
+			return self + ((PackedValueList) values).estimateBytes();
+		}
+		if (values instanceof RunLengthValueList) {
+			return self + ((RunLengthValueList) values).estimateBytes();
+		}
+		long list = OBJECT_HEADER_BYTES * 2 + REFERENCE_BYTES * (values.size() + 1);
+		return self + list;
+	}
+	
+	@Override
+	long computeFingerprint() {
+		long result = kind.ordinal() + 1;
+		for (int i = 0, n = values.size(); i < n; i++) {
+			result = result * FINGERPRINT_MULTIPLIER + values.fingerprintAt(i);
+		}
+		return mix(result ^ values.size());
+	}
+	
 	/**
 	 * このオブジェクトのハッシュ値を返す。
 	 * @return このオブジェクトのハッシュ値
@@ -134,11 +589,7 @@ public final class Sequence extends Value {
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + kind.hashCode();
-		result = prime * result + values.hashCode();
-		return result;
+		return fingerprintHash();
 	}
 	
 	/**
@@ -162,10 +613,10 @@ public final class Sequence extends Value {
 		if (kind.equals(other.kind) == false) {
 			return false;
 		}
-		if (values.equals(other.values) == false) {
+		if (getFingerprint() != other.getFingerprint()) {
 			return false;
 		}
-		return true;
+		return values.equals(other.values);
 	}
 	
 	/**
@@ -257,6 +708,177 @@ public final class Sequence extends Value {
 	 */
 	@Override
 	public String toString() {
-		return getValues().toString();
+		return ValueRenderer.toString(this);
+	}
+	
+
+	/**
+	 * {@link Sequence}を構築する。
+	 * <p>
+	 * 要素は内部の配列に直接追加され、{@link #build()}の際に
+	 * 配列がちょうど埋まっていればその配列を複製せずに構築したリストに引き渡す。
+	 * そのため、事前に要素数がわかっている場合は
+	 * {@link #Builder(Value.Kind, int)}で要素数を指定するとよい。
+	 * </p>
+	 * <p>
+	 * {@link Value.Kind#UNORDERED_LIST}を構築する場合、
+	 * 要素が追加されるたびに直前の要素との順序を確認する。
+	 * すべての要素が整列された順序で追加された場合、構築時の整列は行われない。
+	 * また、要素数が多い場合は{@link SortKeyEncoder}のキーを利用して整列する。
+	 * </p>
+	 * <p>
+	 * 構築時に同値な要素が連続する箇所が多い場合、それらを要素と個数の組として保持する。
+	 * この場合も{@link Sequence#getValues()}などの振る舞いは変わらない。
+	 * </p>
+	 * <p>
+	 * このクラスのインスタンスは複数のスレッドから同時に利用できない。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	public static final class Builder {
+		
+		/**
+		 * 要素を持たない配列。
+		 */
+		private static final Value[] NO_VALUES = new Value[0];
+		
+		/**
+		 * 構築するリストの種類。
+		 */
+		private final Value.Kind kind;
+		
+		/**
+		 * 追加された要素を保持する配列。
+		 */
+		private Value[] values;
+		
+		/**
+		 * 追加された要素の個数。
+		 */
+		private int size;
+		
+		/**
+		 * 順序を考慮しないリストで、追加された要素が自然な順序で整列されている場合のみ{@code true}。
+		 * 順序を考慮するリストでは要素を比較しない。
+		 */
+		private boolean sorted;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param kind 構築するリストの種類
+		 *     ({@link Value.Kind#ORDERED_LIST}または{@link Value.Kind#UNORDERED_LIST})
+		 * @throws NullPointerException 引数に{@code null}が指定された場合
+		 * @throws IllegalArgumentException 引数にリストでない種類が指定された場合
+		 */
+		public Builder(Value.Kind kind) {
+			this(kind, 0);
+		}
+		
+		/**
+		 * 追加する要素のおおよその個数を指定してインスタンスを生成する。
+		 * @param kind 構築するリストの種類
+		 *     ({@link Value.Kind#ORDERED_LIST}または{@link Value.Kind#UNORDERED_LIST})
+		 * @param expectedSize 追加する要素のおおよその個数
+		 * @throws NullPointerException 引数{@code kind}に{@code null}が指定された場合
+		 * @throws IllegalArgumentException 引数にリストでない種類が指定された場合、
+		 *     または{@code expectedSize}に負の値が指定された場合
+		 */
+		public Builder(Value.Kind kind, int expectedSize) {
+			if (kind == null) {
+				throw new NullPointerException("kind"); //$NON-NLS-1$
+			}
+			if (kind != Value.Kind.ORDERED_LIST && kind != Value.Kind.UNORDERED_LIST) {
+				throw new IllegalArgumentException(kind.toString());
+			}
+			if (expectedSize < 0) {
+				throw new IllegalArgumentException("expectedSize < 0"); //$NON-NLS-1$
+			}
+			this.kind = kind;
+			this.values = expectedSize == 0 ? NO_VALUES : new Value[expectedSize];
+			this.size = 0;
+			this.sorted = true;
+		}
+		
+		/**
+		 * 指定の値を末尾に追加する。
+		 * @param value 追加する値
+		 * @return このオブジェクト
+		 * @throws NullPointerException 引数に{@code null}が指定された場合
+		 */
+		public Builder add(Value value) {
+			if (value == null) {
+				throw new NullPointerException("value"); //$NON-NLS-1$
+			}
+			if (size == values.length) {
+				Value[] grown = new Value[Math.max(size * 2, 4)]; // CHECKSTYLE IGNORE THIS LINE
+				System.arraycopy(values, 0, grown, 0, size);
+				values = grown;
+			}
+			if (kind == Value.Kind.UNORDERED_LIST && sorted && size > 0 && values[size - 1].compareTo(value) > 0) {
+				sorted = false;
+			}
+			values[size++] = value;
+			return this;
+		}
+		
+		/**
+		 * 指定の値の一覧を順に末尾に追加する。
+		 * @param newValues 追加する値の一覧
+		 * @return このオブジェクト
+		 * @throws NullPointerException 引数に{@code null}が指定された場合、
+		 *     または引数に{@code null}が含まれる場合
+		 */
+		public Builder addAll(Collection<? extends Value> newValues) {
+			if (newValues == null) {
+				throw new NullPointerException("newValues"); //$NON-NLS-1$
+			}
+			int required = size + newValues.size();
+			if (required > values.length) {
+				Value[] grown = new Value[required];
+				System.arraycopy(values, 0, grown, 0, size);
+				values = grown;
+			}
+			for (Value value : newValues) {
+				add(value);
+			}
+			return this;
+		}
+		
+		/**
+		 * これまでに追加された要素の個数を返す。
+		 * @return 追加された要素の個数
+		 */
+		public int size() {
+			return size;
+		}
+		
+		/**
+		 * これまでに追加された要素からなるリストを構築して返す。
+		 * <p>
+		 * 構築後、このオブジェクトは要素を持たない状態に戻る。
+		 * </p>
+		 * @return 構築したリスト
+		 */
+		public Sequence build() {
+			Value[] built = values;
+			int builtSize = size;
+			boolean builtSorted = sorted;
+			values = NO_VALUES;
+			size = 0;
+			sorted = true;
+			if (builtSize == 0) {
+				return kind == Value.Kind.ORDERED_LIST ? EMPTY_ORDERED : EMPTY_UNORDERED;
+			}
+			if (kind == Value.Kind.UNORDERED_LIST && builtSorted == false) {
+				if (builtSize >= SortKeyEncoder.SORT_THRESHOLD) {
+					SortKeyEncoder.sort(built, builtSize);
+				} else {
+					Arrays.sort(built, 0, builtSize);
+				}
+			}
+			return new Sequence(kind, toList(built, builtSize));
+		}
 	}
 }
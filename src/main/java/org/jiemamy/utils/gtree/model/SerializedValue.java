@@ -0,0 +1,802 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+import java.io.StreamCorruptedException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Value}のツリー全体を、1つのオブジェクトとして直列化するための代理。
+ * <p>
+ * ツリーは前順に走査され、各値は種類を表す1バイトのタグと、可変長の整数で表した長さや番号で表現される。
+ * 終端値の文字列表現とレコードのキーの並びはそれぞれ初出時にのみ出力し、
+ * 以降は出現順に割り当てた番号で参照する。
+ * 同一のインスタンスとして共有された部分木も同様に番号で参照し、復元後も共有される。
+ * </p>
+ * <p>
+ * 直列化と復元はいずれも明示的なスタックを用いて反復的に行うため、
+ * ツリーの深さによらずスタックオーバーフローは発生しない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ * @see Value#writeReplace()
+ */
+final class SerializedValue implements Externalizable {
+	
+	private static final long serialVersionUID = 3128546078460513842L;
+	
+	/**
+	 * 走査用のスタックの初期容量。
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/**
+	 * 直列化形式の版。
+	 */
+	private static final int FORMAT_VERSION = 1;
+	
+	/**
+	 * 初出の文字列表現を持つ終端値。
+	 */
+	private static final int TAG_STRING = 0;
+	
+	/**
+	 * 出現済みの文字列表現を持つ終端値。
+	 */
+	private static final int TAG_STRING_REFERENCE = 1;
+	
+	/**
+	 * 整数を表現する終端値。
+	 */
+	private static final int TAG_LONG = 2;
+	
+	/**
+	 * 浮動小数点数を表現する終端値。
+	 */
+	private static final int TAG_DOUBLE = 3;
+	
+	/**
+	 * 順序つきのリスト。
+	 */
+	private static final int TAG_ORDERED = 4;
+	
+	/**
+	 * 順序を考慮しないリスト。
+	 */
+	private static final int TAG_UNORDERED = 5;
+	
+	/**
+	 * プリミティブ型の配列で要素を保持するリスト。
+	 */
+	private static final int TAG_PACKED = 6;
+	
+	/**
+	 * 初出のキーの並びを持つレコード。
+	 */
+	private static final int TAG_RECORD = 7;
+	
+	/**
+	 * 出現済みのキーの並びを持つレコード。
+	 */
+	private static final int TAG_RECORD_REFERENCE = 8;
+	
+	/**
+	 * 出現済みの部分木。
+	 */
+	private static final int TAG_REFERENCE = 9;
+	
+	/**
+	 * プリミティブ型の配列の要素型の一覧、添字が出力する番号となる。
+	 */
+	private static final Class<?>[] PACKED_TYPES = {
+		byte.class,
+		short.class,
+		int.class,
+		long.class,
+		double.class
+	};
+	
+	/**
+	 * 可変長の整数で、1バイトあたりに格納するビット数。
+	 */
+	private static final int VARINT_BITS = 7;
+	
+	/**
+	 * 可変長の整数で、後続のバイトが存在することを表すビット。
+	 */
+	private static final int VARINT_CONTINUATION = 0x80;
+	
+	/**
+	 * 可変長の整数で、値を格納するビット。
+	 */
+	private static final int VARINT_MASK = 0x7f;
+	
+	/**
+	 * 直列化、または復元した値。
+	 */
+	private Value value;
+	
+
+	/**
+	 * 復元用にインスタンスを生成する。
+	 * <p>
+	 * {@link Externalizable}の規約により公開されているが、直接利用してはならない。
+	 * </p>
+	 */
+	public SerializedValue() {
+		super();
+	}
+	
+	/**
+	 * 直列化用にインスタンスを生成する。
+	 * @param value 直列化するツリーのルート
+	 */
+	SerializedValue(Value value) {
+		super();
+		assert value != null;
+		this.value = value;
+	}
+	
+	public void writeExternal(ObjectOutput out) throws IOException {
+		if (value == null) {
+			throw new IllegalStateException();
+		}
+		writeVarint(out, FORMAT_VERSION);
+		new Encoder(out).encode(value);
+	}
+	
+	public void readExternal(ObjectInput in) throws IOException {
+		int version = readVarint(in);
+		if (version != FORMAT_VERSION) {
+			throw new InvalidObjectException(MessageFormat.format("Unsupported format version: {0}", //$NON-NLS-1$
+					version));
+		}
+		value = new Decoder(in).decode();
+	}
+	
+	/**
+	 * 復元したオブジェクトを、対応するツリーのルートに置き換える。
+	 * @return 復元したツリーのルート
+	 * @throws ObjectStreamException 復元が完了していない場合
+	 */
+	private Object readResolve() throws ObjectStreamException {
+		if (value == null) {
+			throw new InvalidObjectException("value"); //$NON-NLS-1$
+		}
+		return value;
+	}
+	
+	/**
+	 * 符号なしの整数を、下位から7ビットずつ可変長で出力する。
+	 * @param out 出力先
+	 * @param value 対象の値
+	 * @throws IOException 出力に失敗した場合
+	 */
+	private static void writeVarint(DataOutput out, int value) throws IOException {
+		int rest = value;
+		while ((rest & ~VARINT_MASK) != 0) {
+			out.writeByte((rest & VARINT_MASK) | VARINT_CONTINUATION);
+			rest >>>= VARINT_BITS;
+		}
+		out.writeByte(rest);
+	}
+	
+	/**
+	 * 符号なしの{@code long}を、下位から7ビットずつ可変長で出力する。
+	 * @param out 出力先
+	 * @param value 対象の値
+	 * @throws IOException 出力に失敗した場合
+	 */
+	private static void writeVarlong(DataOutput out, long value) throws IOException {
+		long rest = value;
+		while ((rest & ~VARINT_MASK) != 0L) {
+			out.writeByte((int) (rest & VARINT_MASK) | VARINT_CONTINUATION);
+			rest >>>= VARINT_BITS;
+		}
+		out.writeByte((int) rest);
+	}
+	
+	/**
+	 * 符号つきの整数を、絶対値が小さいほど短くなるように (ZigZag符号化) 可変長で出力する。
+	 * @param out 出力先
+	 * @param value 対象の値
+	 * @throws IOException 出力に失敗した場合
+	 */
+	private static void writeSigned(DataOutput out, long value) throws IOException {
+		writeVarlong(out, (value << 1) ^ (value >> (Long.SIZE - 1)));
+	}
+	
+	/**
+	 * {@link #writeVarint(DataOutput, int)}で出力した整数を読み出す。
+	 * @param in 入力元
+	 * @return 読み出した値
+	 * @throws IOException 入力に失敗した場合、または入力が不正である場合
+	 */
+	private static int readVarint(DataInput in) throws IOException {
+		long result = readVarlong(in);
+		if ((result & ~0xffffffffL) != 0L) { // CHECKSTYLE IGNORE THIS LINE
+			throw new StreamCorruptedException("varint"); //$NON-NLS-1$
+		}
+		return (int) result;
+	}
+	
+	/**
+	 * {@link #writeVarlong(DataOutput, long)}で出力した整数を読み出す。
+	 * @param in 入力元
+	 * @return 読み出した値
+	 * @throws IOException 入力に失敗した場合、または入力が不正である場合
+	 */
+	private static long readVarlong(DataInput in) throws IOException {
+		long result = 0L;
+		for (int shift = 0; shift < Long.SIZE; shift += VARINT_BITS) {
+			int b = in.readUnsignedByte();
+			result |= (long) (b & VARINT_MASK) << shift;
+			if ((b & VARINT_CONTINUATION) == 0) {
+				return result;
+			}
+		}
+		throw new StreamCorruptedException("varint"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * {@link #writeSigned(DataOutput, long)}で出力した整数を読み出す。
+	 * @param in 入力元
+	 * @return 読み出した値
+	 * @throws IOException 入力に失敗した場合、または入力が不正である場合
+	 */
+	private static long readSigned(DataInput in) throws IOException {
+		long encoded = readVarlong(in);
+		return (encoded >>> 1) ^ -(encoded & 1L);
+	}
+	
+	/**
+	 * 長さを表す整数を読み出す。
+	 * @param in 入力元
+	 * @return 読み出した長さ
+	 * @throws IOException 入力に失敗した場合、または入力が不正である場合
+	 */
+	private static int readLength(DataInput in) throws IOException {
+		int length = readVarint(in);
+		if (length < 0) {
+			throw new StreamCorruptedException(MessageFormat.format("Invalid length: {0}", //$NON-NLS-1$
+					length));
+		}
+		return length;
+	}
+	
+	private static int[] grow(int[] array, int capacity) {
+		int[] results = new int[capacity];
+		System.arraycopy(array, 0, results, 0, array.length);
+		return results;
+	}
+	
+	private static int packedTypeCode(Class<?> type) {
+		for (int i = 0; i < PACKED_TYPES.length; i++) {
+			if (PACKED_TYPES[i] == type) {
+				return i;
+			}
+		}
+		throw new AssertionError(type);
+	}
+	
+
+	/**
+	 * ツリーを前順に走査して出力する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Encoder {
+		
+		private final DataOutput out;
+		
+		/**
+		 * 出力済みの文字列表現と、その番号の対応表。
+		 */
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+		
+		/**
+		 * 出力済みのキーの並びと、その番号の対応表。
+		 */
+		private final Map<RecordShape, Integer> shapes = new IdentityHashMap<RecordShape, Integer>();
+		
+		/**
+		 * 出力済みの部分木と、その番号の対応表。
+		 */
+		private final Map<Value, Integer> containers = new IdentityHashMap<Value, Integer>();
+		
+		/**
+		 * 子を出力中の値。
+		 */
+		private Value[] parents = new Value[INITIAL_CAPACITY];
+		
+		/**
+		 * 次に出力する子の位置。
+		 */
+		private int[] positions = new int[INITIAL_CAPACITY];
+		
+		/**
+		 * 出力する子の個数。
+		 */
+		private int[] ends = new int[INITIAL_CAPACITY];
+		
+		/**
+		 * 子に先立って出力するレコードのキーの個数。
+		 */
+		private int[] keyCounts = new int[INITIAL_CAPACITY];
+		
+		private int depth;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param out 出力先
+		 */
+		Encoder(DataOutput out) {
+			assert out != null;
+			this.out = out;
+		}
+		
+		/**
+		 * 指定のツリーを出力する。
+		 * @param root ツリーのルート
+		 * @throws IOException 出力に失敗した場合
+		 */
+		void encode(Value root) throws IOException {
+			assert root != null;
+			write(root);
+			while (depth > 0) {
+				int top = depth - 1;
+				if (positions[top] == ends[top]) {
+					parents[top] = null;
+					depth--;
+					continue;
+				}
+				Value parent = parents[top];
+				int position = positions[top]++;
+				int keyCount = keyCounts[top];
+				if (position < keyCount) {
+					write(((Record) parent).getKey(position));
+				} else {
+					write(parent.childAt(position - keyCount));
+				}
+			}
+		}
+		
+		private void write(Value target) throws IOException {
+			if (target.getKind() == Value.Kind.TERMINAL) {
+				writeTerminal((Terminal) target);
+				return;
+			}
+			Integer id = containers.get(target);
+			if (id != null) {
+				out.writeByte(TAG_REFERENCE);
+				writeVarint(out, id);
+				return;
+			}
+			containers.put(target, containers.size());
+			if (target.getKind() == Value.Kind.RECORD) {
+				Record record = (Record) target;
+				int size = record.size();
+				RecordShape shape = record.getShape();
+				Integer shapeId = shapes.get(shape);
+				if (shapeId == null) {
+					shapes.put(shape, shapes.size());
+					out.writeByte(TAG_RECORD);
+					writeVarint(out, size);
+					push(record, size * 2, size);
+				} else {
+					out.writeByte(TAG_RECORD_REFERENCE);
+					writeVarint(out, shapeId);
+					push(record, size, 0);
+				}
+				return;
+			}
+			Sequence sequence = (Sequence) target;
+			if (sequence.getPackedType() != null) {
+				writePacked(sequence);
+				return;
+			}
+			int size = sequence.childCount();
+			out.writeByte(sequence.getKind() == Value.Kind.ORDERED_LIST ? TAG_ORDERED : TAG_UNORDERED);
+			writeVarint(out, size);
+			push(sequence, size, 0);
+		}
+		
+		private void writeTerminal(Terminal terminal) throws IOException {
+			if (terminal instanceof NumericTerminal) {
+				NumericTerminal numeric = (NumericTerminal) terminal;
+				if (numeric.isFloating()) {
+					out.writeByte(TAG_DOUBLE);
+					out.writeLong(numeric.getBits());
+				} else {
+					out.writeByte(TAG_LONG);
+					writeSigned(out, numeric.getBits());
+				}
+				return;
+			}
+			String representation = terminal.getRepresentation();
+			Integer id = strings.get(representation);
+			if (id != null) {
+				out.writeByte(TAG_STRING_REFERENCE);
+				writeVarint(out, id);
+				return;
+			}
+			strings.put(representation, strings.size());
+			out.writeByte(TAG_STRING);
+			int length = representation.length();
+			writeVarint(out, length);
+			for (int i = 0; i < length; i++) {
+				writeVarint(out, representation.charAt(i));
+			}
+		}
+		
+		private void writePacked(Sequence sequence) throws IOException {
+			Class<?> type = sequence.getPackedType();
+			Object array = sequence.toPackedArray();
+			out.writeByte(TAG_PACKED);
+			writeVarint(out, packedTypeCode(type));
+			if (type == byte.class) {
+				byte[] values = (byte[]) array;
+				writeVarint(out, values.length);
+				out.write(values);
+			} else if (type == short.class) {
+				short[] values = (short[]) array;
+				writeVarint(out, values.length);
+				for (short v : values) {
+					writeSigned(out, v);
+				}
+			} else if (type == int.class) {
+				int[] values = (int[]) array;
+				writeVarint(out, values.length);
+				for (int v : values) {
+					writeSigned(out, v);
+				}
+			} else if (type == long.class) {
+				long[] values = (long[]) array;
+				writeVarint(out, values.length);
+				for (long v : values) {
+					writeSigned(out, v);
+				}
+			} else {
+				double[] values = (double[]) array;
+				writeVarint(out, values.length);
+				for (double v : values) {
+					out.writeLong(Double.doubleToLongBits(v));
+				}
+			}
+		}
+		
+		private void push(Value parent, int end, int keyCount) {
+			if (end == 0) {
+				return;
+			}
+			if (depth == parents.length) {
+				int capacity = depth * 2;
+				Value[] newParents = new Value[capacity];
+				System.arraycopy(parents, 0, newParents, 0, depth);
+				parents = newParents;
+				positions = grow(positions, capacity);
+				ends = grow(ends, capacity);
+				keyCounts = grow(keyCounts, capacity);
+			}
+			parents[depth] = parent;
+			positions[depth] = 0;
+			ends[depth] = end;
+			keyCounts[depth] = keyCount;
+			depth++;
+		}
+	}
+	
+	/**
+	 * {@link Encoder}の出力からツリーを復元する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Decoder {
+		
+		private final DataInput in;
+		
+		/**
+		 * 復元済みの文字列表現の一覧。
+		 */
+		private final List<String> strings = new ArrayList<String>();
+		
+		/**
+		 * 復元済みのキーの並びの一覧、キーを復元中の場合は{@code null}。
+		 */
+		private final List<RecordShape> shapes = new ArrayList<RecordShape>();
+		
+		/**
+		 * 復元済みの部分木の一覧、子を復元中の場合は{@code null}。
+		 */
+		private final List<Value> containers = new ArrayList<Value>();
+		
+		/**
+		 * 子を復元中の値のタグ。
+		 */
+		private int[] tags = new int[INITIAL_CAPACITY];
+		
+		/**
+		 * 子を復元中の値の番号。
+		 */
+		private int[] ids = new int[INITIAL_CAPACITY];
+		
+		/**
+		 * 子を復元中のレコードのキーの並びの番号。
+		 */
+		private int[] shapeIds = new int[INITIAL_CAPACITY];
+		
+		/**
+		 * 復元済みの子の一覧。
+		 */
+		private Value[][] children = new Value[INITIAL_CAPACITY][];
+		
+		/**
+		 * 復元済みの子の個数。
+		 */
+		private int[] filled = new int[INITIAL_CAPACITY];
+		
+		private int depth;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param in 入力元
+		 */
+		Decoder(DataInput in) {
+			assert in != null;
+			this.in = in;
+		}
+		
+		/**
+		 * ツリーを復元する。
+		 * @return 復元したツリーのルート
+		 * @throws IOException 入力に失敗した場合、または入力が不正である場合
+		 */
+		Value decode() throws IOException {
+			Value root = read();
+			while (depth > 0) {
+				int top = depth - 1;
+				if (filled[top] < children[top].length) {
+					Value child = read();
+					if (child != null) {
+						append(child);
+					}
+					continue;
+				}
+				Value completed = complete(top);
+				children[top] = null;
+				depth--;
+				if (depth == 0) {
+					root = completed;
+				} else {
+					append(completed);
+				}
+			}
+			assert root != null;
+			return root;
+		}
+		
+		/**
+		 * 次の値を読み出す。
+		 * @return 読み出した値、子の復元が必要な場合は{@code null}
+		 * @throws IOException 入力に失敗した場合、または入力が不正である場合
+		 */
+		private Value read() throws IOException {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+				case TAG_STRING: {
+					int length = readLength(in);
+					char[] chars = new char[length];
+					for (int i = 0; i < length; i++) {
+						chars[i] = (char) readVarint(in);
+					}
+					String representation = new String(chars);
+					strings.add(representation);
+					return Terminal.of(representation);
+				}
+				case TAG_STRING_REFERENCE:
+					return Terminal.of(lookup(strings, readVarint(in)));
+				case TAG_LONG:
+					return Terminal.ofLong(readSigned(in));
+				case TAG_DOUBLE:
+					return Terminal.ofDouble(Double.longBitsToDouble(in.readLong()));
+				case TAG_REFERENCE:
+					return lookup(containers, readVarint(in));
+				case TAG_PACKED:
+					return register(readPacked());
+				case TAG_ORDERED:
+				case TAG_UNORDERED: {
+					int size = readLength(in);
+					int id = containers.size();
+					if (size == 0) {
+						return register(build(tag, new Value[0]));
+					}
+					containers.add(null);
+					push(tag, id, -1, size);
+					return null;
+				}
+				case TAG_RECORD: {
+					int size = readLength(in);
+					int id = containers.size();
+					int shapeId = shapes.size();
+					if (size == 0) {
+						shapes.add(RecordShape.EMPTY);
+						return register(Record.of(RecordShape.EMPTY, new Value[0]));
+					}
+					containers.add(null);
+					shapes.add(null);
+					push(tag, id, shapeId, size * 2);
+					return null;
+				}
+				case TAG_RECORD_REFERENCE: {
+					int shapeId = readVarint(in);
+					RecordShape shape = lookup(shapes, shapeId);
+					int id = containers.size();
+					if (shape.size() == 0) {
+						return register(Record.of(shape, new Value[0]));
+					}
+					containers.add(null);
+					push(tag, id, shapeId, shape.size());
+					return null;
+				}
+				default:
+					throw new StreamCorruptedException(MessageFormat.format("Unknown tag: {0}", //$NON-NLS-1$
+							tag));
+			}
+		}
+		
+		private Sequence readPacked() throws IOException {
+			int type = readVarint(in);
+			if (type < 0 || type >= PACKED_TYPES.length) {
+				throw new StreamCorruptedException(MessageFormat.format("Unknown packed type: {0}", //$NON-NLS-1$
+						type));
+			}
+			int length = readLength(in);
+			if (PACKED_TYPES[type] == byte.class) {
+				byte[] values = new byte[length];
+				in.readFully(values);
+				return Sequence.packed(values);
+			} else if (PACKED_TYPES[type] == short.class) {
+				short[] values = new short[length];
+				for (int i = 0; i < length; i++) {
+					values[i] = (short) readSigned(in);
+				}
+				return Sequence.packed(values);
+			} else if (PACKED_TYPES[type] == int.class) {
+				int[] values = new int[length];
+				for (int i = 0; i < length; i++) {
+					values[i] = (int) readSigned(in);
+				}
+				return Sequence.packed(values);
+			} else if (PACKED_TYPES[type] == long.class) {
+				long[] values = new long[length];
+				for (int i = 0; i < length; i++) {
+					values[i] = readSigned(in);
+				}
+				return Sequence.packed(values);
+			} else {
+				double[] values = new double[length];
+				for (int i = 0; i < length; i++) {
+					values[i] = Double.longBitsToDouble(in.readLong());
+				}
+				return Sequence.packed(values);
+			}
+		}
+		
+		private void append(Value child) throws IOException {
+			int top = depth - 1;
+			children[top][filled[top]++] = child;
+			if (tags[top] == TAG_RECORD && filled[top] * 2 == children[top].length) {
+				int size = filled[top];
+				Value[] keys = new Value[size];
+				System.arraycopy(children[top], 0, keys, 0, size);
+				for (int i = 1; i < size; i++) {
+					if (keys[i - 1].compareTo(keys[i]) > 0) {
+						throw new StreamCorruptedException("Record keys are not sorted"); //$NON-NLS-1$
+					}
+				}
+				shapes.set(shapeIds[top], RecordShape.of(keys));
+			}
+		}
+		
+		private Value complete(int top) throws StreamCorruptedException {
+			Value[] elements = children[top];
+			Value result;
+			switch (tags[top]) {
+				case TAG_RECORD: {
+					int size = elements.length / 2;
+					Value[] values = new Value[size];
+					System.arraycopy(elements, size, values, 0, size);
+					result = toRecord(shapes.get(shapeIds[top]), values);
+					break;
+				}
+				case TAG_RECORD_REFERENCE:
+					result = toRecord(shapes.get(shapeIds[top]), elements);
+					break;
+				default:
+					result = build(tags[top], elements);
+					break;
+			}
+			containers.set(ids[top], result);
+			return result;
+		}
+		
+		private Record toRecord(RecordShape shape, Value[] values) throws StreamCorruptedException {
+			for (int i = 1; i < values.length; i++) {
+				if (shape.getKey(i - 1).equals(shape.getKey(i)) && values[i - 1].compareTo(values[i]) > 0) {
+					throw new StreamCorruptedException("Record entries are not sorted"); //$NON-NLS-1$
+				}
+			}
+			return Record.of(shape, values);
+		}
+		
+		private Sequence build(int tag, Value[] elements) {
+			Value.Kind kind = tag == TAG_ORDERED ? Value.Kind.ORDERED_LIST : Value.Kind.UNORDERED_LIST;
+			Sequence.Builder builder = new Sequence.Builder(kind, elements.length);
+			for (Value element : elements) {
+				builder.add(element);
+			}
+			return builder.build();
+		}
+		
+		private Value register(Value container) {
+			containers.add(container);
+			return container;
+		}
+		
+		private <T>T lookup(List<T> list, int index) throws StreamCorruptedException {
+			if (index < 0 || index >= list.size() || list.get(index) == null) {
+				throw new StreamCorruptedException(MessageFormat.format("Invalid reference: {0}", //$NON-NLS-1$
+						index));
+			}
+			return list.get(index);
+		}
+		
+		private void push(int tag, int id, int shapeId, int size) {
+			if (depth == tags.length) {
+				int capacity = depth * 2;
+				Value[][] newChildren = new Value[capacity][];
+				System.arraycopy(children, 0, newChildren, 0, depth);
+				children = newChildren;
+				tags = grow(tags, capacity);
+				ids = grow(ids, capacity);
+				shapeIds = grow(shapeIds, capacity);
+				filled = grow(filled, capacity);
+			}
+			tags[depth] = tag;
+			ids[depth] = id;
+			shapeIds[depth] = shapeId;
+			children[depth] = new Value[size];
+			filled[depth] = 0;
+			depth++;
+		}
+	}
+
+}
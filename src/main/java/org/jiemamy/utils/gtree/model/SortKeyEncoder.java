@@ -0,0 +1,336 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link Value}を、自然な順序を保存するバイト列のキーに変換する。
+ * <p>
+ * 2つの値{@code a, b}について、
+ * {@code compare(encode(a), encode(b))}の符号は常に{@code a.compareTo(b)}の符号に等しい。
+ * すなわち、生成されたキーを符号なしのバイト列として辞書式に比較すれば、
+ * 元の値を再帰的に比較することなく自然な順序を得られる。
+ * </p>
+ * <p>
+ * キーは次のように構成される。
+ * </p>
+ * <ul>
+ *   <li>
+ *     先頭の1バイトは{@link Value.Kind}の順序に対応するタグ
+ *   </li>
+ *   <li>
+ *     {@link Terminal}では、続いて文字列表現の各文字をビッグエンディアンの2バイトで表したもの。
+ *     ただし、バイト{@code 0x00}は{@code 0x00 0xFF}に置き換えられ、
+ *     末尾には終端{@code 0x00 0x01}が置かれる
+ *   </li>
+ *   <li>
+ *     {@link Sequence}では、続いて要素数をビッグエンディアンの4バイトで表したものと、
+ *     各要素のキーを順に連結したもの
+ *   </li>
+ *   <li>
+ *     {@link Record}では、続いてエントリ数をビッグエンディアンの4バイトで表したものと、
+ *     各エントリのキーと値のキーを順に連結したもの
+ *   </li>
+ * </ul>
+ * <p>
+ * いずれのキーもほかのキーの接頭辞とはならないため、
+ * 連結されたキーどうしの比較は最初に異なる要素の比較に一致する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public final class SortKeyEncoder {
+	
+	/**
+	 * キーを利用して整列を行う最小の要素数。
+	 */
+	static final int SORT_THRESHOLD = 64;
+	
+	/**
+	 * バイト列を符号なしの辞書式順序で比較する{@link Comparator}。
+	 */
+	public static final Comparator<byte[]> COMPARATOR = new Comparator<byte[]>() {
+		
+		public int compare(byte[] o1, byte[] o2) {
+			return SortKeyEncoder.compare(o1, o2);
+		}
+	};
+	
+	/**
+	 * 終端値の文字列表現の終端。
+	 */
+	private static final int TERMINATOR = 0x01;
+	
+	/**
+	 * 終端値に含まれるバイト{@code 0x00}の置き換え。
+	 */
+	private static final int ESCAPED_ZERO = 0xFF;
+	
+	/**
+	 * 1バイト分のビットマスク。
+	 */
+	private static final int BYTE_MASK = 0xFF;
+	
+	/**
+	 * 1バイトのビット数。
+	 */
+	private static final int BITS_PER_BYTE = 8;
+	
+
+	/**
+	 * 指定の値に対応するキーを返す。
+	 * @param value 対象の値
+	 * @return 対応するキー
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static byte[] encode(Value value) {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		Buffer buffer = new Buffer();
+		buffer.putValue(value);
+		return buffer.toByteArray();
+	}
+	
+	/**
+	 * 2つのバイト列を符号なしの辞書式順序で比較する。
+	 * @param key1 比較するバイト列
+	 * @param key2 比較するバイト列
+	 * @return {@link Comparator}の規約に従った比較結果
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static int compare(byte[] key1, byte[] key2) {
+		if (key1 == null) {
+			throw new NullPointerException("key1"); //$NON-NLS-1$
+		}
+		if (key2 == null) {
+			throw new NullPointerException("key2"); //$NON-NLS-1$
+		}
+		int length = Math.min(key1.length, key2.length);
+		for (int i = 0; i < length; i++) {
+			int b1 = key1[i] & BYTE_MASK;
+			int b2 = key2[i] & BYTE_MASK;
+			if (b1 != b2) {
+				return b1 < b2 ? -1 : +1;
+			}
+		}
+		if (key1.length < key2.length) {
+			return -1;
+		} else if (key1.length > key2.length) {
+			return +1;
+		}
+		return 0;
+	}
+	
+	/**
+	 * 配列の先頭から{@code size}個の値を、キーを利用して自然な順序に整列する。
+	 * @param values 対象の配列
+	 * @param size 整列する値の個数
+	 */
+	static void sort(Value[] values, int size) {
+		assert values != null;
+		assert 0 <= size && size <= values.length;
+		Keyed[] keyed = new Keyed[size];
+		for (int i = 0; i < size; i++) {
+			keyed[i] = new Keyed(encode(values[i]), i);
+		}
+		Arrays.sort(keyed);
+		Value[] original = new Value[size];
+		System.arraycopy(values, 0, original, 0, size);
+		for (int i = 0; i < size; i++) {
+			values[i] = original[keyed[i].index];
+		}
+	}
+	
+	/**
+	 * 配列の先頭から{@code size}個のエントリを、キーを利用して自然な順序に整列する。
+	 * <p>
+	 * 各エントリは、引数{@code keys}と{@code values}の同じ位置にある値の組で表される。
+	 * </p>
+	 * @param keys エントリのキーの配列
+	 * @param values エントリの値の配列
+	 * @param size 整列するエントリの個数
+	 */
+	static void sortEntries(Value[] keys, Value[] values, int size) {
+		assert keys != null;
+		assert values != null;
+		assert 0 <= size && size <= keys.length && size <= values.length;
+		Keyed[] keyed = new Keyed[size];
+		for (int i = 0; i < size; i++) {
+			Buffer buffer = new Buffer();
+			buffer.putValue(keys[i]);
+			buffer.putValue(values[i]);
+			keyed[i] = new Keyed(buffer.toByteArray(), i);
+		}
+		Arrays.sort(keyed);
+		Value[] originalKeys = new Value[size];
+		Value[] originalValues = new Value[size];
+		System.arraycopy(keys, 0, originalKeys, 0, size);
+		System.arraycopy(values, 0, originalValues, 0, size);
+		for (int i = 0; i < size; i++) {
+			int index = keyed[i].index;
+			keys[i] = originalKeys[index];
+			values[i] = originalValues[index];
+		}
+	}
+	
+	/**
+	 * インスタンス生成の禁止。
+	 */
+	private SortKeyEncoder() {
+		throw new AssertionError();
+	}
+	
+
+	/**
+	 * キーを書き出す可変長のバッファ。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Buffer {
+		
+		/**
+		 * バッファの初期容量。
+		 */
+		private static final int INITIAL_CAPACITY = 32;
+		
+		/**
+		 * 書き出されたバイト列を保持する配列。
+		 */
+		private byte[] bytes = new byte[INITIAL_CAPACITY];
+		
+		/**
+		 * 書き出されたバイト数。
+		 */
+		private int size = 0;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 */
+		Buffer() {
+			super();
+		}
+		
+		void putValue(Value value) {
+			Value.Kind kind = value.getKind();
+			putByte(kind.ordinal() + 1);
+			switch (kind) {
+				case TERMINAL:
+					putTerminal(((Terminal) value).getRepresentation());
+					break;
+				case ORDERED_LIST:
+				case UNORDERED_LIST:
+					List<Value> elements = ((Sequence) value).getValues();
+					int count = elements.size();
+					putInt(count);
+					for (int i = 0; i < count; i++) {
+						putValue(elements.get(i));
+					}
+					break;
+				case RECORD:
+					Record record = (Record) value;
+					int size = record.size();
+					putInt(size);
+					for (int i = 0; i < size; i++) {
+						putValue(record.getKey(i));
+						putValue(record.getValue(i));
+					}
+					break;
+				default:
+					throw new AssertionError(kind);
+			}
+		}
+		
+		private void putTerminal(String representation) {
+			for (int i = 0, n = representation.length(); i < n; i++) {
+				char c = representation.charAt(i);
+				putEscaped(c >>> BITS_PER_BYTE);
+				putEscaped(c & BYTE_MASK);
+			}
+			putByte(0);
+			putByte(TERMINATOR);
+		}
+		
+		private void putEscaped(int b) {
+			if (b == 0) {
+				putByte(0);
+				putByte(ESCAPED_ZERO);
+			} else {
+				putByte(b);
+			}
+		}
+		
+		private void putInt(int value) {
+			assert value >= 0;
+			putByte(value >>> (BITS_PER_BYTE * 3)); // CHECKSTYLE IGNORE THIS LINE
+			putByte((value >>> (BITS_PER_BYTE * 2)) & BYTE_MASK);
+			putByte((value >>> BITS_PER_BYTE) & BYTE_MASK);
+			putByte(value & BYTE_MASK);
+		}
+		
+		private void putByte(int b) {
+			if (size == bytes.length) {
+				byte[] grown = new byte[bytes.length * 2];
+				System.arraycopy(bytes, 0, grown, 0, size);
+				bytes = grown;
+			}
+			bytes[size++] = (byte) b;
+		}
+		
+		byte[] toByteArray() {
+			byte[] results = new byte[size];
+			System.arraycopy(bytes, 0, results, 0, size);
+			return results;
+		}
+	}
+	
+	/**
+	 * キーと、元の位置の組。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Keyed implements Comparable<Keyed> {
+		
+		/**
+		 * キー。
+		 */
+		final byte[] key;
+		
+		/**
+		 * 元の位置。
+		 */
+		final int index;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param key キー
+		 * @param index 元の位置
+		 */
+		Keyed(byte[] key, int index) {
+			this.key = key;
+			this.index = index;
+		}
+		
+		public int compareTo(Keyed o) {
+			return compare(key, o.key);
+		}
+	}
+}
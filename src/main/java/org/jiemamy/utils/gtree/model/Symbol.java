@@ -0,0 +1,96 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+/**
+ * {@link SymbolTable}に登録された終端値。
+ * <p>
+ * 主にレコードのキーとして利用する。
+ * 同じ表に登録されたシンボルは文字列表現ごとに単一のインスタンスとなるため、
+ * それらの同値性は同一性の判定で、順序は登録時に割り当てられた順位の比較で決まる。
+ * 同値性と順序は同じ文字列表現を持つ{@link Terminal}と変わらない。
+ * </p>
+ * <p>
+ * シンボルを直列化すると、通常の{@link Terminal}として復元される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ * @see SymbolTable
+ */
+public final class Symbol extends Terminal {
+	
+	private static final long serialVersionUID = -6640129960419454405L;
+	
+	/**
+	 * 順位が割り当てられていないことを表す値。
+	 */
+	static final long NO_RANK = Long.MIN_VALUE;
+	
+	/**
+	 * このシンボルを登録した表。
+	 */
+	private final transient SymbolTable table;
+	
+	/**
+	 * 表の中での順位、割り当てられていない場合は{@link #NO_RANK}。
+	 */
+	private final transient long rank;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param name シンボルの名前
+	 * @param table このシンボルを登録する表
+	 * @param rank 表の中での順位、割り当てない場合は{@link #NO_RANK}
+	 */
+	Symbol(String name, SymbolTable table, long rank) {
+		super(name);
+		assert name != null;
+		assert table != null;
+		this.table = table;
+		this.rank = rank;
+	}
+	
+	/**
+	 * 表の中での順位を返す。
+	 * @return 表の中での順位、割り当てられていない場合は{@link #NO_RANK}
+	 */
+	long getRank() {
+		return rank;
+	}
+	
+	@Override
+	boolean equalsRepresentation(Terminal other) {
+		if (other instanceof Symbol && ((Symbol) other).table == table) {
+			return other == this;
+		}
+		return super.equalsRepresentation(other);
+	}
+	
+	@Override
+	int compareRepresentation(Terminal other) {
+		if (other == this) {
+			return 0;
+		}
+		if (other instanceof Symbol) {
+			Symbol symbol = (Symbol) other;
+			if (symbol.table == table && rank != NO_RANK && symbol.rank != NO_RANK) {
+				return rank < symbol.rank ? -1 : +1;
+			}
+		}
+		return super.compareRepresentation(other);
+	}
+}
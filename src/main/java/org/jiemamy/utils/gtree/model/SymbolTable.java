@@ -0,0 +1,231 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link Symbol}を登録する表。
+ * <p>
+ * 同じ名前に対しては常に同じシンボルを返す。
+ * 登録の際、シンボルには名前の辞書式順序に一致する順位が割り当てられる。
+ * 順位は既存のシンボルの間に間隔を空けて割り当てるため、後から登録された名前も
+ * 既存の順位を変えずに順序付けられる。
+ * 間隔が尽きた場合は順位を割り当てず、そのシンボルの比較は文字列表現の比較で行う。
+ * </p>
+ * <p>
+ * 登録されたシンボルは解放されないため、プロパティ名のように語彙の限られた名前にのみ利用すべきである。
+ * このクラスのインスタンスは複数のスレッドから同時に利用できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public final class SymbolTable {
+	
+	/**
+	 * 既存のシンボルの前後に順位を割り当てる際の間隔。
+	 */
+	private static final long RANK_STEP = 1L << 32;
+	
+	/**
+	 * 割り当て可能な最小の順位。
+	 */
+	private static final long MIN_RANK = Symbol.NO_RANK + 1;
+	
+	/**
+	 * 割り当て可能な最大の順位。
+	 */
+	private static final long MAX_RANK = Long.MAX_VALUE;
+	
+	/**
+	 * 大域的な表。
+	 */
+	private static final SymbolTable GLOBAL = new SymbolTable();
+	
+	/**
+	 * 名前と登録されたシンボルの表。
+	 */
+	private final ConcurrentMap<String, Symbol> symbols = new ConcurrentHashMap<String, Symbol>();
+	
+	/**
+	 * 名前の順に整列された、登録されたシンボルの表。
+	 * <p>
+	 * このオブジェクト自体を登録のロックとして利用する。
+	 * </p>
+	 */
+	private final SortedMap<String, Symbol> ordered = new TreeMap<String, Symbol>();
+	
+
+	/**
+	 * 大域的な表を返す。
+	 * <p>
+	 * この表はオブジェクトの変換器がプロパティ名をレコードのキーとして登録するのに利用する。
+	 * パーサはこの表に登録済みのシンボルを参照するのみで、新たな名前を登録しない。
+	 * </p>
+	 * @return 大域的な表
+	 */
+	public static SymbolTable getGlobal() {
+		return GLOBAL;
+	}
+	
+	/**
+	 * 空の表を生成する。
+	 */
+	public SymbolTable() {
+		super();
+	}
+	
+	/**
+	 * 指定の名前を持つシンボルを返す。
+	 * <p>
+	 * 同じ名前のシンボルがすでに登録されていればそれを返し、そうでなければ新たに登録して返す。
+	 * </p>
+	 * @param name シンボルの名前
+	 * @return 対応するシンボル
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Symbol intern(String name) {
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		Symbol symbol = symbols.get(name);
+		if (symbol != null) {
+			return symbol;
+		}
+		synchronized (ordered) {
+			symbol = symbols.get(name);
+			if (symbol != null) {
+				return symbol;
+			}
+			symbol = new Symbol(name, this, allocateRank(name));
+			ordered.put(name, symbol);
+			symbols.put(name, symbol);
+			return symbol;
+		}
+	}
+	
+	/**
+	 * 指定の名前を持つ登録済みのシンボルを返す。
+	 * <p>
+	 * {@link #intern(String)}と異なり、登録されていない名前を新たに登録しない。
+	 * </p>
+	 * @param name シンボルの名前
+	 * @return 対応するシンボル、登録されていない場合は{@code null}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Symbol find(String name) {
+		if (name == null) {
+			throw new NullPointerException("name"); //$NON-NLS-1$
+		}
+		return symbols.get(name);
+	}
+	
+	/**
+	 * 指定の終端値と同じ文字列表現を持つシンボルを返す。
+	 * <p>
+	 * 引数がこの表に登録されたシンボルであれば、それをそのまま返す。
+	 * </p>
+	 * @param terminal 対象の終端値
+	 * @return 対応するシンボル
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Symbol intern(Terminal terminal) {
+		if (terminal == null) {
+			throw new NullPointerException("terminal"); //$NON-NLS-1$
+		}
+		if (terminal instanceof Symbol) {
+			Symbol symbol = (Symbol) terminal;
+			if (symbols.get(symbol.getRepresentation()) == symbol) {
+				return symbol;
+			}
+		}
+		return intern(terminal.getRepresentation());
+	}
+	
+	/**
+	 * 登録されているシンボルの個数を返す。
+	 * @return 登録されているシンボルの個数
+	 */
+	public int size() {
+		return symbols.size();
+	}
+	
+	/**
+	 * 指定の名前を持つシンボルに割り当てる順位を計算する。
+	 * @param name 新たに登録するシンボルの名前
+	 * @return 割り当てる順位、割り当てられない場合は{@link Symbol#NO_RANK}
+	 */
+	private long allocateRank(String name) {
+		assert Thread.holdsLock(ordered);
+		Symbol lower = findRanked(ordered.headMap(name), true);
+		Symbol upper = findRanked(ordered.tailMap(name), false);
+		if (lower == null && upper == null) {
+			return 0L;
+		}
+		if (upper == null) {
+			long low = lower.getRank();
+			if (low <= MAX_RANK - RANK_STEP) {
+				return low + RANK_STEP;
+			}
+			return between(low, MAX_RANK);
+		}
+		if (lower == null) {
+			long high = upper.getRank();
+			if (high >= MIN_RANK + RANK_STEP) {
+				return high - RANK_STEP;
+			}
+			return between(MIN_RANK - 1, high);
+		}
+		return between(lower.getRank(), upper.getRank());
+	}
+	
+	/**
+	 * 指定の表の中で、最も外側にある順位を割り当てられたシンボルを返す。
+	 * @param map 対象の表
+	 * @param last 末尾から探す場合は{@code true}、先頭から探す場合は{@code false}
+	 * @return 該当するシンボル、存在しない場合は{@code null}
+	 */
+	private static Symbol findRanked(SortedMap<String, Symbol> map, boolean last) {
+		SortedMap<String, Symbol> rest = map;
+		while (rest.isEmpty() == false) {
+			String key = last ? rest.lastKey() : rest.firstKey();
+			Symbol symbol = rest.get(key);
+			if (symbol.getRank() != Symbol.NO_RANK) {
+				return symbol;
+			}
+			rest = last ? rest.headMap(key) : rest.tailMap(key + '\0');
+		}
+		return null;
+	}
+	
+	/**
+	 * 2つの順位の中間にある順位を返す。
+	 * @param low 下限(この値を含まない)
+	 * @param high 上限(この値を含まない)
+	 * @return 中間の順位、存在しない場合は{@link Symbol#NO_RANK}
+	 */
+	private static long between(long low, long high) {
+		assert low < high;
+		long half = (high - low) >>> 1;
+		if (half == 0) {
+			return Symbol.NO_RANK;
+		}
+		return low + half;
+	}
+}
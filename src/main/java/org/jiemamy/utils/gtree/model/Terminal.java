@@ -17,24 +17,39 @@ package org.jiemamy.utils.gtree.model;
 
 /**
  * 終端値。
+ * <p>
+ * 数値から生成された終端値は、文字列表現の代わりに数値そのものを保持し、
+ * 文字列表現は必要になった時点で生成する。
+ * いずれの場合も、同値性と順序は文字列表現のみによって決まる。
+ * </p>
  * @version $Date$
  * @author Suguru ARAKAWA
  */
-public final class Terminal extends Value {
+public class Terminal extends Value {
 	
 	private static final long serialVersionUID = -5646236984087399228L;
 	
 	/**
-	 * この値の表現。
+	 * フィンガープリントの初期値。
+	 */
+	static final long FINGERPRINT_SEED = 0xCBF29CE484222325L;
+	
+	/**
+	 * フィンガープリントの計算に利用する素数。
+	 */
+	static final long FINGERPRINT_PRIME = 0x100000001B3L;
+	
+	/**
+	 * この値の表現、サブクラスが表現を独自に保持する場合は{@code null}。
 	 */
 	private final String representation;
 	
 
 	/**
 	 * インスタンスを生成する。
-	 * @param representation この値の表現
+	 * @param representation この値の表現、サブクラスが表現を独自に保持する場合は{@code null}
 	 */
-	private Terminal(String representation) {
+	Terminal(String representation) {
 		super();
 		this.representation = representation;
 	}
@@ -52,12 +67,38 @@ public final class Terminal extends Value {
 		return new Terminal(representation);
 	}
 	
+	/**
+	 * 指定の整数を表現する終端値を生成する。
+	 * <p>
+	 * 生成される値は{@code Terminal.of(String.valueOf(value))}と等価であるが、
+	 * 文字列表現は必要になるまで生成されない。
+	 * </p>
+	 * @param value 対象の整数
+	 * @return 生成したインスタンス
+	 */
+	public static Terminal ofLong(long value) {
+		return NumericTerminal.integer(value);
+	}
+	
+	/**
+	 * 指定の浮動小数点数を表現する終端値を生成する。
+	 * <p>
+	 * 生成される値は{@code Terminal.of(String.valueOf(value))}と等価であるが、
+	 * 文字列表現は必要になるまで生成されない。
+	 * </p>
+	 * @param value 対象の浮動小数点数
+	 * @return 生成したインスタンス
+	 */
+	public static Terminal ofDouble(double value) {
+		return NumericTerminal.real(value);
+	}
+	
 	/**
 	 * 常に{@link Value.Kind#TERMINAL}を返す。
 	 * @return {@link Value.Kind#TERMINAL}
 	 */
 	@Override
-	public Value.Kind getKind() {
+	public final Value.Kind getKind() {
 		return Value.Kind.TERMINAL;
 	}
 	
@@ -73,24 +114,51 @@ public final class Terminal extends Value {
 	 * 指定のビジタを受け入れ、対応する{@link ElementVisitor}内のメソッドを呼び戻す。
 	 */
 	@Override
-	public <R, C, E extends Throwable>R accept(ElementVisitor<R, C, E> visitor, C context) throws E {
+	public final <R, C, E extends Throwable>R accept(ElementVisitor<R, C, E> visitor, C context) throws E {
 		if (visitor == null) {
 			throw new NullPointerException("visitor"); //$NON-NLS-1$
 		}
 		return visitor.visitTerminal(this, context);
 	}
 	
+	@Override
+	final int childCount() {
+		return 0;
+	}
+	
+	@Override
+	final Value childAt(int index) {
+		throw new IndexOutOfBoundsException(String.valueOf(index));
+	}
+	
+	@Override
+	long estimateShallowBytes() {
+		// この値, 文字列, 文字列の内部配列
+		long self = OBJECT_HEADER_BYTES + VALUE_FIELD_BYTES + REFERENCE_BYTES;
+		long string = OBJECT_HEADER_BYTES + REFERENCE_BYTES + INT_BYTES * 3;
+		long chars = OBJECT_HEADER_BYTES + INT_BYTES + CHAR_BYTES * representation.length();
+		return self + string + chars;
+	}
+	
+	@Override
+	long computeFingerprint() {
+		String representation = getRepresentation();
+		long result = FINGERPRINT_SEED;
+		for (int i = 0, n = representation.length(); i < n; i++) {
+			result ^= representation.charAt(i);
+			result *= FINGERPRINT_PRIME;
+		}
+		return mix(result ^ representation.length());
+	}
+	
 	/**
 	 * このオブジェクトのハッシュ値を返す。
 	 * @return このオブジェクトのハッシュ値
 	 * @see java.lang.Object#hashCode()
 	 */
 	@Override
-	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + representation.hashCode();
-		return result;
+	public final int hashCode() {
+		return fingerprintHash();
 	}
 	
 	/**
@@ -100,21 +168,42 @@ public final class Terminal extends Value {
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
 	@Override
-	public boolean equals(Object obj) {
+	public final boolean equals(Object obj) {
 		if (this == obj) {
 			return true;
 		}
 		if (obj == null) {
 			return false;
 		}
-		if (getClass() != obj.getClass()) {
+		if ((obj instanceof Terminal) == false) {
 			return false;
 		}
 		Terminal other = (Terminal) obj;
-		if (representation.equals(other.representation) == false) {
-			return false;
-		}
-		return true;
+		return equalsRepresentation(other);
+	}
+	
+	/**
+	 * この値とほかの終端値の文字列表現が等しい場合のみ{@code true}を返す。
+	 * <p>
+	 * サブクラスは、文字列表現を生成せずに比較できる場合にこのメソッドを再定義する。
+	 * </p>
+	 * @param other 比較対象
+	 * @return 文字列表現が等しい場合に{@code true}
+	 */
+	boolean equalsRepresentation(Terminal other) {
+		return getRepresentation().equals(other.getRepresentation());
+	}
+	
+	/**
+	 * この値とほかの終端値の文字列表現を辞書式順序で比較する。
+	 * <p>
+	 * サブクラスは、文字列表現を生成せずに比較できる場合にこのメソッドを再定義する。
+	 * </p>
+	 * @param other 比較対象
+	 * @return {@link Comparable}の規約に従った比較結果
+	 */
+	int compareRepresentation(Terminal other) {
+		return getRepresentation().compareTo(other.getRepresentation());
 	}
 	
 	/**
@@ -144,7 +233,7 @@ public final class Terminal extends Value {
 	 *     引数のいずれかが{@link Terminal}でない場合
 	 * @see String#compareTo(String)
 	 */
-	public int compareTo(Value that) {
+	public final int compareTo(Value that) {
 		if (that == null) {
 			throw new NullPointerException("other"); //$NON-NLS-1$
 		}
@@ -152,7 +241,7 @@ public final class Terminal extends Value {
 			return this.getKind().compareTo(that.getKind());
 		}
 		Terminal other = (Terminal) that;
-		return representation.compareTo(other.representation);
+		return compareRepresentation(other);
 	}
 	
 	/**
@@ -160,7 +249,7 @@ public final class Terminal extends Value {
 	 * @return この要素の文字列表現
 	 */
 	@Override
-	public String toString() {
+	public final String toString() {
 		return getRepresentation();
 	}
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link Value}のツリーの統計情報。
+ * <p>
+ * 値の種類ごとの個数、終端値の文字列表現の長さの分布、
+ * およびほかの位置にある部分木と重複する部分木に含まれる値の割合を集計する。
+ * 値の個数や高さ、推定メモリ量は{@link Value}にキャッシュされたものを利用する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public final class TreeStats {
+	
+	/**
+	 * 終端値の長さの分布のバケット数。
+	 */
+	private static final int LENGTH_BUCKETS = Integer.SIZE + 1;
+	
+	/**
+	 * 値の個数。
+	 */
+	private final long nodeCount;
+	
+	/**
+	 * ツリーの高さ。
+	 */
+	private final int height;
+	
+	/**
+	 * 推定メモリ量。
+	 */
+	private final long estimatedBytes;
+	
+	/**
+	 * 値の種類ごとの個数。
+	 */
+	private final long[] kindCounts;
+	
+	/**
+	 * 終端値の長さの合計。
+	 */
+	private final long terminalLengthTotal;
+	
+	/**
+	 * 終端値の長さの最大値。
+	 */
+	private final int terminalLengthMax;
+	
+	/**
+	 * 終端値の長さの分布。
+	 */
+	private final long[] terminalLengthHistogram;
+	
+	/**
+	 * 重複した部分木に含まれる値の個数。
+	 */
+	private final long duplicateCount;
+	
+
+	/**
+	 * 指定のツリーの統計情報を集計する。
+	 * <p>
+	 * このメソッドはツリー全体を1度だけ走査する。
+	 * </p>
+	 * @param root 対象のツリーの根
+	 * @return 集計した統計情報
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static TreeStats of(Value root) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		Collector collector = new Collector();
+		collector.walk(root);
+		return new TreeStats(root, collector);
+	}
+	
+	private TreeStats(Value root, Collector collector) {
+		assert root != null;
+		assert collector != null;
+		nodeCount = root.getNodeCount();
+		height = root.getHeight();
+		estimatedBytes = root.getEstimatedBytes();
+		kindCounts = collector.kindCounts;
+		terminalLengthTotal = collector.terminalLengthTotal;
+		terminalLengthMax = collector.terminalLengthMax;
+		terminalLengthHistogram = collector.terminalLengthHistogram;
+		duplicateCount = collector.duplicateCount;
+	}
+	
+	/**
+	 * ツリーに含まれる値の個数を返す。
+	 * @return 値の個数
+	 * @see Value#getNodeCount()
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+	
+	/**
+	 * ツリーの高さを返す。
+	 * @return ツリーの高さ
+	 * @see Value#getHeight()
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * ツリーが占めるメモリ量の推定値をバイト単位で返す。
+	 * @return 推定メモリ量
+	 * @see Value#getEstimatedBytes()
+	 */
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+	
+	/**
+	 * ツリーに含まれる、指定の種類の値の個数を返す。
+	 * @param kind 値の種類
+	 * @return 指定の種類の値の個数
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public long getCount(Value.Kind kind) {
+		if (kind == null) {
+			throw new NullPointerException("kind"); //$NON-NLS-1$
+		}
+		return kindCounts[kind.ordinal()];
+	}
+	
+	/**
+	 * ツリーに含まれる終端値の文字列表現の長さの平均を返す。
+	 * @return 長さの平均、終端値を含まない場合は{@code 0}
+	 */
+	public double getTerminalLengthAverage() {
+		long count = getCount(Value.Kind.TERMINAL);
+		if (count == 0) {
+			return 0.0;
+		}
+		return (double) terminalLengthTotal / count;
+	}
+	
+	/**
+	 * ツリーに含まれる終端値の文字列表現の長さの最大値を返す。
+	 * @return 長さの最大値、終端値を含まない場合は{@code 0}
+	 */
+	public int getTerminalLengthMax() {
+		return terminalLengthMax;
+	}
+	
+	/**
+	 * ツリーに含まれる終端値の文字列表現の長さの分布を返す。
+	 * <p>
+	 * 戻り値の{@code 0}番目の要素は長さが{@code 0}の終端値の個数を、
+	 * {@code i}番目({@code i > 0})の要素は長さが{@code 2^(i-1)}以上{@code 2^i}未満の終端値の個数を表す。
+	 * </p>
+	 * @return 長さの分布
+	 */
+	public long[] getTerminalLengthHistogram() {
+		long[] results = new long[terminalLengthHistogram.length];
+		System.arraycopy(terminalLengthHistogram, 0, results, 0, results.length);
+		return results;
+	}
+	
+	/**
+	 * ツリーに含まれる値のうち、重複した部分木に含まれる値の個数を返す。
+	 * <p>
+	 * ある値が、走査順でそれより前に現れた値と等しい場合、その値を根とする部分木は重複しているとみなす。
+	 * 重複した部分木に含まれる値はすべて数えられる。
+	 * </p>
+	 * @return 重複した部分木に含まれる値の個数
+	 */
+	public long getDuplicateCount() {
+		return duplicateCount;
+	}
+	
+	/**
+	 * ツリーに含まれる値のうち、重複した部分木に含まれる値の割合を返す。
+	 * <p>
+	 * この割合は、値を共有することで削減できる値の割合の目安となる。
+	 * </p>
+	 * @return 重複した部分木に含まれる値の割合
+	 * @see #getDuplicateCount()
+	 */
+	public double getDuplicateRatio() {
+		return (double) duplicateCount / nodeCount;
+	}
+	
+	/**
+	 * この統計情報の文字列表現を返す。
+	 * <p>
+	 * この文字列表現は人間が読むためのものであり、形式は今後変更される可能性がある。
+	 * </p>
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("nodes=").append(nodeCount);
+		buf.append(", height=").append(height);
+		buf.append(", estimatedBytes=").append(estimatedBytes);
+		for (Value.Kind kind : Value.Kind.values()) {
+			buf.append(", ").append(kind).append('=').append(getCount(kind));
+		}
+		buf.append(", terminalLength(avg=").append(getTerminalLengthAverage());
+		buf.append(", max=").append(terminalLengthMax).append(')');
+		buf.append(", duplicates=").append(duplicateCount);
+		return buf.toString();
+	}
+	
+
+	/**
+	 * ツリーを走査して統計情報を集計する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Collector extends TreeWalker {
+		
+		/**
+		 * 値の種類ごとの個数。
+		 */
+		final long[] kindCounts = new long[Value.Kind.values().length];
+		
+		/**
+		 * 終端値の長さの合計。
+		 */
+		long terminalLengthTotal;
+		
+		/**
+		 * 終端値の長さの最大値。
+		 */
+		int terminalLengthMax;
+		
+		/**
+		 * 終端値の長さの分布。
+		 */
+		final long[] terminalLengthHistogram = new long[LENGTH_BUCKETS];
+		
+		/**
+		 * 重複した部分木に含まれる値の個数。
+		 */
+		long duplicateCount;
+		
+		/**
+		 * すでに現れた値の集合。
+		 */
+		private final Set<Value> seen = new HashSet<Value>();
+		
+		/**
+		 * 走査中の重複した部分木の根の深さ、重複した部分木を走査中でない場合は{@code -1}。
+		 */
+		private int duplicateDepth = -1;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 */
+		Collector() {
+			super();
+		}
+		
+		@Override
+		protected Control enter(Value value) {
+			kindCounts[value.getKind().ordinal()]++;
+			if (value.getKind() == Value.Kind.TERMINAL) {
+				int length = ((Terminal) value).getRepresentation().length();
+				terminalLengthTotal += length;
+				terminalLengthMax = Math.max(terminalLengthMax, length);
+				terminalLengthHistogram[Integer.SIZE - Integer.numberOfLeadingZeros(length)]++;
+			}
+			if (duplicateDepth >= 0) {
+				duplicateCount++;
+			} else if (seen.add(value) == false) {
+				duplicateDepth = getDepth();
+				duplicateCount++;
+			}
+			return Control.CONTINUE;
+		}
+		
+		@Override
+		protected Control exit(Value value) {
+			if (duplicateDepth == getDepth()) {
+				duplicateDepth = -1;
+			}
+			return Control.CONTINUE;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+/**
+ * {@link Value}のツリーを深さ優先で走査する。
+ * <p>
+ * {@link ElementVisitor}と異なり、走査はヒープ上に確保したスタックを利用して反復的に行われるため、
+ * 非常に深いツリーでもスタックオーバーフローは発生しない。
+ * それぞれの値について、子を走査する前に{@link #enter(Value)}が、
+ * 子を走査した後に{@link #exit(Value)}が呼び出され、
+ * その戻り値によって以降の走査を制御できる。
+ * </p>
+ * <p>
+ * レコードではエントリの値を子として走査し、エントリのキーは走査しない。
+ * 走査中の値までの経路は{@link #getDepth()}, {@link #getKey(int)}, {@link #getIndex(int)}
+ * などで参照できる。これらの情報は走査のたびに再利用される配列に保持されるため、
+ * 値ごとにオブジェクトを生成することはない。
+ * </p>
+ * <p>
+ * このクラスのインスタンスは複数のスレッドから同時に利用できない。
+ * ただし、走査を終えたインスタンスは別のツリーの走査に再利用できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public abstract class TreeWalker {
+	
+	/**
+	 * スタックの初期容量。
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+	
+	/**
+	 * 根から走査中の値までの値の一覧。
+	 */
+	private Value[] nodes = new Value[INITIAL_CAPACITY];
+	
+	/**
+	 * {@link #nodes}のそれぞれについて、親の子としての位置。
+	 */
+	private int[] indices = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * {@link #nodes}のそれぞれについて、次に走査する子の位置。
+	 */
+	private int[] cursors = new int[INITIAL_CAPACITY];
+	
+	/**
+	 * 走査中の値の深さ、走査中でない場合は{@code -1}。
+	 */
+	private int depth = -1;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 */
+	protected TreeWalker() {
+		super();
+	}
+	
+	/**
+	 * 指定の値を根とするツリーを走査する。
+	 * @param root 走査するツリーの根
+	 * @return 走査を最後まで行った場合は{@code true}、
+	 *     {@link Control#STOP}によって走査を中断した場合は{@code false}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalStateException このオブジェクトがすでに走査中である場合
+	 */
+	public final boolean walk(Value root) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		if (depth >= 0) {
+			throw new IllegalStateException();
+		}
+		try {
+			return walk0(root);
+		} finally {
+			for (int i = 0; i <= depth; i++) {
+				nodes[i] = null;
+			}
+			depth = -1;
+		}
+	}
+	
+	private boolean walk0(Value root) {
+		if (push(root, -1) == false) {
+			return false;
+		}
+		while (depth >= 0) {
+			Value node = nodes[depth];
+			int cursor = cursors[depth];
+			if (cursor < node.childCount()) {
+				cursors[depth] = cursor + 1;
+				if (push(node.childAt(cursor), cursor) == false) {
+					return false;
+				}
+			} else {
+				Control control = exit(node);
+				nodes[depth] = null;
+				depth--;
+				if (control == Control.STOP) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 指定の値をスタックに積み、{@link #enter(Value)}を呼び出す。
+	 * @param value 対象の値
+	 * @param index 親の子としての位置
+	 * @return 走査を続ける場合は{@code true}、中断する場合は{@code false}
+	 */
+	private boolean push(Value value, int index) {
+		int next = depth + 1;
+		if (next == nodes.length) {
+			grow();
+		}
+		nodes[next] = value;
+		indices[next] = index;
+		cursors[next] = 0;
+		depth = next;
+		Control control = enter(value);
+		if (control == Control.STOP) {
+			return false;
+		}
+		if (control == Control.SKIP_SUBTREE) {
+			nodes[next] = null;
+			depth--;
+		}
+		return true;
+	}
+	
+	private void grow() {
+		int capacity = nodes.length * 2;
+		Value[] newNodes = new Value[capacity];
+		int[] newIndices = new int[capacity];
+		int[] newCursors = new int[capacity];
+		System.arraycopy(nodes, 0, newNodes, 0, nodes.length);
+		System.arraycopy(indices, 0, newIndices, 0, indices.length);
+		System.arraycopy(cursors, 0, newCursors, 0, cursors.length);
+		nodes = newNodes;
+		indices = newIndices;
+		cursors = newCursors;
+	}
+	
+	/**
+	 * 値の子を走査する前に呼び出される。
+	 * <p>
+	 * {@link Control#SKIP_SUBTREE}を返した場合、この値の子は走査されず、
+	 * この値に対する{@link #exit(Value)}も呼び出されない。
+	 * </p>
+	 * <p>
+	 * この実装では何も行わずに{@link Control#CONTINUE}を返す。
+	 * </p>
+	 * @param value 走査中の値
+	 * @return 以降の走査の方法
+	 */
+	protected Control enter(Value value) {
+		return Control.CONTINUE;
+	}
+	
+	/**
+	 * 値の子をすべて走査した後に呼び出される。
+	 * <p>
+	 * {@link Control#SKIP_SUBTREE}を返した場合は{@link Control#CONTINUE}と同様に扱う。
+	 * </p>
+	 * <p>
+	 * この実装では何も行わずに{@link Control#CONTINUE}を返す。
+	 * </p>
+	 * @param value 走査中の値
+	 * @return 以降の走査の方法
+	 */
+	protected Control exit(Value value) {
+		return Control.CONTINUE;
+	}
+	
+	/**
+	 * 走査中の値の深さを返す。
+	 * @return 走査中の値の深さ、根の場合は{@code 0}
+	 * @throws IllegalStateException 走査中でない場合
+	 */
+	public final int getDepth() {
+		checkWalking();
+		return depth;
+	}
+	
+	/**
+	 * 走査中の値の、指定の深さにある祖先を返す。
+	 * @param level 対象の深さ
+	 * @return 対応する祖先、{@code level}が{@link #getDepth()}に等しい場合は走査中の値
+	 * @throws IllegalStateException 走査中でない場合
+	 * @throws IndexOutOfBoundsException 深さが範囲外である場合
+	 */
+	public final Value getNode(int level) {
+		checkLevel(level, 0);
+		return nodes[level];
+	}
+	
+	/**
+	 * 走査中の値の、指定の深さにある祖先の、親の子としての位置を返す。
+	 * @param level 対象の深さ
+	 * @return 親の子としての位置
+	 * @throws IllegalStateException 走査中でない場合
+	 * @throws IndexOutOfBoundsException 深さが範囲外である場合
+	 */
+	public final int getIndex(int level) {
+		checkLevel(level, 1);
+		return indices[level];
+	}
+	
+	/**
+	 * 走査中の値の、指定の深さにある祖先が、レコードのエントリの値である場合にそのキーを返す。
+	 * @param level 対象の深さ
+	 * @return 対応するエントリのキー、親がレコードでない場合は{@code null}
+	 * @throws IllegalStateException 走査中でない場合
+	 * @throws IndexOutOfBoundsException 深さが範囲外である場合
+	 */
+	public final Value getKey(int level) {
+		checkLevel(level, 1);
+		Value parent = nodes[level - 1];
+		if (parent.getKind() != Value.Kind.RECORD) {
+			return null;
+		}
+		return ((Record) parent).getKey(indices[level]);
+	}
+	
+	/**
+	 * 根から走査中の値までの経路を返す。
+	 * <p>
+	 * このメソッドは呼び出しのたびに新しい{@link ValuePath}を生成する。
+	 * </p>
+	 * @return 走査中の値までの経路
+	 * @throws IllegalStateException 走査中でない場合
+	 */
+	public final ValuePath getPath() {
+		checkWalking();
+		ValuePath path = ValuePath.ROOT;
+		for (int level = 1; level <= depth; level++) {
+			Value key = getKey(level);
+			path = key == null ? path.index(indices[level]) : path.key(key);
+		}
+		return path;
+	}
+	
+	private void checkWalking() {
+		if (depth < 0) {
+			throw new IllegalStateException();
+		}
+	}
+	
+	private void checkLevel(int level, int minimum) {
+		checkWalking();
+		if (level < minimum || level > depth) {
+			throw new IndexOutOfBoundsException(String.valueOf(level));
+		}
+	}
+	
+
+	/**
+	 * 走査の制御方法。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	public enum Control {
+		
+		/**
+		 * 走査を続ける。
+		 */
+		CONTINUE,
+		
+		/**
+		 * 走査中の値の子を走査せずに、走査を続ける。
+		 */
+		SKIP_SUBTREE,
+		
+		/**
+		 * 走査を直ちに中断する。
+		 */
+		STOP,
+	}
+}
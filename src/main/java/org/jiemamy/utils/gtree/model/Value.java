@@ -15,6 +15,8 @@
  */
 package org.jiemamy.utils.gtree.model;
 
+import java.io.IOException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.List;
 
@@ -27,7 +29,78 @@ public abstract class Value extends Element implements Comparable<Value>, Serial
 	
 	private static final long serialVersionUID = 8404215527421996693L;
 	
+	/**
+	 * フィンガープリントの計算に利用する乗数。
+	 */
+	static final long FINGERPRINT_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	
+	/**
+	 * 計算結果が{@code 0}となったフィンガープリントの代替値。
+	 */
+	private static final long FINGERPRINT_ZERO = 0x2545F4914F6CDD1DL;
+	
+	/**
+	 * この値の構造的なフィンガープリント、未計算の場合は{@code 0}。
+	 */
+	private transient volatile long fingerprint;
+	
+	/**
+	 * 推定メモリ量の計算に利用する、オブジェクトヘッダの推定バイト数。
+	 */
+	static final long OBJECT_HEADER_BYTES = 16L;
+	
+	/**
+	 * 推定メモリ量の計算に利用する、参照の推定バイト数。
+	 */
+	static final long REFERENCE_BYTES = 8L;
+	
+	/**
+	 * 推定メモリ量の計算に利用する、{@code int}のバイト数。
+	 */
+	static final long INT_BYTES = 4L;
+	
+	/**
+	 * 推定メモリ量の計算に利用する、{@code char}のバイト数。
+	 */
+	static final long CHAR_BYTES = 2L;
+	
+	/**
+	 * 推定メモリ量の計算に利用する、この型が宣言するフィールドの推定バイト数。
+	 */
+	static final long VALUE_FIELD_BYTES = 28L;
+	
+	/**
+	 * この値を根とする部分木の値の個数、未計算の場合は{@code 0}。
+	 * <p>
+	 * {@link #height}と{@link #estimatedBytes}はこのフィールドより先に書き込まれるため、
+	 * このフィールドが{@code 0}でなければそれらも計算済みである。
+	 * </p>
+	 */
+	private transient volatile long nodeCount;
+	
+	/**
+	 * この値を根とする部分木の高さ。
+	 */
+	private transient int height;
+	
+	/**
+	 * この値を根とする部分木の推定メモリ量。
+	 */
+	private transient long estimatedBytes;
+	
 
+	/**
+	 * 指定の値を撹拌し、ビットの偏りを取り除いた値を返す。
+	 * @param value 対象の値
+	 * @return 撹拌後の値
+	 */
+	static long mix(long value) {
+		long h = value;
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL; // CHECKSTYLE IGNORE THIS LINE
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L; // CHECKSTYLE IGNORE THIS LINE
+		return h ^ (h >>> 33); // CHECKSTYLE IGNORE THIS LINE
+	}
+	
 	/**
 	 * 2つのリストの自然な順序付けを返す。
 	 * @param <T> リストの要素型
@@ -63,7 +136,304 @@ public abstract class Value extends Element implements Comparable<Value>, Serial
 	 */
 	public abstract Value.Kind getKind();
 	
+	/**
+	 * この値の文字列表現を、指定の出力先に直接書き出す。
+	 * <p>
+	 * 出力される文字列は{@link #toString()}と同じ形式である。
+	 * 中間の文字列を生成せずにツリーを反復的に走査するため、大きなツリーや深いツリーでも
+	 * 呼び出し元のスタックや一時的なメモリを消費しない。
+	 * </p>
+	 * <p>
+	 * 文字列表現が{@code limit}文字を超える場合、先頭の{@code limit}文字に続けて{@code "..."}を出力し、
+	 * 残りの走査を打ち切る。
+	 * </p>
+	 * @param output 出力先
+	 * @param limit 出力する最大の文字数 ({@code "..."}を除く)
+	 * @return すべて出力した場合は{@code true}、途中で打ち切った場合は{@code false}
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 最大の文字数に負の値が指定された場合
+	 */
+	public final boolean appendTo(Appendable output, int limit) throws IOException {
+		if (output == null) {
+			throw new NullPointerException("output"); //$NON-NLS-1$
+		}
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit < 0"); //$NON-NLS-1$
+		}
+		return ValueRenderer.render(this, output, limit);
+	}
+	
+	/**
+	 * この値の構造的なフィンガープリントを返す。
+	 * <p>
+	 * フィンガープリントは部分木全体の構造から計算される64bitの値で、
+	 * 同値な2つの値は常に同じフィンガープリントを持つ。
+	 * 逆に、フィンガープリントが異なる2つの値は同値でない。
+	 * {@link Value.Kind#ORDERED_LIST}では要素の順序を考慮し、
+	 * {@link Value.Kind#UNORDERED_LIST}や{@link Value.Kind#RECORD}では
+	 * 整列済みの要素から計算されるため、生成時の要素の順序に依存しない。
+	 * </p>
+	 * <p>
+	 * フィンガープリントは初回の呼び出し時に計算され、以降はキャッシュされた値を返す。
+	 * </p>
+	 * @return この値のフィンガープリント
+	 */
+	public final long getFingerprint() {
+		long result = fingerprint;
+		if (result == 0L) {
+			if (childCount() > 0 && isFlat() == false) {
+				// 深いツリーでもスタックを消費しないよう、子のフィンガープリントを先に計算しておく
+				new FingerprintWalker().walk(this);
+				return fingerprint;
+			}
+			result = cacheFingerprint();
+		}
+		return result;
+	}
+	
+	/**
+	 * この値のフィンガープリントを計算してキャッシュする。
+	 * <p>
+	 * 子のフィンガープリントはすでに計算済みであることが望ましい。
+	 * </p>
+	 * @return 計算したフィンガープリント
+	 */
+	final long cacheFingerprint() {
+		long result = normalizeFingerprint(computeFingerprint());
+		fingerprint = result;
+		return result;
+	}
+	
+	/**
+	 * {@link #computeFingerprint()}の結果を、{@link #getFingerprint()}が返す値に変換する。
+	 * @param computed 計算したフィンガープリント
+	 * @return 対応する{@link #getFingerprint()}の値
+	 */
+	static long normalizeFingerprint(long computed) {
+		return computed == 0L ? FINGERPRINT_ZERO : computed;
+	}
+	
+	/**
+	 * フィンガープリントが計算済みである場合のみ{@code true}を返す。
+	 * @return 計算済みである場合に{@code true}
+	 */
+	final boolean hasFingerprint() {
+		return fingerprint != 0L;
+	}
+	
+	/**
+	 * この値を根とする部分木に含まれる値の個数を返す。
+	 * <p>
+	 * この値自身を含み、{@link TreeWalker}が走査する値の個数に等しい。
+	 * レコードのエントリのキーは含まない。
+	 * 複数の位置で共有されている部分木は、出現するたびに数える。
+	 * 結果は初回の呼び出し時に計算され、以降は定数時間で返される。
+	 * </p>
+	 * @return 部分木に含まれる値の個数
+	 */
+	public final long getNodeCount() {
+		ensureMetrics();
+		return nodeCount;
+	}
+	
+	/**
+	 * この値を根とする部分木の高さを返す。
+	 * <p>
+	 * 子を持たない値の高さは{@code 1}である。
+	 * 結果は初回の呼び出し時に計算され、以降は定数時間で返される。
+	 * </p>
+	 * @return 部分木の高さ
+	 */
+	public final int getHeight() {
+		ensureMetrics();
+		return height;
+	}
+	
+	/**
+	 * この値を根とする部分木が占めるメモリ量の推定値をバイト単位で返す。
+	 * <p>
+	 * この値は典型的なJava VMのオブジェクト配置を元にした概算であり、正確な値ではない。
+	 * 複数の位置で共有されている部分木は、出現するたびに数える。
+	 * 結果は初回の呼び出し時に計算され、以降は定数時間で返される。
+	 * </p>
+	 * @return 部分木の推定メモリ量
+	 */
+	public final long getEstimatedBytes() {
+		ensureMetrics();
+		return estimatedBytes;
+	}
+	
+	private void ensureMetrics() {
+		if (nodeCount == 0L) {
+			if (childCount() > 0 && isFlat() == false) {
+				// 深いツリーでもスタックを消費しないよう、子から順に計算する
+				new MetricsWalker().walk(this);
+			} else {
+				cacheMetrics();
+			}
+		}
+	}
+	
+	/**
+	 * 子の計算結果を元に、この値を根とする部分木の値の個数、高さ、推定メモリ量を計算してキャッシュする。
+	 */
+	final void cacheMetrics() {
+		long count = 1L;
+		int maxChildHeight = 0;
+		long bytes = estimateShallowBytes();
+		if (isFlat()) {
+			// 子は要求のたびに生成される終端値であり、そのメモリ量はこの値自身の推定値に含まれる
+			int n = childCount();
+			height = n == 0 ? 1 : 2;
+			estimatedBytes = bytes;
+			nodeCount = count + n;
+			return;
+		}
+		for (int i = 0, n = childCount(); i < n; i++) {
+			Value child = childAt(i);
+			child.ensureMetrics();
+			count += child.nodeCount;
+			maxChildHeight = Math.max(maxChildHeight, child.height);
+			bytes += child.estimatedBytes;
+		}
+		height = maxChildHeight + 1;
+		estimatedBytes = bytes;
+		nodeCount = count;
+	}
+	
+	/**
+	 * 部分木の値の個数などが計算済みである場合のみ{@code true}を返す。
+	 * @return 計算済みである場合に{@code true}
+	 */
+	final boolean hasMetrics() {
+		return nodeCount != 0L;
+	}
+	
+	/**
+	 * この値の子がすべて終端値であり、それらを個別のオブジェクトとして保持していない場合のみ{@code true}を返す。
+	 * <p>
+	 * この場合、フィンガープリントなどの計算では子を走査せず、この値から直接計算する。
+	 * </p>
+	 * @return 子を個別に保持していない場合に{@code true}
+	 */
+	boolean isFlat() {
+		return false;
+	}
+	
+	/**
+	 * 子を含まない、この値自身が占めるメモリ量の推定値をバイト単位で返す。
+	 * @return この値自身の推定メモリ量
+	 */
+	abstract long estimateShallowBytes();
+	
+	/**
+	 * この値のフィンガープリントを新たに計算して返す。
+	 * @return 計算したフィンガープリント
+	 */
+	abstract long computeFingerprint();
+	
+	/**
+	 * この値の直接の子の個数を返す。
+	 * @return 子の個数
+	 */
+	abstract int childCount();
+	
+	/**
+	 * この値の直接の子を返す。
+	 * <p>
+	 * {@link Sequence}では各要素を、{@link Record}では各エントリの値を子とする。
+	 * </p>
+	 * @param index 子の位置
+	 * @return 対応する子
+	 */
+	abstract Value childAt(int index);
+	
+	/**
+	 * 直列化の際に、この値をルートとするツリー全体を1つの{@link SerializedValue}に置き換える。
+	 * @return 置き換えたオブジェクト
+	 * @throws ObjectStreamException 置き換えに失敗した場合
+	 */
+	final Object writeReplace() throws ObjectStreamException {
+		return new SerializedValue(this);
+	}
+	
+	/**
+	 * フィンガープリントを元に計算したハッシュ値を返す。
+	 * @return ハッシュ値
+	 */
+	final int fingerprintHash() {
+		long fp = getFingerprint();
+		return (int) (fp ^ (fp >>> 32)); // CHECKSTYLE IGNORE THIS LINE
+	}
+	
 
+	/**
+	 * フィンガープリントが未計算の値について、子から順にフィンガープリントを計算する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class FingerprintWalker extends TreeWalker {
+		
+		/**
+		 * インスタンスを生成する。
+		 */
+		FingerprintWalker() {
+			super();
+		}
+		
+		@Override
+		protected Control enter(Value value) {
+			if (value.hasFingerprint()) {
+				return Control.SKIP_SUBTREE;
+			}
+			if (value.isFlat()) {
+				value.cacheFingerprint();
+				return Control.SKIP_SUBTREE;
+			}
+			return Control.CONTINUE;
+		}
+		
+		@Override
+		protected Control exit(Value value) {
+			value.cacheFingerprint();
+			return Control.CONTINUE;
+		}
+	}
+	
+	/**
+	 * 部分木の値の個数などが未計算の値について、子から順にそれらを計算する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class MetricsWalker extends TreeWalker {
+		
+		/**
+		 * インスタンスを生成する。
+		 */
+		MetricsWalker() {
+			super();
+		}
+		
+		@Override
+		protected Control enter(Value value) {
+			if (value.hasMetrics()) {
+				return Control.SKIP_SUBTREE;
+			}
+			if (value.isFlat()) {
+				value.cacheMetrics();
+				return Control.SKIP_SUBTREE;
+			}
+			return Control.CONTINUE;
+		}
+		
+		@Override
+		protected Control exit(Value value) {
+			value.cacheMetrics();
+			return Control.CONTINUE;
+		}
+	}
+	
 	/**
 	 * 値の種類。
 	 * @version $Date$
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 大量の値から{@link Sequence}や{@link Record}を並列に構築する。
+ * <p>
+ * 値の一覧はおよそ{@code parallelism}個の連続した範囲に分割され、
+ * それぞれの範囲は{@link ExecutorService}上で部分的な結果に変換される。
+ * 順序を考慮しないリストとレコードでは、各範囲を整列済みの列とし、
+ * 最後に呼び出し元のスレッドでそれらをk-way mergeによって併合する。
+ * 併合後の要素はすでに整列されているため、構築時に改めて整列することはない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public final class ValueCollector {
+	
+	/**
+	 * 分割せずに呼び出し元のスレッドで構築する最大の要素数。
+	 */
+	static final int SEQUENTIAL_THRESHOLD = 1024;
+	
+
+	/**
+	 * 指定の値を要素にもつ順序つきのリストを、並列に構築して返す。
+	 * <p>
+	 * 各範囲から構築したリストは{@link Sequence#concat(Sequence)}で連結されるため、
+	 * 要素を改めて複製することはない。
+	 * 結果は{@link Sequence#ordered(List)}と同値である。
+	 * </p>
+	 * @param values 値の一覧
+	 * @param executor 部分的な結果を構築する{@link ExecutorService}
+	 * @param parallelism 想定する並列度
+	 * @return 構築したリスト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     または値の一覧に{@code null}が含まれる場合
+	 * @throws IllegalArgumentException 並列度に{@code 1}未満の値が指定された場合
+	 * @throws InterruptedException 部分的な結果の完了を待つ間に割り込まれた場合
+	 */
+	public static Sequence toOrdered(List<? extends Value> values, ExecutorService executor, int parallelism)
+			throws InterruptedException {
+		checkArguments(values, executor, parallelism);
+		if (parallelism == 1 || values.size() <= SEQUENTIAL_THRESHOLD) {
+			return Sequence.ordered(values);
+		}
+		List<Callable<Sequence>> tasks = new ArrayList<Callable<Sequence>>();
+		for (final List<? extends Value> chunk : split(values, parallelism)) {
+			tasks.add(new Callable<Sequence>() {
+				
+				public Sequence call() {
+					return Sequence.ordered(chunk);
+				}
+			});
+		}
+		Sequence result = null;
+		for (Sequence part : invokeAll(executor, tasks)) {
+			result = result == null ? part : result.concat(part);
+		}
+		return result;
+	}
+	
+	/**
+	 * 指定の値を要素にもつ順序を考慮しないリストを、並列に構築して返す。
+	 * <p>
+	 * 各範囲はそれぞれ整列され、最後にk-way mergeによって併合される。
+	 * 結果は{@link Sequence#unordered(List)}と同値である。
+	 * </p>
+	 * @param values 値の一覧
+	 * @param executor 部分的な結果を構築する{@link ExecutorService}
+	 * @param parallelism 想定する並列度
+	 * @return 構築したリスト
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     または値の一覧に{@code null}が含まれる場合
+	 * @throws IllegalArgumentException 並列度に{@code 1}未満の値が指定された場合
+	 * @throws InterruptedException 部分的な結果の完了を待つ間に割り込まれた場合
+	 */
+	public static Sequence toUnordered(List<? extends Value> values, ExecutorService executor, int parallelism)
+			throws InterruptedException {
+		checkArguments(values, executor, parallelism);
+		if (parallelism == 1 || values.size() <= SEQUENTIAL_THRESHOLD) {
+			return Sequence.unordered(values);
+		}
+		List<Callable<Value[]>> tasks = new ArrayList<Callable<Value[]>>();
+		for (final List<? extends Value> chunk : split(values, parallelism)) {
+			tasks.add(new Callable<Value[]>() {
+				
+				public Value[] call() {
+					Value[] run = chunk.toArray(new Value[chunk.size()]);
+					checkElements(run);
+					if (run.length >= SortKeyEncoder.SORT_THRESHOLD) {
+						SortKeyEncoder.sort(run, run.length);
+					} else {
+						Arrays.sort(run);
+					}
+					return run;
+				}
+			});
+		}
+		Value[] merged = merge(invokeAll(executor, tasks), new Value[values.size()]);
+		return Sequence.sorted(merged);
+	}
+	
+	/**
+	 * 指定のエントリからなるレコードを、並列に構築して返す。
+	 * <p>
+	 * 各範囲のエントリはそれぞれ整列され、最後にk-way mergeによって併合される。
+	 * 結果は{@link Record#of(List)}と同値である。
+	 * </p>
+	 * @param entries エントリの一覧
+	 * @param executor 部分的な結果を構築する{@link ExecutorService}
+	 * @param parallelism 想定する並列度
+	 * @return 構築したレコード
+	 * @throws NullPointerException 引数に{@code null}が指定された場合、
+	 *     またはエントリの一覧に{@code null}が含まれる場合
+	 * @throws IllegalArgumentException 並列度に{@code 1}未満の値が指定された場合
+	 * @throws InterruptedException 部分的な結果の完了を待つ間に割り込まれた場合
+	 */
+	public static Record toRecord(List<? extends Entry> entries, ExecutorService executor, int parallelism)
+			throws InterruptedException {
+		checkArguments(entries, executor, parallelism);
+		if (parallelism == 1 || entries.size() <= SEQUENTIAL_THRESHOLD) {
+			return Record.of(entries);
+		}
+		List<Callable<Entry[]>> tasks = new ArrayList<Callable<Entry[]>>();
+		for (final List<? extends Entry> chunk : split(entries, parallelism)) {
+			tasks.add(new Callable<Entry[]>() {
+				
+				public Entry[] call() {
+					Entry[] run = chunk.toArray(new Entry[chunk.size()]);
+					checkElements(run);
+					Arrays.sort(run);
+					return run;
+				}
+			});
+		}
+		Entry[] merged = merge(invokeAll(executor, tasks), new Entry[entries.size()]);
+		return new Record.Builder(merged.length).addAll(Arrays.asList(merged)).build();
+	}
+	
+	private static void checkArguments(List<?> elements, ExecutorService executor, int parallelism) {
+		if (elements == null) {
+			throw new NullPointerException("elements"); //$NON-NLS-1$
+		}
+		if (executor == null) {
+			throw new NullPointerException("executor"); //$NON-NLS-1$
+		}
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism"); //$NON-NLS-1$
+		}
+	}
+	
+	private static void checkElements(Object[] elements) {
+		for (Object element : elements) {
+			if (element == null) {
+				throw new NullPointerException("elements"); //$NON-NLS-1$
+			}
+		}
+	}
+	
+	/**
+	 * 指定の一覧を、ほぼ同じ長さの連続した範囲に分割する。
+	 * @param <T> 要素の型
+	 * @param elements 対象の一覧
+	 * @param count 範囲の個数
+	 * @return 分割した範囲の一覧
+	 */
+	private static <T>List<List<? extends T>> split(List<? extends T> elements, int count) {
+		int size = elements.size();
+		int parts = Math.min(count, size);
+		List<List<? extends T>> results = new ArrayList<List<? extends T>>(parts);
+		for (int i = 0; i < parts; i++) {
+			int from = (int) ((long) size * i / parts);
+			int to = (int) ((long) size * (i + 1) / parts);
+			results.add(elements.subList(from, to));
+		}
+		return results;
+	}
+	
+	/**
+	 * 指定の作業をすべて実行し、その結果を作業の順に返す。
+	 * @param <T> 結果の型
+	 * @param executor 作業を実行する{@link ExecutorService}
+	 * @param tasks 作業の一覧
+	 * @return 結果の一覧
+	 * @throws InterruptedException 作業の完了を待つ間に割り込まれた場合
+	 */
+	private static <T>List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks)
+			throws InterruptedException {
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		try {
+			for (Callable<T> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			List<T> results = new ArrayList<T>(futures.size());
+			for (Future<T> future : futures) {
+				results.add(get(future));
+			}
+			return results;
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+	
+	private static <T>T get(Future<T> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+	
+	/**
+	 * 整列済みの列をk-way mergeによって1つの整列済みの列に併合する。
+	 * <p>
+	 * 同値な要素は、先に指定された列のものを先に配置する。
+	 * </p>
+	 * @param <T> 要素の型
+	 * @param runs 整列済みの列の一覧
+	 * @param destination 併合した要素を格納する配列 (すべての列の要素数の和と同じ長さ)
+	 * @return {@code destination}
+	 */
+	static <T extends Comparable<? super T>>T[] merge(List<T[]> runs, T[] destination) {
+		assert runs != null;
+		assert destination != null;
+		PriorityQueue<Cursor<T>> heads = new PriorityQueue<Cursor<T>>(Math.max(runs.size(), 1));
+		for (int i = 0, n = runs.size(); i < n; i++) {
+			T[] run = runs.get(i);
+			if (run.length > 0) {
+				heads.add(new Cursor<T>(run, i));
+			}
+		}
+		int size = 0;
+		while (heads.isEmpty() == false) {
+			Cursor<T> cursor = heads.poll();
+			destination[size++] = cursor.head();
+			if (cursor.advance()) {
+				heads.add(cursor);
+			}
+		}
+		assert size == destination.length;
+		return destination;
+	}
+	
+	/**
+	 * インスタンス化の禁止。
+	 */
+	private ValueCollector() {
+		throw new AssertionError();
+	}
+	
+
+	/**
+	 * 整列済みの列を先頭から読み進める。
+	 * @param <T> 要素の型
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Cursor<T extends Comparable<? super T>> implements Comparable<Cursor<T>> {
+		
+		/**
+		 * 対象の列。
+		 */
+		private final T[] run;
+		
+		/**
+		 * 列の番号。同値な要素の順序を決めるのに利用する。
+		 */
+		private final int order;
+		
+		/**
+		 * 次に読み出す位置。
+		 */
+		private int position;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param run 対象の列 (空でない)
+		 * @param order 列の番号
+		 */
+		Cursor(T[] run, int order) {
+			assert run.length > 0;
+			this.run = run;
+			this.order = order;
+			this.position = 0;
+		}
+		
+		/**
+		 * 次に読み出す要素を返す。
+		 * @return 次に読み出す要素
+		 */
+		T head() {
+			return run[position];
+		}
+		
+		/**
+		 * 次の要素に進む。
+		 * @return 次の要素が存在する場合に{@code true}
+		 */
+		boolean advance() {
+			position++;
+			return position < run.length;
+		}
+		
+		public int compareTo(Cursor<T> other) {
+			int result = head().compareTo(other.head());
+			if (result != 0) {
+				return result;
+			}
+			return order < other.order ? -1 : (order == other.order ? 0 : +1);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * {@link Value}のツリーに含まれるすべての値を集約する。
+ * <p>
+ * ツリーに含まれるそれぞれの値(根を含む)について{@link #accumulate(Object, Value)}を呼び出し、
+ * 部分的な結果を{@link #combine(Object, Object)}で結合して、最終的な結果を計算する。
+ * {@link #fold(Value, ExecutorService, int)}を利用すると、ツリーを大きな部分木や
+ * 子の範囲に分割し、それぞれを複数のスレッドで並列に集約する。
+ * </p>
+ * <p>
+ * 値を訪れる順序や部分的な結果を結合する順序は規定されない。
+ * そのため、{@link #combine(Object, Object)}は結合的かつ可換であり、
+ * {@link #identity()}はその単位元である必要がある。
+ * また、並列に集約する場合、{@link #accumulate(Object, Value)}は
+ * 複数のスレッドから同時に呼び出される。
+ * </p>
+ * @param <R> 集約結果の型
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public abstract class ValueFolder<R> {
+	
+	/**
+	 * スレッドあたりに割り当てる作業単位の目安。
+	 */
+	private static final int UNITS_PER_THREAD = 4;
+	
+	/**
+	 * 作業単位あたりに許す分割の回数。
+	 */
+	private static final int SPLITS_PER_UNIT = 4;
+	
+
+	/**
+	 * 集約結果の単位元を返す。
+	 * @return 集約結果の単位元
+	 */
+	protected abstract R identity();
+	
+	/**
+	 * 部分的な結果に値を1つ加えた結果を返す。
+	 * @param partial 部分的な結果
+	 * @param value 加える値
+	 * @return 値を加えた結果
+	 */
+	protected abstract R accumulate(R partial, Value value);
+	
+	/**
+	 * 2つの部分的な結果を結合した結果を返す。
+	 * @param left 部分的な結果
+	 * @param right 部分的な結果
+	 * @return 結合した結果
+	 */
+	protected abstract R combine(R left, R right);
+	
+	/**
+	 * 指定の値を根とするツリーを、呼び出し元のスレッドで集約する。
+	 * @param root 対象のツリーの根
+	 * @return 集約結果
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public final R fold(Value root) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		return foldSubtree(identity(), root);
+	}
+	
+	/**
+	 * 指定の値を根とするツリーを、指定の{@link ExecutorService}を利用して並列に集約する。
+	 * <p>
+	 * ツリーはおよそ{@code parallelism}の数倍の作業単位に分割され、
+	 * それぞれが{@code executor}に投入される。
+	 * 分割の際には、子の多い値は子の範囲で二分され、子が1つの値はその子の部分木に置き換えられる。
+	 * 分割の境界となった値は、すべての作業単位が完了した後に呼び出し元のスレッドで集約される。
+	 * </p>
+	 * @param root 対象のツリーの根
+	 * @param executor 作業単位を実行する{@link ExecutorService}
+	 * @param parallelism 想定する並列度
+	 * @return 集約結果
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 並列度に{@code 1}未満の値が指定された場合
+	 * @throws InterruptedException 作業単位の完了を待つ間に割り込まれた場合
+	 */
+	public final R fold(Value root, ExecutorService executor, int parallelism) throws InterruptedException {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		if (executor == null) {
+			throw new NullPointerException("executor"); //$NON-NLS-1$
+		}
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism"); //$NON-NLS-1$
+		}
+		if (parallelism == 1 || root.childCount() == 0) {
+			return fold(root);
+		}
+		List<Value> boundaries = new ArrayList<Value>();
+		List<Unit> units = split(root, parallelism * UNITS_PER_THREAD, boundaries);
+		List<Future<R>> futures = new ArrayList<Future<R>>(units.size());
+		try {
+			for (final Unit unit : units) {
+				futures.add(executor.submit(new Callable<R>() {
+					
+					public R call() {
+						return foldUnit(unit);
+					}
+				}));
+			}
+			R result = identity();
+			for (Future<R> future : futures) {
+				result = combine(result, get(future));
+			}
+			for (int i = boundaries.size() - 1; i >= 0; i--) {
+				result = accumulate(result, boundaries.get(i));
+			}
+			return result;
+		} finally {
+			for (Future<R> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * ツリーを作業単位に分割する。
+	 * <p>
+	 * 分割の境界となり、いずれの作業単位にも含まれなくなった値は{@code boundaries}に
+	 * 分割した順に追加される。
+	 * </p>
+	 * @param root 対象のツリーの根
+	 * @param target 作業単位の個数の目安
+	 * @param boundaries 分割の境界となった値を追加するリスト
+	 * @return 作業単位の一覧
+	 */
+	private static List<Unit> split(Value root, int target, List<Value> boundaries) {
+		assert root.childCount() > 0;
+		boundaries.add(root);
+		LinkedList<Unit> queue = new LinkedList<Unit>();
+		List<Unit> results = new ArrayList<Unit>();
+		queue.add(new Unit(root, 0, root.childCount()));
+		int budget = target * SPLITS_PER_UNIT;
+		while (queue.isEmpty() == false && queue.size() + results.size() < target && budget > 0) {
+			Unit unit = queue.removeFirst();
+			if (unit.to - unit.from >= 2) {
+				int middle = (unit.from + unit.to) >>> 1;
+				queue.addLast(new Unit(unit.parent, unit.from, middle));
+				queue.addLast(new Unit(unit.parent, middle, unit.to));
+			} else {
+				Value child = unit.parent.childAt(unit.from);
+				if (child.childCount() == 0) {
+					results.add(unit);
+				} else {
+					boundaries.add(child);
+					queue.addLast(new Unit(child, 0, child.childCount()));
+				}
+			}
+			budget--;
+		}
+		results.addAll(queue);
+		return results;
+	}
+	
+	private R foldUnit(Unit unit) {
+		R result = identity();
+		for (int i = unit.from; i < unit.to; i++) {
+			result = foldSubtree(result, unit.parent.childAt(i));
+		}
+		return result;
+	}
+	
+	private R foldSubtree(R initial, Value root) {
+		Accumulator walker = new Accumulator(initial);
+		walker.walk(root);
+		return walker.result;
+	}
+	
+	private static <R> R get(Future<R> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+	
+
+	/**
+	 * 走査したすべての値を集約する{@link TreeWalker}。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private class Accumulator extends TreeWalker {
+		
+		/**
+		 * 現在までの集約結果。
+		 */
+		R result;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param initial 集約結果の初期値
+		 */
+		Accumulator(R initial) {
+			result = initial;
+		}
+		
+		@Override
+		protected Control enter(Value value) {
+			result = accumulate(result, value);
+			return Control.CONTINUE;
+		}
+	}
+	
+	/**
+	 * 作業単位。ある値の子の範囲と、それらの子孫すべてを表す。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Unit {
+		
+		/**
+		 * 親となる値。
+		 */
+		final Value parent;
+		
+		/**
+		 * 範囲の開始位置。
+		 */
+		final int from;
+		
+		/**
+		 * 範囲の終了位置(この位置を含まない)。
+		 */
+		final int to;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param parent 親となる値
+		 * @param from 範囲の開始位置
+		 * @param to 範囲の終了位置(この位置を含まない)
+		 */
+		Unit(Value parent, int from, int to) {
+			assert parent != null;
+			assert 0 <= from && from < to && to <= parent.childCount();
+			this.parent = parent;
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
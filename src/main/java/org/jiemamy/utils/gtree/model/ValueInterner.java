@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.List;
+
+/**
+ * 構造的に同値な{@link Value}を単一のインスタンスに集約する。
+ * <p>
+ * {@link #intern(Value)}は、同値な値がすでに登録されていればそのインスタンスを、
+ * そうでなければ引数の値を登録した上でそれを返す。
+ * 部分木も再帰的に集約されるため、同一の部分木を多数含むツリーでは
+ * 保持するインスタンスの数を大きく削減できる。
+ * また、集約された値どうしの比較は{@link Object#equals(Object)}の同一性判定で終了する。
+ * </p>
+ * <p>
+ * 登録された値は弱参照で保持され、ほかから参照されなくなった時点で自動的に解放される。
+ * このクラスのインスタンスは複数のスレッドから同時に利用できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class ValueInterner {
+	
+	/**
+	 * 子要素を集約するビジタ。
+	 */
+	private static final ChildrenInterner CHILDREN = new ChildrenInterner();
+	
+	/**
+	 * 登録された値の表。
+	 */
+	private final WeakInternTable<Value> table;
+	
+
+	/**
+	 * 登録する値の個数に制限を設けないインスタンスを生成する。
+	 */
+	public ValueInterner() {
+		this(0);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * <p>
+	 * 登録されている値の個数がおおよそ{@code maximumSize}に達した場合、
+	 * 以降の値は登録されずにそのまま返される。
+	 * ただし、登録済みの値が解放されれば再び登録できるようになる。
+	 * </p>
+	 * @param maximumSize 登録する値の最大数、制限しない場合は{@code 0}
+	 * @throws IllegalArgumentException 引数に負の値が指定された場合
+	 */
+	public ValueInterner(int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("maximumSize < 0"); //$NON-NLS-1$
+		}
+		this.table = new WeakInternTable<Value>(maximumSize);
+	}
+	
+	/**
+	 * 指定の値と同値な、集約されたインスタンスを返す。
+	 * <p>
+	 * 引数の値の部分木もそれぞれ集約され、必要であれば集約後の部分木を利用して
+	 * 値が再構築される。
+	 * </p>
+	 * @param <T> 値の型
+	 * @param value 対象の値
+	 * @return 集約されたインスタンス
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Value>T intern(T value) {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		Value found = table.get(value);
+		if (found != null) {
+			return (T) found;
+		}
+		Value rebuilt = value.accept(CHILDREN, this);
+		return (T) table.intern(rebuilt);
+	}
+	
+	/**
+	 * 現在登録されている値のおおよその個数を返す。
+	 * @return 登録されている値の個数
+	 */
+	public int size() {
+		return table.size();
+	}
+	
+	/**
+	 * 登録されているすべての値を除去する。
+	 */
+	public void clear() {
+		table.clear();
+	}
+	
+
+	/**
+	 * 子要素をそれぞれ集約し、必要であれば値を再構築する。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class ChildrenInterner extends ElementVisitor<Value, ValueInterner, RuntimeException> {
+		
+		/**
+		 * インスタンスを生成する。
+		 */
+		ChildrenInterner() {
+			super();
+		}
+		
+		@Override
+		protected Value visitTerminal(Terminal elem, ValueInterner context) {
+			return elem;
+		}
+		
+		@Override
+		protected Value visitSequence(Sequence elem, ValueInterner context) {
+			if (elem.isFlat()) {
+				// 要素は要求のたびに生成されるため、置き換えると配列による表現が失われる
+				return elem;
+			}
+			List<Value> values = elem.getValues();
+			Value[] results = null;
+			for (int i = 0, n = values.size(); i < n; i++) {
+				Value value = values.get(i);
+				Value interned = context.intern(value);
+				if (results == null && interned != value) {
+					results = values.toArray(new Value[n]);
+				}
+				if (results != null) {
+					results[i] = interned;
+				}
+			}
+			if (results == null) {
+				return elem;
+			}
+			return elem.derive(results);
+		}
+		
+		@Override
+		protected Value visitRecord(Record elem, ValueInterner context) {
+			int size = elem.size();
+			Value[] keys = null;
+			Value[] values = null;
+			for (int i = 0; i < size; i++) {
+				Value key = elem.getKey(i);
+				Value value = elem.getValue(i);
+				// シンボルはすでに集約されているため、通常の終端値に置き換えない
+				Value internedKey = key instanceof Symbol ? key : context.intern(key);
+				Value internedValue = context.intern(value);
+				if (keys == null && (internedKey != key || internedValue != value)) {
+					keys = new Value[size];
+					values = new Value[size];
+					for (int j = 0; j < i; j++) {
+						keys[j] = elem.getKey(j);
+						values[j] = elem.getValue(j);
+					}
+				}
+				if (keys != null) {
+					keys[i] = internedKey;
+					values[i] = internedValue;
+				}
+			}
+			if (keys == null) {
+				return elem;
+			}
+			return elem.derive(keys, values);
+		}
+	}
+}
@@ -0,0 +1,710 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * {@link Sequence}の要素を保持する、変更できないリスト。
+ * <p>
+ * 要素数に応じて適切な実装が選択される。
+ * 要素数が少ない場合は要素をフィールドに直接保持し、
+ * そうでない場合は要素数ちょうどの配列を保持する。
+ * </p>
+ * <p>
+ * {@link #update(int, Value)}, {@link #insert(int, Value)}, {@link #delete(int)},
+ * {@link #concat(ValueList, ValueList)}, {@link #slice(int, int)}は、
+ * 元のリストを変更せずに新しいリストを返す。
+ * 要素数の多いリストに対するこれらの操作では、元のリストの配列や部分木を共有する
+ * 平衡した二分木 (ロープ) を構築するため、いずれも要素数の対数時間で完了する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+abstract class ValueList extends AbstractList<Value> implements RandomAccess, Serializable {
+	
+	private static final long serialVersionUID = -3207441883372311016L;
+	
+	/**
+	 * 要素を持たないリスト。
+	 */
+	static final ValueList EMPTY = new Empty();
+	
+	/**
+	 * 配列を共有せずに複製する最大の要素数。
+	 */
+	static final int LEAF_SIZE = 32;
+	
+
+	/**
+	 * 指定の配列の要素を順に含むリストを返す。
+	 * <p>
+	 * 引数の配列はそのままリスト内で利用される場合があるため、呼び出し元で変更してはならない。
+	 * </p>
+	 * @param values 要素の一覧
+	 * @return 対応するリスト
+	 */
+	static ValueList of(Value[] values) {
+		assert values != null;
+		return of(values, values.length);
+	}
+	
+	/**
+	 * 指定の配列の先頭から{@code size}個の要素を順に含むリストを返す。
+	 * <p>
+	 * 配列の長さが{@code size}に等しい場合、
+	 * 引数の配列はそのままリスト内で利用される場合があるため、呼び出し元で変更してはならない。
+	 * </p>
+	 * @param values 要素の一覧
+	 * @param size 要素の個数
+	 * @return 対応するリスト
+	 */
+	static ValueList of(Value[] values, int size) {
+		assert values != null;
+		assert 0 <= size && size <= values.length;
+		switch (size) {
+			case 0:
+				return EMPTY;
+			case 1:
+				return new Single(values[0]);
+			case 2:
+				return new Pair(values[0], values[1]);
+			case 3: // CHECKSTYLE IGNORE THIS LINE
+				return new Triple(values[0], values[1], values[2]);
+			default:
+				if (size == values.length) {
+					return new Array(values);
+				}
+				Value[] trimmed = new Value[size];
+				System.arraycopy(values, 0, trimmed, 0, size);
+				return new Array(trimmed);
+		}
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 */
+	ValueList() {
+		super();
+	}
+	
+	/**
+	 * 2つのリストを連結したリストを返す。
+	 * @param left 前半のリスト
+	 * @param right 後半のリスト
+	 * @return 連結したリスト
+	 */
+	static ValueList concat(ValueList left, ValueList right) {
+		assert left != null;
+		assert right != null;
+		if (left.isEmpty()) {
+			return right;
+		}
+		if (right.isEmpty()) {
+			return left;
+		}
+		if (left.size() + right.size() <= LEAF_SIZE) {
+			return flatten(left, right);
+		}
+		if (left.height() > right.height() + 1) {
+			Concat node = (Concat) left;
+			return join(node.left, concat(node.right, right));
+		}
+		if (right.height() > left.height() + 1) {
+			Concat node = (Concat) right;
+			return join(concat(left, node.left), node.right);
+		}
+		return new Concat(left, right);
+	}
+	
+	/**
+	 * 2つの部分木を連結し、平衡させたリストを返す。
+	 * <p>
+	 * 高さの差が2である場合は回転によって平衡させ、
+	 * それ以上である場合は{@link #concat(ValueList, ValueList)}によって
+	 * 高い側の部分木を分解して連結する。
+	 * </p>
+	 * @param left 前半の部分木
+	 * @param right 後半の部分木
+	 * @return 連結したリスト
+	 */
+	private static ValueList join(ValueList left, ValueList right) {
+		int difference = left.height() - right.height();
+		if (difference > 2 || difference < -2) {
+			return concat(left, right);
+		}
+		if (difference > 1) {
+			Concat node = (Concat) left;
+			if (node.left.height() >= node.right.height()) {
+				return new Concat(node.left, new Concat(node.right, right));
+			}
+			Concat inner = (Concat) node.right;
+			return new Concat(new Concat(node.left, inner.left), new Concat(inner.right, right));
+		}
+		if (difference < -1) {
+			Concat node = (Concat) right;
+			if (node.right.height() >= node.left.height()) {
+				return new Concat(new Concat(left, node.left), node.right);
+			}
+			Concat inner = (Concat) node.left;
+			return new Concat(new Concat(left, inner.left), new Concat(inner.right, node.right));
+		}
+		return new Concat(left, right);
+	}
+	
+	/**
+	 * 2つのリストの要素を、単一の配列を保持するリストに複製する。
+	 * @param left 前半のリスト
+	 * @param right 後半のリスト
+	 * @return 複製したリスト
+	 */
+	private static ValueList flatten(ValueList left, ValueList right) {
+		int leftSize = left.size();
+		Value[] results = new Value[leftSize + right.size()];
+		left.copyTo(0, leftSize, results, 0);
+		right.copyTo(0, right.size(), results, leftSize);
+		return of(results);
+	}
+	
+	/**
+	 * このリストを表す二分木の高さを返す。
+	 * @return 二分木の高さ、配列などを直接保持するリストでは{@code 0}
+	 */
+	int height() {
+		return 0;
+	}
+	
+	/**
+	 * 指定の位置にある要素のフィンガープリントを返す。
+	 * @param index 対象の位置
+	 * @return 対応する要素の{@link Value#getFingerprint()}
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 */
+	long fingerprintAt(int index) {
+		return get(index).getFingerprint();
+	}
+	
+	/**
+	 * このリストの{@code [from, to)}の範囲の要素を、指定の配列に複製する。
+	 * @param from 複製する最初の位置
+	 * @param to 複製する最後の位置の次
+	 * @param destination 複製先の配列
+	 * @param offset 複製先の最初の位置
+	 */
+	void copyTo(int from, int to, Value[] destination, int offset) {
+		for (int i = from; i < to; i++) {
+			destination[offset + i - from] = get(i);
+		}
+	}
+	
+	/**
+	 * このリストの{@code [from, to)}の範囲の要素からなるリストを返す。
+	 * @param from 範囲の最初の位置
+	 * @param to 範囲の最後の位置の次
+	 * @return 対応するリスト
+	 * @throws IndexOutOfBoundsException 範囲が不正である場合
+	 */
+	ValueList slice(int from, int to) {
+		checkRange(from, to);
+		if (from == 0 && to == size()) {
+			return this;
+		}
+		Value[] results = new Value[to - from];
+		copyTo(from, to, results, 0);
+		return of(results);
+	}
+	
+	/**
+	 * 指定の位置の要素を置き換えたリストを返す。
+	 * @param index 対象の位置
+	 * @param value 置き換える値
+	 * @return 置き換えたリスト
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 */
+	ValueList update(int index, Value value) {
+		checkIndex(index);
+		if (size() <= LEAF_SIZE) {
+			Value[] results = toArray(new Value[size()]);
+			results[index] = value;
+			return of(results);
+		}
+		return concat(concat(slice(0, index), new Single(value)), slice(index + 1, size()));
+	}
+	
+	/**
+	 * 指定の位置に要素を挿入したリストを返す。
+	 * @param index 挿入する位置
+	 * @param value 挿入する値
+	 * @return 挿入したリスト
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 */
+	ValueList insert(int index, Value value) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return concat(concat(slice(0, index), new Single(value)), slice(index, size()));
+	}
+	
+	/**
+	 * 指定の位置の要素を除去したリストを返す。
+	 * @param index 対象の位置
+	 * @return 除去したリスト
+	 * @throws IndexOutOfBoundsException 位置が範囲外である場合
+	 */
+	ValueList delete(int index) {
+		checkIndex(index);
+		return concat(slice(0, index), slice(index + 1, size()));
+	}
+	
+	/**
+	 * 指定の範囲が不正である場合に例外を送出する。
+	 * @param from 範囲の最初の位置
+	 * @param to 範囲の最後の位置の次
+	 * @throws IndexOutOfBoundsException 範囲が不正である場合
+	 */
+	final void checkRange(int from, int to) {
+		if (from < 0 || to > size() || from > to) {
+			throw new IndexOutOfBoundsException(from + ".." + to); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * 指定の位置が範囲外である場合に例外を送出する。
+	 * @param index 対象の位置
+	 * @throws IndexOutOfBoundsException 指定の位置が範囲外である場合
+	 */
+	final void checkIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+	}
+	
+
+	/**
+	 * 要素を持たないリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Empty extends ValueList {
+		
+		private static final long serialVersionUID = 4720457125417627916L;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 */
+		Empty() {
+			super();
+		}
+		
+		@Override
+		public Value get(int index) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		
+		@Override
+		public int size() {
+			return 0;
+		}
+		
+		private Object readResolve() {
+			return EMPTY;
+		}
+	}
+	
+	/**
+	 * 要素をひとつだけ持つリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Single extends ValueList {
+		
+		private static final long serialVersionUID = -6170337584541727339L;
+		
+		/**
+		 * 要素。
+		 */
+		private final Value value0;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param value0 要素
+		 */
+		Single(Value value0) {
+			super();
+			this.value0 = value0;
+		}
+		
+		@Override
+		public Value get(int index) {
+			checkIndex(index);
+			return value0;
+		}
+		
+		@Override
+		public int size() {
+			return 1;
+		}
+	}
+	
+	/**
+	 * 要素を2つ持つリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Pair extends ValueList {
+		
+		private static final long serialVersionUID = 1578251604306622645L;
+		
+		/**
+		 * 最初の要素。
+		 */
+		private final Value value0;
+		
+		/**
+		 * 2番目の要素。
+		 */
+		private final Value value1;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param value0 最初の要素
+		 * @param value1 2番目の要素
+		 */
+		Pair(Value value0, Value value1) {
+			super();
+			this.value0 = value0;
+			this.value1 = value1;
+		}
+		
+		@Override
+		public Value get(int index) {
+			switch (index) {
+				case 0:
+					return value0;
+				case 1:
+					return value1;
+				default:
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+		}
+		
+		@Override
+		public int size() {
+			return 2;
+		}
+	}
+	
+	/**
+	 * 要素を3つ持つリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Triple extends ValueList {
+		
+		private static final long serialVersionUID = 8551232431264806419L;
+		
+		/**
+		 * 最初の要素。
+		 */
+		private final Value value0;
+		
+		/**
+		 * 2番目の要素。
+		 */
+		private final Value value1;
+		
+		/**
+		 * 3番目の要素。
+		 */
+		private final Value value2;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param value0 最初の要素
+		 * @param value1 2番目の要素
+		 * @param value2 3番目の要素
+		 */
+		Triple(Value value0, Value value1, Value value2) {
+			super();
+			this.value0 = value0;
+			this.value1 = value1;
+			this.value2 = value2;
+		}
+		
+		@Override
+		public Value get(int index) {
+			switch (index) {
+				case 0:
+					return value0;
+				case 1:
+					return value1;
+				case 2:
+					return value2;
+				default:
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+		}
+		
+		@Override
+		public int size() {
+			return 3; // CHECKSTYLE IGNORE THIS LINE
+		}
+	}
+	
+	/**
+	 * 要素数ちょうどの配列に要素を保持するリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Array extends ValueList {
+		
+		private static final long serialVersionUID = -7442001968929542470L;
+		
+		/**
+		 * 要素の一覧。
+		 */
+		private final Value[] values;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param values 要素の一覧
+		 */
+		Array(Value[] values) {
+			super();
+			assert values != null;
+			this.values = values;
+		}
+		
+		@Override
+		public Value get(int index) {
+			return values[index];
+		}
+		
+		@Override
+		public int size() {
+			return values.length;
+		}
+		
+		@Override
+		void copyTo(int from, int to, Value[] destination, int offset) {
+			System.arraycopy(values, from, destination, offset, to - from);
+		}
+		
+		@Override
+		ValueList slice(int from, int to) {
+			checkRange(from, to);
+			if (from == 0 && to == values.length) {
+				return this;
+			}
+			if (to - from <= LEAF_SIZE) {
+				return super.slice(from, to);
+			}
+			return new Slice(values, from, to - from);
+		}
+	}
+	
+	/**
+	 * ほかのリストが保持する配列の一部を共有するリスト。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Slice extends ValueList {
+		
+		private static final long serialVersionUID = 4182260618420537763L;
+		
+		/**
+		 * 共有する配列。
+		 */
+		private final Value[] values;
+		
+		/**
+		 * 配列上の最初の要素の位置。
+		 */
+		private final int offset;
+		
+		/**
+		 * 要素の個数。
+		 */
+		private final int length;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param values 共有する配列
+		 * @param offset 配列上の最初の要素の位置
+		 * @param length 要素の個数
+		 */
+		Slice(Value[] values, int offset, int length) {
+			super();
+			assert values != null;
+			assert 0 <= offset && offset + length <= values.length;
+			this.values = values;
+			this.offset = offset;
+			this.length = length;
+		}
+		
+		@Override
+		public Value get(int index) {
+			checkIndex(index);
+			return values[offset + index];
+		}
+		
+		@Override
+		public int size() {
+			return length;
+		}
+		
+		@Override
+		void copyTo(int from, int to, Value[] destination, int destinationOffset) {
+			System.arraycopy(values, offset + from, destination, destinationOffset, to - from);
+		}
+		
+		@Override
+		ValueList slice(int from, int to) {
+			checkRange(from, to);
+			if (from == 0 && to == length) {
+				return this;
+			}
+			if (to - from <= LEAF_SIZE) {
+				return super.slice(from, to);
+			}
+			return new Slice(values, offset + from, to - from);
+		}
+	}
+	
+	/**
+	 * 2つのリストを連結したリスト。
+	 * <p>
+	 * それぞれの子の高さの差は高々1に保たれる。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static final class Concat extends ValueList {
+		
+		private static final long serialVersionUID = -2453049417271409329L;
+		
+		/**
+		 * 前半のリスト。
+		 */
+		final ValueList left;
+		
+		/**
+		 * 後半のリスト。
+		 */
+		final ValueList right;
+		
+		/**
+		 * 要素の個数。
+		 */
+		private final int size;
+		
+		/**
+		 * 二分木の高さ。
+		 */
+		private final int height;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param left 前半のリスト
+		 * @param right 後半のリスト
+		 */
+		Concat(ValueList left, ValueList right) {
+			super();
+			assert left != null;
+			assert right != null;
+			assert Math.abs(left.height() - right.height()) <= 1;
+			this.left = left;
+			this.right = right;
+			this.size = left.size() + right.size();
+			this.height = Math.max(left.height(), right.height()) + 1;
+		}
+		
+		@Override
+		public Value get(int index) {
+			checkIndex(index);
+			ValueList current = this;
+			int position = index;
+			while (current instanceof Concat) {
+				Concat node = (Concat) current;
+				int leftSize = node.left.size();
+				if (position < leftSize) {
+					current = node.left;
+				} else {
+					current = node.right;
+					position -= leftSize;
+				}
+			}
+			return current.get(position);
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+		
+		@Override
+		int height() {
+			return height;
+		}
+		
+		@Override
+		void copyTo(int from, int to, Value[] destination, int offset) {
+			int leftSize = left.size();
+			if (from < leftSize) {
+				left.copyTo(from, Math.min(to, leftSize), destination, offset);
+			}
+			if (to > leftSize) {
+				int start = Math.max(from, leftSize);
+				right.copyTo(start - leftSize, to - leftSize, destination, offset + start - from);
+			}
+		}
+		
+		@Override
+		ValueList slice(int from, int to) {
+			checkRange(from, to);
+			if (from == 0 && to == size) {
+				return this;
+			}
+			int leftSize = left.size();
+			if (to <= leftSize) {
+				return left.slice(from, to);
+			}
+			if (from >= leftSize) {
+				return right.slice(from - leftSize, to - leftSize);
+			}
+			return concat(left.slice(from, leftSize), right.slice(0, to - leftSize));
+		}
+		
+		@Override
+		ValueList update(int index, Value value) {
+			checkIndex(index);
+			int leftSize = left.size();
+			if (index < leftSize) {
+				return concat(left.update(index, value), right);
+			}
+			return concat(left, right.update(index - leftSize, value));
+		}
+	}
+}
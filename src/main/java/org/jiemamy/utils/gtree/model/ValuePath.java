@@ -0,0 +1,424 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.io.Serializable;
+
+/**
+ * ツリーの根から特定の値までの経路。
+ * <p>
+ * 経路は、{@link Record}のキーを指定するステップと、
+ * {@link Sequence}の位置を指定するステップの並びで表される。
+ * このクラスのインスタンスは変更できない。
+ * </p>
+ * <p>
+ * {@link #with(Value, Value)}, {@link #insert(Value, Value)}, {@link #without(Value)}は、
+ * 元のツリーを変更せずに、経路上の値のみを再構築した新しいツリーを返す。
+ * 経路上にない部分木はすべて元のツリーと共有される。
+ * </p>
+ * <pre><code>
+ * ValuePath path = ValuePath.ROOT.key(Terminal.of("columns")).index(2).key(Terminal.of("name"));
+ * Value next = path.with(model, Terminal.of("ID"));
+ * </code></pre>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public final class ValuePath implements Serializable {
+	
+	private static final long serialVersionUID = -5436616102384730917L;
+	
+	/**
+	 * ツリーの根を表す経路。
+	 */
+	public static final ValuePath ROOT = new ValuePath(null, null, -1);
+	
+	/**
+	 * 最後のステップを除いた経路、根の場合は{@code null}。
+	 */
+	private final ValuePath parent;
+	
+	/**
+	 * 最後のステップが指定するレコードのキー、位置を指定するステップの場合は{@code null}。
+	 */
+	private final Value key;
+	
+	/**
+	 * 最後のステップが指定するリスト上の位置、キーを指定するステップの場合は{@code -1}。
+	 */
+	private final int index;
+	
+	/**
+	 * ステップの個数。
+	 */
+	private final int depth;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param parent 最後のステップを除いた経路
+	 * @param key 最後のステップが指定するキー
+	 * @param index 最後のステップが指定する位置
+	 */
+	private ValuePath(ValuePath parent, Value key, int index) {
+		this.parent = parent;
+		this.key = key;
+		this.index = index;
+		this.depth = parent == null ? 0 : parent.depth + 1;
+	}
+	
+	/**
+	 * この経路に、レコードのキーを指定するステップを追加した経路を返す。
+	 * @param stepKey 対象のキー
+	 * @return 追加した経路
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public ValuePath key(Value stepKey) {
+		if (stepKey == null) {
+			throw new NullPointerException("stepKey"); //$NON-NLS-1$
+		}
+		return new ValuePath(this, stepKey, -1);
+	}
+	
+	/**
+	 * この経路に、リスト上の位置を指定するステップを追加した経路を返す。
+	 * @param stepIndex 対象の位置
+	 * @return 追加した経路
+	 * @throws IllegalArgumentException 引数に負の値が指定された場合
+	 */
+	public ValuePath index(int stepIndex) {
+		if (stepIndex < 0) {
+			throw new IllegalArgumentException("stepIndex < 0"); //$NON-NLS-1$
+		}
+		return new ValuePath(this, null, stepIndex);
+	}
+	
+	/**
+	 * この経路のステップの個数を返す。
+	 * @return ステップの個数、根の場合は{@code 0}
+	 */
+	public int size() {
+		return depth;
+	}
+	
+	/**
+	 * この経路から最後のステップを除いた経路を返す。
+	 * @return 最後のステップを除いた経路、この経路が根である場合は{@code null}
+	 */
+	public ValuePath getParent() {
+		return parent;
+	}
+	
+	/**
+	 * 指定のツリー上で、この経路が指す値を返す。
+	 * <p>
+	 * キーを指定するステップでは{@link Record#get(Value)}の値をたどる。
+	 * </p>
+	 * @param root ツリーの根
+	 * @return この経路が指す値、存在しない場合は{@code null}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Value get(Value root) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		Value current = root;
+		for (ValuePath step : steps()) {
+			current = step.child(current);
+			if (current == null) {
+				return null;
+			}
+		}
+		return current;
+	}
+	
+	/**
+	 * 指定のツリー上で、この経路が指す値を置き換えたツリーを返す。
+	 * <p>
+	 * 最後のステップがキーを指定し、そのキーを持つエントリが存在しない場合はエントリを追加する
+	 * ({@link Record#with(Value, Value)})。
+	 * 途中のステップが指定するキーを持つエントリが複数存在する場合、{@link #get(Value)}と同様に
+	 * {@link Record#get(Value)}が返す値を持つエントリをたどり、そのエントリのみを置き換える。
+	 * この経路が根である場合、{@code value}をそのまま返す。
+	 * </p>
+	 * @param root ツリーの根
+	 * @param value 置き換える値
+	 * @return 置き換えたツリー
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 経路の途中の値が存在しない場合、
+	 *     またはステップの種類と値の種類が一致しない場合
+	 * @throws IndexOutOfBoundsException 位置を指定するステップが範囲外である場合
+	 */
+	public Value with(Value root, Value value) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		return update(root, steps(), 0, Operation.WITH, value);
+	}
+	
+	/**
+	 * 指定のツリー上で、この経路が指す位置に値を挿入したツリーを返す。
+	 * <p>
+	 * 最後のステップが位置を指定する場合は{@link Sequence#insert(int, Value)}によって、
+	 * キーを指定する場合は{@link Record#insert(Value, Value)}によって値を挿入する。
+	 * 途中のステップは{@link #with(Value, Value)}と同様にたどる。
+	 * </p>
+	 * @param root ツリーの根
+	 * @param value 挿入する値
+	 * @return 挿入したツリー
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 経路の途中の値が存在しない場合、
+	 *     またはステップの種類と値の種類が一致しない場合
+	 * @throws IndexOutOfBoundsException 位置を指定するステップが範囲外である場合
+	 * @throws IllegalStateException この経路が根である場合
+	 */
+	public Value insert(Value root, Value value) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		if (parent == null) {
+			throw new IllegalStateException("root"); //$NON-NLS-1$
+		}
+		return update(root, steps(), 0, Operation.INSERT, value);
+	}
+	
+	/**
+	 * 指定のツリー上で、この経路が指す値を除去したツリーを返す。
+	 * <p>
+	 * 最後のステップが位置を指定する場合は{@link Sequence#without(int)}によって、
+	 * キーを指定する場合は{@link Record#without(Value)}によって値を除去する。
+	 * 途中のステップは{@link #with(Value, Value)}と同様にたどる。
+	 * </p>
+	 * @param root ツリーの根
+	 * @return 除去したツリー
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 経路の途中の値が存在しない場合、
+	 *     またはステップの種類と値の種類が一致しない場合
+	 * @throws IndexOutOfBoundsException 位置を指定するステップが範囲外である場合
+	 * @throws IllegalStateException この経路が根である場合
+	 */
+	public Value without(Value root) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		if (parent == null) {
+			throw new IllegalStateException("root"); //$NON-NLS-1$
+		}
+		return update(root, steps(), 0, Operation.WITHOUT, null);
+	}
+	
+	/**
+	 * 根から順にこの経路のステップを返す。
+	 * @return 各ステップを最後のステップとする経路の一覧
+	 */
+	private ValuePath[] steps() {
+		ValuePath[] results = new ValuePath[depth];
+		for (ValuePath current = this; current.parent != null; current = current.parent) {
+			results[current.depth - 1] = current;
+		}
+		return results;
+	}
+	
+	/**
+	 * 指定の値上で、このステップが指す子を返す。
+	 * @param value 対象の値
+	 * @return 対応する子、存在しない場合は{@code null}
+	 */
+	private Value child(Value value) {
+		if (key != null) {
+			if (value.getKind() != Value.Kind.RECORD) {
+				return null;
+			}
+			return ((Record) value).get(key);
+		}
+		if (value.getKind() == Value.Kind.RECORD || value.getKind() == Value.Kind.TERMINAL) {
+			return null;
+		}
+		Sequence sequence = (Sequence) value;
+		if (index >= sequence.getValues().size()) {
+			return null;
+		}
+		return sequence.getValues().get(index);
+	}
+	
+	private Value update(Value current, ValuePath[] steps, int position, Operation operation, Value value) {
+		if (position == steps.length) {
+			assert operation == Operation.WITH;
+			return value;
+		}
+		ValuePath step = steps[position];
+		boolean last = position == steps.length - 1;
+		if (step.key != null) {
+			if (current.getKind() != Value.Kind.RECORD) {
+				throw new IllegalArgumentException(describe(position));
+			}
+			Record record = (Record) current;
+			if (last) {
+				switch (operation) {
+					case WITH:
+						return record.with(step.key, value);
+					case INSERT:
+						return record.insert(step.key, value);
+					case WITHOUT:
+						return record.without(step.key);
+					default:
+						throw new AssertionError(operation);
+				}
+			}
+			Value child = record.get(step.key);
+			if (child == null) {
+				throw new IllegalArgumentException(describe(position + 1));
+			}
+			return record.replaceFirst(step.key, update(child, steps, position + 1, operation, value));
+		}
+		if (current.getKind() == Value.Kind.RECORD || current.getKind() == Value.Kind.TERMINAL) {
+			throw new IllegalArgumentException(describe(position));
+		}
+		Sequence sequence = (Sequence) current;
+		if (last) {
+			switch (operation) {
+				case WITH:
+					return sequence.replaceAt(step.index, value);
+				case INSERT:
+					return sequence.insert(step.index, value);
+				case WITHOUT:
+					return sequence.without(step.index);
+				default:
+					throw new AssertionError(operation);
+			}
+		}
+		Value child = sequence.getValues().get(step.index);
+		return sequence.replaceAt(step.index, update(child, steps, position + 1, operation, value));
+	}
+	
+	private String describe(int length) {
+		ValuePath current = this;
+		while (current.depth > length) {
+			current = current.parent;
+		}
+		return current.toString();
+	}
+	
+	/**
+	 * このオブジェクトのハッシュ値を返す。
+	 * @return このオブジェクトのハッシュ値
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		for (ValuePath current = this; current.parent != null; current = current.parent) {
+			result = prime * result + (current.key == null ? current.index : current.key.hashCode());
+		}
+		return result;
+	}
+	
+	/**
+	 * このオブジェクトとほかのオブジェクトを比較し、同値性を返す。
+	 * @param obj 比較するオブジェクト
+	 * @return 同値性
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		ValuePath other = (ValuePath) obj;
+		if (depth != other.depth) {
+			return false;
+		}
+		ValuePath a = this;
+		ValuePath b = other;
+		while (a.parent != null) {
+			if (a.index != b.index) {
+				return false;
+			}
+			if (a.key == null ? b.key != null : a.key.equals(b.key) == false) {
+				return false;
+			}
+			a = a.parent;
+			b = b.parent;
+		}
+		return true;
+	}
+	
+	/**
+	 * このオブジェクトの文字列表現を返す。
+	 * <p>
+	 * 各ステップは、キーを指定する場合{@code /key}、位置を指定する場合{@code [index]}と表される。
+	 * </p>
+	 * @return このオブジェクトの文字列表現
+	 */
+	@Override
+	public String toString() {
+		if (parent == null) {
+			return "/"; //$NON-NLS-1$
+		}
+		StringBuilder buf = new StringBuilder();
+		for (ValuePath step : steps()) {
+			if (step.key != null) {
+				buf.append('/');
+				buf.append(step.key);
+			} else {
+				buf.append('[');
+				buf.append(step.index);
+				buf.append(']');
+			}
+		}
+		return buf.toString();
+	}
+	
+	private Object readResolve() {
+		return parent == null ? ROOT : this;
+	}
+	
+
+	/**
+	 * 経路の末端に対する操作。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private enum Operation {
+		
+		/**
+		 * 値を置き換える。
+		 */
+		WITH,
+		
+		/**
+		 * 値を挿入する。
+		 */
+		INSERT,
+		
+		/**
+		 * 値を除去する。
+		 */
+		WITHOUT,
+	}
+}
@@ -0,0 +1,803 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * ツリーから値を検索する、コンパイル済みの問い合わせ。
+ * <p>
+ * 問い合わせは{@code /}で区切られたステップの並びで、
+ * 各ステップは直前のステップが選択したそれぞれの値から新たな値を選択する。
+ * ステップには次のものがある。
+ * </p>
+ * <ul>
+ *   <li>
+ *     {@code name}, {@code 'name'} - 指定の名前をキーに持つレコードのエントリの値。
+ *     キーの検索には{@link Record#getAll(Value)}を利用し、ほかのエントリは参照しない
+ *   </li>
+ *   <li>
+ *     {@code *} - レコードのすべてのエントリの値、またはリストのすべての要素
+ *   </li>
+ *   <li>
+ *     {@code **} - その値自身と、すべての子孫の値
+ *   </li>
+ *   <li>
+ *     {@code .} - その値自身
+ *   </li>
+ * </ul>
+ * <p>
+ * 各ステップには、{@code [...]}で囲まれた条件を続けて指定できる。
+ * </p>
+ * <ul>
+ *   <li>
+ *     {@code [path='value']} - 相対的な問い合わせ{@code path}の結果に、
+ *     文字列表現が{@code value}である終端値が含まれる
+ *   </li>
+ *   <li>
+ *     {@code [path]} - 相対的な問い合わせ{@code path}の結果が空でない
+ *   </li>
+ *   <li>
+ *     {@code [n]} - そのステップで選択された値のうち、{@code 0}から数えて{@code n}番目のもの
+ *   </li>
+ * </ul>
+ * <p>
+ * たとえば、<code>tables/*&#47;columns/*[name='ID']</code>は、
+ * {@code tables}の各要素の{@code columns}の要素のうち、
+ * {@code name}が{@code ID}であるものを選択する。
+ * </p>
+ * <p>
+ * 問い合わせの結果は遅延評価され、必要になった時点で順に計算される。
+ * このクラスのインスタンスは変更できず、複数のスレッドから同時に利用できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public final class ValueQuery {
+	
+	/**
+	 * 問い合わせの文字列表現。
+	 */
+	private final String expression;
+	
+	/**
+	 * ステップの一覧。
+	 */
+	private final Step[] steps;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param expression 問い合わせの文字列表現
+	 * @param steps ステップの一覧
+	 */
+	private ValueQuery(String expression, Step[] steps) {
+		assert expression != null;
+		assert steps != null;
+		this.expression = expression;
+		this.steps = steps;
+	}
+	
+	/**
+	 * 指定の問い合わせをコンパイルする。
+	 * @param expression 問い合わせの文字列表現
+	 * @return コンパイルした問い合わせ
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalArgumentException 問い合わせの構文が正しくない場合
+	 */
+	public static ValueQuery compile(String expression) {
+		if (expression == null) {
+			throw new NullPointerException("expression"); //$NON-NLS-1$
+		}
+		QueryParser parser = new QueryParser(expression);
+		Step[] steps = parser.parseQuery();
+		parser.expectEnd();
+		return new ValueQuery(expression, steps);
+	}
+	
+	/**
+	 * 指定の値を起点にこの問い合わせを評価し、結果を順に返す反復子を返す。
+	 * <p>
+	 * 結果は反復子から要素を取り出すたびに必要な分だけ計算される。
+	 * </p>
+	 * @param root 起点となる値
+	 * @return 結果を順に返す反復子
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Iterator<Value> iterator(Value root) {
+		if (root == null) {
+			throw new NullPointerException("root"); //$NON-NLS-1$
+		}
+		return new Evaluation(steps, root);
+	}
+	
+	/**
+	 * 指定の値を起点にこの問い合わせを評価し、すべての結果を返す。
+	 * @param root 起点となる値
+	 * @return 結果の一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public List<Value> list(Value root) {
+		List<Value> results = new ArrayList<Value>();
+		for (Iterator<Value> iter = iterator(root); iter.hasNext();) {
+			results.add(iter.next());
+		}
+		return results;
+	}
+	
+	/**
+	 * 指定の値を起点にこの問い合わせを評価し、最初の結果を返す。
+	 * <p>
+	 * 最初の結果が見つかった時点で評価を終了する。
+	 * </p>
+	 * @param root 起点となる値
+	 * @return 最初の結果、存在しない場合は{@code null}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public Value first(Value root) {
+		Iterator<Value> iter = iterator(root);
+		return iter.hasNext() ? iter.next() : null;
+	}
+	
+	/**
+	 * 指定の値を起点にこの問い合わせを評価した結果が空でない場合のみ{@code true}を返す。
+	 * @param root 起点となる値
+	 * @return 結果が空でない場合に{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public boolean matches(Value root) {
+		return iterator(root).hasNext();
+	}
+	
+	/**
+	 * この問い合わせの文字列表現を返す。
+	 * @return コンパイル時に指定された文字列
+	 */
+	@Override
+	public String toString() {
+		return expression;
+	}
+	
+
+	/**
+	 * 問い合わせの各ステップを順に評価する反復子。
+	 * <p>
+	 * ステップごとに評価中の反復子を保持し、最後のステップまで深さ優先で評価する。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Evaluation implements Iterator<Value> {
+		
+		/**
+		 * ステップの一覧。
+		 */
+		private final Step[] steps;
+		
+		/**
+		 * 各ステップで評価中の反復子。
+		 */
+		private final Iterator<Value>[] stack;
+		
+		/**
+		 * 評価中のステップの位置、評価を終えた場合は{@code -1}。
+		 */
+		private int level;
+		
+		/**
+		 * 次に返す結果、未計算の場合は{@code null}。
+		 */
+		private Value next;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param steps ステップの一覧
+		 * @param root 起点となる値
+		 */
+		@SuppressWarnings("unchecked")
+		Evaluation(Step[] steps, Value root) {
+			this.steps = steps;
+			this.stack = (Iterator<Value>[]) new Iterator<?>[steps.length];
+			if (steps.length == 0) {
+				next = root;
+				level = -1;
+			} else {
+				stack[0] = steps[0].select(root);
+				level = 0;
+			}
+		}
+		
+		public boolean hasNext() {
+			if (next != null) {
+				return true;
+			}
+			while (level >= 0) {
+				Iterator<Value> current = stack[level];
+				if (current.hasNext() == false) {
+					stack[level] = null;
+					level--;
+					continue;
+				}
+				Value value = current.next();
+				if (level == steps.length - 1) {
+					next = value;
+					return true;
+				}
+				level++;
+				stack[level] = steps[level].select(value);
+			}
+			return false;
+		}
+		
+		public Value next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			Value result = next;
+			next = null;
+			return result;
+		}
+		
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * 問い合わせのステップ。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Step {
+		
+		/**
+		 * 値の選択方法。
+		 */
+		final Axis axis;
+		
+		/**
+		 * {@link Axis#KEY}で選択するキー、それ以外の場合は{@code null}。
+		 */
+		final Terminal key;
+		
+		/**
+		 * 選択した値に適用する条件の一覧。
+		 */
+		final Predicate[] predicates;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param axis 値の選択方法
+		 * @param key 選択するキー
+		 * @param predicates 選択した値に適用する条件の一覧
+		 */
+		Step(Axis axis, Terminal key, Predicate[] predicates) {
+			assert axis != null;
+			assert (axis == Axis.KEY) == (key != null);
+			assert predicates != null;
+			this.axis = axis;
+			this.key = key;
+			this.predicates = predicates;
+		}
+		
+		Iterator<Value> select(Value context) {
+			Iterator<Value> results = axis.select(context, key);
+			for (Predicate predicate : predicates) {
+				results = new Filter(results, predicate);
+			}
+			return results;
+		}
+	}
+	
+	/**
+	 * ステップが値を選択する方法。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private enum Axis {
+		
+		/**
+		 * 指定のキーを持つエントリの値。
+		 */
+		KEY {
+			
+			@Override
+			Iterator<Value> select(Value context, Terminal key) {
+				if (context.getKind() != Value.Kind.RECORD) {
+					return Collections.<Value> emptyList().iterator();
+				}
+				return ((Record) context).getAll(key).iterator();
+			}
+		},
+		
+		/**
+		 * すべての子の値。
+		 */
+		CHILDREN {
+			
+			@Override
+			Iterator<Value> select(Value context, Terminal key) {
+				return new Children(context);
+			}
+		},
+		
+		/**
+		 * 自身とすべての子孫の値。
+		 */
+		DESCENDANTS {
+			
+			@Override
+			Iterator<Value> select(Value context, Terminal key) {
+				return new Descendants(context);
+			}
+		},
+		
+		/**
+		 * 自身。
+		 */
+		SELF {
+			
+			@Override
+			Iterator<Value> select(Value context, Terminal key) {
+				return Collections.singletonList(context).iterator();
+			}
+		};
+		
+		abstract Iterator<Value> select(Value context, Terminal key);
+	}
+	
+	/**
+	 * 値の直接の子を順に返す反復子。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Children implements Iterator<Value> {
+		
+		/**
+		 * 親の値。
+		 */
+		private final Value parent;
+		
+		/**
+		 * 子の個数。
+		 */
+		private final int size;
+		
+		/**
+		 * 次に返す子の位置。
+		 */
+		private int index;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param parent 親の値
+		 */
+		Children(Value parent) {
+			this.parent = parent;
+			this.size = parent.childCount();
+			this.index = 0;
+		}
+		
+		public boolean hasNext() {
+			return index < size;
+		}
+		
+		public Value next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			return parent.childAt(index++);
+		}
+		
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * 値自身とすべての子孫を、深さ優先の先行順で返す反復子。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Descendants implements Iterator<Value> {
+		
+		/**
+		 * 子を列挙中の値の一覧。
+		 */
+		private final List<Value> parents = new ArrayList<Value>();
+		
+		/**
+		 * {@link #parents}のそれぞれについて、次に返す子の位置。
+		 */
+		private int[] indices = new int[8]; // CHECKSTYLE IGNORE THIS LINE
+		
+		/**
+		 * 次に返す値、存在しない場合は{@code null}。
+		 */
+		private Value next;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param root 起点となる値
+		 */
+		Descendants(Value root) {
+			this.next = root;
+		}
+		
+		public boolean hasNext() {
+			return next != null;
+		}
+		
+		public Value next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			Value result = next;
+			if (result.childCount() > 0) {
+				push(result);
+			}
+			next = advance();
+			return result;
+		}
+		
+		private void push(Value parent) {
+			int depth = parents.size();
+			if (depth == indices.length) {
+				int[] grown = new int[depth * 2];
+				System.arraycopy(indices, 0, grown, 0, depth);
+				indices = grown;
+			}
+			parents.add(parent);
+			indices[depth] = 0;
+		}
+		
+		private Value advance() {
+			while (parents.isEmpty() == false) {
+				int depth = parents.size() - 1;
+				Value parent = parents.get(depth);
+				int index = indices[depth];
+				if (index < parent.childCount()) {
+					indices[depth] = index + 1;
+					return parent.childAt(index);
+				}
+				parents.remove(depth);
+			}
+			return null;
+		}
+		
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * 条件を満たす値のみを返す反復子。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Filter implements Iterator<Value> {
+		
+		/**
+		 * 元の反復子。
+		 */
+		private final Iterator<Value> source;
+		
+		/**
+		 * 適用する条件。
+		 */
+		private final Predicate predicate;
+		
+		/**
+		 * 元の反復子から取り出した値の個数。
+		 */
+		private int position;
+		
+		/**
+		 * 次に返す値、未計算の場合は{@code null}。
+		 */
+		private Value next;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param source 元の反復子
+		 * @param predicate 適用する条件
+		 */
+		Filter(Iterator<Value> source, Predicate predicate) {
+			this.source = source;
+			this.predicate = predicate;
+			this.position = 0;
+		}
+		
+		public boolean hasNext() {
+			if (next != null) {
+				return true;
+			}
+			while (source.hasNext()) {
+				Value candidate = source.next();
+				int current = position++;
+				if (predicate.test(candidate, current)) {
+					next = candidate;
+					return true;
+				}
+				if (predicate.isExhausted(current)) {
+					return false;
+				}
+			}
+			return false;
+		}
+		
+		public Value next() {
+			if (hasNext() == false) {
+				throw new NoSuchElementException();
+			}
+			Value result = next;
+			next = null;
+			return result;
+		}
+		
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * ステップに適用する条件。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Predicate {
+		
+		/**
+		 * 評価する相対的な問い合わせのステップ、位置を指定する条件の場合は{@code null}。
+		 */
+		private final Step[] path;
+		
+		/**
+		 * 比較する終端値、存在のみを検査する場合は{@code null}。
+		 */
+		private final Terminal value;
+		
+		/**
+		 * 選択する位置、位置を指定しない条件の場合は{@code -1}。
+		 */
+		private final int position;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param path 評価する相対的な問い合わせのステップ
+		 * @param value 比較する終端値
+		 * @param position 選択する位置
+		 */
+		Predicate(Step[] path, Terminal value, int position) {
+			assert (path == null) == (position >= 0);
+			this.path = path;
+			this.value = value;
+			this.position = position;
+		}
+		
+		boolean test(Value candidate, int candidatePosition) {
+			if (path == null) {
+				return candidatePosition == position;
+			}
+			Iterator<Value> results = new Evaluation(path, candidate);
+			if (value == null) {
+				return results.hasNext();
+			}
+			while (results.hasNext()) {
+				if (value.equals(results.next())) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		boolean isExhausted(int candidatePosition) {
+			return path == null && candidatePosition >= position;
+		}
+	}
+	
+	/**
+	 * 問い合わせの構文解析器。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class QueryParser {
+		
+		/**
+		 * 解析する文字列。
+		 */
+		private final String text;
+		
+		/**
+		 * 次に読み出す文字の位置。
+		 */
+		private int offset;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param text 解析する文字列
+		 */
+		QueryParser(String text) {
+			this.text = text;
+			this.offset = 0;
+		}
+		
+		Step[] parseQuery() {
+			List<Step> results = new ArrayList<Step>();
+			skipSpaces();
+			if (lookahead('/')) {
+				offset++;
+			}
+			skipSpaces();
+			if (atQueryEnd()) {
+				return new Step[0];
+			}
+			results.add(parseStep());
+			skipSpaces();
+			while (lookahead('/')) {
+				offset++;
+				skipSpaces();
+				results.add(parseStep());
+				skipSpaces();
+			}
+			return results.toArray(new Step[results.size()]);
+		}
+		
+		void expectEnd() {
+			skipSpaces();
+			if (offset < text.length()) {
+				throw error("unexpected character"); //$NON-NLS-1$
+			}
+		}
+		
+		private Step parseStep() {
+			Axis axis;
+			Terminal key = null;
+			if (lookahead('*')) {
+				offset++;
+				if (lookahead('*')) {
+					offset++;
+					axis = Axis.DESCENDANTS;
+				} else {
+					axis = Axis.CHILDREN;
+				}
+			} else if (lookahead('.')) {
+				offset++;
+				axis = Axis.SELF;
+			} else {
+				axis = Axis.KEY;
+				key = Terminal.of(parseName());
+			}
+			List<Predicate> predicates = new ArrayList<Predicate>();
+			skipSpaces();
+			while (lookahead('[')) {
+				offset++;
+				predicates.add(parsePredicate());
+				skipSpaces();
+			}
+			return new Step(axis, key, predicates.toArray(new Predicate[predicates.size()]));
+		}
+		
+		private Predicate parsePredicate() {
+			skipSpaces();
+			Predicate result;
+			if (offset < text.length() && Character.isDigit(text.charAt(offset))) {
+				int start = offset;
+				while (offset < text.length() && Character.isDigit(text.charAt(offset))) {
+					offset++;
+				}
+				try {
+					result = new Predicate(null, null, Integer.parseInt(text.substring(start, offset)));
+				} catch (NumberFormatException e) {
+					throw error("position is too large"); //$NON-NLS-1$
+				}
+			} else {
+				Step[] path = parseQuery();
+				skipSpaces();
+				Terminal value = null;
+				if (lookahead('=')) {
+					offset++;
+					skipSpaces();
+					value = Terminal.of(parseName());
+				}
+				result = new Predicate(path, value, -1);
+			}
+			skipSpaces();
+			if (lookahead(']') == false) {
+				throw error("']' is expected"); //$NON-NLS-1$
+			}
+			offset++;
+			return result;
+		}
+		
+		private String parseName() {
+			if (lookahead('\'') || lookahead('"')) {
+				return parseQuoted();
+			}
+			int start = offset;
+			while (offset < text.length() && isNameChar(text.charAt(offset))) {
+				offset++;
+			}
+			if (start == offset) {
+				throw error("name is expected"); //$NON-NLS-1$
+			}
+			return text.substring(start, offset);
+		}
+		
+		private String parseQuoted() {
+			char quote = text.charAt(offset++);
+			StringBuilder buf = new StringBuilder();
+			while (offset < text.length()) {
+				char c = text.charAt(offset++);
+				if (c == quote) {
+					return buf.toString();
+				}
+				if (c == '\\') {
+					if (offset >= text.length()) {
+						break;
+					}
+					c = text.charAt(offset++);
+				}
+				buf.append(c);
+			}
+			throw error("unterminated string"); //$NON-NLS-1$
+		}
+		
+		private boolean isNameChar(char c) {
+			switch (c) {
+				case '/':
+				case '[':
+				case ']':
+				case '*':
+				case '=':
+				case '\'':
+				case '"':
+					return false;
+				default:
+					return Character.isWhitespace(c) == false;
+			}
+		}
+		
+		private boolean atQueryEnd() {
+			return offset >= text.length() || lookahead(']') || lookahead('=');
+		}
+		
+		private boolean lookahead(char c) {
+			return offset < text.length() && text.charAt(offset) == c;
+		}
+		
+		private void skipSpaces() {
+			while (offset < text.length() && Character.isWhitespace(text.charAt(offset))) {
+				offset++;
+			}
+		}
+		
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at " + offset + ": " + text); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.io.IOException;
+
+/**
+ * {@link Value#toString()}と同じ形式の文字列表現を、指定の出力先に直接書き出す。
+ * <p>
+ * 中間の文字列を生成せず、ツリーを{@link TreeWalker}で反復的に走査しながら出力する。
+ * 出力する文字数が上限に達した場合は走査を打ち切り、{@link #TRUNCATION_MARKER}を出力する。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class ValueRenderer extends TreeWalker {
+	
+	/**
+	 * 出力を打ち切った箇所に続けて出力する文字列。
+	 */
+	static final String TRUNCATION_MARKER = "..."; //$NON-NLS-1$
+	
+	/**
+	 * 出力先。
+	 */
+	private final Appendable output;
+	
+	/**
+	 * 出力可能な残りの文字数。
+	 */
+	private int remaining;
+	
+	/**
+	 * 出力中に発生した例外、発生していない場合は{@code null}。
+	 */
+	private IOException failure;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param output 出力先
+	 * @param limit 出力する最大の文字数
+	 */
+	private ValueRenderer(Appendable output, int limit) {
+		assert output != null;
+		assert limit >= 0;
+		this.output = output;
+		this.remaining = limit;
+	}
+	
+	/**
+	 * 指定の値の文字列表現を出力する。
+	 * @param value 対象の値
+	 * @param output 出力先
+	 * @param limit 出力する最大の文字数 ({@link #TRUNCATION_MARKER}を除く)
+	 * @return すべて出力した場合は{@code true}、途中で打ち切った場合は{@code false}
+	 * @throws IOException 出力に失敗した場合
+	 */
+	static boolean render(Value value, Appendable output, int limit) throws IOException {
+		assert value != null;
+		ValueRenderer renderer = new ValueRenderer(output, limit);
+		return renderer.run(value);
+	}
+	
+	/**
+	 * 指定のエントリの文字列表現を出力する。
+	 * @param entry 対象のエントリ
+	 * @param output 出力先
+	 * @param limit 出力する最大の文字数 ({@link #TRUNCATION_MARKER}を除く)
+	 * @return すべて出力した場合は{@code true}、途中で打ち切った場合は{@code false}
+	 * @throws IOException 出力に失敗した場合
+	 */
+	static boolean render(Entry entry, Appendable output, int limit) throws IOException {
+		assert entry != null;
+		ValueRenderer renderer = new ValueRenderer(output, limit);
+		return renderer.runEntry(entry.getKey(), entry.getValue());
+	}
+	
+	/**
+	 * 指定の値を文字列表現に変換する。
+	 * @param value 対象の値
+	 * @return 対応する文字列表現
+	 */
+	static String toString(Value value) {
+		StringBuilder buf = new StringBuilder();
+		try {
+			render(value, buf, Integer.MAX_VALUE);
+		} catch (IOException e) {
+			// StringBuilder は IOException を送出しない
+			throw new AssertionError(e);
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * 指定のエントリを文字列表現に変換する。
+	 * @param entry 対象のエントリ
+	 * @return 対応する文字列表現
+	 */
+	static String toString(Entry entry) {
+		StringBuilder buf = new StringBuilder();
+		try {
+			render(entry, buf, Integer.MAX_VALUE);
+		} catch (IOException e) {
+			// StringBuilder は IOException を送出しない
+			throw new AssertionError(e);
+		}
+		return buf.toString();
+	}
+	
+	private boolean run(Value value) throws IOException {
+		boolean completed = walk(value);
+		if (failure != null) {
+			throw failure;
+		}
+		return completed;
+	}
+	
+	private boolean runEntry(Value key, Value value) throws IOException {
+		boolean completed = write("\"") && nested(key) && write("\":\"") //$NON-NLS-1$ //$NON-NLS-2$
+				&& walk(value) && write("\""); //$NON-NLS-1$
+		if (failure != null) {
+			throw failure;
+		}
+		return completed;
+	}
+	
+	@Override
+	protected Control enter(Value value) {
+		int depth = getDepth();
+		if (depth > 0) {
+			if (getIndex(depth) > 0 && write(", ") == false) { //$NON-NLS-1$
+				return Control.STOP;
+			}
+			Value key = getKey(depth);
+			if (key != null) {
+				if (write("\"") == false || nested(key) == false || write("\":\"") == false) { //$NON-NLS-1$ //$NON-NLS-2$
+					return Control.STOP;
+				}
+			}
+		}
+		boolean written;
+		switch (value.getKind()) {
+			case TERMINAL:
+				written = write(((Terminal) value).getRepresentation());
+				break;
+			case RECORD:
+				written = write("{"); //$NON-NLS-1$
+				break;
+			default:
+				written = write("["); //$NON-NLS-1$
+				break;
+		}
+		return written ? Control.CONTINUE : Control.STOP;
+	}
+	
+	@Override
+	protected Control exit(Value value) {
+		boolean written = true;
+		switch (value.getKind()) {
+			case TERMINAL:
+				break;
+			case RECORD:
+				written = write("}"); //$NON-NLS-1$
+				break;
+			default:
+				written = write("]"); //$NON-NLS-1$
+				break;
+		}
+		int depth = getDepth();
+		if (written && depth > 0 && getKey(depth) != null) {
+			written = write("\""); //$NON-NLS-1$
+		}
+		return written ? Control.CONTINUE : Control.STOP;
+	}
+	
+	/**
+	 * 走査中に出現したレコードのキーを、残りの文字数の範囲で出力する。
+	 * @param key 対象のキー
+	 * @return すべて出力した場合は{@code true}
+	 */
+	private boolean nested(Value key) {
+		if (key.getKind() == Value.Kind.TERMINAL) {
+			return write(((Terminal) key).getRepresentation());
+		}
+		ValueRenderer renderer = new ValueRenderer(output, remaining);
+		boolean completed = renderer.walk(key);
+		remaining = renderer.remaining;
+		if (renderer.failure != null) {
+			failure = renderer.failure;
+			return false;
+		}
+		return completed;
+	}
+	
+	/**
+	 * 残りの文字数の範囲で文字列を出力する。
+	 * <p>
+	 * 文字列全体を出力できない場合は、出力可能な範囲に続けて{@link #TRUNCATION_MARKER}を出力する。
+	 * </p>
+	 * @param string 出力する文字列
+	 * @return すべて出力した場合は{@code true}
+	 */
+	private boolean write(String string) {
+		if (failure != null) {
+			return false;
+		}
+		try {
+			int length = string.length();
+			if (length <= remaining) {
+				output.append(string);
+				remaining -= length;
+				return true;
+			}
+			output.append(string, 0, remaining);
+			output.append(TRUNCATION_MARKER);
+			remaining = 0;
+			return false;
+		} catch (IOException e) {
+			failure = e;
+			return false;
+		}
+	}
+}
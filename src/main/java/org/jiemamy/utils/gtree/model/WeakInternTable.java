@@ -0,0 +1,170 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 同値なオブジェクトを単一のインスタンスに集約するための表。
+ * <p>
+ * 登録されたオブジェクトは弱参照で保持され、ほかから参照されなくなった時点で自動的に解放される。
+ * 内部はいくつかのセグメントに分割されており、複数のスレッドから同時に利用できる。
+ * </p>
+ * @param <T> 登録するオブジェクトの型
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class WeakInternTable<T> {
+	
+	/**
+	 * セグメントの個数。
+	 */
+	private static final int SEGMENT_COUNT = 16;
+	
+	/**
+	 * 登録されたオブジェクトを保持するセグメントの一覧。
+	 */
+	private final Segment<T>[] segments;
+	
+	/**
+	 * セグメントごとに保持するオブジェクトの最大数、制限しない場合は{@code 0}。
+	 */
+	private final int segmentCapacity;
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param maximumSize 登録するオブジェクトのおおよその最大数、制限しない場合は{@code 0}
+	 */
+	@SuppressWarnings("unchecked")
+	WeakInternTable(int maximumSize) {
+		assert maximumSize >= 0;
+		this.segments = (Segment<T>[]) new Segment<?>[SEGMENT_COUNT];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment<T>();
+		}
+		if (maximumSize == 0) {
+			segmentCapacity = 0;
+		} else {
+			segmentCapacity = (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+		}
+	}
+	
+	/**
+	 * 指定のオブジェクトと同値な登録済みのオブジェクトを返す。
+	 * @param object 対象のオブジェクト
+	 * @return 登録済みのオブジェクト、存在しない場合は{@code null}
+	 */
+	T get(T object) {
+		assert object != null;
+		return segmentFor(object).get(object);
+	}
+	
+	/**
+	 * 指定のオブジェクトと同値なオブジェクトが登録済みであればそれを返し、
+	 * そうでなければ指定のオブジェクトを登録してそれを返す。
+	 * <p>
+	 * 登録済みのオブジェクトの個数が上限に達している場合、
+	 * 指定のオブジェクトは登録されずにそのまま返される。
+	 * </p>
+	 * @param object 対象のオブジェクト
+	 * @return 集約されたインスタンス
+	 */
+	T intern(T object) {
+		assert object != null;
+		return segmentFor(object).intern(object, segmentCapacity);
+	}
+	
+	/**
+	 * 現在登録されているオブジェクトのおおよその個数を返す。
+	 * @return 登録されているオブジェクトの個数
+	 */
+	int size() {
+		int result = 0;
+		for (Segment<T> segment : segments) {
+			result += segment.size();
+		}
+		return result;
+	}
+	
+	/**
+	 * 登録されているすべてのオブジェクトを除去する。
+	 */
+	void clear() {
+		for (Segment<T> segment : segments) {
+			segment.clear();
+		}
+	}
+	
+	private Segment<T> segmentFor(T object) {
+		int hash = object.hashCode();
+		hash ^= (hash >>> 16); // CHECKSTYLE IGNORE THIS LINE
+		return segments[hash & (SEGMENT_COUNT - 1)];
+	}
+	
+
+	/**
+	 * 登録されたオブジェクトの一部を保持する。
+	 * @param <T> 登録するオブジェクトの型
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Segment<T> {
+		
+		/**
+		 * オブジェクトと、そのオブジェクト自身への弱参照の対応表。
+		 */
+		private final Map<T, WeakReference<T>> entries = new WeakHashMap<T, WeakReference<T>>();
+		
+
+		/**
+		 * インスタンスを生成する。
+		 */
+		Segment() {
+			super();
+		}
+		
+		synchronized T get(T object) {
+			WeakReference<T> ref = entries.get(object);
+			return ref == null ? null : ref.get();
+		}
+		
+		synchronized T intern(T object, int capacity) {
+			WeakReference<T> ref = entries.get(object);
+			if (ref != null) {
+				T found = ref.get();
+				if (found != null) {
+					return found;
+				}
+			}
+			if (capacity > 0 && entries.size() >= capacity) {
+				return object;
+			}
+			entries.put(object, new WeakReference<T>(object));
+			return object;
+		}
+		
+		synchronized int size() {
+			return entries.size();
+		}
+		
+		synchronized void clear() {
+			entries.clear();
+		}
+	}
+}
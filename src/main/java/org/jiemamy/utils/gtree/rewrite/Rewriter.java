@@ -15,7 +15,6 @@
  */
 package org.jiemamy.utils.gtree.rewrite;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.jiemamy.utils.gtree.model.ElementVisitor;
@@ -143,28 +142,24 @@ public class Rewriter {
 		protected Value visitSequence(Sequence elem, ValueRewriter context) {
 			assert elem != null;
 			assert context != null;
-			List<Value> results = new ArrayList<Value>();
-			for (Value target : elem.getValues()) {
+			List<Value> targets = elem.getValues();
+			Sequence.Builder results = new Sequence.Builder(elem.getKind(), targets.size());
+			for (Value target : targets) {
 				Value applied = target.accept(this, context);
 				if (applied != null) {
 					results.add(applied);
 				}
 			}
-			if (elem.getKind() == Value.Kind.ORDERED_LIST) {
-				return context.rewrite(Sequence.ordered(results));
-			} else if (elem.getKind() == Value.Kind.UNORDERED_LIST) {
-				return context.rewrite(Sequence.unordered(results));
-			} else {
-				throw new AssertionError(elem);
-			}
+			return context.rewrite(results.build());
 		}
 		
 		@Override
 		protected Value visitRecord(Record elem, ValueRewriter context) {
 			assert elem != null;
 			assert context != null;
-			List<Entry> results = new ArrayList<Entry>();
-			for (Entry target : elem.getEntries()) {
+			List<Entry> targets = elem.getEntries();
+			Record.Builder results = new Record.Builder(targets.size());
+			for (Entry target : targets) {
 				Value appliedKey;
 				if (keepEntryKey) {
 					appliedKey = target.getKey();
@@ -178,9 +173,9 @@ public class Rewriter {
 				if (appliedValue == null) {
 					continue; // skip
 				}
-				results.add(Entry.of(appliedKey, appliedValue));
+				results.add(appliedKey, appliedValue);
 			}
-			return context.rewrite(Record.of(results));
+			return context.rewrite(results.build());
 		}
 		
 		@Override
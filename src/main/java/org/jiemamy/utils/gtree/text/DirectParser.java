@@ -0,0 +1,513 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.MessageFormat;
+
+import org.jiemamy.utils.gtree.model.Record;
+import org.jiemamy.utils.gtree.model.Sequence;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+import org.jiemamy.utils.gtree.model.ValueInterner;
+
+/**
+ * {@code Generic Tree Notation}のテキストを、文字の配列から直接解析する。
+ * <p>
+ * {@code GtreeParser.jj}と同じ文法を受理し、同じ{@link Value}を構築する。
+ * トークンのオブジェクトは生成せず、文字列リテラルのエスケープは走査と同時に解除する。
+ * 入れ子になったリストやレコードは明示的なスタックで扱うため、深く入れ子になったテキストも解析できる。
+ * </p>
+ * <p>
+ * 行と桁の位置は、構文エラーを報告する際にのみ{@code GtreeParser.jj}の生成する字句解析器と同じ規則で計算する。
+ * </p>
+ * <p>
+ * このクラスのインスタンスは、読み込み用の配列を再利用しながら複数回の解析に利用できる。
+ * ただし、同時に複数のスレッドから利用してはならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class DirectParser {
+	
+	/**
+	 * 読み込み用の配列の初期容量。
+	 */
+	private static final int INITIAL_CAPACITY = 8192;
+	
+	/**
+	 * 入れ子のスタックの初期容量。
+	 */
+	private static final int INITIAL_DEPTH = 16;
+	
+	/**
+	 * 解析後も保持する読み込み用の配列の最大の長さ。
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+	
+	/**
+	 * 読み込んだテキスト。
+	 */
+	private char[] buffer = new char[INITIAL_CAPACITY];
+	
+	/**
+	 * 読み込んだテキストの長さ。
+	 */
+	private int limit;
+	
+	/**
+	 * 次に読み出す位置。
+	 */
+	private int position;
+	
+	/**
+	 * エスケープを解除した文字列の作業領域。
+	 */
+	private final StringBuilder scratch = new StringBuilder();
+	
+	/**
+	 * 構築中のリストやレコード。
+	 */
+	private Frame[] frames = new Frame[INITIAL_DEPTH];
+	
+	private int depth;
+	
+	private Variables variables;
+	
+	private ValueInterner interner;
+	
+	/**
+	 * 解析中のテキストに含まれるレコードのキーを集約する。
+	 */
+	private KeySymbols keys;
+	
+
+	/**
+	 * 指定のソースからテキストを読み出して解析し、対応する値を返す。
+	 * <p>
+	 * ソースは最後まで読み出されるが、閉じられない。
+	 * </p>
+	 * @param source 解析するテキストのソース
+	 * @param vars 変数表
+	 * @param valueInterner 構築した値を集約する{@link ValueInterner}、集約しない場合は{@code null}
+	 * @return 対応する値
+	 * @throws IOException ソースの読み出しに失敗した場合
+	 * @throws ParseException 解析に失敗した場合
+	 */
+	Value parse(Reader source, Variables vars, ValueInterner valueInterner) throws IOException, ParseException {
+		assert source != null;
+		assert vars != null;
+		variables = vars;
+		interner = valueInterner;
+		keys = new KeySymbols();
+		try {
+			fill(source);
+			position = 0;
+			depth = 0;
+			Value value = value();
+			if (skip()) {
+				throw unexpected(position);
+			}
+			return value;
+		} finally {
+			variables = null;
+			interner = null;
+			keys = null;
+			for (int i = 0; i < depth; i++) {
+				frames[i] = null;
+			}
+			depth = 0;
+			limit = 0;
+			if (buffer.length > MAX_RETAINED_CAPACITY) {
+				buffer = new char[INITIAL_CAPACITY];
+			}
+		}
+	}
+	
+	private void fill(Reader source) throws IOException {
+		int size = 0;
+		while (true) {
+			if (size == buffer.length) {
+				char[] grown = new char[buffer.length * 2];
+				System.arraycopy(buffer, 0, grown, 0, size);
+				buffer = grown;
+			}
+			int read = source.read(buffer, size, buffer.length - size);
+			if (read < 0) {
+				break;
+			}
+			size += read;
+		}
+		limit = size;
+	}
+	
+	/**
+	 * <pre>
+	 * Value :
+	 *     Terminal
+	 *     OrderedList
+	 *     UnorderedList
+	 *     Record
+	 *     Variable
+	 *     PackedList
+	 * </pre>
+	 */
+	private Value value() throws ParseException {
+		while (true) {
+			Value value = open();
+			while (value != null) {
+				if (depth == 0) {
+					return value;
+				}
+				Frame frame = frames[depth - 1];
+				if (frame.close == '>' && frame.key == null) {
+					frame.key = symbol(value);
+					if (skip() == false || buffer[position] != ':') {
+						throw unexpected(position);
+					}
+					position++;
+					break;
+				}
+				frame.add(value);
+				if (skip() == false) {
+					throw unexpected(position);
+				}
+				char c = buffer[position];
+				if (c == ',') {
+					position++;
+					break;
+				}
+				if (c != frame.close) {
+					throw unexpected(position);
+				}
+				position++;
+				depth--;
+				value = intern(frame.build());
+			}
+		}
+	}
+	
+	/**
+	 * 次の値を読み出す。
+	 * @return 読み出した値、リストやレコードの要素が続く場合は{@code null}
+	 * @throws ParseException 解析に失敗した場合
+	 */
+	private Value open() throws ParseException {
+		if (skip() == false) {
+			throw unexpected(position);
+		}
+		int start = position;
+		char c = buffer[start];
+		switch (c) {
+			case '"':
+			case '\'':
+				return intern(Terminal.of(string(c)));
+			case '$':
+				return variable();
+			case '#':
+				return packed();
+			case '[':
+			case '{':
+			case '<':
+				position++;
+				Frame frame = push(c);
+				if (skip() && buffer[position] == frame.close) {
+					position++;
+					depth--;
+					return intern(frame.build());
+				}
+				return null;
+			default:
+				throw unexpected(start);
+		}
+	}
+	
+	private Frame push(char open) {
+		if (depth == frames.length) {
+			Frame[] grown = new Frame[depth * 2];
+			System.arraycopy(frames, 0, grown, 0, depth);
+			frames = grown;
+		}
+		Frame frame = frames[depth];
+		if (frame == null) {
+			frame = new Frame();
+			frames[depth] = frame;
+		}
+		frame.open(open);
+		depth++;
+		return frame;
+	}
+	
+	/**
+	 * 空白とコメントを読み飛ばす。
+	 * @return 後続の文字が存在する場合は{@code true}、テキストの終端に達した場合は{@code false}
+	 * @throws ParseException コメントが閉じられていない場合
+	 */
+	private boolean skip() throws ParseException {
+		int i = position;
+		while (i < limit) {
+			char c = buffer[i];
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				i++;
+			} else if (c == '/' && i + 1 < limit && buffer[i + 1] == '/') {
+				i += 2;
+				while (i < limit && buffer[i] != '\r' && buffer[i] != '\n') {
+					i++;
+				}
+			} else if (c == '/' && i + 1 < limit && buffer[i + 1] == '*') {
+				int start = i;
+				i += 2;
+				while (true) {
+					if (i + 1 >= limit) {
+						throw error("Unterminated comment", start); //$NON-NLS-1$
+					}
+					if (buffer[i] == '*' && buffer[i + 1] == '/') {
+						i += 2;
+						break;
+					}
+					i++;
+				}
+			} else {
+				break;
+			}
+		}
+		position = i;
+		return i < limit;
+	}
+	
+	/**
+	 * <pre>
+	 * STRING :
+	 *     "'" (SCHAR | ESCAPE)* "'"
+	 *     "\"" (DCHAR | ESCAPE)* "\""
+	 * </pre>
+	 */
+	private String string(char quote) throws ParseException {
+		int start = position;
+		int begin = start + 1;
+		boolean escaped = false;
+		for (int i = begin; i < limit; i++) {
+			char c = buffer[i];
+			if (c == quote) {
+				position = i + 1;
+				if (escaped == false) {
+					return new String(buffer, begin, i - begin);
+				}
+				scratch.setLength(0);
+				int invalid = JavaEscape.unescapeLiteral(buffer, begin, i, scratch);
+				if (invalid >= 0) {
+					throw error("Invalid escape sequence", invalid); //$NON-NLS-1$
+				}
+				return scratch.toString();
+			}
+			if (c == '\\') {
+				escaped = true;
+				i++;
+			} else if (c == '\r' || c == '\n') {
+				break;
+			}
+		}
+		throw error("Unterminated string", start); //$NON-NLS-1$
+	}
+	
+	/**
+	 * <pre>
+	 * Variable :
+	 *   "$" (Identifier)
+	 * </pre>
+	 */
+	private Value variable() throws ParseException {
+		int start = position;
+		int i = start + 1;
+		while (i < limit && isIdentifierPart(buffer[i])) {
+			i++;
+		}
+		if (i == start + 1) {
+			throw unexpected(start);
+		}
+		position = i;
+		String image = new String(buffer, start, i - start);
+		Value bound = variables.find(image);
+		if (bound == null) {
+			throw Variables.undefined(image, locate(start)[0], locate(i - 1)[1]);
+		}
+		return bound;
+	}
+	
+	private static boolean isIdentifierPart(char c) {
+		return ('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z') || ('0' <= c && c <= '9') || c == '_';
+	}
+	
+	/**
+	 * <pre>
+	 * PackedList :
+	 *   "#" ("byte" | "short" | "int" | "long" | "double") "[" (Number ("," Number)*)? "]"
+	 * </pre>
+	 */
+	private Sequence packed() throws ParseException {
+		int start = position;
+		int i = start + 1;
+		while (i < limit && buffer[i] != ']') {
+			i++;
+		}
+		if (i == limit) {
+			throw unexpected(start);
+		}
+		position = i + 1;
+		String image = new String(buffer, start, position - start);
+		try {
+			return intern(PackedLiteral.parse(image));
+		} catch (IllegalArgumentException e) {
+			int[] location = locate(start);
+			throw new ParseException(MessageFormat.format("Invalid packed list \"{0}\" (line {1}, column {2})", //$NON-NLS-1$
+					image, location[0], location[1]));
+		}
+	}
+	
+	private <T extends Value>T intern(T value) {
+		if (interner == null) {
+			return value;
+		}
+		return interner.intern(value);
+	}
+	
+	private Value symbol(Value key) {
+		return keys.intern(key);
+	}
+	
+	private ParseException unexpected(int offset) {
+		if (offset >= limit) {
+			return error("Unexpected end of input", limit); //$NON-NLS-1$
+		}
+		return error(MessageFormat.format("Unexpected \"{0}\"", //$NON-NLS-1$
+				String.valueOf(buffer[offset])), offset);
+	}
+	
+	private ParseException error(String message, int offset) {
+		int[] location = locate(offset);
+		return new ParseException(MessageFormat.format("{0} (line {1}, column {2})", //$NON-NLS-1$
+				message, location[0], location[1]));
+	}
+	
+	/**
+	 * 指定の位置にある文字の行と桁を返す。
+	 * <p>
+	 * テキストの終端を指定した場合は、最後の文字の位置を返す。
+	 * </p>
+	 * @param offset 対象の位置
+	 * @return 1から始まる行と桁の組
+	 */
+	private int[] locate(int offset) {
+		LineCounter counter = new LineCounter().advance(buffer, 0, Math.min(offset + 1, limit));
+		return new int[] {
+			counter.getLine(),
+			counter.getColumn()
+		};
+	}
+	
+
+	/**
+	 * 構築中のリストやレコード。
+	 * <p>
+	 * 各ビルダーは構築後に空の状態へ戻るため、同じ深さの入れ子で再利用する。
+	 * </p>
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Frame {
+		
+		/**
+		 * 対応する閉じ括弧。
+		 */
+		char close;
+		
+		/**
+		 * 値を待っているレコードのキー、キーを待っている場合は{@code null}。
+		 */
+		Value key;
+		
+		private Sequence.Builder ordered;
+		
+		private Sequence.Builder unordered;
+		
+		private Record.Builder record;
+		
+
+		/**
+		 * 指定の開き括弧に対応する構築を開始する。
+		 * @param open 開き括弧
+		 */
+		void open(char open) {
+			key = null;
+			switch (open) {
+				case '[':
+					close = ']';
+					if (ordered == null) {
+						ordered = new Sequence.Builder(Value.Kind.ORDERED_LIST);
+					}
+					break;
+				case '{':
+					close = '}';
+					if (unordered == null) {
+						unordered = new Sequence.Builder(Value.Kind.UNORDERED_LIST);
+					}
+					break;
+				default:
+					assert open == '<';
+					close = '>';
+					if (record == null) {
+						record = new Record.Builder();
+					}
+					break;
+			}
+		}
+		
+		/**
+		 * 要素、またはレコードのエントリの値を追加する。
+		 * @param value 追加する値
+		 */
+		void add(Value value) {
+			switch (close) {
+				case ']':
+					ordered.add(value);
+					break;
+				case '}':
+					unordered.add(value);
+					break;
+				default:
+					record.add(key, value);
+					key = null;
+					break;
+			}
+		}
+		
+		/**
+		 * これまでに追加された要素からなる値を構築する。
+		 * @return 構築した値
+		 */
+		Value build() {
+			switch (close) {
+				case ']':
+					return ordered.build();
+				case '}':
+					return unordered.build();
+				default:
+					return record.build();
+			}
+		}
+	}
+}
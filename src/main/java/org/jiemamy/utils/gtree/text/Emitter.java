@@ -15,22 +15,25 @@
  */
 package org.jiemamy.utils.gtree.text;
 
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Collections;
-import java.util.EnumMap;
+import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.List;
-import java.util.Map;
 
-import org.jiemamy.utils.gtree.model.ElementVisitor;
 import org.jiemamy.utils.gtree.model.Entry;
 import org.jiemamy.utils.gtree.model.Record;
 import org.jiemamy.utils.gtree.model.Sequence;
 import org.jiemamy.utils.gtree.model.Terminal;
 import org.jiemamy.utils.gtree.model.Value;
-import org.jiemamy.utils.gtree.model.Value.Kind;
 
 /**
  * {@link Value}を{@code Generic Tree Notation}で出力する。
+ * <p>
+ * 要素ごとに改行してインデントを施す書式のほか、
+ * 機械間での受け渡しに向けて空白を一切含まない書式({@link #emitCompact(Value, Appendable)})で出力できる。
+ * いずれの書式も、出力した文字列を{@link Parser}で解析すると元の値と等価な値が得られる。
+ * </p>
  * @version $Date$
  * @author Suguru ARAKAWA
  */
@@ -39,23 +42,18 @@ public class Emitter {
 	/**
 	 * インデントに利用する文字列。
 	 */
-	private static final String INDENT = "    "; //$NON-NLS-1$
+	static final String INDENT = "    "; //$NON-NLS-1$
 	
-	static final Map<Kind, String> BLOCK_ENTER;
-	
-	static final Map<Value.Kind, String> BLOCK_EXIT;
-	static {
-		Map<Kind, String> enter = new EnumMap<Kind, String>(Kind.class);
-		Map<Kind, String> exit = new EnumMap<Kind, String>(Kind.class);
-		enter.put(Kind.ORDERED_LIST, "[");
-		exit.put(Kind.ORDERED_LIST, "]");
-		enter.put(Kind.UNORDERED_LIST, "{");
-		exit.put(Kind.UNORDERED_LIST, "}");
-		enter.put(Kind.RECORD, "<");
-		exit.put(Kind.RECORD, ">");
-		BLOCK_ENTER = Collections.unmodifiableMap(enter);
-		BLOCK_EXIT = Collections.unmodifiableMap(exit);
-	}
+	/**
+	 * スレッドごとに再利用する出力器。
+	 */
+	private static final ThreadLocal<Printer> PRINTERS = new ThreadLocal<Printer>() {
+		
+		@Override
+		protected Printer initialValue() {
+			return new Printer();
+		}
+	};
 	
 
 	/**
@@ -71,8 +69,62 @@ public class Emitter {
 		if (output == null) {
 			throw new NullPointerException("output"); //$NON-NLS-1$
 		}
-		PrettyPrintVisitor visitor = new PrettyPrintVisitor(INDENT, 0);
-		value.accept(visitor, output);
+		try {
+			emit0(value, output, INDENT);
+		} catch (IOException e) {
+			// PrintWriter does not throw IOException
+			throw new AssertionError(e);
+		}
+	}
+	
+	/**
+	 * 指定の値を{@code Generic Tree Notation}形式で指定の出力先に出力する。
+	 * <p>
+	 * リストやレコードの要素ごとに改行し、入れ子の深さだけ{@code indent}を行頭に出力する。
+	 * </p>
+	 * @param value 出力する値
+	 * @param output 出力先
+	 * @param indent インデントに利用する文字列
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void emit(Value value, Appendable output, String indent) throws IOException {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		if (output == null) {
+			throw new NullPointerException("output"); //$NON-NLS-1$
+		}
+		if (indent == null) {
+			throw new NullPointerException("indent"); //$NON-NLS-1$
+		}
+		emit0(value, output, indent);
+	}
+	
+	/**
+	 * 指定の値を空白や改行を含まない{@code Generic Tree Notation}形式で指定の出力先に出力する。
+	 * @param value 出力する値
+	 * @param output 出力先
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public static void emitCompact(Value value, Appendable output) throws IOException {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		if (output == null) {
+			throw new NullPointerException("output"); //$NON-NLS-1$
+		}
+		emit0(value, output, null);
+	}
+	
+	private static void emit0(Value value, Appendable output, String indent) throws IOException {
+		Printer printer = PRINTERS.get();
+		if (printer.isBusy()) {
+			// 出力先から再入された場合
+			printer = new Printer();
+		}
+		printer.print(value, output, indent);
 	}
 	
 	/**
@@ -84,14 +136,28 @@ public class Emitter {
 	
 
 	/**
-	 * {@link Value}を{@link PrintWriter}へ出力しながら走査する。
+	 * {@link Value}を内部の配列に書き出し、まとめて出力先へ出力する。
+	 * <p>
+	 * {@link GtreeWriter}は、{@link #begin(Appendable, String)}で出力を開始したインスタンスに
+	 * 値や括弧を逐次書き出すことで、このクラスと同じ書式のテキストを出力する。
+	 * </p>
 	 * @version $Date$
 	 * @author Suguru ARAKAWA
 	 */
-	private static class PrettyPrintVisitor extends ElementVisitor<Void, PrintWriter, RuntimeException> {
+	static final class Printer implements Appendable {
+		
+		private static final int BUFFER_SIZE = 4096;
+		
+		private static final String LINE_SEPARATOR = System.getProperty("line.separator"); //$NON-NLS-1$
+		
+		private final char[] buffer = new char[BUFFER_SIZE];
+		
+		private int count;
+		
+		private Appendable output;
 		
 		/**
-		 * インデントに利用する文字列。
+		 * インデントに利用する文字列。{@code null}ならば空白や改行を出力しない。
 		 */
 		private String indent;
 		
@@ -106,57 +172,53 @@ public class Emitter {
 		private boolean lineHead;
 		
 
-		/**
-		 * インスタンスを生成する。
-		 * @param indent インデント文字列
-		 * @param initDepth 初期インデント深度
-		 * @throws NullPointerException 引数に{@code null}が指定された場合
-		 */
-		public PrettyPrintVisitor(String indent, int initDepth) {
-			assert indent != null;
-			assert initDepth >= 0;
-			this.indent = indent;
-			this.depth = initDepth;
-			this.lineHead = true;
+		boolean isBusy() {
+			return output != null;
 		}
 		
 		/**
-		 * {@link Entry}を出力する。
-		 * <pre>
-		 * [key] : [value]
-		 * </pre>
+		 * 指定の値を出力する。
+		 * @param value 出力する値
+		 * @param target 出力先
+		 * @param indentString インデント文字列、空白や改行を出力しない場合は{@code null}
+		 * @throws IOException 出力に失敗した場合
 		 */
-		@Override
-		protected Void visitEntry(Entry elem, PrintWriter context) {
-			elem.getKey().accept(this, context);
-			printEntrySeparator(elem, context);
-			elem.getValue().accept(this, context);
-			return null;
+		void print(Value value, Appendable target, String indentString) throws IOException {
+			assert value != null;
+			begin(target, indentString);
+			try {
+				printValue(value);
+				flushBuffer();
+			} finally {
+				this.output = null;
+				this.count = 0;
+			}
 		}
 		
 		/**
-		 * {@link Record}を出力する。
-		 * <pre>
-		 * &lt;
-		 * [indent] [entry]
-		 * ...
-		 * &gt;
-		 * </pre>
+		 * 指定の出力先への出力を開始する。
+		 * <p>
+		 * 書き出した内容は内部の配列に蓄えられ、{@link #flushBuffer()}を呼び出すか配列が満杯になるまで
+		 * 出力先へ出力されない。
+		 * </p>
+		 * @param target 出力先
+		 * @param indentString インデント文字列、空白や改行を出力しない場合は{@code null}
 		 */
-		@Override
-		protected Void visitRecord(Record elem, PrintWriter context) {
-			List<Entry> entries = elem.getEntries();
-			enterBlock(elem, context);
-			for (int i = 0, n = entries.size(); i < n; i++) {
-				entries.get(i).accept(this, context);
-				lineBreak(i < n - 1, context);
-			}
-			exitBlock(elem, context);
-			return null;
+		void begin(Appendable target, String indentString) {
+			assert target != null;
+			this.output = target;
+			this.indent = indentString;
+			this.depth = 0;
+			this.lineHead = true;
+			this.count = 0;
 		}
 		
 		/**
-		 * {@link Sequence}を出力する。
+		 * 値を出力する。
+		 * <p> 終端値 </p>
+		 * <pre>
+		 * '[representation]'
+		 * </pre>
 		 * <p> 順序を考慮するリスト </p>
 		 * <pre>
 		 * [
@@ -171,74 +233,176 @@ public class Emitter {
 		 * ...
 		 * }
 		 * </pre>
+		 * <p> プリミティブ型の配列で要素を保持するリスト </p>
+		 * <pre>
+		 * #[type][[value], ...]
+		 * </pre>
+		 * <p> レコード </p>
+		 * <pre>
+		 * &lt;
+		 * [indent] [key] : [value]
+		 * ...
+		 * &gt;
+		 * </pre>
 		 */
-		@Override
-		protected Void visitSequence(Sequence elem, PrintWriter context) {
-			List<Value> values = elem.getValues();
-			enterBlock(elem, context);
-			for (int i = 0, n = values.size(); i < n; i++) {
-				values.get(i).accept(this, context);
-				lineBreak(i < n - 1, context);
+		void printValue(Value value) throws IOException {
+			switch (value.getKind()) {
+				case TERMINAL:
+					printTerminal(((Terminal) value).getRepresentation());
+					break;
+				case ORDERED_LIST:
+				case UNORDERED_LIST: {
+					Sequence sequence = (Sequence) value;
+					if (sequence.getPackedType() != null) {
+						printIndent();
+						append(PackedLiteral.format(sequence, indent == null));
+						break;
+					}
+					boolean ordered = value.getKind() == Value.Kind.ORDERED_LIST;
+					List<Value> values = sequence.getValues();
+					enterBlock(ordered ? '[' : '{');
+					for (int i = 0, n = values.size(); i < n; i++) {
+						if (i > 0) {
+							separator();
+						}
+						printValue(values.get(i));
+					}
+					exitBlock(ordered ? ']' : '}');
+					break;
+				}
+				case RECORD: {
+					List<Entry> entries = ((Record) value).getEntries();
+					enterBlock('<');
+					for (int i = 0, n = entries.size(); i < n; i++) {
+						if (i > 0) {
+							separator();
+						}
+						Entry entry = entries.get(i);
+						printValue(entry.getKey());
+						append(':');
+						printValue(entry.getValue());
+					}
+					exitBlock('>');
+					break;
+				}
+				default:
+					throw new AssertionError(value.getKind());
 			}
-			exitBlock(elem, context);
-			return null;
 		}
 		
 		/**
-		 * {@link Terminal}を出力する。
-		 * <pre>
-		 * "[representation]"
-		 * </pre>
+		 * 指定の文字列表現を持つ終端値を出力する。
+		 * @param representation 終端値の文字列表現
+		 * @throws IOException 出力に失敗した場合
 		 */
-		@Override
-		protected Void visitTerminal(Terminal elem, PrintWriter context) {
-			printString(elem.getRepresentation(), context);
-			return null;
+		void printTerminal(String representation) throws IOException {
+			printIndent();
+			append('\'');
+			JavaEscape.escape(representation, true, false, this);
+			append('\'');
 		}
 		
-		private void enterBlock(Value elem, PrintWriter context) {
-			String separator = BLOCK_ENTER.get(elem.getKind());
-			assert separator != null;
-			print(separator, context);
-			lineBreak(false, context);
+		/**
+		 * リストやレコードの開き括弧を出力し、インデントを一段深くする。
+		 * @param open 開き括弧
+		 * @throws IOException 出力に失敗した場合
+		 */
+		void enterBlock(char open) throws IOException {
+			printIndent();
+			append(open);
+			lineBreak();
 			depth++;
 		}
 		
-		private void exitBlock(Value elem, PrintWriter context) {
-			String separator = BLOCK_EXIT.get(elem.getKind());
-			assert separator != null;
+		/**
+		 * インデントを一段浅くして、リストやレコードの閉じ括弧を出力する。
+		 * @param close 閉じ括弧
+		 * @throws IOException 出力に失敗した場合
+		 */
+		void exitBlock(char close) throws IOException {
 			--depth;
-			lineBreak(false, context);
-			print(separator, context);
-		}
-		
-		private void printEntrySeparator(Entry elem, PrintWriter context) {
-			print(":", context); //$NON-NLS-1$
+			lineBreak();
+			printIndent();
+			append(close);
 		}
 		
-		private void printString(String str, PrintWriter context) {
-			print('\'' + JavaEscape.escape(str, true, false) + '\'', context);
+		/**
+		 * リストやレコードの要素の区切りを出力する。
+		 * @throws IOException 出力に失敗した場合
+		 */
+		void separator() throws IOException {
+			append(',');
+			lineBreak();
 		}
 		
-		private void lineBreak(boolean withSeparator, PrintWriter context) {
-			if (withSeparator) {
-				print(",", context);
+		private void lineBreak() throws IOException {
+			if (indent == null) {
+				return;
 			}
 			if (lineHead == false) {
-				context.println();
+				append(LINE_SEPARATOR);
 			}
 			lineHead = true;
 		}
 		
-		private void print(String str, PrintWriter context) {
+		private void printIndent() throws IOException {
 			// インデント処理
-			if (lineHead) {
+			if (lineHead && indent != null) {
 				for (int i = 0, n = depth; i < n; i++) {
-					context.print(indent);
+					append(indent);
 				}
 				lineHead = false;
 			}
-			context.print(str);
+		}
+		
+		public Printer append(char c) throws IOException {
+			if (count == buffer.length) {
+				flushBuffer();
+			}
+			buffer[count++] = c;
+			return this;
+		}
+		
+		public Printer append(CharSequence csq) throws IOException {
+			return append(csq, 0, csq.length());
+		}
+		
+		public Printer append(CharSequence csq, int start, int end) throws IOException {
+			int offset = start;
+			while (offset < end) {
+				if (count == buffer.length) {
+					flushBuffer();
+				}
+				int length = Math.min(end - offset, buffer.length - count);
+				if (csq instanceof String) {
+					((String) csq).getChars(offset, offset + length, buffer, count);
+					count += length;
+				} else {
+					for (int i = offset, n = offset + length; i < n; i++) {
+						buffer[count++] = csq.charAt(i);
+					}
+				}
+				offset += length;
+			}
+			return this;
+		}
+		
+		/**
+		 * 内部の配列に蓄えた内容を出力先へ出力する。
+		 * @throws IOException 出力に失敗した場合
+		 */
+		void flushBuffer() throws IOException {
+			if (count == 0) {
+				return;
+			}
+			if (output instanceof Writer) {
+				((Writer) output).write(buffer, 0, count);
+			} else if (output instanceof StringBuilder) {
+				((StringBuilder) output).append(buffer, 0, count);
+			} else {
+				output.append(CharBuffer.wrap(buffer, 0, count));
+			}
+			count = 0;
 		}
 	}
 }
@@ -0,0 +1,889 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.jiemamy.utils.gtree.model.Record;
+import org.jiemamy.utils.gtree.model.Sequence;
+import org.jiemamy.utils.gtree.model.SymbolTable;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+
+/**
+ * {@code Generic Tree Notation}のテキストを先頭から順に読み進め、その構造をイベントとして報告する。
+ * <p>
+ * {@link Parser}と異なり、テキスト全体を{@link Value}として構築しない。
+ * 保持するのは読み込み用の配列と入れ子の深さに比例する情報のみであるため、
+ * 巨大なテキストも一定のメモリで走査できる。
+ * 必要な部分木のみを{@link #readValue()}で構築したり、{@link #skipChildren()}で読み飛ばしたりできる。
+ * </p>
+ * <pre>
+ * GtreeReader reader = new GtreeReader(source);
+ * while (reader.hasNext()) {
+ *     switch (reader.next()) {
+ *         case KEY:
+ *             if (reader.getText().equals("columns")) {
+ *                 reader.next();
+ *                 Value columns = reader.readValue();
+ *                 ...
+ *             }
+ *             break;
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * <p>
+ * レコードの各エントリは、キーを表す{@link Event#KEY}と、それに続く値のイベントとして報告される。
+ * キーが終端値でない場合も、キー全体を構築したうえで1つの{@link Event#KEY}として報告する。
+ * </p>
+ * <p>
+ * このクラスのインスタンスは、同時に複数のスレッドから利用してはならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ * @see Parser
+ */
+public final class GtreeReader implements Closeable {
+	
+	/**
+	 * 読み込み用の配列の初期容量。
+	 */
+	private static final int INITIAL_CAPACITY = 8192;
+	
+	/**
+	 * 入れ子のスタックの初期容量。
+	 */
+	private static final int INITIAL_DEPTH = 16;
+	
+	/**
+	 * 値の開始を待っている状態。
+	 */
+	private static final int STATE_VALUE = 0;
+	
+	/**
+	 * リストやレコードの最初の要素、または閉じ括弧を待っている状態。
+	 */
+	private static final int STATE_FIRST = 1;
+	
+	/**
+	 * 値の直後の区切り文字、または閉じ括弧を待っている状態。
+	 */
+	private static final int STATE_SEPARATOR = 2;
+	
+	/**
+	 * テキストの終端に達した状態。
+	 */
+	private static final int STATE_DONE = 3;
+	
+	private final Reader source;
+	
+	private final Variables variables;
+	
+	/**
+	 * 読み込んだテキストの一部。
+	 */
+	private char[] buffer = new char[INITIAL_CAPACITY];
+	
+	/**
+	 * 次に読み出す位置。
+	 */
+	private int position;
+	
+	/**
+	 * 読み込んだテキストの終端。
+	 */
+	private int limit;
+	
+	/**
+	 * ソースの終端に達した場合に{@code true}。
+	 */
+	private boolean eof;
+	
+	/**
+	 * 読み込み用の配列の先頭より前のテキストを読み進めた位置。
+	 */
+	private final LineCounter base = new LineCounter();
+	
+	/**
+	 * 開いているリストやレコードの閉じ括弧。
+	 */
+	private char[] closers = new char[INITIAL_DEPTH];
+	
+	/**
+	 * 開いているレコードで、次に読み出す値がキーである場合に{@code true}。
+	 */
+	private boolean[] keyPending = new boolean[INITIAL_DEPTH];
+	
+	private int depth;
+	
+	private int state = STATE_VALUE;
+	
+	private Event event;
+	
+	private String text;
+	
+	private Value value;
+	
+	/**
+	 * 変数が束縛されていない場合に、その値を参照した際に送出する例外。
+	 */
+	private ParseException unbound;
+	
+	/**
+	 * 現在のイベントが、終端値でないレコードのキーの開始である場合に{@code true}。
+	 */
+	private boolean complexKey;
+	
+	/**
+	 * 読み飛ばしている最中は{@code true}。文字列リテラルの内容を構築しない。
+	 */
+	private boolean skipping;
+	
+	/**
+	 * エスケープを解除した文字列の作業領域。
+	 */
+	private final StringBuilder scratch = new StringBuilder();
+	
+
+	/**
+	 * インスタンスを生成する。
+	 * @param source {@code Generic Tree Notation}のテキストを保持するソース
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public GtreeReader(Reader source) {
+		this(source, Collections.<String, Value> emptyMap());
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * <p>
+	 * テキスト中の{@code $id}という形式の変数は{@link Event#VARIABLE}として報告され、
+	 * {@link #readValue()}を呼び出すと{@code variables}に登録された値を返す。
+	 * </p>
+	 * @param source {@code Generic Tree Notation}のテキストを保持するソース
+	 * @param variables 変数名と束縛された値の一覧
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public GtreeReader(Reader source, Map<String, ? extends Value> variables) {
+		if (source == null) {
+			throw new NullPointerException("source"); //$NON-NLS-1$
+		}
+		if (variables == null) {
+			throw new NullPointerException("variables"); //$NON-NLS-1$
+		}
+		this.source = source;
+		this.variables = new Variables(variables);
+	}
+	
+	/**
+	 * 後続のイベントが存在する場合に{@code true}を返す。
+	 * @return 後続のイベントが存在する場合に{@code true}、
+	 *     すでに{@link Event#END_DOCUMENT}を報告した場合は{@code false}
+	 */
+	public boolean hasNext() {
+		return event != Event.END_DOCUMENT;
+	}
+	
+	/**
+	 * 次のイベントに進む。
+	 * @return 次のイベント
+	 * @throws IOException テキストの読み出しや解析に失敗した場合
+	 * @throws NoSuchElementException すでに{@link Event#END_DOCUMENT}を報告した場合
+	 */
+	public Event next() throws IOException {
+		if (hasNext() == false) {
+			throw new NoSuchElementException();
+		}
+		try {
+			Event next = advance();
+			if (complexKey) {
+				Value key = materialize(next, new KeySymbols());
+				event = Event.KEY;
+				value = key;
+				text = key.getKind() == Value.Kind.TERMINAL ? ((Terminal) key).getRepresentation() : null;
+			}
+			return event;
+		} catch (ParseException e) {
+			throw failure(e);
+		}
+	}
+	
+	/**
+	 * 現在のイベントを返す。
+	 * @return 現在のイベント、まだ{@link #next()}を呼び出していない場合は{@code null}
+	 */
+	public Event getEvent() {
+		return event;
+	}
+	
+	/**
+	 * 現在のイベントに対応する文字列を返す。
+	 * <p>
+	 * {@link Event#TERMINAL}ではエスケープを解除した終端値の文字列表現を、
+	 * {@link Event#KEY}ではキーが終端値である場合にその文字列表現を、
+	 * {@link Event#VARIABLE}では{@code $}を除いた変数名をそれぞれ返す。
+	 * </p>
+	 * @return 対応する文字列、存在しない場合は{@code null}
+	 */
+	public String getText() {
+		return text;
+	}
+	
+	/**
+	 * 現在の{@link Event#KEY}が表すレコードのキーを返す。
+	 * <p>
+	 * キーが終端値である場合、シンボルに集約されていない{@link Terminal}を返す。
+	 * </p>
+	 * @return レコードのキー、現在のイベントが{@link Event#KEY}でない場合は{@code null}
+	 */
+	public Value getKey() {
+		return event == Event.KEY ? value : null;
+	}
+	
+	/**
+	 * 現在開いているリストやレコードの個数を返す。
+	 * <p>
+	 * リストやレコードの開始を表すイベントでは、そのリストやレコード自身を含む。
+	 * 終了を表すイベントでは、終了したリストやレコード自身を含まない。
+	 * </p>
+	 * @return 開いているリストやレコードの個数
+	 */
+	public int getDepth() {
+		return depth;
+	}
+	
+	/**
+	 * 現在のイベントが表す値を構築して返す。
+	 * <p>
+	 * 現在のイベントがリストやレコードの開始である場合、対応する終了までを読み進めて部分木全体を構築する。
+	 * このとき、現在のイベントは対応する終了を表すイベントとなる。
+	 * 構築した値に含まれるレコードのキーは{@link Parser}と同様にシンボルとして集約されるが、
+	 * 集約に利用する表はこの呼び出しの間のみ保持され、{@link SymbolTable#getGlobal()}に新たな名前は登録されない。
+	 * </p>
+	 * @return 現在のイベントが表す値
+	 * @throws IOException テキストの読み出しや解析に失敗した場合、
+	 *     または束縛されていない変数を参照した場合
+	 * @throws IllegalStateException 現在のイベントが値の開始を表さない場合
+	 */
+	public Value readValue() throws IOException {
+		if (event == null) {
+			throw new IllegalStateException();
+		}
+		try {
+			return materialize(event, new KeySymbols());
+		} catch (ParseException e) {
+			throw failure(e);
+		}
+	}
+	
+	/**
+	 * 現在のイベントがリストやレコードの開始である場合、対応する終了までを読み飛ばす。
+	 * <p>
+	 * 読み飛ばした後の現在のイベントは、対応する終了を表すイベントとなる。
+	 * 現在のイベントがリストやレコードの開始でない場合は何もしない。
+	 * </p>
+	 * @throws IOException テキストの読み出しや解析に失敗した場合
+	 */
+	public void skipChildren() throws IOException {
+		if (event == null || event.isStart() == false) {
+			return;
+		}
+		int target = depth - 1;
+		skipping = true;
+		try {
+			while (depth > target) {
+				advance();
+			}
+		} catch (ParseException e) {
+			throw failure(e);
+		} finally {
+			skipping = false;
+		}
+	}
+	
+	/**
+	 * ソースを閉じる。
+	 * @throws IOException ソースを閉じるのに失敗した場合
+	 */
+	public void close() throws IOException {
+		source.close();
+	}
+	
+	private static IOException failure(ParseException cause) {
+		return (IOException) new IOException("Parse failure").initCause(cause); //$NON-NLS-1$
+	}
+	
+	/**
+	 * 終端値でないキーも含め、テキストの構造をそのまま次のイベントとして読み出す。
+	 * @return 次のイベント
+	 * @throws IOException テキストの読み出しに失敗した場合
+	 * @throws ParseException 解析に失敗した場合
+	 */
+	private Event advance() throws IOException, ParseException {
+		complexKey = false;
+		text = null;
+		value = null;
+		unbound = null;
+		switch (state) {
+			case STATE_VALUE:
+				return open();
+			case STATE_FIRST:
+				if (skip() == false) {
+					throw unexpected(0);
+				}
+				if (buffer[position] == closers[depth - 1]) {
+					return closeList();
+				}
+				return open();
+			case STATE_SEPARATOR:
+				return separator();
+			default:
+				throw new NoSuchElementException();
+		}
+	}
+	
+	private Event separator() throws IOException, ParseException {
+		if (depth == 0) {
+			if (skip()) {
+				throw unexpected(0);
+			}
+			state = STATE_DONE;
+			return emit(Event.END_DOCUMENT);
+		}
+		if (skip() == false) {
+			throw unexpected(0);
+		}
+		int top = depth - 1;
+		char c = buffer[position];
+		if (keyPending[top]) {
+			if (c != ':') {
+				throw unexpected(0);
+			}
+			position++;
+			keyPending[top] = false;
+			return open();
+		}
+		if (c == ',') {
+			position++;
+			keyPending[top] = closers[top] == '>';
+			return open();
+		}
+		if (c == closers[top]) {
+			return closeList();
+		}
+		throw unexpected(0);
+	}
+	
+	private Event open() throws IOException, ParseException {
+		if (skip() == false) {
+			throw unexpected(0);
+		}
+		boolean key = depth > 0 && keyPending[depth - 1];
+		char c = buffer[position];
+		switch (c) {
+			case '"':
+			case '\'':
+				text = string(c);
+				state = STATE_SEPARATOR;
+				if (key) {
+					if (text != null) {
+						value = Terminal.of(text);
+					}
+					return emit(Event.KEY);
+				}
+				return emit(Event.TERMINAL);
+			case '$':
+				variable();
+				state = STATE_SEPARATOR;
+				complexKey = key;
+				return emit(Event.VARIABLE);
+			case '#':
+				value = packed();
+				state = STATE_SEPARATOR;
+				complexKey = key;
+				return emit(Event.PACKED);
+			case '[':
+			case '{':
+			case '<':
+				position++;
+				push(c);
+				state = STATE_FIRST;
+				complexKey = key;
+				return emit(Event.startOf(c));
+			default:
+				throw unexpected(0);
+		}
+	}
+	
+	private Event closeList() {
+		char closer = buffer[position];
+		position++;
+		depth--;
+		state = STATE_SEPARATOR;
+		return emit(Event.endOf(closer));
+	}
+	
+	private Event emit(Event next) {
+		event = next;
+		return next;
+	}
+	
+	private void push(char open) {
+		if (depth == closers.length) {
+			char[] newClosers = new char[depth * 2];
+			boolean[] newKeyPending = new boolean[depth * 2];
+			System.arraycopy(closers, 0, newClosers, 0, depth);
+			System.arraycopy(keyPending, 0, newKeyPending, 0, depth);
+			closers = newClosers;
+			keyPending = newKeyPending;
+		}
+		closers[depth] = Event.startOf(open).getCloser();
+		keyPending[depth] = open == '<';
+		depth++;
+	}
+	
+	/**
+	 * 現在のイベントから始まる値を構築する。
+	 * @param first 現在のイベント
+	 * @param keys レコードのキーを集約する表
+	 * @return 構築した値
+	 * @throws IOException テキストの読み出しに失敗した場合
+	 * @throws ParseException 解析に失敗した場合
+	 */
+	private Value materialize(Event first, KeySymbols keys) throws IOException, ParseException {
+		if (first.isStart() == false) {
+			return scalar(first);
+		}
+		List<Builder> builders = new ArrayList<Builder>();
+		builders.add(new Builder(first));
+		while (true) {
+			Event next = advance();
+			Value built;
+			if (next.isStart()) {
+				builders.add(new Builder(next));
+				continue;
+			} else if (next.isEnd()) {
+				built = builders.remove(builders.size() - 1).build();
+			} else if (next == Event.KEY) {
+				builders.get(builders.size() - 1).key = keys.intern(value);
+				continue;
+			} else {
+				built = scalar(next);
+			}
+			if (builders.isEmpty()) {
+				return built;
+			}
+			Builder top = builders.get(builders.size() - 1);
+			if (top.record != null && top.key == null) {
+				top.key = keys.intern(built);
+			} else {
+				top.add(built);
+			}
+		}
+	}
+	
+	private Value scalar(Event current) throws ParseException {
+		switch (current) {
+			case TERMINAL:
+				return Terminal.of(text);
+			case KEY:
+			case PACKED:
+				return value;
+			case VARIABLE:
+				if (unbound != null) {
+					throw unbound;
+				}
+				return value;
+			default:
+				throw new IllegalStateException(String.valueOf(current));
+		}
+	}
+	
+	/**
+	 * 空白とコメントを読み飛ばす。
+	 * @return 後続の文字が存在する場合は{@code true}、テキストの終端に達した場合は{@code false}
+	 * @throws IOException テキストの読み出しに失敗した場合
+	 * @throws ParseException コメントが閉じられていない場合
+	 */
+	private boolean skip() throws IOException, ParseException {
+		while (request(1)) {
+			char c = buffer[position];
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				position++;
+			} else if (c == '/' && request(2) && buffer[position + 1] == '/') {
+				position += 2;
+				while (request(1) && buffer[position] != '\r' && buffer[position] != '\n') {
+					position++;
+				}
+			} else if (c == '/' && request(2) && buffer[position + 1] == '*') {
+				position += 2;
+				while (true) {
+					if (request(2) == false) {
+						throw error("Unterminated comment", limit - position); //$NON-NLS-1$
+					}
+					if (buffer[position] == '*' && buffer[position + 1] == '/') {
+						position += 2;
+						break;
+					}
+					position++;
+				}
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 文字列リテラルを読み出す。
+	 * @param quote 文字列リテラルを囲む文字
+	 * @return エスケープを解除した内容、読み飛ばしている場合は{@code null}
+	 * @throws IOException テキストの読み出しに失敗した場合
+	 * @throws ParseException 文字列リテラルが不正である場合
+	 */
+	private String string(char quote) throws IOException, ParseException {
+		int i = 1;
+		boolean escaped = false;
+		while (true) {
+			if (request(i + 1) == false) {
+				throw error("Unterminated string", 0); //$NON-NLS-1$
+			}
+			char c = buffer[position + i];
+			if (c == quote) {
+				break;
+			}
+			if (c == '\\') {
+				escaped = true;
+				i += 2;
+			} else if (c == '\r' || c == '\n') {
+				throw error("Unterminated string", 0); //$NON-NLS-1$
+			} else {
+				i++;
+			}
+		}
+		String result = null;
+		if (skipping == false) {
+			if (escaped) {
+				scratch.setLength(0);
+				int invalid = JavaEscape.unescapeLiteral(buffer, position + 1, position + i, scratch);
+				if (invalid >= 0) {
+					throw error("Invalid escape sequence", invalid - position); //$NON-NLS-1$
+				}
+				result = scratch.toString();
+			} else {
+				result = new String(buffer, position + 1, i - 1);
+			}
+		}
+		position += i + 1;
+		return result;
+	}
+	
+	private void variable() throws IOException, ParseException {
+		int i = 1;
+		while (request(i + 1) && isIdentifierPart(buffer[position + i])) {
+			i++;
+		}
+		if (i == 1) {
+			throw unexpected(0);
+		}
+		String image = new String(buffer, position, i);
+		text = image.substring(1);
+		if (skipping == false) {
+			value = variables.find(image);
+			if (value == null) {
+				LineCounter begin = locate(0);
+				unbound = Variables.undefined(image, begin.getLine(), locate(i - 1).getColumn());
+			}
+		}
+		position += i;
+	}
+	
+	private static boolean isIdentifierPart(char c) {
+		return ('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z') || ('0' <= c && c <= '9') || c == '_';
+	}
+	
+	private Sequence packed() throws IOException, ParseException {
+		int i = 1;
+		while (true) {
+			if (request(i + 1) == false) {
+				throw unexpected(0);
+			}
+			if (buffer[position + i] == ']') {
+				break;
+			}
+			i++;
+		}
+		Sequence result = null;
+		if (skipping == false) {
+			String image = new String(buffer, position, i + 1);
+			try {
+				result = PackedLiteral.parse(image);
+			} catch (IllegalArgumentException e) {
+				LineCounter location = locate(0);
+				throw new ParseException(MessageFormat.format("Invalid packed list \"{0}\" (line {1}, column {2})", //$NON-NLS-1$
+						image, location.getLine(), location.getColumn()));
+			}
+		}
+		position += i + 1;
+		return result;
+	}
+	
+	/**
+	 * 現在の位置から{@code count}文字を参照できるようにする。
+	 * <p>
+	 * 必要に応じて、読み出し済みの文字を読み込み用の配列から取り除き、ソースから続きを読み込む。
+	 * このため、呼び出し後は{@link #position}を基準に文字を参照しなければならない。
+	 * </p>
+	 * @param count 必要な文字数
+	 * @return 参照できる場合は{@code true}、テキストの終端に達した場合は{@code false}
+	 * @throws IOException テキストの読み出しに失敗した場合
+	 */
+	private boolean request(int count) throws IOException {
+		if (position + count <= limit) {
+			return true;
+		}
+		if (eof) {
+			return false;
+		}
+		if (position > 0) {
+			base.advance(buffer, 0, position);
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+		while (limit < count) {
+			if (limit == buffer.length) {
+				char[] grown = new char[buffer.length * 2];
+				System.arraycopy(buffer, 0, grown, 0, limit);
+				buffer = grown;
+			}
+			int read = source.read(buffer, limit, buffer.length - limit);
+			if (read < 0) {
+				eof = true;
+				return false;
+			}
+			limit += read;
+		}
+		return true;
+	}
+	
+	private ParseException unexpected(int offset) throws IOException {
+		if (request(offset + 1) == false) {
+			return error("Unexpected end of input", limit - position); //$NON-NLS-1$
+		}
+		return error(MessageFormat.format("Unexpected \"{0}\"", //$NON-NLS-1$
+				String.valueOf(buffer[position + offset])), offset);
+	}
+	
+	private ParseException error(String message, int offset) {
+		LineCounter location = locate(offset);
+		return new ParseException(MessageFormat.format("{0} (line {1}, column {2})", //$NON-NLS-1$
+				message, location.getLine(), location.getColumn()));
+	}
+	
+	/**
+	 * 現在の位置からの相対位置にある文字の行と桁を返す。
+	 * @param offset 現在の位置からの相対位置
+	 * @return 対応する行と桁
+	 */
+	private LineCounter locate(int offset) {
+		return new LineCounter(base).advance(buffer, 0, Math.min(position + offset + 1, limit));
+	}
+	
+
+	/**
+	 * {@link GtreeReader}が報告するイベント。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	public enum Event {
+		
+		/**
+		 * 順序つきのリストの開始。
+		 */
+		START_ORDERED('[', ']'),
+		
+		/**
+		 * 順序つきのリストの終了。
+		 */
+		END_ORDERED(']', ']'),
+		
+		/**
+		 * 順序を考慮しないリストの開始。
+		 */
+		START_UNORDERED('{', '}'),
+		
+		/**
+		 * 順序を考慮しないリストの終了。
+		 */
+		END_UNORDERED('}', '}'),
+		
+		/**
+		 * レコードの開始。
+		 */
+		START_RECORD('<', '>'),
+		
+		/**
+		 * レコードの終了。
+		 */
+		END_RECORD('>', '>'),
+		
+		/**
+		 * レコードのエントリのキー。
+		 */
+		KEY,
+		
+		/**
+		 * 終端値。
+		 */
+		TERMINAL,
+		
+		/**
+		 * 変数。
+		 */
+		VARIABLE,
+		
+		/**
+		 * プリミティブ型の配列で要素を保持するリスト。
+		 */
+		PACKED,
+		
+		/**
+		 * テキストの終端。
+		 */
+		END_DOCUMENT;
+		
+		private final char symbol;
+		
+		private final char closer;
+		
+
+		private Event() {
+			this('\0', '\0');
+		}
+		
+		private Event(char symbol, char closer) {
+			this.symbol = symbol;
+			this.closer = closer;
+		}
+		
+		/**
+		 * リストやレコードの開始を表す場合に{@code true}を返す。
+		 * @return 開始を表す場合に{@code true}
+		 */
+		public boolean isStart() {
+			return closer != '\0' && symbol != closer;
+		}
+		
+		/**
+		 * リストやレコードの終了を表す場合に{@code true}を返す。
+		 * @return 終了を表す場合に{@code true}
+		 */
+		public boolean isEnd() {
+			return closer != '\0' && symbol == closer;
+		}
+		
+		char getCloser() {
+			return closer;
+		}
+		
+		static Event startOf(char open) {
+			switch (open) {
+				case '[':
+					return START_ORDERED;
+				case '{':
+					return START_UNORDERED;
+				default:
+					assert open == '<';
+					return START_RECORD;
+			}
+		}
+		
+		static Event endOf(char close) {
+			switch (close) {
+				case ']':
+					return END_ORDERED;
+				case '}':
+					return END_UNORDERED;
+				default:
+					assert close == '>';
+					return END_RECORD;
+			}
+		}
+	}
+	
+	/**
+	 * {@link GtreeReader#readValue()}で構築中のリストやレコード。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Builder {
+		
+		final Sequence.Builder sequence;
+		
+		final Record.Builder record;
+		
+		/**
+		 * 値を待っているレコードのキー、キーを待っている場合は{@code null}。
+		 */
+		Value key;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param start リストやレコードの開始を表すイベント
+		 */
+		Builder(Event start) {
+			assert start.isStart();
+			switch (start) {
+				case START_ORDERED:
+					sequence = new Sequence.Builder(Value.Kind.ORDERED_LIST);
+					record = null;
+					break;
+				case START_UNORDERED:
+					sequence = new Sequence.Builder(Value.Kind.UNORDERED_LIST);
+					record = null;
+					break;
+				default:
+					sequence = null;
+					record = new Record.Builder();
+					break;
+			}
+		}
+		
+		void add(Value element) {
+			if (record != null) {
+				record.add(key, element);
+				key = null;
+			} else {
+				sequence.add(element);
+			}
+		}
+		
+		Value build() {
+			return record != null ? record.build() : sequence.build();
+		}
+	}
+}
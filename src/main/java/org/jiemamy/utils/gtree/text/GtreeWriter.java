@@ -0,0 +1,460 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jiemamy.utils.gtree.model.Record;
+import org.jiemamy.utils.gtree.model.Sequence;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+
+/**
+ * {@link Value}を構築せずに、{@code Generic Tree Notation}のテキストを直接出力する。
+ * <p>
+ * リストやレコードの開始と終了、レコードのキー、終端値を順に指定すると、
+ * {@link Emitter}と同じ書式のテキストを出力先へ逐次書き出す。
+ * 入れ子の対応やキーと値の順序が正しくない呼び出しは{@link IllegalStateException}で拒否する。
+ * </p>
+ * <pre>
+ * GtreeWriter writer = new GtreeWriter(output);
+ * writer.beginRecord();
+ * writer.key("name").terminal("a");
+ * writer.key("columns").beginOrdered();
+ * for (Column column : columns) {
+ *     writer.terminal(column.getName());
+ * }
+ * writer.end();
+ * writer.end();
+ * writer.finish();
+ * </pre>
+ * <p>
+ * {@link Value}としての順序つきでないリストとレコードは、要素を自然な順序で整列して保持する。
+ * 既定では要素を指定された順に書き出すため、出力されたテキストを解析すると元の指定と等価な値が得られるが、
+ * テキスト自体は{@link Emitter}の出力と一致しない場合がある。
+ * {@link #GtreeWriter(Writer, boolean)}で整列を指定した場合、順序つきでないリストとレコードは
+ * 終了するまでその内容を保持し、整列してから書き出す。
+ * このとき必要なメモリは、整列が必要な最も大きなリストやレコードの大きさに比例する。
+ * </p>
+ * <p>
+ * 書き出した内容は内部でバッファリングされ、{@link #flush()}, {@link #finish()}, {@link #close()}のいずれかを
+ * 呼び出すまで出力先へ出力されない場合がある。
+ * このクラスのインスタンスは、同時に複数のスレッドから利用してはならない。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ * @see GtreeReader
+ */
+public final class GtreeWriter implements Closeable, Flushable {
+	
+	/**
+	 * 入れ子のスタックの初期容量。
+	 */
+	private static final int INITIAL_DEPTH = 16;
+	
+	private final Writer output;
+	
+	/**
+	 * {@link Emitter}と同じ書式でテキストを書き出す出力器。
+	 */
+	private final Emitter.Printer printer;
+	
+	private final boolean sorted;
+	
+	/**
+	 * 開いているリストやレコードの閉じ括弧。
+	 */
+	private char[] closers = new char[INITIAL_DEPTH];
+	
+	/**
+	 * 開いているリストやレコードに、すでに要素を書き出している場合に{@code true}。
+	 */
+	private boolean[] started = new boolean[INITIAL_DEPTH];
+	
+	/**
+	 * 開いているレコードで、キーを指定して値を待っている場合に{@code true}。
+	 */
+	private boolean[] keyed = new boolean[INITIAL_DEPTH];
+	
+	private int depth;
+	
+	/**
+	 * 最上位の値の出力を開始した場合に{@code true}。
+	 */
+	private boolean written;
+	
+	/**
+	 * 整列のために内容を保持しているリストやレコード、保持していない場合は{@code null}。
+	 */
+	private List<Collector> collectors;
+	
+
+	/**
+	 * 要素を指定された順に書き出すインスタンスを生成する。
+	 * @param output 出力先
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public GtreeWriter(Writer output) {
+		this(output, false);
+	}
+	
+	/**
+	 * インスタンスを生成する。
+	 * @param output 出力先
+	 * @param sorted 順序つきでないリストとレコードの要素を整列して書き出す場合に{@code true}
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 */
+	public GtreeWriter(Writer output, boolean sorted) {
+		if (output == null) {
+			throw new NullPointerException("output"); //$NON-NLS-1$
+		}
+		this.output = output;
+		this.sorted = sorted;
+		this.printer = new Emitter.Printer();
+		printer.begin(output, Emitter.INDENT);
+	}
+	
+	/**
+	 * 順序つきのリストを開始する。
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws IllegalStateException 現在の位置に値を書き出せない場合
+	 */
+	public GtreeWriter beginOrdered() throws IOException {
+		return begin('[', ']');
+	}
+	
+	/**
+	 * 順序を考慮しないリストを開始する。
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws IllegalStateException 現在の位置に値を書き出せない場合
+	 */
+	public GtreeWriter beginUnordered() throws IOException {
+		return begin('{', '}');
+	}
+	
+	/**
+	 * レコードを開始する。
+	 * <p>
+	 * レコードの各エントリは、{@link #key(String)}などでキーを指定した後に値を指定する。
+	 * </p>
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws IllegalStateException 現在の位置に値を書き出せない場合
+	 */
+	public GtreeWriter beginRecord() throws IOException {
+		return begin('<', '>');
+	}
+	
+	/**
+	 * 現在開いているリストやレコードを終了する。
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws IllegalStateException リストやレコードが開かれていない場合、
+	 *     またはレコードのキーに対応する値が指定されていない場合
+	 */
+	public GtreeWriter end() throws IOException {
+		if (depth == 0) {
+			throw new IllegalStateException("No open list or record"); //$NON-NLS-1$
+		}
+		if (keyed[depth - 1]) {
+			throw new IllegalStateException("Missing value for the last key"); //$NON-NLS-1$
+		}
+		depth--;
+		if (collectors == null) {
+			printer.exitBlock(closers[depth]);
+			return this;
+		}
+		Value built = collectors.remove(collectors.size() - 1).build();
+		if (collectors.isEmpty()) {
+			collectors = null;
+			printer.printValue(built);
+		} else {
+			deliver(built);
+		}
+		return this;
+	}
+	
+	/**
+	 * 現在開いているレコードのエントリのキーを指定する。
+	 * @param key キーとなる終端値の文字列表現
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalStateException 現在の位置にキーを書き出せない場合
+	 */
+	public GtreeWriter key(String key) throws IOException {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		enterKey();
+		if (collectors == null) {
+			printer.printTerminal(key);
+		} else {
+			top().key = Terminal.of(key);
+		}
+		exitKey();
+		return this;
+	}
+	
+	/**
+	 * 現在開いているレコードのエントリのキーを指定する。
+	 * @param key キーとなる値
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalStateException 現在の位置にキーを書き出せない場合
+	 */
+	public GtreeWriter key(Value key) throws IOException {
+		if (key == null) {
+			throw new NullPointerException("key"); //$NON-NLS-1$
+		}
+		enterKey();
+		if (collectors == null) {
+			printer.printValue(key);
+		} else {
+			top().key = key;
+		}
+		exitKey();
+		return this;
+	}
+	
+	/**
+	 * 終端値を書き出す。
+	 * @param representation 終端値の文字列表現
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalStateException 現在の位置に値を書き出せない場合
+	 */
+	public GtreeWriter terminal(String representation) throws IOException {
+		if (representation == null) {
+			throw new NullPointerException("representation"); //$NON-NLS-1$
+		}
+		enterValue();
+		if (collectors == null) {
+			printer.printTerminal(representation);
+		} else {
+			deliver(Terminal.of(representation));
+		}
+		return this;
+	}
+	
+	/**
+	 * 構築済みの値を書き出す。
+	 * @param value 書き出す値
+	 * @return このオブジェクト
+	 * @throws IOException 出力に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @throws IllegalStateException 現在の位置に値を書き出せない場合
+	 */
+	public GtreeWriter value(Value value) throws IOException {
+		if (value == null) {
+			throw new NullPointerException("value"); //$NON-NLS-1$
+		}
+		enterValue();
+		if (collectors == null) {
+			printer.printValue(value);
+		} else {
+			deliver(value);
+		}
+		return this;
+	}
+	
+	/**
+	 * 最上位の値を書き終えたことを検査し、出力先をフラッシュする。
+	 * @throws IOException 出力に失敗した場合
+	 * @throws IllegalStateException 最上位の値を書き終えていない場合
+	 */
+	public void finish() throws IOException {
+		if (written == false || depth > 0) {
+			throw new IllegalStateException("Incomplete document"); //$NON-NLS-1$
+		}
+		flush();
+	}
+	
+	/**
+	 * 出力先をフラッシュする。
+	 * @throws IOException 出力に失敗した場合
+	 */
+	public void flush() throws IOException {
+		printer.flushBuffer();
+		output.flush();
+	}
+	
+	/**
+	 * 出力先を閉じる。
+	 * <p>
+	 * バッファリングされた内容を出力先へ出力してから閉じる。
+	 * 書き終えていないリストやレコードは閉じられない。
+	 * 完全なテキストを出力したことを検査する場合、事前に{@link #finish()}を呼び出すこと。
+	 * </p>
+	 * @throws IOException 出力先を閉じるのに失敗した場合
+	 */
+	public void close() throws IOException {
+		try {
+			printer.flushBuffer();
+		} finally {
+			output.close();
+		}
+	}
+	
+	private GtreeWriter begin(char open, char close) throws IOException {
+		enterValue();
+		if (collectors != null) {
+			collectors.add(new Collector(open));
+		} else if (sorted && open != '[') {
+			collectors = new ArrayList<Collector>();
+			collectors.add(new Collector(open));
+		} else {
+			printer.enterBlock(open);
+		}
+		push(close);
+		return this;
+	}
+	
+	private void push(char close) {
+		if (depth == closers.length) {
+			char[] newClosers = new char[depth * 2];
+			boolean[] newStarted = new boolean[depth * 2];
+			boolean[] newKeyed = new boolean[depth * 2];
+			System.arraycopy(closers, 0, newClosers, 0, depth);
+			System.arraycopy(started, 0, newStarted, 0, depth);
+			System.arraycopy(keyed, 0, newKeyed, 0, depth);
+			closers = newClosers;
+			started = newStarted;
+			keyed = newKeyed;
+		}
+		closers[depth] = close;
+		started[depth] = false;
+		keyed[depth] = false;
+		depth++;
+	}
+	
+	/**
+	 * 値を書き出す前に、現在の位置に値を書き出せることを検査して区切り文字を出力する。
+	 */
+	private void enterValue() throws IOException {
+		if (depth == 0) {
+			if (written) {
+				throw new IllegalStateException("Document is already written"); //$NON-NLS-1$
+			}
+			written = true;
+			return;
+		}
+		int top = depth - 1;
+		if (closers[top] == '>') {
+			if (keyed[top] == false) {
+				throw new IllegalStateException("Missing key for the record entry"); //$NON-NLS-1$
+			}
+			keyed[top] = false;
+		} else {
+			separate(top);
+		}
+	}
+	
+	/**
+	 * キーを書き出す前に、現在の位置にキーを書き出せることを検査して区切り文字を出力する。
+	 */
+	private void enterKey() throws IOException {
+		if (depth == 0 || closers[depth - 1] != '>') {
+			throw new IllegalStateException("No open record"); //$NON-NLS-1$
+		}
+		if (keyed[depth - 1]) {
+			throw new IllegalStateException("Missing value for the last key"); //$NON-NLS-1$
+		}
+		separate(depth - 1);
+	}
+	
+	private void exitKey() throws IOException {
+		if (collectors == null) {
+			printer.append(':');
+		}
+		keyed[depth - 1] = true;
+	}
+	
+	private void separate(int top) throws IOException {
+		if (started[top] && collectors == null) {
+			printer.separator();
+		}
+		started[top] = true;
+	}
+	
+	private Collector top() {
+		return collectors.get(collectors.size() - 1);
+	}
+	
+	private void deliver(Value value) {
+		Collector top = top();
+		if (top.record != null) {
+			top.record.add(top.key, value);
+			top.key = null;
+		} else {
+			top.sequence.add(value);
+		}
+	}
+	
+
+	/**
+	 * 整列のために内容を保持しているリストやレコード。
+	 * @version $Date$
+	 * @author Suguru ARAKAWA
+	 */
+	private static class Collector {
+		
+		final Sequence.Builder sequence;
+		
+		final Record.Builder record;
+		
+		/**
+		 * 値を待っているレコードのキー。
+		 */
+		Value key;
+		
+
+		/**
+		 * インスタンスを生成する。
+		 * @param open 開き括弧
+		 */
+		Collector(char open) {
+			switch (open) {
+				case '[':
+					sequence = new Sequence.Builder(Value.Kind.ORDERED_LIST);
+					record = null;
+					break;
+				case '{':
+					sequence = new Sequence.Builder(Value.Kind.UNORDERED_LIST);
+					record = null;
+					break;
+				default:
+					assert open == '<';
+					sequence = null;
+					record = new Record.Builder();
+					break;
+			}
+		}
+		
+		Value build() {
+			return record != null ? record.build() : sequence.build();
+		}
+	}
+}
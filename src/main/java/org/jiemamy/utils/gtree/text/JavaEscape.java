@@ -15,14 +15,25 @@
  */
 package org.jiemamy.utils.gtree.text;
 
+import java.io.IOException;
+
 /**
  * Javaの文字エスケープに関する処理。
+ * <p>
+ * いずれの処理も、エスケープの必要がない文字列に対しては引数をそのまま返す。
+ * エスケープの種類は表で判定し、文字列ごとに字句解析器などを生成することはない。
+ * </p>
  * @version $Date$
  * @author Suguru ARAKAWA (Gluegent, Inc.)
  */
 public class JavaEscape {
 	
-	private static final char[] ASCII_SPECIAL_ESCAPE = new char[128]; // CHECKSTYLE IGNORE THIS LINE
+	/**
+	 * ASCIIコードの範囲の文字数。
+	 */
+	private static final int ASCII_SIZE = 128;
+	
+	private static final char[] ASCII_SPECIAL_ESCAPE = new char[ASCII_SIZE];
 	static {
 		ASCII_SPECIAL_ESCAPE['\b'] = 'b';
 		ASCII_SPECIAL_ESCAPE['\t'] = 't';
@@ -34,49 +45,333 @@ public class JavaEscape {
 		ASCII_SPECIAL_ESCAPE['\\'] = '\\';
 	}
 	
+	/**
+	 * {@code \\}に続く文字と、そのエスケープが表す文字の対応表。
+	 */
+	private static final char[] ASCII_SPECIAL_UNESCAPE = new char[ASCII_SIZE];
+	static {
+		for (char c = 0; c < ASCII_SIZE; c++) {
+			char escape = ASCII_SPECIAL_ESCAPE[c];
+			if (escape != 0) {
+				ASCII_SPECIAL_UNESCAPE[escape] = c;
+			}
+		}
+	}
+	
+	/**
+	 * エスケープせずにそのまま出力できるASCIIコードの文字の表。
+	 * 引用符は出力時の指定によって異なるため含めない。
+	 */
+	private static final boolean[] ASCII_PLAIN = new boolean[ASCII_SIZE];
+	static {
+		for (char c = 0; c < ASCII_SIZE; c++) {
+			ASCII_PLAIN[c] = ASCII_SPECIAL_ESCAPE[c] == 0 && Character.isISOControl(c) == false;
+		}
+	}
+	
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+	
+	/**
+	 * Unicodeエスケープの16進数の桁数。
+	 */
+	private static final int UNICODE_DIGITS = 4;
+	
+	/**
+	 * 16進数の1桁のビット数。
+	 */
+	private static final int HEX_BITS = 4;
+	
+	/**
+	 * 8進数の1桁のビット数。
+	 */
+	private static final int OCTAL_BITS = 3;
+	
 
 	/**
 	 * 文字列の各文字を必要に応じてエスケープし、ASCIIコードの範囲で表示可能にする。
 	 * ASCIIコードの表示可能文字はそのままの値を保ち、
 	 * {@code \b, \t, \n, \f, \r}はそれぞれ左記のようにエスケープされる。
+	 * <p>
+	 * エスケープすべき文字を含まない場合は、引数をそのまま返す。
+	 * </p>
 	 * @param string エスケープする文字列
 	 * @param charValue {@code true}が指定された場合、&quot;はエスケープせずに'をエスケープする
 	 * @param unicodeEscape {@code true}が指定された場合、\u007f以降の文字は全てunicode escapeする
 	 * @return エスケープされた文字列
 	 */
 	public static String escape(String string, boolean charValue, boolean unicodeEscape) {
-		StringBuilder buf = new StringBuilder();
-		for (char c : string.toCharArray()) {
-			if (c <= 0x7f && (ASCII_SPECIAL_ESCAPE[c] != 0)) { // CHECKSTYLE IGNORE THIS LINE
+		int first = findEscape(string, charValue, unicodeEscape);
+		if (first < 0) {
+			return string;
+		}
+		StringBuilder buf = new StringBuilder(string.length() + (string.length() >> 2));
+		buf.append(string, 0, first);
+		escape0(string, first, charValue, unicodeEscape, buf);
+		return buf.toString();
+	}
+	
+	/**
+	 * 文字列の各文字を必要に応じてエスケープし、指定の出力先に直接書き出す。
+	 * <p>
+	 * エスケープの規則は{@link #escape(String, boolean, boolean)}と同様である。
+	 * </p>
+	 * @param string エスケープする文字列
+	 * @param charValue {@code true}が指定された場合、&quot;はエスケープせずに'をエスケープする
+	 * @param unicodeEscape {@code true}が指定された場合、\u007f以降の文字は全てunicode escapeする
+	 * @param output 出力先
+	 * @throws IOException 出力に失敗した場合
+	 */
+	public static void escape(CharSequence string, boolean charValue, boolean unicodeEscape, Appendable output)
+			throws IOException {
+		int first = findEscape(string, charValue, unicodeEscape);
+		if (first < 0) {
+			output.append(string);
+			return;
+		}
+		output.append(string, 0, first);
+		escape0(string, first, charValue, unicodeEscape, output);
+	}
+	
+	/**
+	 * エスケープが必要な最初の文字の位置を返す。
+	 * @return 最初の位置、存在しない場合は{@code -1}
+	 */
+	private static int findEscape(CharSequence string, boolean charValue, boolean unicodeEscape) {
+		if (unicodeEscape) {
+			return string.length() == 0 ? -1 : 0;
+		}
+		for (int i = 0, n = string.length(); i < n; i++) {
+			if (isPlain(string.charAt(i), charValue) == false) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static boolean isPlain(char c, boolean charValue) {
+		if (c < ASCII_SIZE) {
+			if (ASCII_PLAIN[c]) {
+				return true;
+			}
+			return charValue ? c == '"' : c == '\'';
+		}
+		return Character.isISOControl(c) == false && Character.isDefined(c);
+	}
+	
+	private static void escape0(CharSequence string, int offset, boolean charValue, boolean unicodeEscape,
+			Appendable output) throws IOException {
+		for (int i = offset, n = string.length(); i < n; i++) {
+			char c = string.charAt(i);
+			if (c < ASCII_SIZE && (ASCII_SPECIAL_ESCAPE[c] != 0)) {
 				if (c == '\'' && charValue == false) {
 					// "'" はエスケープしない
 				} else if (c == '"' && charValue) {
 					// '"' はエスケープしない
 				} else {
-					buf.append('\\');
+					output.append('\\');
 				}
-				buf.append(ASCII_SPECIAL_ESCAPE[c]);
-			} else if (unicodeEscape || Character.isISOControl(c) || !Character.isDefined(c)) {
-				addCodePoint(buf, c);
+				output.append(ASCII_SPECIAL_ESCAPE[c]);
+			} else if (unicodeEscape || isPlain(c, charValue) == false) {
+				addCodePoint(output, c);
 			} else {
-				buf.append(c);
+				output.append(c);
 			}
 		}
-		return buf.toString();
+	}
+	
+	private static void escape0(String string, int offset, boolean charValue, boolean unicodeEscape,
+			StringBuilder output) {
+		try {
+			escape0((CharSequence) string, offset, charValue, unicodeEscape, output);
+		} catch (IOException e) {
+			// StringBuilder は IOException を送出しない
+			throw new AssertionError(e);
+		}
 	}
 	
 	/**
 	 * エスケープを含む文字列のエスケープを解除した文字列を返す。
+	 * <p>
+	 * エスケープを含まない場合は、引数をそのまま返す。
+	 * </p>
 	 * @param string エスケープを解除する文字列
 	 * @return エスケープが解除された文字列
 	 * @throws IllegalArgumentException 解除できないエスケープが含まれていた場合
 	 */
 	public static String unescape(String string) {
-		return EscapeDecoder.scan(string);
+		int first = string.indexOf('\\');
+		if (first < 0) {
+			return string;
+		}
+		char[] chars = string.toCharArray();
+		int length = unescape(chars, 0, chars.length, chars, 0);
+		return new String(chars, 0, length);
+	}
+	
+	/**
+	 * 文字の配列の指定範囲に含まれるエスケープを解除し、結果を別の配列に書き出す。
+	 * <p>
+	 * 結果の長さは元の範囲の長さを超えないため、{@code source}と{@code destination}に同じ配列を指定し、
+	 * その場でエスケープを解除することもできる。
+	 * </p>
+	 * @param source エスケープを解除する文字の配列
+	 * @param offset 対象範囲の開始位置
+	 * @param length 対象範囲の長さ
+	 * @param destination 結果を書き出す配列
+	 * @param destinationOffset 結果を書き出す開始位置
+	 * @return 書き出した文字数
+	 * @throws IllegalArgumentException 解除できないエスケープが含まれていた場合
+	 * @throws IndexOutOfBoundsException 範囲が配列の外を指す場合
+	 */
+	public static int unescape(char[] source, int offset, int length, char[] destination, int destinationOffset) {
+		if (offset < 0 || length < 0 || offset + length > source.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		int limit = offset + length;
+		int written = destinationOffset;
+		int i = offset;
+		while (i < limit) {
+			char c = source[i];
+			if (c != '\\') {
+				destination[written++] = c;
+				i++;
+				continue;
+			}
+			if (i + 1 >= limit) {
+				throw new IllegalArgumentException(new String(source, offset, length));
+			}
+			char escape = source[i + 1];
+			if (escape < ASCII_SIZE && ASCII_SPECIAL_UNESCAPE[escape] != 0) {
+				destination[written++] = ASCII_SPECIAL_UNESCAPE[escape];
+				i += 2;
+			} else if ('0' <= escape && escape <= '7') {
+				// [0-3]? [0-7]{1,2}
+				int maxDigits = escape <= '3' ? 3 : 2; // CHECKSTYLE IGNORE THIS LINE
+				int code = 0;
+				int j = i + 1;
+				while (j < limit && j <= i + maxDigits && '0' <= source[j] && source[j] <= '7') {
+					code = (code << OCTAL_BITS) | (source[j] - '0');
+					j++;
+				}
+				destination[written++] = (char) code;
+				i = j;
+			} else if (escape == 'u') {
+				int j = i + 1;
+				while (j < limit && source[j] == 'u') {
+					j++;
+				}
+				int code = decodeHex(source, j, limit);
+				if (code < 0) {
+					throw new IllegalArgumentException(new String(source, offset, length));
+				}
+				destination[written++] = (char) code;
+				i = j + UNICODE_DIGITS;
+			} else {
+				throw new IllegalArgumentException(new String(source, offset, length));
+			}
+		}
+		return written - destinationOffset;
+	}
+	
+	/**
+	 * {@code GtreeParser.jj}の文字列リテラルの内容として、指定範囲のエスケープを解除して出力する。
+	 * <p>
+	 * {@link #unescape(String)}と異なり、8進数のエスケープは{@code \\0}から始まり1桁または2桁の8進数が続くものに限る。
+	 * </p>
+	 * @param chars 文字列リテラルの内容を含む配列
+	 * @param begin 内容の開始位置
+	 * @param end 内容の終了位置 (この位置を含まない)
+	 * @param output 出力先
+	 * @return 成功した場合は{@code -1}、解除できないエスケープが含まれていた場合はその開始位置
+	 */
+	static int unescapeLiteral(char[] chars, int begin, int end, StringBuilder output) {
+		int i = begin;
+		while (i < end) {
+			char c = chars[i];
+			if (c != '\\') {
+				output.append(c);
+				i++;
+				continue;
+			}
+			if (i + 1 >= end) {
+				return i;
+			}
+			char escape = chars[i + 1];
+			if (escape < ASCII_SIZE && ASCII_SPECIAL_UNESCAPE[escape] != 0) {
+				output.append(ASCII_SPECIAL_UNESCAPE[escape]);
+				i += 2;
+			} else if (escape == '0') {
+				int j = i + 2;
+				int code = 0;
+				while (j < end && j < i + 4 && '0' <= chars[j] && chars[j] <= '7') { // CHECKSTYLE IGNORE THIS LINE
+					code = (code << OCTAL_BITS) | (chars[j] - '0');
+					j++;
+				}
+				if (j == i + 2) {
+					return i;
+				}
+				output.append((char) code);
+				i = j;
+			} else if (escape == 'u') {
+				int j = i + 1;
+				while (j < end && chars[j] == 'u') {
+					j++;
+				}
+				int code = decodeHex(chars, j, end);
+				if (code < 0) {
+					return i;
+				}
+				output.append((char) code);
+				i = j + UNICODE_DIGITS;
+			} else {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * 指定の位置から始まる4桁の16進数を解析する。
+	 * @return 解析した値、4桁の16進数でない場合は{@code -1}
+	 */
+	private static int decodeHex(char[] chars, int offset, int end) {
+		if (offset + UNICODE_DIGITS > end) {
+			return -1;
+		}
+		int code = 0;
+		for (int k = offset; k < offset + UNICODE_DIGITS; k++) {
+			int digit = hexDigit(chars[k]);
+			if (digit < 0) {
+				return -1;
+			}
+			code = (code << HEX_BITS) | digit;
+		}
+		return code;
+	}
+	
+	/**
+	 * 16進数の1桁を表す文字の値を返す。
+	 * @param c 対象の文字
+	 * @return 対応する値、16進数の桁でない場合は{@code -1}
+	 */
+	private static int hexDigit(char c) {
+		if ('0' <= c && c <= '9') {
+			return c - '0';
+		}
+		if ('A' <= c && c <= 'F') {
+			return c - 'A' + 10; // CHECKSTYLE IGNORE THIS LINE
+		}
+		if ('a' <= c && c <= 'f') {
+			return c - 'a' + 10; // CHECKSTYLE IGNORE THIS LINE
+		}
+		return -1;
 	}
 	
-	private static void addCodePoint(StringBuilder target, char c) {
-		target.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+	private static void addCodePoint(Appendable target, char c) throws IOException {
+		target.append('\\').append('u');
+		for (int shift = HEX_BITS * (UNICODE_DIGITS - 1); shift >= 0; shift -= HEX_BITS) {
+			target.append(HEX_DIGITS[(c >> shift) & 0xf]); // CHECKSTYLE IGNORE THIS LINE
+		}
 	}
 	
 	/**
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import org.jiemamy.utils.gtree.model.Symbol;
+import org.jiemamy.utils.gtree.model.SymbolTable;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+
+/**
+ * 1回の解析の間、レコードのキーをシンボルとして集約する。
+ * <p>
+ * {@link SymbolTable#getGlobal()}に登録済みの名前はそのシンボルを利用し、
+ * そうでない名前はこのオブジェクトが保持する表に登録する。
+ * 大域的な表には新たな名前を登録しないため、データに依存するキーを含む文書を解析しても
+ * 大域的な表は大きくならず、このオブジェクトを破棄すればその表も解放される。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class KeySymbols {
+	
+	/**
+	 * 大域的な表に登録されていない名前を登録する表、未生成の場合は{@code null}。
+	 */
+	private SymbolTable local;
+	
+
+	/**
+	 * 指定のキーが終端値であれば、対応するシンボルを返す。
+	 * @param key 対象のキー
+	 * @return 対応するシンボル、終端値でない場合は引数そのもの
+	 */
+	Value intern(Value key) {
+		assert key != null;
+		if (key.getKind() != Value.Kind.TERMINAL) {
+			return key;
+		}
+		Terminal terminal = (Terminal) key;
+		Symbol global = SymbolTable.getGlobal().find(terminal.getRepresentation());
+		if (global != null) {
+			return global;
+		}
+		if (local == null) {
+			local = new SymbolTable();
+		}
+		return local.intern(terminal);
+	}
+}
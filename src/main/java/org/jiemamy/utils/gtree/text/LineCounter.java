@@ -0,0 +1,115 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+/**
+ * テキスト中の文字の行と桁を数える。
+ * <p>
+ * 行と桁は{@code GtreeParser.jj}から生成される字句解析器と同じ規則で数える。
+ * 改行には{@code CR}, {@code LF}, {@code CR LF}を認め、タブは{@link #TAB_SIZE}桁ごとの位置まで進める。
+ * 行と桁はいずれも{@code 1}から始まり、最後に読み進めた文字の位置を表す。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+final class LineCounter {
+
+	/**
+	 * タブ幅。
+	 */
+	static final int TAB_SIZE = 8;
+
+	private int line;
+
+	private int column;
+
+	private boolean afterCr;
+
+	private boolean afterLf;
+
+
+	/**
+	 * テキストの先頭を指すインスタンスを生成する。
+	 */
+	LineCounter() {
+		this.line = 1;
+		this.column = 0;
+	}
+
+	/**
+	 * 指定のインスタンスと同じ位置を指すインスタンスを生成する。
+	 * @param other 複製するインスタンス
+	 */
+	LineCounter(LineCounter other) {
+		assert other != null;
+		this.line = other.line;
+		this.column = other.column;
+		this.afterCr = other.afterCr;
+		this.afterLf = other.afterLf;
+	}
+
+	/**
+	 * 指定の範囲の文字を読み進める。
+	 * @param chars 対象の文字の配列
+	 * @param from 読み進める範囲の開始位置
+	 * @param to 読み進める範囲の終了位置 (この位置を含まない)
+	 * @return このオブジェクト
+	 */
+	LineCounter advance(char[] chars, int from, int to) {
+		for (int i = from; i < to; i++) {
+			char c = chars[i];
+			column++;
+			if (afterLf) {
+				afterLf = false;
+				line++;
+				column = 1;
+			} else if (afterCr) {
+				afterCr = false;
+				if (c == '\n') {
+					afterLf = true;
+				} else {
+					line++;
+					column = 1;
+				}
+			}
+			if (c == '\r') {
+				afterCr = true;
+			} else if (c == '\n') {
+				afterLf = true;
+			} else if (c == '\t') {
+				column--;
+				column += TAB_SIZE - (column % TAB_SIZE);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * 最後に読み進めた文字の行を返す。
+	 * @return 行
+	 */
+	int getLine() {
+		return line;
+	}
+
+	/**
+	 * 最後に読み進めた文字の桁を返す。
+	 * @return 桁
+	 */
+	int getColumn() {
+		return column;
+	}
+}
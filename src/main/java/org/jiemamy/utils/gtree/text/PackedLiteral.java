@@ -0,0 +1,193 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jiemamy.utils.gtree.model.Sequence;
+
+/**
+ * プリミティブ型の配列で要素を保持する{@link Sequence}のリテラル表記を扱う。
+ * <p>
+ * リテラルは{@code #int[1, 2, 3]}のように、要素型の名前と10進表記の要素の一覧からなる。
+ * 要素型には{@code byte}, {@code short}, {@code int}, {@code long}, {@code double}を指定できる。
+ * </p>
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ * @see Sequence#packed(int[])
+ */
+final class PackedLiteral {
+	
+	/**
+	 * リテラルの先頭を表す文字。
+	 */
+	static final char PREFIX = '#';
+	
+	/**
+	 * 要素の区切り文字。
+	 */
+	private static final char SEPARATOR = ',';
+	
+
+	/**
+	 * 指定のリストをリテラル表記に変換する。
+	 * @param packed 対象のリスト
+	 * @return 対応するリテラル表記
+	 * @throws IllegalArgumentException 引数が配列で要素を保持していない場合
+	 */
+	static String format(Sequence packed) {
+		return format(packed, false);
+	}
+	
+	/**
+	 * 指定のリストをリテラル表記に変換する。
+	 * @param packed 対象のリスト
+	 * @param compact 要素の区切り文字の後に空白を出力しない場合は{@code true}
+	 * @return 対応するリテラル表記
+	 * @throws IllegalArgumentException 引数が配列で要素を保持していない場合
+	 */
+	static String format(Sequence packed, boolean compact) {
+		assert packed != null;
+		Class<?> type = packed.getPackedType();
+		if (type == null) {
+			throw new IllegalArgumentException(packed.toString());
+		}
+		StringBuilder buf = new StringBuilder();
+		buf.append(PREFIX);
+		buf.append(type.getName());
+		buf.append('[');
+		Object array = packed.toPackedArray();
+		if (type == byte.class) {
+			for (byte value : (byte[]) array) {
+				appendSeparator(buf, compact).append(value);
+			}
+		} else if (type == short.class) {
+			for (short value : (short[]) array) {
+				appendSeparator(buf, compact).append(value);
+			}
+		} else if (type == int.class) {
+			for (int value : (int[]) array) {
+				appendSeparator(buf, compact).append(value);
+			}
+		} else if (type == long.class) {
+			for (long value : (long[]) array) {
+				appendSeparator(buf, compact).append(value);
+			}
+		} else {
+			for (double value : (double[]) array) {
+				appendSeparator(buf, compact).append(value);
+			}
+		}
+		buf.append(']');
+		return buf.toString();
+	}
+	
+	private static StringBuilder appendSeparator(StringBuilder buf, boolean compact) {
+		if (buf.charAt(buf.length() - 1) != '[') {
+			buf.append(SEPARATOR);
+			if (compact == false) {
+				buf.append(' ');
+			}
+		}
+		return buf;
+	}
+	
+	/**
+	 * 指定のリテラル表記を解析し、対応するリストを返す。
+	 * @param image リテラル表記
+	 * @return 対応するリスト
+	 * @throws IllegalArgumentException リテラル表記が不正である場合
+	 */
+	static Sequence parse(String image) {
+		assert image != null;
+		int open = image.indexOf('[');
+		if (image.length() < 2 || image.charAt(0) != PREFIX || open < 0 || image.endsWith("]") == false) { //$NON-NLS-1$
+			throw new IllegalArgumentException(image);
+		}
+		String type = image.substring(1, open);
+		String[] elements = split(image.substring(open + 1, image.length() - 1));
+		try {
+			if (type.equals("byte")) { //$NON-NLS-1$
+				byte[] values = new byte[elements.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = Byte.parseByte(elements[i]);
+				}
+				return Sequence.packed(values);
+			} else if (type.equals("short")) { //$NON-NLS-1$
+				short[] values = new short[elements.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = Short.parseShort(elements[i]);
+				}
+				return Sequence.packed(values);
+			} else if (type.equals("int")) { //$NON-NLS-1$
+				int[] values = new int[elements.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = Integer.parseInt(elements[i]);
+				}
+				return Sequence.packed(values);
+			} else if (type.equals("long")) { //$NON-NLS-1$
+				long[] values = new long[elements.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = Long.parseLong(elements[i]);
+				}
+				return Sequence.packed(values);
+			} else if (type.equals("double")) { //$NON-NLS-1$
+				double[] values = new double[elements.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = Double.parseDouble(elements[i]);
+				}
+				return Sequence.packed(values);
+			}
+		} catch (NumberFormatException e) {
+			IllegalArgumentException exception = new IllegalArgumentException(image);
+			exception.initCause(e);
+			throw exception;
+		}
+		throw new IllegalArgumentException(image);
+	}
+	
+	/**
+	 * 要素の一覧を区切り文字で分割し、それぞれの前後の空白を取り除く。
+	 * @param body 要素の一覧
+	 * @return 分割した要素
+	 */
+	private static String[] split(String body) {
+		String trimmed = body.trim();
+		if (trimmed.length() == 0) {
+			return new String[0];
+		}
+		List<String> results = new ArrayList<String>();
+		int start = 0;
+		while (true) {
+			int end = trimmed.indexOf(SEPARATOR, start);
+			if (end < 0) {
+				results.add(trimmed.substring(start).trim());
+				break;
+			}
+			results.add(trimmed.substring(start, end).trim());
+			start = end + 1;
+		}
+		return results.toArray(new String[results.size()]);
+	}
+	
+	/**
+	 * インスタンス化の禁止。
+	 */
+	private PackedLiteral() {
+		throw new AssertionError();
+	}
+}
@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.jiemamy.utils.gtree.model.Value;
+import org.jiemamy.utils.gtree.model.ValueInterner;
 
 /**
  * {@code Generic Tree Notation}によって記述されたテキストから{@link Value}を復元する。
@@ -29,6 +30,18 @@ import org.jiemamy.utils.gtree.model.Value;
  */
 public final class Parser {
 	
+	/**
+	 * スレッドごとに再利用する解析器。
+	 */
+	private static final ThreadLocal<DirectParser> PARSERS = new ThreadLocal<DirectParser>() {
+		
+		@Override
+		protected DirectParser initialValue() {
+			return new DirectParser();
+		}
+	};
+	
+
 	/**
 	 * 指定のソースから{@code Generic Tree Notation}形式のテキストを読み出し、
 	 * 対応する{@link Value}を構築する。
@@ -65,9 +78,45 @@ public final class Parser {
 		if (variables == null) {
 			throw new NullPointerException("variables"); //$NON-NLS-1$
 		}
-		GtreeParser0 parser = new GtreeParser0(source);
+		return parse0(source, variables, null);
+	}
+	
+	/**
+	 * 指定のソースから{@code Generic Tree Notation}形式のテキストを読み出し、
+	 * 対応する{@link Value}を構築する。
+	 * <p>
+	 * 構築される値およびその部分木は、すべて{@code interner}によって集約される。
+	 * 同一の部分木を多数含むテキストを解析する場合や、
+	 * 解析結果を長期間保持する場合にはこのメソッドを利用するとよい。
+	 * </p>
+	 * @param source {@code Generic Tree Notation}のテキストを保持するソース
+	 * @param variables 変数名と束縛された値の一覧
+	 * @param interner 構築した値を集約する{@link ValueInterner}
+	 * @return 対応する{@link Value}
+	 * @throws IOException 解析に失敗した場合
+	 * @throws NullPointerException 引数に{@code null}が指定された場合
+	 * @see #parse(Reader, Map)
+	 */
+	public static Value parse(Reader source, Map<String, ? extends Value> variables, ValueInterner interner)
+			throws IOException {
+		if (source == null) {
+			throw new NullPointerException("source"); //$NON-NLS-1$
+		}
+		if (variables == null) {
+			throw new NullPointerException("variables"); //$NON-NLS-1$
+		}
+		if (interner == null) {
+			throw new NullPointerException("interner"); //$NON-NLS-1$
+		}
+		return parse0(source, variables, interner);
+	}
+	
+	private static Value parse0(Reader source, Map<String, ? extends Value> variables, ValueInterner interner)
+			throws IOException {
+		assert source != null;
+		assert variables != null;
 		try {
-			return parser.parse(new Variables(variables));
+			return PARSERS.get().parse(source, new Variables(variables), interner);
 		} catch (ParseException e) {
 			throw (IOException) new IOException("Parse failure").initCause(e); //$NON-NLS-1$
 		} finally {
@@ -65,15 +65,35 @@ class Variables {
 		if (token == null) {
 			throw new NullPointerException("token"); //$NON-NLS-1$
 		}
-		if (token.image.startsWith("$") == false) {
-			throw new IllegalArgumentException(token.toString());
-		}
-		String name = token.image.substring(1);
-		Value bound = entity.get(name);
+		Value bound = find(token.image);
 		if (bound == null) {
-			throw new ParseException(MessageFormat.format("Undefined variable \"{0}\" (line {1}, column {2})", //$NON-NLS-1$
-					token.image, token.beginLine, token.endColumn));
+			throw undefined(token.image, token.beginLine, token.endColumn);
 		}
 		return bound;
 	}
+	
+	/**
+	 * 指定の変数の内容を返す。
+	 * @param image {@code $}から始まる変数の表記
+	 * @return 対象の変数に束縛された値、束縛されていない場合は{@code null}
+	 */
+	Value find(String image) {
+		assert image != null;
+		if (image.startsWith("$") == false) {
+			throw new IllegalArgumentException(image);
+		}
+		return entity.get(image.substring(1));
+	}
+	
+	/**
+	 * 指定の変数に値が束縛されていないことを表す例外を返す。
+	 * @param image {@code $}から始まる変数の表記
+	 * @param line 変数の表記が出現した行
+	 * @param column 変数の表記の末尾の桁
+	 * @return 対応する例外
+	 */
+	static ParseException undefined(String image, int line, int column) {
+		return new ParseException(MessageFormat.format("Undefined variable \"{0}\" (line {1}, column {2})", //$NON-NLS-1$
+				image, line, column));
+	}
 }
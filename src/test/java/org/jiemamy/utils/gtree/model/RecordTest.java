@@ -18,6 +18,8 @@ package org.jiemamy.utils.gtree.model;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.util.ArrayList;
@@ -61,6 +63,104 @@ public class RecordTest {
 		Record.of(null);
 	}
 	
+	/**
+	 * Test method for {@link Record#of(java.util.List)}.
+	 */
+	@Test
+	public void testOf_SharedKeys() {
+		Record r1 = Record.of(es("a", "A", "b", "B"));
+		Record r2 = Record.of(es("b", "X", "a", "Y"));
+		assertThat(r1.getKey(0) == r2.getKey(0), is(true));
+		assertThat(r1.getKey(1) == r2.getKey(1), is(true));
+		assertThat(r2.getEntries(), is(es("a", "Y", "b", "X")));
+	}
+	
+	/**
+	 * Test method for {@link Record#of(java.util.List)}.
+	 */
+	@Test
+	public void testOf_Empty() {
+		Record r = Record.of(es());
+		assertThat(r, sameInstance(Record.of(es())));
+		assertThat(r.getEntries().isEmpty(), is(true));
+		assertThat(r.containsKey(Terminal.of("a")), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Record#getEntries()}.
+	 */
+	@Test
+	public void testGetEntries() {
+		Record r = Record.of(es("a", "A", "b", "B"));
+		assertThat(r.getEntries(), sameInstance(r.getEntries()));
+	}
+	
+	/**
+	 * Test method for {@link Record.Builder}.
+	 */
+	@Test
+	public void testBuilder() {
+		Record.Builder sorted = new Record.Builder(1);
+		sorted.add(Terminal.of("a"), Terminal.of("A"));
+		sorted.add(Entry.of(Terminal.of("a"), Terminal.of("B")));
+		sorted.addAll(es("b", "A", "c", "C"));
+		assertThat(sorted.size(), is(4));
+		assertThat(sorted.build().getEntries(), is(es("a", "A", "a", "B", "b", "A", "c", "C")));
+		assertThat(sorted.size(), is(0));
+		
+		Record.Builder unsorted = new Record.Builder();
+		unsorted.addAll(es("b", "A", "a", "B", "c", "C", "a", "A"));
+		Record r = unsorted.build();
+		assertThat(r.getEntries(), is(es("a", "A", "a", "B", "b", "A", "c", "C")));
+		assertThat(r, is(Record.of(es("c", "C", "b", "A", "a", "B", "a", "A"))));
+	}
+	
+	/**
+	 * Test method for {@link Record.Builder}.
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testBuilder_Null() {
+		new Record.Builder().add(Terminal.of("a"), null);
+	}
+	
+	/**
+	 * Test method for {@link Record#with(Value, Value)}.
+	 */
+	@Test
+	public void testWith() {
+		Record r = Record.of(es("a", "A", "b", "B", "b", "C"));
+		Terminal a = Terminal.of("a");
+		assertThat(r.with(a, Terminal.of("X")).getEntries(), is(es("a", "X", "b", "B", "b", "C")));
+		assertThat(r.with(a, Terminal.of("X")).getKey(0), sameInstance(r.getKey(0)));
+		assertThat(r.with(Terminal.of("b"), Terminal.of("X")).getEntries(), is(es("a", "A", "b", "X")));
+		assertThat(r.with(Terminal.of("0"), Terminal.of("X")).getEntries(),
+				is(es("0", "X", "a", "A", "b", "B", "b", "C")));
+		assertThat(r.getEntries(), is(es("a", "A", "b", "B", "b", "C")));
+	}
+	
+	/**
+	 * Test method for {@link Record#insert(Value, Value)}.
+	 */
+	@Test
+	public void testInsert() {
+		Record r = Record.of(es("a", "A", "b", "B", "b", "D"));
+		assertThat(r.insert(Terminal.of("b"), Terminal.of("C")), is(Record.of(es("a", "A", "b", "B", "b", "C", "b",
+				"D"))));
+		assertThat(r.insert(Terminal.of("c"), Terminal.of("C")), is(Record.of(es("a", "A", "b", "B", "b", "D", "c",
+				"C"))));
+	}
+	
+	/**
+	 * Test method for {@link Record#without(Value)}.
+	 */
+	@Test
+	public void testWithout() {
+		Record r = Record.of(es("a", "A", "b", "B", "b", "C"));
+		assertThat(r.without(Terminal.of("b")).getEntries(), is(es("a", "A")));
+		assertThat(r.without(Terminal.of("c")), sameInstance(r));
+		assertThat(r.without(Terminal.of("a")).without(Terminal.of("b")), sameInstance(Record.of(es())));
+	}
+	
 	/**
 	 * Test method for {@link Record#getKind()}.
 	 */
@@ -143,6 +243,181 @@ public class RecordTest {
 		assertThat(r1.accept(visitor, null), is("a"));
 	}
 	
+	/**
+	 * Test method for {@link Record#get(Value)}.
+	 */
+	@Test
+	public void testGet() {
+		Record r = Record.of(es("b", "B", "a", "A", "c", "C2", "c", "C1"));
+		assertThat(r.get(Terminal.of("a")), is((Value) Terminal.of("A")));
+		assertThat(r.get(Terminal.of("c")), is((Value) Terminal.of("C1")));
+		assertThat(r.get(Terminal.of("d")), is(nullValue()));
+		assertThat(r.get(Terminal.of("0")), is(nullValue()));
+	}
+	
+	/**
+	 * Test method for {@link Record#get(Value)}.
+	 */
+	@Test
+	public void testGet_Wide() {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (int i = 0; i < 100; i++) {
+			entries.add(Entry.of(Terminal.of("k" + i), Terminal.of("v" + i)));
+		}
+		Record r = Record.of(entries);
+		for (int i = 0; i < 100; i++) {
+			assertThat(r.get(Terminal.of("k" + i)), is((Value) Terminal.of("v" + i)));
+		}
+		assertThat(r.get(Terminal.of("k100")), is(nullValue()));
+	}
+	
+	/**
+	 * Test method for {@link Record#getAll(Value)}.
+	 */
+	@Test
+	public void testGetAll() {
+		Record r = Record.of(es("b", "B", "a", "A", "c", "C2", "c", "C1"));
+		assertThat(r.getAll(Terminal.of("c")), is(vs("C1", "C2")));
+		assertThat(r.getAll(Terminal.of("a")), is(vs("A")));
+		assertThat(r.getAll(Terminal.of("d")), is(vs()));
+	}
+	
+	/**
+	 * Test method for {@link Record#containsKey(Value)}.
+	 */
+	@Test
+	public void testContainsKey() {
+		Record r = Record.of(es("b", "B", "a", "A"));
+		assertThat(r.containsKey(Terminal.of("a")), is(true));
+		assertThat(r.containsKey(Terminal.of("b")), is(true));
+		assertThat(r.containsKey(Terminal.of("B")), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Value#getFingerprint()}.
+	 */
+	@Test
+	public void testGetFingerprint() {
+		Record r1 = Record.of(es("a", "A", "b", "B"));
+		Record r2 = Record.of(es("b", "B", "a", "A"));
+		Record r3 = Record.of(es("a", "B", "b", "A"));
+		assertThat(r1.getFingerprint(), is(r2.getFingerprint()));
+		assertThat(r1.getFingerprint() == r3.getFingerprint(), is(false));
+		assertThat(r1.hashCode(), is(r2.hashCode()));
+	}
+	
+	/**
+	 * Test method for {@link Record#merge(Record, Record.MergePolicy)}.
+	 */
+	@Test
+	public void testMerge() {
+		Record mine = Record.of(es("a", "1", "b", "2", "d", "4", "d", "5"));
+		Record theirs = Record.of(es("b", "20", "c", "3", "d", "5", "d", "6", "e", "7"));
+		assertThat(mine.merge(theirs, Record.MergePolicy.PREFER_THIS),
+				is(Record.of(es("a", "1", "b", "2", "c", "3", "d", "4", "d", "5", "e", "7"))));
+		assertThat(mine.merge(theirs, Record.MergePolicy.PREFER_OTHER),
+				is(Record.of(es("a", "1", "b", "20", "c", "3", "d", "5", "d", "6", "e", "7"))));
+		assertThat(mine.merge(theirs, Record.MergePolicy.KEEP_BOTH),
+				is(Record.of(es("a", "1", "b", "2", "b", "20", "c", "3", "d", "4", "d", "5", "d", "6", "e", "7"))));
+		assertThat(Record.of(es("d", "5", "d", "5")).merge(Record.of(es("d", "5")), Record.MergePolicy.KEEP_BOTH),
+				is(Record.of(es("d", "5", "d", "5"))));
+		
+		Record empty = Record.of(es());
+		assertThat(mine.merge(empty, Record.MergePolicy.REJECT), sameInstance(mine));
+		assertThat(empty.merge(mine, Record.MergePolicy.REJECT), sameInstance(mine));
+	}
+	
+	/**
+	 * Test method for {@link Record#merge(Record, Record.MergePolicy)}.
+	 */
+	@Test
+	public void testMerge_Custom() {
+		Record mine = Record.of(es("a", "1", "b", "2"));
+		Record theirs = Record.of(es("a", "3", "c", "4"));
+		Record merged = mine.merge(theirs, new Record.MergePolicy() {
+			
+			public List<? extends Value> resolve(Value key, List<Value> m, List<Value> t) {
+				assertThat(key, is((Value) Terminal.of("a")));
+				assertThat(m, is(vs("1")));
+				assertThat(t, is(vs("3")));
+				return vs("9", "0");
+			}
+		});
+		assertThat(merged, is(Record.of(es("a", "0", "a", "9", "b", "2", "c", "4"))));
+		
+		Record dropped = mine.merge(theirs, new Record.MergePolicy() {
+			
+			public List<? extends Value> resolve(Value key, List<Value> m, List<Value> t) {
+				return vs();
+			}
+		});
+		assertThat(dropped, is(Record.of(es("b", "2", "c", "4"))));
+	}
+	
+	/**
+	 * Test method for {@link Record#merge(Record, Record.MergePolicy)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testMerge_Reject() {
+		Record.of(es("a", "1")).merge(Record.of(es("a", "1")), Record.MergePolicy.REJECT);
+	}
+	
+	/**
+	 * Test method for {@link Record#toString()}.
+	 */
+	@Test
+	public void testToString() {
+		Record record = Record.of(es("a", "1", "b", "2"));
+		assertThat(record.toString(), is("{\"a\":\"1\", \"b\":\"2\"}"));
+		Record nested = Record.of(Arrays.asList(
+				Entry.of(Terminal.of("x"), record),
+				Entry.of(Sequence.ordered(vs("k")), Sequence.unordered(vs("3", "1")))));
+		assertThat(nested.toString(), is("{\"x\":\"{\"a\":\"1\", \"b\":\"2\"}\", \"[k]\":\"[1, 3]\"}"));
+		assertThat(Entry.of(Terminal.of("x"), record).toString(), is("\"x\":\"{\"a\":\"1\", \"b\":\"2\"}\""));
+	}
+	
+	/**
+	 * Test method for {@link Value#appendTo(Appendable, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testAppendTo() throws Exception {
+		Record record = Record.of(es("a", "1", "b", "2"));
+		String whole = record.toString();
+		for (int limit = 0; limit < whole.length(); limit++) {
+			StringBuilder buf = new StringBuilder();
+			assertThat(record.appendTo(buf, limit), is(false));
+			assertThat(buf.toString(), is(whole.substring(0, limit) + "..."));
+		}
+		StringBuilder buf = new StringBuilder();
+		assertThat(record.appendTo(buf, whole.length()), is(true));
+		assertThat(buf.toString(), is(whole));
+	}
+	
+	/**
+	 * Test method for {@link Value#appendTo(Appendable, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testAppendTo_Deep() throws Exception {
+		Value value = Terminal.of("leaf");
+		for (int i = 0; i < 100000; i++) {
+			value = Record.of(Arrays.asList(Entry.of(Terminal.of("k"), value)));
+		}
+		StringBuilder buf = new StringBuilder();
+		assertThat(value.appendTo(buf, 20), is(false));
+		assertThat(buf.toString(), is("{\"k\":\"{\"k\":\"{\"k\":\"{\"..."));
+		assertThat(value.toString().length(), is(100000 * 8 + 4));
+	}
+	
+	private static List<Value> vs(String... values) {
+		ArrayList<Value> results = new ArrayList<Value>();
+		for (String value : values) {
+			results.add(Terminal.of(value));
+		}
+		return results;
+	}
+	
 	private static List<Entry> es(String... pairs) {
 		assert pairs.length % 2 == 0;
 		ArrayList<Entry> results = new ArrayList<Entry>();
@@ -18,11 +18,14 @@ package org.jiemamy.utils.gtree.model;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -69,6 +72,247 @@ public class SequenceTest {
 		Sequence.unordered(null);
 	}
 	
+	/**
+	 * Test method for {@link Sequence#ordered(java.util.List)}.
+	 */
+	@Test
+	public void testOrdered_Empty() {
+		Sequence o = Sequence.ordered(ls());
+		assertThat(o, sameInstance(Sequence.ordered(ls())));
+		assertThat(o.getValues().isEmpty(), is(true));
+		assertThat(o.getKind(), is(Value.Kind.ORDERED_LIST));
+		Sequence u = Sequence.unordered(ls());
+		assertThat(u, sameInstance(Sequence.unordered(ls())));
+		assertThat(u.getKind(), is(Value.Kind.UNORDERED_LIST));
+		assertThat(o.equals(u), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#getValues()}.
+	 */
+	@Test
+	public void testGetValues() {
+		String[] elements = {
+			"a",
+			"b",
+			"c",
+			"d",
+			"e"
+		};
+		for (int n = 0; n <= elements.length; n++) {
+			List<Value> expect = ls(Arrays.asList(elements).subList(0, n).toArray(new String[n]));
+			Sequence s = Sequence.ordered(expect);
+			List<Value> values = s.getValues();
+			assertThat(values, sameInstance(s.getValues()));
+			assertThat(values, is(expect));
+			assertThat(values.hashCode(), is(expect.hashCode()));
+			assertThat(s, is(Sequence.ordered(new ArrayList<Value>(expect))));
+			try {
+				values.get(n);
+				throw new AssertionError();
+			} catch (IndexOutOfBoundsException e) {
+				// ok.
+			}
+		}
+	}
+	
+	/**
+	 * Test method for {@link Sequence#getValues()}.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetValues_Unmodifiable() {
+		Sequence s = Sequence.ordered(ls("1", "2"));
+		s.getValues().add(Terminal.of("3"));
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder}.
+	 */
+	@Test
+	public void testBuilder_Ordered() {
+		Sequence.Builder builder = new Sequence.Builder(Value.Kind.ORDERED_LIST, 2);
+		builder.add(Terminal.of("3")).add(Terminal.of("1"));
+		builder.addAll(ls("2", "1", "5"));
+		assertThat(builder.size(), is(5));
+		Sequence s = builder.build();
+		assertThat(s, is(Sequence.ordered(ls("3", "1", "2", "1", "5"))));
+		assertThat(builder.size(), is(0));
+		assertThat(builder.build(), is(Sequence.ordered(ls())));
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testBuilder_Ordered_Deep() throws Exception {
+		final Value[] results = new Value[1];
+		final Throwable[] errors = new Throwable[1];
+		Thread thread = new Thread(null, new Runnable() {
+			
+			public void run() {
+				try {
+					results[0] = Sequence.ordered(Arrays.asList(deep(50000, "v"), deep(50000, "w")));
+				} catch (Throwable t) {
+					errors[0] = t;
+				}
+			}
+		}, "deep", 256 * 1024);
+		thread.start();
+		thread.join();
+		if (errors[0] != null) {
+			throw (AssertionError) new AssertionError(errors[0].toString()).initCause(errors[0]);
+		}
+		assertThat(((Sequence) results[0]).getValues().size(), is(2));
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder}.
+	 */
+	@Test
+	public void testBuilder_Unordered() {
+		Sequence.Builder sorted = new Sequence.Builder(Value.Kind.UNORDERED_LIST);
+		sorted.addAll(ls("1", "1", "2", "3", "4", "5"));
+		assertThat(sorted.build().getValues(), is(ls("1", "1", "2", "3", "4", "5")));
+		
+		Sequence.Builder unsorted = new Sequence.Builder(Value.Kind.UNORDERED_LIST);
+		unsorted.addAll(ls("1", "2", "3", "5", "4", "1"));
+		assertThat(unsorted.build().getValues(), is(ls("1", "1", "2", "3", "4", "5")));
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuilder_Record() {
+		new Sequence.Builder(Value.Kind.RECORD);
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder}.
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testBuilder_Null() {
+		new Sequence.Builder(Value.Kind.ORDERED_LIST).add(null);
+	}
+	
+	/**
+	 * Test method for {@link Sequence#replaceAt(int, Value)}.
+	 */
+	@Test
+	public void testReplaceAt() {
+		Sequence o = Sequence.ordered(ls("1", "2", "3"));
+		assertThat(o.replaceAt(1, Terminal.of("9")), is(Sequence.ordered(ls("1", "9", "3"))));
+		assertThat(o, is(Sequence.ordered(ls("1", "2", "3"))));
+		
+		Sequence u = Sequence.unordered(ls("1", "2", "3"));
+		assertThat(u.replaceAt(0, Terminal.of("9")).getValues(), is(ls("2", "3", "9")));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#replaceAt(int, Value)}.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testReplaceAt_OutOfBounds() {
+		Sequence.ordered(ls("1", "2", "3")).replaceAt(3, Terminal.of("9"));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#insert(int, Value)}.
+	 */
+	@Test
+	public void testInsert() {
+		Sequence o = Sequence.ordered(ls("1", "2", "3"));
+		assertThat(o.insert(0, Terminal.of("9")), is(Sequence.ordered(ls("9", "1", "2", "3"))));
+		assertThat(o.insert(3, Terminal.of("9")), is(Sequence.ordered(ls("1", "2", "3", "9"))));
+		
+		Sequence u = Sequence.unordered(ls("1", "3"));
+		assertThat(u.insert(0, Terminal.of("2")).getValues(), is(ls("1", "2", "3")));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#without(int)}.
+	 */
+	@Test
+	public void testWithout() {
+		Sequence o = Sequence.ordered(ls("1", "2", "3"));
+		assertThat(o.without(1), is(Sequence.ordered(ls("1", "3"))));
+		assertThat(o.without(0).without(0).without(0), sameInstance(Sequence.ordered(ls())));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#slice(int, int)}.
+	 */
+	@Test
+	public void testSlice() {
+		Sequence o = Sequence.ordered(ls("1", "2", "3", "4"));
+		assertThat(o.slice(1, 3), is(Sequence.ordered(ls("2", "3"))));
+		assertThat(o.slice(0, 4), sameInstance(o));
+		assertThat(o.slice(2, 2).getValues().isEmpty(), is(true));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#concat(Sequence)}.
+	 */
+	@Test
+	public void testConcat() {
+		Sequence o = Sequence.ordered(ls("3", "1"));
+		assertThat(o.concat(Sequence.ordered(ls("2", "0"))), is(Sequence.ordered(ls("3", "1", "2", "0"))));
+		
+		Sequence u = Sequence.unordered(ls("3", "1"));
+		assertThat(u.concat(Sequence.unordered(ls("2", "0"))).getValues(), is(ls("0", "1", "2", "3")));
+		assertThat(u.concat(Sequence.ordered(ls("4", "2"))).getValues(), is(ls("1", "2", "3", "4")));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#replaceAt(int, Value)}.
+	 */
+	@Test
+	public void testUpdate_Wide() {
+		Random random = new Random(24680);
+		List<Value> expect = new ArrayList<Value>();
+		for (int i = 0; i < 500; i++) {
+			expect.add(Terminal.of(String.valueOf(i)));
+		}
+		Sequence s = Sequence.ordered(expect);
+		for (int i = 0; i < 2000; i++) {
+			int size = expect.size();
+			Terminal value = Terminal.of("v" + i);
+			switch (random.nextInt(5)) {
+				case 0:
+				case 1:
+					int replace = random.nextInt(size);
+					expect.set(replace, value);
+					s = s.replaceAt(replace, value);
+					break;
+				case 2:
+					int insert = random.nextInt(size + 1);
+					expect.add(insert, value);
+					s = s.insert(insert, value);
+					break;
+				case 3:
+					int remove = random.nextInt(size);
+					expect.remove(remove);
+					s = s.without(remove);
+					break;
+				default:
+					int from = random.nextInt(size / 4 + 1);
+					int to = size - random.nextInt(size / 4 + 1);
+					Sequence sliced = s.slice(from, to);
+					assertThat(sliced.getValues(), is(expect.subList(from, to)));
+					s = sliced.concat(s.slice(0, from)).concat(s.slice(to, size));
+					List<Value> rotated = new ArrayList<Value>(expect.subList(from, to));
+					rotated.addAll(expect.subList(0, from));
+					rotated.addAll(expect.subList(to, size));
+					expect = rotated;
+					break;
+			}
+		}
+		assertThat(s.getValues(), is(expect));
+		assertThat(s, is(Sequence.ordered(expect)));
+		assertThat(s.hashCode(), is(Sequence.ordered(expect).hashCode()));
+	}
+	
 	/**
 	 * Test method for {@link Sequence#equals(java.lang.Object)}.
 	 */
@@ -192,6 +436,268 @@ public class SequenceTest {
 		assertThat(s.accept(visitor, null), is("value"));
 	}
 	
+	/**
+	 * Test method for {@link Value#getFingerprint()}.
+	 */
+	@Test
+	public void testGetFingerprint() {
+		Sequence o1 = Sequence.ordered(ls("1", "2", "3"));
+		Sequence o2 = Sequence.ordered(ls("1", "2", "3"));
+		Sequence o3 = Sequence.ordered(ls("3", "2", "1"));
+		Sequence u1 = Sequence.unordered(ls("1", "2", "3"));
+		Sequence u2 = Sequence.unordered(ls("3", "1", "2"));
+		assertThat(o1.getFingerprint(), is(o2.getFingerprint()));
+		assertThat(o1.getFingerprint() == o3.getFingerprint(), is(false));
+		assertThat(u1.getFingerprint(), is(u2.getFingerprint()));
+		assertThat(o1.getFingerprint() == u1.getFingerprint(), is(false));
+		assertThat(o1.hashCode(), is(o2.hashCode()));
+		assertThat(u1.hashCode(), is(u2.hashCode()));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#packed(int[])}.
+	 */
+	@Test
+	public void testPacked() {
+		int[] array = new int[] {
+			3,
+			-1,
+			0,
+			Integer.MAX_VALUE
+		};
+		Sequence packed = Sequence.packed(array);
+		array[0] = 100;
+		Sequence plain = Sequence.ordered(ls("3", "-1", "0", String.valueOf(Integer.MAX_VALUE)));
+		assertThat(packed.getKind(), is(Value.Kind.ORDERED_LIST));
+		assertThat(packed.getPackedType(), is((Object) int.class));
+		assertThat(plain.getPackedType() == null, is(true));
+		assertThat(packed.getValues(), is(plain.getValues()));
+		assertThat(packed, is(plain));
+		assertThat(plain, is(packed));
+		assertThat(packed.getFingerprint(), is(plain.getFingerprint()));
+		assertThat(packed.hashCode(), is(plain.hashCode()));
+		assertThat(packed.compareTo(plain), is(0));
+		assertThat(((int[]) packed.toPackedArray())[0], is(3));
+		assertThat(packed.getNodeCount(), is(5L));
+		assertThat(packed.getHeight(), is(2));
+		assertThat(Sequence.packed(new int[0]), sameInstance(Sequence.ordered(ls())));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#packed(long[])}.
+	 */
+	@Test
+	public void testPacked_Types() {
+		List<Value> expect = ls("1", "-2", "0");
+		assertThat(Sequence.packed(new byte[] {
+			1,
+			-2,
+			0
+		}).getValues(), is(expect));
+		assertThat(Sequence.packed(new short[] {
+			1,
+			-2,
+			0
+		}).getValues(), is(expect));
+		assertThat(Sequence.packed(new long[] {
+			1,
+			-2,
+			0
+		}).getValues(), is(expect));
+		Sequence doubles = Sequence.packed(new double[] {
+			1.5,
+			-0.0,
+			Double.NaN
+		});
+		assertThat(doubles, is(Sequence.ordered(ls("1.5", "-0.0", "NaN"))));
+		assertThat(doubles.getFingerprint(), is(Sequence.ordered(ls("1.5", "-0.0", "NaN")).getFingerprint()));
+		assertThat(doubles.equals(Sequence.packed(new double[] {
+			1.5,
+			0.0,
+			Double.NaN
+		})), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#packed(long[])}.
+	 */
+	@Test
+	public void testPacked_Wide() {
+		Random random = new Random(12345);
+		long[] array = new long[200];
+		List<Value> plain = new ArrayList<Value>();
+		for (int i = 0; i < array.length; i++) {
+			array[i] = i == 0 ? Long.MIN_VALUE : random.nextLong() >> random.nextInt(64);
+			plain.add(Terminal.of(String.valueOf(array[i])));
+		}
+		Sequence packed = Sequence.packed(array);
+		assertThat(packed, is(Sequence.ordered(plain)));
+		assertThat(packed.getFingerprint(), is(Sequence.ordered(plain).getFingerprint()));
+		
+		Sequence sliced = packed.slice(10, 150);
+		assertThat(sliced.getPackedType(), is((Object) long.class));
+		assertThat(sliced, is(Sequence.ordered(plain.subList(10, 150))));
+		assertThat(packed.slice(10, 20), is(Sequence.ordered(plain.subList(10, 20))));
+		
+		Sequence replaced = packed.replaceAt(100, Terminal.of("x"));
+		List<Value> expect = new ArrayList<Value>(plain);
+		expect.set(100, Terminal.of("x"));
+		assertThat(replaced, is(Sequence.ordered(expect)));
+		assertThat(packed.compareTo(replaced), lessThan(0));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#union(Sequence)}.
+	 */
+	@Test
+	public void testUnion() {
+		Sequence a = Sequence.unordered(ls("1", "2", "2", "4"));
+		Sequence b = Sequence.unordered(ls("2", "3", "4", "4"));
+		assertThat(a.union(b), is(Sequence.unordered(ls("1", "2", "2", "3", "4", "4"))));
+		assertThat(a.union(Sequence.unordered(ls())), sameInstance(a));
+		assertThat(Sequence.ordered(ls("4", "1")).union(Sequence.ordered(ls("3", "1"))),
+				is(Sequence.unordered(ls("1", "3", "4"))));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#intersect(Sequence)}.
+	 */
+	@Test
+	public void testIntersect() {
+		Sequence a = Sequence.unordered(ls("1", "2", "2", "4"));
+		Sequence b = Sequence.unordered(ls("2", "3", "4", "4"));
+		assertThat(a.intersect(b), is(Sequence.unordered(ls("2", "4"))));
+		assertThat(a.intersect(Sequence.unordered(ls())), is(Sequence.unordered(ls())));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#subtract(Sequence)}.
+	 */
+	@Test
+	public void testSubtract() {
+		Sequence a = Sequence.unordered(ls("1", "2", "2", "4"));
+		Sequence b = Sequence.unordered(ls("2", "3", "4", "4"));
+		assertThat(a.subtract(b), is(Sequence.unordered(ls("1", "2"))));
+		assertThat(b.subtract(a), is(Sequence.unordered(ls("3", "4"))));
+		assertThat(a.subtract(a).getValues().isEmpty(), is(true));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#symmetricDifference(Sequence)}.
+	 */
+	@Test
+	public void testSymmetricDifference() {
+		Sequence a = Sequence.unordered(ls("1", "2", "2", "4"));
+		Sequence b = Sequence.unordered(ls("2", "3", "4", "4"));
+		assertThat(a.symmetricDifference(b), is(Sequence.unordered(ls("1", "2", "3", "4"))));
+		assertThat(a.symmetricDifference(b), is(b.symmetricDifference(a)));
+	}
+	
+	/**
+	 * Test method for {@link Sequence#union(Sequence)}.
+	 */
+	@Test
+	public void testSetOperations_Random() {
+		Random random = new Random(24680);
+		for (int attempt = 0; attempt < 20; attempt++) {
+			List<Value> left = new ArrayList<Value>();
+			List<Value> right = new ArrayList<Value>();
+			for (int i = random.nextInt(100); i > 0; i--) {
+				left.add(Terminal.of(String.valueOf(random.nextInt(30))));
+			}
+			for (int i = random.nextInt(100); i > 0; i--) {
+				right.add(Terminal.of(String.valueOf(random.nextInt(30))));
+			}
+			Sequence a = Sequence.unordered(left);
+			Sequence b = Sequence.unordered(right);
+			List<Value> union = new ArrayList<Value>();
+			List<Value> intersection = new ArrayList<Value>();
+			List<Value> difference = new ArrayList<Value>();
+			for (int v = 0; v < 30; v++) {
+				Value value = Terminal.of(String.valueOf(v));
+				int m = count(left, value);
+				int n = count(right, value);
+				for (int i = Math.max(m, n); i > 0; i--) {
+					union.add(value);
+				}
+				for (int i = Math.min(m, n); i > 0; i--) {
+					intersection.add(value);
+				}
+				for (int i = m - n; i > 0; i--) {
+					difference.add(value);
+				}
+			}
+			assertThat(a.union(b), is(Sequence.unordered(union)));
+			assertThat(a.intersect(b), is(Sequence.unordered(intersection)));
+			assertThat(a.subtract(b), is(Sequence.unordered(difference)));
+			assertThat(a.symmetricDifference(b), is(a.subtract(b).concat(b.subtract(a))));
+		}
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder#build()}.
+	 */
+	@Test
+	public void testBuild_RunLength() {
+		List<Value> elements = new ArrayList<Value>();
+		for (int i = 0; i < 1000; i++) {
+			elements.add(Terminal.of(String.valueOf(i % 3)));
+			elements.add(Sequence.ordered(ls("x", "y")));
+		}
+		Sequence unordered = Sequence.unordered(elements);
+		assertThat(unordered.getValues() instanceof RunLengthValueList, is(true));
+		assertThat(((RunLengthValueList) unordered.getValues()).getRunCount(), is(4));
+		
+		List<Value> expanded = new ArrayList<Value>(elements);
+		Collections.sort(expanded);
+		assertThat(unordered.getValues(), is(expanded));
+		assertThat(unordered.getValues().hashCode(), is(expanded.hashCode()));
+		assertThat(unordered.getValues().get(0), is((Value) Terminal.of("0")));
+		assertThat(unordered.getValues().get(999), is((Value) Terminal.of("2")));
+		assertThat(unordered.getValues().get(1000), is((Value) Sequence.ordered(ls("x", "y"))));
+		
+		assertThat(Sequence.unordered(elements.subList(0, 6)).getValues() instanceof RunLengthValueList, is(false));
+		assertThat(unordered.slice(0, 6).getValues(), is(expanded.subList(0, 6)));
+		assertThat(unordered.slice(300, 1700).getValues(), is(expanded.subList(300, 1700)));
+		assertThat(unordered.compareTo(Sequence.unordered(expanded)), is(0));
+		assertThat(unordered.getEstimatedBytes(), lessThan(Sequence.ordered(elements).getEstimatedBytes()));
+	}
+	
+	/**
+	 * Test method for {@link Sequence.Builder#build()}.
+	 */
+	@Test
+	public void testBuild_RunLength_Ordered() {
+		List<Value> elements = new ArrayList<Value>();
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 50; j++) {
+				elements.add(Terminal.of(String.valueOf(i % 2)));
+			}
+		}
+		Sequence ordered = Sequence.ordered(elements);
+		assertThat(ordered.getValues() instanceof RunLengthValueList, is(true));
+		assertThat(ordered.getValues(), is(elements));
+		assertThat(ordered.getNodeCount(), is(501L));
+		
+		Sequence replaced = ordered.replaceAt(75, Terminal.of("x"));
+		List<Value> expect = new ArrayList<Value>(elements);
+		expect.set(75, Terminal.of("x"));
+		assertThat(replaced.getValues(), is(expect));
+		assertThat(replaced, is(Sequence.ordered(expect)));
+		assertThat(replaced.getFingerprint(), is(Sequence.ordered(expect).getFingerprint()));
+		assertThat(ordered.without(0).insert(0, Terminal.of("0")), is(ordered));
+	}
+	
+	private static int count(List<Value> values, Value value) {
+		int count = 0;
+		for (Value v : values) {
+			if (v.equals(value)) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
 	private List<Value> ls(String... ss) {
 		List<Value> list = new ArrayList<Value>();
 		for (String s : ss) {
@@ -199,4 +705,12 @@ public class SequenceTest {
 		}
 		return list;
 	}
+	
+	private static Value deep(int depth, String leaf) {
+		Value current = Terminal.of(leaf);
+		for (int i = 0; i < depth; i++) {
+			current = Sequence.ordered(Collections.singletonList(current));
+		}
+		return current;
+	}
 }
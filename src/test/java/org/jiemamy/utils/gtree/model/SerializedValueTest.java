@@ -0,0 +1,179 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link SerializedValue}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class SerializedValueTest {
+	
+	/**
+	 * Test method for {@link SerializedValue#writeExternal(java.io.ObjectOutput)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testTerminal() throws Exception {
+		assertThat(restore(Terminal.of("hello")), is((Object) Terminal.of("hello")));
+		assertThat(restore(Terminal.of("")), is((Object) Terminal.of("")));
+		assertThat(restore(Terminal.of("あ\ud800")), is((Object) Terminal.of("あ\ud800")));
+		assertThat(restore(Terminal.ofLong(-12345L)), is((Object) Terminal.of("-12345")));
+		assertThat(restore(Terminal.ofLong(Long.MIN_VALUE)), is((Object) Terminal.ofLong(Long.MIN_VALUE)));
+		assertThat(restore(Terminal.ofDouble(1.5)), is((Object) Terminal.of("1.5")));
+	}
+	
+	/**
+	 * Test method for {@link SerializedValue#writeExternal(java.io.ObjectOutput)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testTree() throws Exception {
+		SymbolTable symbols = new SymbolTable();
+		Record record = new Record.Builder()
+			.add(symbols.intern("name"), Terminal.of("a"))
+			.add(symbols.intern("tags"), Sequence.unordered(Arrays.asList(t("b"), t("a"), t("a"))))
+			.add(symbols.intern("tags"), Sequence.ordered(Arrays.asList(t("a"), Terminal.ofLong(1L))))
+			.add(Sequence.ordered(Arrays.asList(t("complex"), t("key"))), Record.of(Arrays.<Entry> asList()))
+			.add(t("packed"), Sequence.packed(new int[] {
+				1,
+				-2,
+				Integer.MAX_VALUE
+			}))
+			.add(t("bytes"), Sequence.packed(new byte[] {
+				1,
+				-1
+			}))
+			.add(t("doubles"), Sequence.packed(new double[] {
+				0.5,
+				Double.NaN
+			}))
+			.add(t("empty"), Sequence.ordered(Arrays.<Value> asList()))
+			.build();
+		Value restored = (Value) restore(record);
+		assertThat(restored, is((Value) record));
+		assertThat(restored.getFingerprint(), is(record.getFingerprint()));
+		assertThat(((Sequence) ((Record) restored).get(t("packed"))).getPackedType(), is((Object) int.class));
+	}
+	
+	/**
+	 * Test method for {@link SerializedValue#writeExternal(java.io.ObjectOutput)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testShared() throws Exception {
+		Sequence shared = Sequence.ordered(Arrays.asList(t("a"), t("b")));
+		Record inner = new Record.Builder().add(t("x"), shared).build();
+		Sequence root = Sequence.ordered(Arrays.<Value> asList(shared, inner, shared, inner));
+		Sequence restored = (Sequence) restore(root);
+		assertThat(restored, is(root));
+		assertThat(restored.getValues().get(2), sameInstance(restored.getValues().get(0)));
+		assertThat(restored.getValues().get(3), sameInstance(restored.getValues().get(1)));
+		assertThat(((Record) restored.getValues().get(1)).get(t("x")), sameInstance(restored.getValues().get(0)));
+	}
+	
+	/**
+	 * Test method for {@link SerializedValue#writeExternal(java.io.ObjectOutput)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testDeep() throws Exception {
+		Value value = t("leaf");
+		for (int i = 0; i < 100000; i++) {
+			value = new Record.Builder().add(t("child"), value).build();
+		}
+		Value restored = (Value) restore(value);
+		assertThat(restored.getFingerprint(), is(value.getFingerprint()));
+		assertThat(restored.getHeight(), is(value.getHeight()));
+	}
+	
+	/**
+	 * Test method for {@link SerializedValue#writeExternal(java.io.ObjectOutput)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testCompact() throws Exception {
+		Sequence.Builder rows = new Sequence.Builder(Value.Kind.ORDERED_LIST);
+		for (int i = 0; i < 10000; i++) {
+			rows.add(new Record.Builder()
+				.add(t("id"), Terminal.ofLong((long) i))
+				.add(t("name"), t("column" + (i % 100)))
+				.add(t("type"), t("INTEGER"))
+				.build());
+		}
+		Sequence table = rows.build();
+		byte[] bytes = serialize(table);
+		assertThat(bytes.length, lessThan(10000 * 10));
+		assertThat(deserialize(bytes), is((Object) table));
+	}
+	
+	/**
+	 * Test method for {@link SerializedValue#readExternal(java.io.ObjectInput)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testCorrupted() throws Exception {
+		byte[] bytes = serialize(Sequence.ordered(Arrays.asList(t("a"), t("b"), t("c"))));
+		byte[] truncated = new byte[bytes.length - 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		try {
+			deserialize(truncated);
+			fail();
+		} catch (IOException e) {
+			// ok.
+		}
+	}
+	
+	private static Terminal t(String representation) {
+		return Terminal.of(representation);
+	}
+	
+	private static Object restore(Object object) throws Exception {
+		return deserialize(serialize(object));
+	}
+	
+	private static byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+	
+	private static Object deserialize(byte[] bytes) throws Exception {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			return in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+}
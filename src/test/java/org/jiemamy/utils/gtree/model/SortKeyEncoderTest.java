@@ -0,0 +1,167 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link SortKeyEncoder}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class SortKeyEncoderTest {
+	
+	/**
+	 * Test method for {@link SortKeyEncoder#encode(Value)}.
+	 */
+	@Test
+	public void testEncode_Terminal() {
+		assertOrder(t(""), t("a"));
+		assertOrder(t("a"), t("aa"));
+		assertOrder(t("a"), t("b"));
+		assertOrder(t("a"), t("a\u0000"));
+		assertOrder(t("a\u0000"), t("a\u0001"));
+		assertOrder(t("\u00FF"), t("\u0100"));
+		assertOrder(t("\u0100"), t("\uFFFF"));
+		assertOrder(t("ab"), t("b"));
+	}
+	
+	/**
+	 * Test method for {@link SortKeyEncoder#encode(Value)}.
+	 */
+	@Test
+	public void testEncode_Kind() {
+		assertOrder(t("z"), Sequence.unordered(vs()));
+		assertOrder(Sequence.unordered(vs("z")), Sequence.ordered(vs()));
+		assertOrder(Sequence.ordered(vs("z")), Record.of(new ArrayList<Entry>()));
+	}
+	
+	/**
+	 * Test method for {@link SortKeyEncoder#encode(Value)}.
+	 */
+	@Test
+	public void testEncode_Sequence() {
+		assertOrder(Sequence.ordered(vs("b")), Sequence.ordered(vs("a", "a")));
+		assertOrder(Sequence.ordered(vs("a", "b")), Sequence.ordered(vs("b", "a")));
+		assertOrder(Sequence.ordered(vs("a", "")), Sequence.ordered(vs("a", "a")));
+		assertThat(SortKeyEncoder.compare(
+				SortKeyEncoder.encode(Sequence.unordered(vs("b", "a"))),
+				SortKeyEncoder.encode(Sequence.unordered(vs("a", "b")))), is(0));
+	}
+	
+	/**
+	 * Test method for {@link SortKeyEncoder#encode(Value)}.
+	 */
+	@Test
+	public void testEncode_Random() {
+		Random random = new Random(12345);
+		List<Value> values = new ArrayList<Value>();
+		for (int i = 0; i < 200; i++) {
+			values.add(random(random, 3));
+		}
+		for (Value a : values) {
+			for (Value b : values) {
+				int expect = Integer.signum(a.compareTo(b));
+				int actual = SortKeyEncoder.compare(SortKeyEncoder.encode(a), SortKeyEncoder.encode(b));
+				assertThat(a + " <=> " + b, actual, is(expect));
+			}
+		}
+	}
+	
+	/**
+	 * Test method for {@link Sequence#unordered(List)}.
+	 */
+	@Test
+	public void testSort() {
+		Random random = new Random(6789);
+		List<Value> values = new ArrayList<Value>();
+		List<Entry> entries = new ArrayList<Entry>();
+		for (int i = 0; i < SortKeyEncoder.SORT_THRESHOLD * 3; i++) {
+			values.add(random(random, 2));
+			entries.add(Entry.of(random(random, 1), random(random, 2)));
+		}
+		List<Value> sortedValues = new ArrayList<Value>(values);
+		Collections.sort(sortedValues);
+		assertThat(Sequence.unordered(values).getValues(), is(sortedValues));
+		
+		List<Entry> sortedEntries = new ArrayList<Entry>(entries);
+		Collections.sort(sortedEntries);
+		assertThat(Record.of(entries).getEntries(), is(sortedEntries));
+	}
+	
+	/**
+	 * Test method for {@link SortKeyEncoder#encode(Value)}.
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testEncode_Null() {
+		SortKeyEncoder.encode(null);
+	}
+	
+	private static void assertOrder(Value a, Value b) {
+		assertThat(a + " < " + b, a.compareTo(b) < 0, is(true));
+		byte[] ka = SortKeyEncoder.encode(a);
+		byte[] kb = SortKeyEncoder.encode(b);
+		assertThat(a + " < " + b, SortKeyEncoder.compare(ka, kb), is(-1));
+		assertThat(b + " > " + a, SortKeyEncoder.compare(kb, ka), is(+1));
+		assertThat(SortKeyEncoder.compare(ka, ka), is(0));
+	}
+	
+	private static Value random(Random random, int depth) {
+		int kind = depth == 0 ? 0 : random.nextInt(4);
+		int size = random.nextInt(3);
+		switch (kind) {
+			case 0:
+				StringBuilder buf = new StringBuilder();
+				for (int i = 0; i < size; i++) {
+					buf.append("\u0000a\u0100\uFFFF".charAt(random.nextInt(4)));
+				}
+				return t(buf.toString());
+			case 1:
+			case 2:
+				List<Value> elements = new ArrayList<Value>();
+				for (int i = 0; i < size; i++) {
+					elements.add(random(random, depth - 1));
+				}
+				return kind == 1 ? Sequence.unordered(elements) : Sequence.ordered(elements);
+			default:
+				List<Entry> entries = new ArrayList<Entry>();
+				for (int i = 0; i < size; i++) {
+					entries.add(Entry.of(random(random, 0), random(random, depth - 1)));
+				}
+				return Record.of(entries);
+		}
+	}
+	
+	private static Terminal t(String s) {
+		return Terminal.of(s);
+	}
+	
+	private static List<Value> vs(String... ss) {
+		List<Value> results = new ArrayList<Value>();
+		for (String s : ss) {
+			results.add(t(s));
+		}
+		return results;
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link SymbolTable}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class SymbolTableTest {
+	
+	/**
+	 * Test method for {@link SymbolTable#intern(String)}.
+	 */
+	@Test
+	public void testIntern() {
+		SymbolTable table = new SymbolTable();
+		Symbol name = table.intern("name");
+		assertThat(table.intern("name"), sameInstance(name));
+		assertThat(table.intern(Terminal.of("name")), sameInstance(name));
+		assertThat(table.intern(name), sameInstance(name));
+		assertThat(table.size(), is(1));
+		
+		assertThat(name.getRepresentation(), is("name"));
+		assertThat(name, is((Terminal) Terminal.of("name")));
+		assertThat(Terminal.of("name"), is((Terminal) name));
+		assertThat(name.hashCode(), is(Terminal.of("name").hashCode()));
+		assertThat(name.compareTo(Terminal.of("name")), is(0));
+	}
+	
+	/**
+	 * Test method for {@link SymbolTable#intern(Terminal)}.
+	 */
+	@Test
+	public void testIntern_OtherTable() {
+		SymbolTable table = new SymbolTable();
+		Symbol foreign = new SymbolTable().intern("name");
+		Symbol name = table.intern(foreign);
+		assertThat(name == foreign, is(false));
+		assertThat(name, is(foreign));
+		assertThat(name.compareTo(foreign), is(0));
+	}
+	
+	/**
+	 * Test method for {@link Symbol#compareTo(Value)}.
+	 */
+	@Test
+	public void testCompareTo_Random() {
+		SymbolTable table = new SymbolTable();
+		Random random = new Random(86420);
+		List<Symbol> symbols = new ArrayList<Symbol>();
+		for (int i = 0; i < 300; i++) {
+			StringBuilder buf = new StringBuilder();
+			for (int j = random.nextInt(4); j >= 0; j--) {
+				buf.append((char) ('a' + random.nextInt(3)));
+			}
+			symbols.add(table.intern(buf.toString()));
+		}
+		assertConsistent(symbols);
+	}
+	
+	/**
+	 * Test method for {@link Symbol#compareTo(Value)}.
+	 */
+	@Test
+	public void testCompareTo_Exhausted() {
+		SymbolTable table = new SymbolTable();
+		List<Symbol> symbols = new ArrayList<Symbol>();
+		symbols.add(table.intern("a"));
+		symbols.add(table.intern("b"));
+		StringBuilder buf = new StringBuilder("a");
+		for (int i = 0; i < 100; i++) {
+			buf.append('z');
+			symbols.add(table.intern(buf.toString()));
+		}
+		for (int i = 0; i < 1000; i++) {
+			symbols.add(table.intern(String.format("c%04d", i)));
+		}
+		assertThat(symbols.get(101).getRank(), is(Symbol.NO_RANK));
+		assertThat(symbols.get(symbols.size() - 1).getRank() == Symbol.NO_RANK, is(false));
+		assertConsistent(symbols);
+	}
+	
+	/**
+	 * Test method for {@link Record#get(Value)}.
+	 */
+	@Test
+	public void testRecord() {
+		SymbolTable table = new SymbolTable();
+		Record.Builder builder = new Record.Builder();
+		builder.add(table.intern("type"), Terminal.of("INT"));
+		builder.add(table.intern("name"), Terminal.of("ID"));
+		Record record = builder.build();
+		assertThat(record.get(Terminal.of("name")), is((Value) Terminal.of("ID")));
+		assertThat(record.get(table.intern("type")), is((Value) Terminal.of("INT")));
+		
+		Record.Builder plain = new Record.Builder();
+		plain.add(Terminal.of("name"), Terminal.of("ID"));
+		plain.add(Terminal.of("type"), Terminal.of("INT"));
+		assertThat(record, is(plain.build()));
+	}
+	
+	/**
+	 * Test method for {@link Symbol}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSerialize() throws Exception {
+		Symbol name = new SymbolTable().intern("name");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(name);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		Object restored = in.readObject();
+		assertThat(restored, is((Object) Terminal.of("name")));
+	}
+	
+	private static void assertConsistent(List<Symbol> symbols) {
+		for (Symbol a : symbols) {
+			for (Symbol b : symbols) {
+				String label = a + " <=> " + b;
+				int expect = Integer.signum(a.getRepresentation().compareTo(b.getRepresentation()));
+				assertThat(label, Integer.signum(a.compareTo(b)), is(expect));
+				assertThat(label, a.equals(b), is(expect == 0));
+			}
+		}
+	}
+}
@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -115,4 +116,72 @@ public class TerminalTest {
 		};
 		assertThat(v.accept(visitor, null), is("a"));
 	}
+	
+	/**
+	 * Test method for {@link Value#getFingerprint()}.
+	 */
+	@Test
+	public void testGetFingerprint() {
+		Terminal v1 = Terminal.of("a");
+		Terminal v2 = Terminal.of("a");
+		Terminal v3 = Terminal.of("b");
+		assertThat(v1.getFingerprint(), is(v2.getFingerprint()));
+		assertThat(v1.getFingerprint() == v3.getFingerprint(), is(false));
+		assertThat(v1.hashCode(), is(v2.hashCode()));
+	}
+	
+	/**
+	 * Test method for {@link Terminal#ofLong(long)}.
+	 */
+	@Test
+	public void testOfLong() {
+		Terminal v = Terminal.ofLong(-123L);
+		assertThat(v.getRepresentation(), is("-123"));
+		assertThat(v, is(Terminal.of("-123")));
+		assertThat(Terminal.of("-123"), is(v));
+		assertThat(v.hashCode(), is(Terminal.of("-123").hashCode()));
+		assertThat(v.compareTo(Terminal.of("-123")), is(0));
+		assertThat(Terminal.ofLong(Long.MIN_VALUE).getRepresentation(), is(String.valueOf(Long.MIN_VALUE)));
+	}
+	
+	/**
+	 * Test method for {@link Terminal#ofDouble(double)}.
+	 */
+	@Test
+	public void testOfDouble() {
+		Terminal v = Terminal.ofDouble(1.5);
+		assertThat(v.getRepresentation(), is("1.5"));
+		assertThat(v, is(Terminal.of("1.5")));
+		assertThat(v.hashCode(), is(Terminal.of("1.5").hashCode()));
+		assertThat(Terminal.ofDouble(0.0).equals(Terminal.ofDouble(-0.0)), is(false));
+		assertThat(Terminal.ofDouble(Double.NaN), is(Terminal.ofDouble(Double.longBitsToDouble(0x7FF8000000000001L))));
+		assertThat(Terminal.ofDouble(1.0).equals(Terminal.ofLong(1L)), is(false));
+	}
+	
+	/**
+	 * Test method for {@link Terminal#compareTo(Value)}.
+	 */
+	@Test
+	public void testCompareTo_Numeric() {
+		Random random = new Random(97531);
+		long[] samples = new long[200];
+		for (int i = 0; i < samples.length; i++) {
+			int digits = random.nextInt(19) + 1;
+			long value = random.nextLong() % (long) Math.pow(10, digits);
+			samples[i] = i % 10 == 0 ? value / 10 * 10 : value;
+		}
+		samples[0] = Long.MIN_VALUE;
+		samples[1] = Long.MAX_VALUE;
+		samples[2] = 0L;
+		for (long a : samples) {
+			for (long b : samples) {
+				int expect = Integer.signum(String.valueOf(a).compareTo(String.valueOf(b)));
+				assertThat(a + " <=> " + b, Integer.signum(Terminal.ofLong(a).compareTo(Terminal.ofLong(b))), is(expect));
+				assertThat(a + " <=> " + b, Terminal.ofLong(a).equals(Terminal.ofLong(b)), is(a == b));
+			}
+			long prefix = a / 10;
+			int expect = Integer.signum(String.valueOf(a).compareTo(String.valueOf(prefix)));
+			assertThat(a + " <=> " + prefix, Integer.signum(Terminal.ofLong(a).compareTo(Terminal.ofLong(prefix))), is(expect));
+		}
+	}
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link TreeStats}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class TreeStatsTest {
+	
+	/**
+	 * Test method for {@link Value#getNodeCount()}.
+	 */
+	@Test
+	public void testGetNodeCount() {
+		Value tree = sample();
+		assertThat(t("a").getNodeCount(), is(1L));
+		assertThat(tree.getNodeCount(), is(10L));
+		assertThat(t("a").getHeight(), is(1));
+		assertThat(tree.getHeight(), is(3));
+	}
+	
+	/**
+	 * Test method for {@link Value#getEstimatedBytes()}.
+	 */
+	@Test
+	public void testGetEstimatedBytes() {
+		assertThat(t("abcd").getEstimatedBytes(), greaterThan(t("ab").getEstimatedBytes()));
+		Value pair = Sequence.ordered(Arrays.<Value> asList(t("a"), t("b")));
+		assertThat(pair.getEstimatedBytes(), greaterThan(t("a").getEstimatedBytes() + t("b").getEstimatedBytes()));
+	}
+	
+	/**
+	 * Test method for {@link Value#getNodeCount()}.
+	 */
+	@Test
+	public void testGetNodeCount_Deep() {
+		Value tree = t("leaf");
+		for (int i = 0; i < 1000000; i++) {
+			tree = Sequence.ordered(Collections.singletonList(tree));
+		}
+		assertThat(tree.getNodeCount(), is(1000001L));
+		assertThat(tree.getHeight(), is(1000001));
+	}
+	
+	/**
+	 * Test method for {@link TreeStats#of(Value)}.
+	 */
+	@Test
+	public void testOf() {
+		Value tree = sample();
+		TreeStats stats = TreeStats.of(tree);
+		assertThat(stats.getNodeCount(), is(10L));
+		assertThat(stats.getHeight(), is(3));
+		assertThat(stats.getEstimatedBytes(), is(tree.getEstimatedBytes()));
+		assertThat(stats.getCount(Value.Kind.TERMINAL), is(7L));
+		assertThat(stats.getCount(Value.Kind.ORDERED_LIST), is(1L));
+		assertThat(stats.getCount(Value.Kind.UNORDERED_LIST), is(0L));
+		assertThat(stats.getCount(Value.Kind.RECORD), is(2L));
+		assertThat(stats.getTerminalLengthMax(), is(5));
+		assertThat(stats.getTerminalLengthAverage(), is(16.0 / 7));
+		
+		long[] histogram = stats.getTerminalLengthHistogram();
+		assertThat(histogram[0], is(1L));
+		assertThat(histogram[1], is(1L));
+		assertThat(histogram[2], is(4L));
+		assertThat(histogram[3], is(1L));
+	}
+	
+	/**
+	 * Test method for {@link TreeStats#getDuplicateCount()}.
+	 */
+	@Test
+	public void testGetDuplicateCount() {
+		TreeStats stats = TreeStats.of(sample());
+		
+		// the second record {name=ID, type=INT} and its two values
+		assertThat(stats.getDuplicateCount(), is(3L));
+		assertThat(stats.getDuplicateRatio(), is(3.0 / 10));
+	}
+	
+	/**
+	 * Test method for {@link TreeStats#of(Value)}.
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testOf_Null() {
+		TreeStats.of(null);
+	}
+	
+	private static Value sample() {
+		Record.Builder column = new Record.Builder();
+		column.add(t("name"), t("ID"));
+		column.add(t("type"), t("INT"));
+		Value record = column.build();
+		return Sequence.ordered(Arrays.<Value> asList(t(""), t("x"), record, t("TABLE"), record));
+	}
+	
+	private static Terminal t(String s) {
+		return Terminal.of(s);
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link TreeWalker}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class TreeWalkerTest {
+	
+	/**
+	 * Test method for {@link TreeWalker#walk(Value)}.
+	 */
+	@Test
+	public void testWalk_Order() {
+		Value tree = Sequence.ordered(Arrays.<Value> asList(
+				t("a"),
+				Sequence.ordered(Arrays.<Value> asList(t("b"), t("c"))),
+				t("d")));
+		final List<String> log = new ArrayList<String>();
+		boolean completed = new TreeWalker() {
+			
+			@Override
+			protected Control enter(Value value) {
+				log.add("+" + label(value));
+				return Control.CONTINUE;
+			}
+			
+			@Override
+			protected Control exit(Value value) {
+				log.add("-" + label(value));
+				return Control.CONTINUE;
+			}
+		}.walk(tree);
+		assertThat(completed, is(true));
+		assertThat(log, is(Arrays.asList(
+				"+()", "+a", "-a", "+()", "+b", "-b", "+c", "-c", "-()", "+d", "-d", "-()")));
+	}
+	
+	/**
+	 * Test method for {@link TreeWalker#walk(Value)}.
+	 */
+	@Test
+	public void testWalk_SkipSubtree() {
+		Value tree = Sequence.ordered(Arrays.<Value> asList(
+				Sequence.ordered(Arrays.<Value> asList(t("a"), t("b"))),
+				t("c")));
+		final List<String> log = new ArrayList<String>();
+		boolean completed = new TreeWalker() {
+			
+			@Override
+			protected Control enter(Value value) {
+				log.add("+" + label(value));
+				return getDepth() == 1 && value.getKind() != Value.Kind.TERMINAL
+						? Control.SKIP_SUBTREE
+						: Control.CONTINUE;
+			}
+			
+			@Override
+			protected Control exit(Value value) {
+				log.add("-" + label(value));
+				return Control.CONTINUE;
+			}
+		}.walk(tree);
+		assertThat(completed, is(true));
+		assertThat(log, is(Arrays.asList("+()", "+()", "+c", "-c", "-()")));
+	}
+	
+	/**
+	 * Test method for {@link TreeWalker#walk(Value)}.
+	 */
+	@Test
+	public void testWalk_Stop() {
+		Value tree = Sequence.ordered(Arrays.<Value> asList(t("a"), t("b"), t("c")));
+		final List<String> log = new ArrayList<String>();
+		TreeWalker walker = new TreeWalker() {
+			
+			@Override
+			protected Control enter(Value value) {
+				log.add(label(value));
+				return label(value).equals("b") ? Control.STOP : Control.CONTINUE;
+			}
+		};
+		assertThat(walker.walk(tree), is(false));
+		assertThat(log, is(Arrays.asList("()", "a", "b")));
+		
+		log.clear();
+		assertThat(walker.walk(t("a")), is(true));
+		assertThat(log, is(Arrays.asList("a")));
+	}
+	
+	/**
+	 * Test method for {@link TreeWalker#getPath()}.
+	 */
+	@Test
+	public void testGetPath() {
+		Record.Builder columns = new Record.Builder();
+		columns.add(t("name"), t("ID"));
+		Value tree = Sequence.ordered(Arrays.<Value> asList(t("x"), columns.build()));
+		final List<String> log = new ArrayList<String>();
+		new TreeWalker() {
+			
+			@Override
+			protected Control enter(Value value) {
+				if (value.getKind() == Value.Kind.TERMINAL) {
+					int depth = getDepth();
+					log.add(getPath() + "@" + getIndex(depth) + ":" + getKey(depth));
+					assertThat(getPath().get(getNode(0)), is(value));
+				}
+				return Control.CONTINUE;
+			}
+		}.walk(tree);
+		assertThat(log, is(Arrays.asList("[0]@0:null", "[1]/name@0:name")));
+	}
+	
+	/**
+	 * Test method for {@link TreeWalker#walk(Value)}.
+	 */
+	@Test
+	public void testWalk_Deep() {
+		final int depth = 1000000;
+		Value tree = t("leaf");
+		for (int i = 0; i < depth; i++) {
+			tree = Sequence.ordered(Collections.singletonList(tree));
+		}
+		final int[] max = new int[1];
+		boolean completed = new TreeWalker() {
+			
+			@Override
+			protected Control enter(Value value) {
+				max[0] = Math.max(max[0], getDepth());
+				return Control.CONTINUE;
+			}
+		}.walk(tree);
+		assertThat(completed, is(true));
+		assertThat(max[0], is(depth));
+		tree.getFingerprint();
+	}
+	
+	/**
+	 * Test method for {@link TreeWalker#getDepth()}.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testGetDepth_NotWalking() {
+		new TreeWalker() {
+			// no members
+		}.getDepth();
+	}
+	
+	private static String label(Value value) {
+		if (value.getKind() == Value.Kind.TERMINAL) {
+			return ((Terminal) value).getRepresentation();
+		}
+		return "()";
+	}
+	
+	private static Terminal t(String s) {
+		return Terminal.of(s);
+	}
+}
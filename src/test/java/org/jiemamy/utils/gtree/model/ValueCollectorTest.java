@@ -0,0 +1,119 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ValueCollector}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class ValueCollectorTest {
+	
+	/**
+	 * Test method for {@link ValueCollector#toOrdered(List, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testToOrdered() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Value> values = values(new Random(12345), 10000);
+			Sequence expect = Sequence.ordered(values);
+			assertThat(ValueCollector.toOrdered(values, executor, 4), is(expect));
+			assertThat(ValueCollector.toOrdered(values, executor, 7), is(expect));
+			List<Value> small = values.subList(0, 10);
+			assertThat(ValueCollector.toOrdered(small, executor, 4), is(Sequence.ordered(small)));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test method for {@link ValueCollector#toUnordered(List, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testToUnordered() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Value> values = values(new Random(67890), 10000);
+			Sequence expect = Sequence.unordered(values);
+			Sequence collected = ValueCollector.toUnordered(values, executor, 4);
+			assertThat(collected, is(expect));
+			assertThat(collected.getValues(), is(expect.getValues()));
+			assertThat(ValueCollector.toUnordered(values, executor, 13), is(expect));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test method for {@link ValueCollector#toRecord(List, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testToRecord() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Random random = new Random(24680);
+			List<Entry> entries = new ArrayList<Entry>();
+			for (Value value : values(random, 5000)) {
+				entries.add(Entry.of(Terminal.of("k" + random.nextInt(500)), value));
+			}
+			Record expect = Record.of(entries);
+			Record collected = ValueCollector.toRecord(entries, executor, 4);
+			assertThat(collected, is(expect));
+			assertThat(collected.getEntries(), is(expect.getEntries()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test method for {@link ValueCollector#toUnordered(List, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testToUnordered_NullElement() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Value> values = values(new Random(12345), 5000);
+			values.set(4000, null);
+			ValueCollector.toUnordered(values, executor, 4);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static List<Value> values(Random random, int count) {
+		List<Value> results = new ArrayList<Value>(count);
+		for (int i = 0; i < count; i++) {
+			results.add(Terminal.of(String.valueOf(random.nextInt(count / 2))));
+		}
+		return results;
+	}
+}
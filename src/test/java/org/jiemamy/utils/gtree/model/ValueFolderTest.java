@@ -0,0 +1,194 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ValueFolder}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class ValueFolderTest {
+	
+	/**
+	 * Test method for {@link ValueFolder#fold(Value)}.
+	 */
+	@Test
+	public void testFold() {
+		Value tree = Sequence.ordered(Arrays.<Value> asList(
+				t("a"),
+				Sequence.ordered(Arrays.<Value> asList(t("b"), t("c")))));
+		assertThat(new Counter().fold(tree), is(5));
+		assertThat(new Counter().fold(t("a")), is(1));
+	}
+	
+	/**
+	 * Test method for {@link ValueFolder#fold(Value, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFold_Parallel() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Random random = new Random(24680);
+			for (int i = 0; i < 20; i++) {
+				Value tree = random(random, 4);
+				int expect = new Counter().fold(tree);
+				assertThat(new Counter().fold(tree, executor, 4), is(expect));
+				assertThat(new Counter().fold(tree, executor, 1), is(expect));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test method for {@link ValueFolder#fold(Value, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFold_Fingerprint() throws Exception {
+		Value tree = random(new Random(13579), 5);
+		Value copy = random(new Random(13579), 5);
+		Long expect = new FingerprintSum().fold(copy);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertThat(new FingerprintSum().fold(tree, executor, 4), is(expect));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test method for {@link ValueFolder#fold(Value, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testFold_Deep() throws Exception {
+		Value tree = t("leaf");
+		for (int i = 0; i < 100000; i++) {
+			tree = Sequence.ordered(Collections.singletonList(tree));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			assertThat(new Counter().fold(tree, executor, 4), is(100001));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Test method for {@link ValueFolder#fold(Value, ExecutorService, int)}.
+	 * @throws Exception if occur
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFold_Exception() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			new Counter() {
+				
+				@Override
+				protected Integer accumulate(Integer partial, Value value) {
+					if (value.getKind() == Value.Kind.TERMINAL) {
+						throw new UnsupportedOperationException();
+					}
+					return super.accumulate(partial, value);
+				}
+			}.fold(random(new Random(1), 4), executor, 4);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static Value random(Random random, int depth) {
+		int size = random.nextInt(8);
+		if (depth == 0 || size == 0) {
+			return t(String.valueOf(random.nextInt(100)));
+		}
+		if (random.nextBoolean()) {
+			Sequence.Builder builder = new Sequence.Builder(
+					random.nextBoolean() ? Value.Kind.ORDERED_LIST : Value.Kind.UNORDERED_LIST);
+			for (int i = 0; i < size; i++) {
+				builder.add(random(random, depth - 1));
+			}
+			return builder.build();
+		}
+		Record.Builder builder = new Record.Builder();
+		for (int i = 0; i < size; i++) {
+			builder.add(t(String.valueOf(random.nextInt(100))), random(random, depth - 1));
+		}
+		return builder.build();
+	}
+	
+	private static Terminal t(String s) {
+		return Terminal.of(s);
+	}
+	
+
+	private static class Counter extends ValueFolder<Integer> {
+		
+		Counter() {
+			super();
+		}
+		
+		@Override
+		protected Integer identity() {
+			return 0;
+		}
+		
+		@Override
+		protected Integer accumulate(Integer partial, Value value) {
+			return partial + 1;
+		}
+		
+		@Override
+		protected Integer combine(Integer left, Integer right) {
+			return left + right;
+		}
+	}
+	
+	private static class FingerprintSum extends ValueFolder<Long> {
+		
+		FingerprintSum() {
+			super();
+		}
+		
+		@Override
+		protected Long identity() {
+			return 0L;
+		}
+		
+		@Override
+		protected Long accumulate(Long partial, Value value) {
+			return partial + value.getFingerprint();
+		}
+		
+		@Override
+		protected Long combine(Long left, Long right) {
+			return left + right;
+		}
+	}
+}
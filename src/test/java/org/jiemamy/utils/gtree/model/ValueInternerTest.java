@@ -0,0 +1,101 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ValueInterner}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class ValueInternerTest {
+	
+	/**
+	 * Test method for {@link ValueInterner#intern(Value)}.
+	 */
+	@Test
+	public void testIntern() {
+		ValueInterner interner = new ValueInterner();
+		Terminal t1 = interner.intern(Terminal.of("a"));
+		Terminal t2 = interner.intern(Terminal.of("a"));
+		Terminal t3 = interner.intern(Terminal.of("b"));
+		assertThat(t1 == t2, is(true));
+		assertThat(t1 == t3, is(false));
+	}
+	
+	/**
+	 * Test method for {@link ValueInterner#intern(Value)}.
+	 */
+	@Test
+	public void testIntern_Subtree() {
+		ValueInterner interner = new ValueInterner();
+		Sequence s1 = interner.intern(Sequence.ordered(ls("a", "b")));
+		Record r1 = Record.of(Arrays.asList(Entry.of(Terminal.of("k"), Sequence.ordered(ls("a", "b")))));
+		Record r2 = interner.intern(r1);
+		assertThat(r2, is(r1));
+		assertThat(r2.getEntries().get(0).getValue() == s1, is(true));
+		assertThat(s1.getValues().get(0) == interner.intern(Terminal.of("a")), is(true));
+	}
+	
+	/**
+	 * Test method for {@link ValueInterner#intern(Value)}.
+	 */
+	@Test
+	public void testIntern_Unordered() {
+		ValueInterner interner = new ValueInterner();
+		Sequence s1 = interner.intern(Sequence.unordered(ls("b", "a", "c")));
+		Sequence s2 = interner.intern(Sequence.unordered(ls("c", "b", "a")));
+		assertThat(s1 == s2, is(true));
+		assertThat(s1.getValues(), is(ls("a", "b", "c")));
+	}
+	
+	/**
+	 * Test method for {@link ValueInterner#intern(Value)}.
+	 */
+	@Test
+	public void testIntern_Bounded() {
+		ValueInterner interner = new ValueInterner(1);
+		Terminal t1 = interner.intern(Terminal.of("a"));
+		assertThat(interner.size(), is(1));
+		assertThat(interner.intern(Terminal.of("a")) == t1, is(true));
+		interner.clear();
+		assertThat(interner.size(), is(0));
+	}
+	
+	/**
+	 * Test method for {@link ValueInterner#intern(Value)}.
+	 */
+	@Test(expected = NullPointerException.class)
+	public void testIntern_Null() {
+		new ValueInterner().intern(null);
+	}
+	
+	private List<Value> ls(String... ss) {
+		List<Value> list = new ArrayList<Value>();
+		for (String s : ss) {
+			list.add(Terminal.of(s));
+		}
+		return list;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ValuePath}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class ValuePathTest {
+	
+	private final Record model = r("name", t("T"), "columns", Sequence.ordered(vs(r("name", t("A")), r("name", t("B")))),
+			"options", r("x", t("1")));
+	
+	private final ValuePath columnName = ValuePath.ROOT.key(t("columns")).index(1).key(t("name"));
+	
+
+	/**
+	 * Test method for {@link ValuePath#get(Value)}.
+	 */
+	@Test
+	public void testGet() {
+		assertThat(columnName.get(model), is((Value) t("B")));
+		assertThat(ValuePath.ROOT.get(model), is((Value) model));
+		assertThat(ValuePath.ROOT.key(t("missing")).get(model), is(nullValue()));
+		assertThat(ValuePath.ROOT.key(t("columns")).index(5).get(model), is(nullValue()));
+		assertThat(ValuePath.ROOT.index(0).get(model), is(nullValue()));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#with(Value, Value)}.
+	 */
+	@Test
+	public void testWith() {
+		Value next = columnName.with(model, t("ID"));
+		assertThat(columnName.get(next), is((Value) t("ID")));
+		assertThat(columnName.get(model), is((Value) t("B")));
+		
+		Record record = (Record) next;
+		assertThat(record.get(t("options")), sameInstance(model.get(t("options"))));
+		Sequence columns = (Sequence) record.get(t("columns"));
+		Sequence original = (Sequence) model.get(t("columns"));
+		assertThat(columns.getValues().get(0), sameInstance(original.getValues().get(0)));
+		
+		assertThat(ValuePath.ROOT.with(model, t("X")), is((Value) t("X")));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#with(Value, Value)}.
+	 */
+	@Test
+	public void testWith_RepeatedKey() {
+		Record root = r("k", r("x", t("1")), "k", r("x", t("2")));
+		ValuePath path = ValuePath.ROOT.key(t("k")).key(t("y"));
+		Value next = path.with(root, t("Y"));
+		assertThat(next, is((Value) r("k", r("x", t("1"), "y", t("Y")), "k", r("x", t("2")))));
+		assertThat(((Record) next).getAll(t("k")).size(), is(2));
+		
+		Value moved = ValuePath.ROOT.key(t("k")).key(t("x")).with(root, t("3"));
+		assertThat(moved, is((Value) r("k", r("x", t("2")), "k", r("x", t("3")))));
+		assertThat(((Record) moved).getAll(t("k")).get(0), sameInstance(root.getAll(t("k")).get(1)));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#insert(Value, Value)}.
+	 */
+	@Test
+	public void testInsert() {
+		ValuePath path = ValuePath.ROOT.key(t("columns")).index(1);
+		Value next = path.insert(model, r("name", t("C")));
+		assertThat(ValuePath.ROOT.key(t("columns")).get(next), is((Value) Sequence.ordered(vs(r("name", t("A")), r(
+				"name", t("C")), r("name", t("B"))))));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#without(Value)}.
+	 */
+	@Test
+	public void testWithout() {
+		Value next = ValuePath.ROOT.key(t("options")).key(t("x")).without(model);
+		assertThat(ValuePath.ROOT.key(t("options")).get(next), is((Value) r()));
+		next = ValuePath.ROOT.key(t("columns")).index(0).without(model);
+		assertThat(ValuePath.ROOT.key(t("columns")).get(next), is((Value) Sequence.ordered(vs(r("name", t("B"))))));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#with(Value, Value)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testWith_Missing() {
+		ValuePath.ROOT.key(t("missing")).key(t("x")).with(model, t("X"));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#with(Value, Value)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testWith_Mismatch() {
+		ValuePath.ROOT.key(t("name")).index(0).with(model, t("X"));
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#without(Value)}.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testWithout_Root() {
+		ValuePath.ROOT.without(model);
+	}
+	
+	/**
+	 * Test method for {@link ValuePath#equals(Object)}.
+	 */
+	@Test
+	public void testEquals() {
+		ValuePath other = ValuePath.ROOT.key(t("columns")).index(1).key(t("name"));
+		assertThat(columnName, is(other));
+		assertThat(columnName.hashCode(), is(other.hashCode()));
+		assertThat(columnName.equals(ValuePath.ROOT.key(t("columns")).index(0).key(t("name"))), is(false));
+		assertThat(columnName.size(), is(3));
+		assertThat(columnName.toString(), is("/columns[1]/name"));
+	}
+	
+	private static Terminal t(String s) {
+		return Terminal.of(s);
+	}
+	
+	private static Record r(Object... keyValues) {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (int i = 0; i < keyValues.length; i += 2) {
+			entries.add(Entry.of(t((String) keyValues[i]), (Value) keyValues[i + 1]));
+		}
+		return Record.of(entries);
+	}
+	
+	private static List<Value> vs(Value... values) {
+		List<Value> results = new ArrayList<Value>();
+		for (Value value : values) {
+			results.add(value);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.model;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ValueQuery}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class ValueQueryTest {
+	
+	private final Record id = r("name", t("ID"), "type", t("INT"));
+	
+	private final Record name = r("name", t("NAME"), "type", t("VARCHAR"));
+	
+	private final Record code = r("name", t("ID"), "type", t("CHAR"));
+	
+	private final Record model = r("tables", Sequence.ordered(vs(r("name", t("A"), "columns", Sequence.ordered(vs(id,
+			name))), r("name", t("B"), "columns", Sequence.ordered(vs(code))))));
+	
+
+	/**
+	 * Test method for {@link ValueQuery#list(Value)}.
+	 */
+	@Test
+	public void testList_Key() {
+		assertThat(ValueQuery.compile("tables/*/name").list(model), is(vs(t("A"), t("B"))));
+		assertThat(ValueQuery.compile("/tables/*/columns/*/type").list(model), is(vs(t("INT"), t("VARCHAR"),
+				t("CHAR"))));
+		assertThat(ValueQuery.compile("missing/*").list(model), is(vs()));
+		assertThat(ValueQuery.compile("tables/name").list(model), is(vs()));
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#list(Value)}.
+	 */
+	@Test
+	public void testList_Predicate() {
+		assertThat(ValueQuery.compile("tables/*/columns/*[name='ID']").list(model), is(vs(id, code)));
+		assertThat(ValueQuery.compile("tables/*[name = 'B']/columns/*/type").list(model), is(vs(t("CHAR"))));
+		assertThat(ValueQuery.compile("tables/*[columns/*/type=VARCHAR]/name").list(model), is(vs(t("A"))));
+		assertThat(ValueQuery.compile("tables/*/columns/*[1]").list(model), is(vs(name)));
+		assertThat(ValueQuery.compile("tables/*/columns/*[name='ID'][0]/type").list(model), is(vs(t("INT"),
+				t("CHAR"))));
+		assertThat(ValueQuery.compile("tables/*[missing]").list(model), is(vs()));
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#list(Value)}.
+	 */
+	@Test
+	public void testList_Descendants() {
+		assertThat(ValueQuery.compile("**/type").list(model), is(vs(t("INT"), t("VARCHAR"), t("CHAR"))));
+		assertThat(ValueQuery.compile("**[type='CHAR']").list(model), is(vs(code)));
+		assertThat(ValueQuery.compile("").list(model), is(vs(model)));
+		assertThat(ValueQuery.compile(".").list(model), is(vs(model)));
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#first(Value)}.
+	 */
+	@Test
+	public void testFirst() {
+		assertThat(ValueQuery.compile("**[name='ID']").first(model), is((Value) id));
+		assertThat(ValueQuery.compile("**[name='X']").first(model), is(nullValue()));
+		assertThat(ValueQuery.compile("**[name='ID']").matches(model), is(true));
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#iterator(Value)}.
+	 */
+	@Test
+	public void testIterator_Lazy() {
+		List<Value> elements = new ArrayList<Value>();
+		for (int i = 0; i < 1000; i++) {
+			elements.add(r("k", t(String.valueOf(i))));
+		}
+		Iterator<Value> iter = ValueQuery.compile("*/k").iterator(Sequence.ordered(elements));
+		assertThat(iter.next(), is((Value) t("0")));
+		assertThat(iter.next(), is((Value) t("1")));
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#compile(String)}.
+	 */
+	@Test
+	public void testCompile_Quoted() {
+		Record r = r("a/b", t("x"), "c", t("it's"));
+		assertThat(ValueQuery.compile("'a/b'").list(r), is(vs(t("x"))));
+		assertThat(ValueQuery.compile(".[c='it\\'s']/'a/b'").list(r), is(vs(t("x"))));
+		assertThat(ValueQuery.compile("\"a/b\"").toString(), is("\"a/b\""));
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#compile(String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompile_Unclosed() {
+		ValueQuery.compile("tables/*[name='ID'");
+	}
+	
+	/**
+	 * Test method for {@link ValueQuery#compile(String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompile_Trailing() {
+		ValueQuery.compile("tables/");
+	}
+	
+	private static Terminal t(String s) {
+		return Terminal.of(s);
+	}
+	
+	private static Record r(Object... keyValues) {
+		List<Entry> entries = new ArrayList<Entry>();
+		for (int i = 0; i < keyValues.length; i += 2) {
+			entries.add(Entry.of(t((String) keyValues[i]), (Value) keyValues[i + 1]));
+		}
+		return Record.of(entries);
+	}
+	
+	private static List<Value> vs(Value... values) {
+		List<Value> results = new ArrayList<Value>();
+		for (Value value : values) {
+			results.add(value);
+		}
+		return results;
+	}
+}
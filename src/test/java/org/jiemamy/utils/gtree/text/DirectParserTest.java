@@ -0,0 +1,160 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.gtree.model.Record;
+import org.jiemamy.utils.gtree.model.Sequence;
+import org.jiemamy.utils.gtree.model.Symbol;
+import org.jiemamy.utils.gtree.model.SymbolTable;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+
+/**
+ * Test for {@link DirectParser}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class DirectParserTest {
+	
+	/**
+	 * Test method for {@link DirectParser#parse(java.io.Reader, Variables, org.jiemamy.utils.gtree.model.ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_SameAsGenerated() throws Exception {
+		String[] sources = {
+			"'a'",
+			"\"a\"",
+			"[]",
+			"[ 'a' , \"b\" ]",
+			"{'b', 'a', 'b'}",
+			"<>",
+			"<'k':'v', 'a':['x', {'y'}], ['complex']:<'n':'m'>>",
+			"// comment\n['a' /* inner */, 'b'] // tail\n",
+			"'\\t\\n\\\\\\'\\\"\\u0041\\uuu3042\\07\\012\\0123'",
+			"\"it's\"",
+			"[#int[1, 2], #double[]]",
+		};
+		DirectParser parser = new DirectParser();
+		for (String source : sources) {
+			Value expect = new GtreeParser0(new StringReader(source)).parse(Variables.NULL);
+			Value actual = parser.parse(new StringReader(source), Variables.NULL, null);
+			assertThat(source, actual, is(expect));
+		}
+	}
+	
+	/**
+	 * Test method for {@link DirectParser#parse(java.io.Reader, Variables, org.jiemamy.utils.gtree.model.ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Symbol() throws Exception {
+		Value name = SymbolTable.getGlobal().intern("name");
+		String unique = "DirectParserTest.unique";
+		Value v = new DirectParser().parse(new StringReader("<'name':'a', '" + unique + "':'b'>"), Variables.NULL, null);
+		Record record = (Record) v;
+		assertThat(record.getEntries().get(1).getKey(), sameInstance(name));
+		assertThat(record.getEntries().get(0).getKey(), is((Value) Terminal.of(unique)));
+		assertThat(record.getEntries().get(0).getKey().getClass(), is((Object) Symbol.class));
+		assertThat(SymbolTable.getGlobal().find(unique), is(nullValue()));
+	}
+	
+	/**
+	 * Test method for {@link DirectParser#parse(java.io.Reader, Variables, org.jiemamy.utils.gtree.model.ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Variable() throws Exception {
+		Variables vars = new Variables(Collections.singletonMap("x_1", Terminal.of("X")));
+		Value v = new DirectParser().parse(new StringReader("['a', $x_1]"), vars, null);
+		assertThat(v, is((Value) Sequence.ordered(Arrays.<Value> asList(Terminal.of("a"), Terminal.of("X")))));
+		assertError("['a',\n  $y]", vars, "Undefined variable \"$y\" (line 2, column 4)");
+	}
+	
+	/**
+	 * Test method for {@link DirectParser#parse(java.io.Reader, Variables, org.jiemamy.utils.gtree.model.ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Deep() throws Exception {
+		int depth = 100000;
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			buf.append("['x', ");
+		}
+		buf.append("'leaf'");
+		for (int i = 0; i < depth; i++) {
+			buf.append(']');
+		}
+		Value v = new DirectParser().parse(new StringReader(buf.toString()), Variables.NULL, null);
+		assertThat(v.getHeight(), is(depth + 1));
+	}
+	
+	/**
+	 * Test method for {@link DirectParser#parse(java.io.Reader, Variables, org.jiemamy.utils.gtree.model.ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Reuse() throws Exception {
+		DirectParser parser = new DirectParser();
+		assertError(parser, "['a', <'b'", Variables.NULL, "Unexpected end of input (line 1, column 10)");
+		Value v = parser.parse(new StringReader("['a', <'b':'c'>]"), Variables.NULL, null);
+		assertThat(v.toString(), is("[a, {\"b\":\"c\"}]"));
+	}
+	
+	/**
+	 * Test method for {@link DirectParser#parse(java.io.Reader, Variables, org.jiemamy.utils.gtree.model.ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Errors() throws Exception {
+		assertError("['a',]", Variables.NULL, "Unexpected \"]\" (line 1, column 6)");
+		assertError("['a'\r\n\t'b']", Variables.NULL, "Unexpected \"'\" (line 2, column 9)");
+		assertError("<'a'>", Variables.NULL, "Unexpected \">\" (line 1, column 5)");
+		assertError("'a' 'b'", Variables.NULL, "Unexpected \"'\" (line 1, column 5)");
+		assertError("\n'a\nb'", Variables.NULL, "Unterminated string (line 2, column 1)");
+		assertError("'\\q'", Variables.NULL, "Invalid escape sequence (line 1, column 2)");
+		assertError("'\\0'", Variables.NULL, "Invalid escape sequence (line 1, column 2)");
+		assertError("/* 'a'", Variables.NULL, "Unterminated comment (line 1, column 1)");
+		assertError("[#int[1,,2]]", Variables.NULL, "Invalid packed list \"#int[1,,2]\" (line 1, column 2)");
+	}
+	
+	private static void assertError(String source, Variables vars, String message) throws Exception {
+		assertError(new DirectParser(), source, vars, message);
+	}
+	
+	private static void assertError(DirectParser parser, String source, Variables vars, String message)
+			throws Exception {
+		try {
+			parser.parse(new StringReader(source), vars, null);
+			fail(source);
+		} catch (ParseException e) {
+			assertThat(source, e.getMessage(), is(message));
+		}
+	}
+}
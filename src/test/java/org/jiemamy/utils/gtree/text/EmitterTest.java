@@ -144,6 +144,76 @@ public class EmitterTest {
 		assertRestore(rc("tr", "A", "ol", ol("B", "C"), "ul", ul("D", "E"), "rc", rc("f", "G")));
 	}
 	
+	/**
+	 * Test method for {@link Emitter#emit(Value, PrintWriter)}.
+	 */
+	@Test
+	public void testEmit_Packed() {
+		Value packed = Sequence.packed(new int[] {
+			1,
+			-2,
+			Integer.MIN_VALUE
+		});
+		assertThat(emit(packed), equalTo("#int[1, -2, -2147483648]"));
+		assertRestore(packed);
+		assertRestore(rc("bytes", Sequence.packed(new byte[] {
+			-128,
+			127
+		}), "doubles", Sequence.packed(new double[] {
+			1.0E-10,
+			Double.NEGATIVE_INFINITY,
+			-0.0
+		}), "longs", Sequence.packed(new long[] {
+			Long.MIN_VALUE,
+			Long.MAX_VALUE
+		})));
+	}
+	
+	/**
+	 * Test method for {@link Emitter#emitCompact(Value, Appendable)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEmitCompact() throws Exception {
+		Value value = rc("tr", "it's", "ol", ol("B", "C"), "ul", ul(), "pk", Sequence.packed(new int[] {
+			1,
+			2
+		}));
+		StringBuilder buf = new StringBuilder();
+		Emitter.emitCompact(value, buf);
+		assertThat(buf.toString(), equalTo("<'ol':['B','C'],'pk':#int[1,2],'tr':'it\\'s','ul':{}>"));
+		assertThat(parse(buf.toString()), equalTo(value));
+	}
+	
+	/**
+	 * Test method for {@link Emitter#emit(Value, Appendable, String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEmit_Indent() throws Exception {
+		String br = System.getProperty("line.separator");
+		StringBuffer buf = new StringBuffer();
+		Emitter.emit(rc("a", ol("B")), buf, "\t");
+		assertThat(buf.toString(), equalTo("<" + br + "\t'a':[" + br + "\t\t'B'" + br + "\t]" + br + ">"));
+	}
+	
+	/**
+	 * Test method for {@link Emitter#emitCompact(Value, Appendable)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEmitCompact_Large() throws Exception {
+		Object[] contents = new Object[10000];
+		for (int i = 0; i < contents.length; i++) {
+			contents[i] = rc("id", i, "name", "n\n" + i);
+		}
+		Value value = ol(contents);
+		StringWriter out = new StringWriter();
+		Emitter.emitCompact(value, out);
+		assertThat(parse(out.toString()), equalTo(value));
+		assertThat(out.toString().length() < emit(value).length(), equalTo(true));
+	}
+	
 	private Value terminal(Object content) {
 		return Terminal.of(String.valueOf(content));
 	}
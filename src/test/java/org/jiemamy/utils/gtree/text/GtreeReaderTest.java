@@ -0,0 +1,353 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.gtree.model.Record;
+import org.jiemamy.utils.gtree.model.Sequence;
+import org.jiemamy.utils.gtree.model.Symbol;
+import org.jiemamy.utils.gtree.model.SymbolTable;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+import org.jiemamy.utils.gtree.text.GtreeReader.Event;
+
+/**
+ * Test for {@link GtreeReader}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class GtreeReaderTest {
+	
+	/**
+	 * Test method for {@link GtreeReader#next()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNext() throws Exception {
+		GtreeReader reader = new GtreeReader(new StringReader("<'a':['x', {}], 'b':'y\\n'> // end"));
+		try {
+			assertThat(reader.getEvent(), is(nullValue()));
+			assertNext(reader, Event.START_RECORD, null, 1);
+			assertNext(reader, Event.KEY, "a", 1);
+			assertThat(reader.getKey(), is((Value) Terminal.of("a")));
+			assertThat(reader.getKey().getClass(), is((Object) Terminal.class));
+			assertNext(reader, Event.START_ORDERED, null, 2);
+			assertNext(reader, Event.TERMINAL, "x", 2);
+			assertNext(reader, Event.START_UNORDERED, null, 3);
+			assertNext(reader, Event.END_UNORDERED, null, 2);
+			assertNext(reader, Event.END_ORDERED, null, 1);
+			assertNext(reader, Event.KEY, "b", 1);
+			assertNext(reader, Event.TERMINAL, "y\n", 1);
+			assertNext(reader, Event.END_RECORD, null, 0);
+			assertThat(reader.hasNext(), is(true));
+			assertNext(reader, Event.END_DOCUMENT, null, 0);
+			assertThat(reader.hasNext(), is(false));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#next()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNext_ComplexKey() throws Exception {
+		GtreeReader reader = new GtreeReader(new StringReader("<['k', <'n':'m'>]:'v', #int[1]:'w'>"));
+		try {
+			assertNext(reader, Event.START_RECORD, null, 1);
+			assertNext(reader, Event.KEY, null, 1);
+			assertThat(reader.getKey(), is(parse("['k', <'n':'m'>]")));
+			assertNext(reader, Event.TERMINAL, "v", 1);
+			assertNext(reader, Event.KEY, null, 1);
+			assertThat(reader.getKey(), is(parse("#int[1]")));
+			assertNext(reader, Event.TERMINAL, "w", 1);
+			assertNext(reader, Event.END_RECORD, null, 0);
+			assertNext(reader, Event.END_DOCUMENT, null, 0);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#skipChildren()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testSkipChildren() throws Exception {
+		GtreeReader reader = new GtreeReader(new StringReader("['a', <'b':['\\q', $undefined]>, 'c']"));
+		try {
+			assertNext(reader, Event.START_ORDERED, null, 1);
+			assertNext(reader, Event.TERMINAL, "a", 1);
+			assertNext(reader, Event.START_RECORD, null, 2);
+			reader.skipChildren();
+			assertThat(reader.getEvent(), is(Event.END_RECORD));
+			assertThat(reader.getDepth(), is(1));
+			assertNext(reader, Event.TERMINAL, "c", 1);
+			reader.skipChildren();
+			assertThat(reader.getEvent(), is(Event.TERMINAL));
+			assertNext(reader, Event.END_ORDERED, null, 0);
+			assertNext(reader, Event.END_DOCUMENT, null, 0);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#readValue()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testReadValue() throws Exception {
+		String[] sources = {
+			"'a'",
+			"[]",
+			"[ 'a' , \"b\" ]",
+			"{'b', 'a', 'b'}",
+			"<>",
+			"<'k':'v', 'a':['x', {'y'}], ['complex']:<'n':'m'>>",
+			"// comment\n['a' /* inner */, 'b'] // tail\n",
+			"'\\t\\n\\\\\\'\\\"\\u0041\\uuu3042\\07\\012\\0123'",
+			"[#int[1, 2], #double[]]",
+		};
+		for (String source : sources) {
+			GtreeReader reader = new GtreeReader(new StringReader(source));
+			try {
+				reader.next();
+				assertThat(source, reader.readValue(), is(parse(source)));
+				assertThat(source, reader.getDepth(), is(0));
+				assertThat(source, reader.next(), is(Event.END_DOCUMENT));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#readValue()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testReadValue_Partial() throws Exception {
+		GtreeReader reader = new GtreeReader(new StringReader("<'a':'x', 'b':<'name':['y', 'z']>, 'c':'w'>"));
+		try {
+			Value found = null;
+			while (reader.hasNext()) {
+				if (reader.next() == Event.KEY && reader.getText().equals("b")) {
+					reader.next();
+					found = reader.readValue();
+					assertThat(reader.getEvent(), is(Event.END_RECORD));
+					assertThat(reader.getDepth(), is(1));
+				}
+			}
+			assertThat(found, is(parse("<'name':['y', 'z']>")));
+			Value key = ((Record) found).getEntries().get(0).getKey();
+			assertThat(key.getClass(), is((Object) Symbol.class));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#next()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNext_KeysNotInterned() throws Exception {
+		String unique = "GtreeReaderTest.unique";
+		GtreeReader reader = new GtreeReader(new StringReader("[<'" + unique + "':'a'>, <'" + unique + "':'b'>]"));
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == Event.START_RECORD && reader.getDepth() == 2) {
+					Record record = (Record) reader.readValue();
+					assertThat(record.getEntries().get(0).getKey(), is((Value) Terminal.of(unique)));
+				}
+			}
+			assertThat(SymbolTable.getGlobal().find(unique), is(nullValue()));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#readValue()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testReadValue_Variable() throws Exception {
+		Map<String, Value> vars = Collections.<String, Value> singletonMap("x_1", Terminal.of("X"));
+		GtreeReader reader = new GtreeReader(new StringReader("['a', $x_1,\n  $y]"), vars);
+		try {
+			assertNext(reader, Event.START_ORDERED, null, 1);
+			assertNext(reader, Event.TERMINAL, "a", 1);
+			assertNext(reader, Event.VARIABLE, "x_1", 1);
+			assertThat(reader.readValue(), is((Value) Terminal.of("X")));
+			assertNext(reader, Event.VARIABLE, "y", 1);
+			try {
+				reader.readValue();
+				fail();
+			} catch (IOException e) {
+				assertThat(e.getCause().getClass(), is((Object) ParseException.class));
+				assertThat(e.getCause().getMessage(), is("Undefined variable \"$y\" (line 2, column 4)"));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#next()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNext_Errors() throws Exception {
+		assertError("['a',]", "Unexpected \"]\" (line 1, column 6)");
+		assertError("['a'\r\n\t'b']", "Unexpected \"'\" (line 2, column 9)");
+		assertError("<'a'>", "Unexpected \">\" (line 1, column 5)");
+		assertError("'a' 'b'", "Unexpected \"'\" (line 1, column 5)");
+		assertError("['a', <'b'", "Unexpected end of input (line 1, column 10)");
+		assertError("\n'a\nb'", "Unterminated string (line 2, column 1)");
+		assertError("'\\q'", "Invalid escape sequence (line 1, column 2)");
+		assertError("[#int[1,,2]]", "Invalid packed list \"#int[1,,2]\" (line 1, column 2)");
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#next()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNext_Large() throws Exception {
+		final int count = 100000;
+		final String row = "<'id':'12345', 'name':'some\\tname'>, ";
+		Reader source = new Reader() {
+			
+			private int rest = count;
+			
+			private String current = "[";
+			
+			private int offset;
+			
+
+			@Override
+			public int read(char[] cbuf, int off, int len) {
+				if (offset == current.length()) {
+					if (rest < 0) {
+						return -1;
+					}
+					current = rest-- > 0 ? row : "'last'] // " + Arrays.toString(new int[100]);
+					offset = 0;
+				}
+				int n = Math.min(len, current.length() - offset);
+				current.getChars(offset, offset + n, cbuf, off);
+				offset += n;
+				return n;
+			}
+			
+			@Override
+			public void close() {
+				return;
+			}
+		};
+		GtreeReader reader = new GtreeReader(source);
+		try {
+			int records = 0;
+			List<String> names = new ArrayList<String>();
+			int maxDepth = 0;
+			while (reader.hasNext()) {
+				Event event = reader.next();
+				maxDepth = Math.max(maxDepth, reader.getDepth());
+				if (event == Event.START_RECORD) {
+					records++;
+				} else if (event == Event.KEY && reader.getText().equals("name") && names.isEmpty()) {
+					reader.next();
+					names.add(reader.getText());
+				}
+			}
+			assertThat(records, is(count));
+			assertThat(names, is(Arrays.asList("some\tname")));
+			assertThat(maxDepth, is(2));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeReader#next()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testNext_Deep() throws Exception {
+		int depth = 100000;
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			buf.append("['x', ");
+		}
+		buf.append("'leaf'");
+		for (int i = 0; i < depth; i++) {
+			buf.append(']');
+		}
+		GtreeReader reader = new GtreeReader(new StringReader(buf.toString()));
+		try {
+			reader.next();
+			Value v = reader.readValue();
+			assertThat(v.getHeight(), is(depth + 1));
+			assertThat(((Sequence) v).getValues().get(0), is((Value) Terminal.of("x")));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	private static void assertNext(GtreeReader reader, Event event, String text, int depth) throws Exception {
+		assertThat(reader.next(), is(event));
+		assertThat(reader.getEvent(), is(event));
+		assertThat(reader.getText(), is(text));
+		assertThat(reader.getDepth(), is(depth));
+	}
+	
+	private static void assertError(String source, String message) throws Exception {
+		GtreeReader reader = new GtreeReader(new StringReader(source));
+		try {
+			while (reader.hasNext()) {
+				reader.next();
+			}
+			fail(source);
+		} catch (IOException e) {
+			assertThat(source, e.getCause().getClass(), is((Object) ParseException.class));
+			assertThat(source, e.getCause().getMessage(), is(message));
+		} finally {
+			reader.close();
+		}
+	}
+	
+	private static Value parse(String source) throws Exception {
+		return new DirectParser().parse(new StringReader(source), Variables.NULL, null);
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.jiemamy.utils.gtree.model.Entry;
+import org.jiemamy.utils.gtree.model.Record;
+import org.jiemamy.utils.gtree.model.Sequence;
+import org.jiemamy.utils.gtree.model.SymbolTable;
+import org.jiemamy.utils.gtree.model.Terminal;
+import org.jiemamy.utils.gtree.model.Value;
+
+/**
+ * Test for {@link GtreeWriter}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class GtreeWriterTest {
+	
+	private static final String[] SOURCES = {
+		"'a'",
+		"'it\\'s\\n'",
+		"[]",
+		"{}",
+		"<>",
+		"['a', 'b', 'a']",
+		"{'c', 'a', 'b', 'a'}",
+		"<'b':'B', 'a':'A', 'c':['x', {'z', 'y'}, <>]>",
+		"[<'k':{'2', '1'}>, {<'b':'1', 'a':'2'>, <'a':'1'>}]",
+		"<['complex']:'v', 'k':#int[1, 2]>",
+	};
+	
+
+	/**
+	 * Test method for {@link GtreeWriter#GtreeWriter(Writer, boolean)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testWrite_Sorted() throws Exception {
+		for (String source : SOURCES) {
+			Value value = parse(source);
+			StringWriter buf = new StringWriter();
+			GtreeWriter writer = new GtreeWriter(buf, true);
+			replay(value, writer, true);
+			writer.finish();
+			assertThat(source, buf.toString(), is(emit(value)));
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeWriter#GtreeWriter(Writer)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testWrite_Streaming() throws Exception {
+		for (String source : SOURCES) {
+			Value value = parse(source);
+			StringWriter buf = new StringWriter();
+			GtreeWriter writer = new GtreeWriter(buf);
+			replay(value, writer, false);
+			writer.finish();
+			assertThat(source, buf.toString(), is(emit(value)));
+			
+			StringWriter reversed = new StringWriter();
+			writer = new GtreeWriter(reversed);
+			replay(value, writer, true);
+			writer.finish();
+			assertThat(source, parse(reversed.toString()), is(value));
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeWriter#key(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testKey_NotInterned() throws Exception {
+		String unique = "GtreeWriterTest.unique";
+		StringWriter buf = new StringWriter();
+		GtreeWriter writer = new GtreeWriter(buf, true);
+		writer.beginRecord().key(unique).terminal("a").end().finish();
+		assertThat(buf.toString(), is(emit(parse("<'GtreeWriterTest.unique':'a'>"))));
+		assertThat(SymbolTable.getGlobal().find(unique), is(nullValue()));
+	}
+	
+	/**
+	 * Test method for {@link GtreeWriter#value(Value)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testValue() throws Exception {
+		for (String source : SOURCES) {
+			Value value = parse(source);
+			StringWriter buf = new StringWriter();
+			GtreeWriter writer = new GtreeWriter(buf);
+			writer.value(value).finish();
+			assertThat(source, buf.toString(), is(emit(value)));
+		}
+		Value inner = parse("<'b':'2', 'a':'1'>");
+		StringWriter buf = new StringWriter();
+		GtreeWriter writer = new GtreeWriter(buf, true);
+		writer.beginUnordered().terminal("z").value(inner).end().finish();
+		assertThat(buf.toString(), is(emit(parse("{'z', <'b':'2', 'a':'1'>}"))));
+	}
+	
+	/**
+	 * Test method for {@link GtreeWriter#close()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testClose() throws Exception {
+		StringWriter buf = new StringWriter();
+		GtreeWriter writer = new GtreeWriter(buf);
+		writer.beginOrdered().terminal("a");
+		writer.flush();
+		assertThat(buf.toString().startsWith("["), is(true));
+		assertThat(buf.toString().endsWith("'a'"), is(true));
+		writer.terminal("b");
+		writer.close();
+		assertThat(buf.toString().endsWith("'b'"), is(true));
+	}
+	
+	/**
+	 * Test method for {@link GtreeWriter#end()}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testInvalidState() throws Exception {
+		GtreeWriter writer = new GtreeWriter(new StringWriter());
+		try {
+			writer.end();
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		try {
+			writer.key("a");
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		writer.beginRecord();
+		try {
+			writer.terminal("a");
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		writer.key("a");
+		try {
+			writer.key("b");
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		try {
+			writer.end();
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		try {
+			writer.finish();
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		writer.beginOrdered();
+		try {
+			writer.key("c");
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+		writer.end().end().finish();
+		try {
+			writer.terminal("other");
+			fail();
+		} catch (IllegalStateException e) {
+			// ok.
+		}
+	}
+	
+	/**
+	 * Test method for {@link GtreeWriter#terminal(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testWrite_Large() throws Exception {
+		final int count = 100000;
+		final long[] written = new long[1];
+		Writer output = new Writer() {
+			
+			@Override
+			public void write(char[] cbuf, int off, int len) {
+				written[0] += len;
+			}
+			
+			@Override
+			public void flush() {
+				return;
+			}
+			
+			@Override
+			public void close() {
+				return;
+			}
+		};
+		GtreeWriter writer = new GtreeWriter(output, true);
+		writer.beginOrdered();
+		for (int i = 0; i < count; i++) {
+			writer.beginRecord().key("id").terminal(String.valueOf(i)).key("name").terminal("n").end();
+		}
+		writer.end().finish();
+		assertThat(written[0] > count * 20L, is(true));
+	}
+	
+	private static void replay(Value value, GtreeWriter writer, boolean reverse) throws Exception {
+		switch (value.getKind()) {
+			case TERMINAL:
+				writer.terminal(((Terminal) value).getRepresentation());
+				break;
+			case ORDERED_LIST:
+			case UNORDERED_LIST: {
+				Sequence sequence = (Sequence) value;
+				if (sequence.getPackedType() != null) {
+					writer.value(sequence);
+					break;
+				}
+				boolean ordered = value.getKind() == Value.Kind.ORDERED_LIST;
+				List<Value> values = sequence.getValues();
+				if (ordered) {
+					writer.beginOrdered();
+				} else {
+					writer.beginUnordered();
+				}
+				for (int i = 0, n = values.size(); i < n; i++) {
+					replay(values.get(reverse && ordered == false ? n - i - 1 : i), writer, reverse);
+				}
+				writer.end();
+				break;
+			}
+			case RECORD: {
+				List<Entry> entries = ((Record) value).getEntries();
+				writer.beginRecord();
+				for (int i = 0, n = entries.size(); i < n; i++) {
+					Entry entry = entries.get(reverse ? n - i - 1 : i);
+					if (entry.getKey().getKind() == Value.Kind.TERMINAL) {
+						writer.key(((Terminal) entry.getKey()).getRepresentation());
+					} else {
+						writer.key(entry.getKey());
+					}
+					replay(entry.getValue(), writer, reverse);
+				}
+				writer.end();
+				break;
+			}
+			default:
+				throw new AssertionError(value);
+		}
+	}
+	
+	private static String emit(Value value) {
+		StringWriter buf = new StringWriter();
+		PrintWriter output = new PrintWriter(buf);
+		Emitter.emit(value, output);
+		output.flush();
+		return buf.toString();
+	}
+	
+	private static Value parse(String source) throws Exception {
+		return new DirectParser().parse(new StringReader(source), Variables.NULL, null);
+	}
+}
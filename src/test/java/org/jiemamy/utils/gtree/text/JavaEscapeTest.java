@@ -0,0 +1,107 @@
+/*
+ * Copyright 2009 Jiemamy Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.jiemamy.utils.gtree.text;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link JavaEscape}.
+ * @version $Date$
+ * @author Suguru ARAKAWA
+ */
+public class JavaEscapeTest {
+	
+	/**
+	 * Test method for {@link JavaEscape#escape(String, boolean, boolean)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEscape() throws Exception {
+		String plain = "Hello, world! あいう";
+		assertThat(JavaEscape.escape(plain, true, false), sameInstance(plain));
+		assertThat(JavaEscape.escape("it's \"ok\"", true, false), is("it\\'s \"ok\""));
+		assertThat(JavaEscape.escape("it's \"ok\"", false, false), is("it's \\\"ok\\\""));
+		assertThat(JavaEscape.escape("a\tb\nc\\d", false, false), is("a\\tb\\nc\\\\d"));
+		assertThat(JavaEscape.escape("\u0000\u007f\uffff", false, false), is("\\u0000\\u007f\\uffff"));
+		assertThat(JavaEscape.escape("aあ\n", false, true), is("\\u0061\\u3042\\n"));
+		assertThat(JavaEscape.escape("", false, true), is(""));
+	}
+	
+	/**
+	 * Test method for {@link JavaEscape#escape(CharSequence, boolean, boolean, Appendable)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testEscape_Appendable() throws Exception {
+		StringBuilder buf = new StringBuilder("'");
+		JavaEscape.escape("a'b", true, false, buf);
+		JavaEscape.escape("plain", true, false, buf);
+		assertThat(buf.toString(), is("'a\\'bplain"));
+	}
+	
+	/**
+	 * Test method for {@link JavaEscape#unescape(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testUnescape() throws Exception {
+		String plain = "Hello, world! あいう";
+		assertThat(JavaEscape.unescape(plain), sameInstance(plain));
+		assertThat(JavaEscape.unescape("\\b\\t\\n\\f\\r\\'\\\"\\\\"), is("\b\t\n\f\r'\"\\"));
+		assertThat(JavaEscape.unescape("\\u0041\\uuu3042\\u004a"), is("AあJ"));
+		assertThat(JavaEscape.unescape("\\0\\7\\12\\377\\477\\0123"), is("\0\7\12\377\477\0123"));
+		assertThat(JavaEscape.unescape("a\\nb"), is("a\nb"));
+	}
+	
+	/**
+	 * Test method for {@link JavaEscape#unescape(String)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testUnescape_Invalid() throws Exception {
+		String[] invalids = {
+			"\\",
+			"a\\q",
+			"\\u12",
+			"\\u12g4",
+			"\\U0041",
+		};
+		for (String invalid : invalids) {
+			try {
+				JavaEscape.unescape(invalid);
+				fail(invalid);
+			} catch (IllegalArgumentException e) {
+				// ok.
+			}
+		}
+	}
+	
+	/**
+	 * Test method for {@link JavaEscape#unescape(char[], int, int, char[], int)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testUnescape_InPlace() throws Exception {
+		char[] chars = "['a\\tb\\u0043']".toCharArray();
+		int length = JavaEscape.unescape(chars, 2, 10, chars, 2);
+		assertThat(new String(chars, 2, length), is("a\tbC"));
+	}
+}
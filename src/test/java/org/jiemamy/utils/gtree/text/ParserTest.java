@@ -32,6 +32,7 @@ import org.jiemamy.utils.gtree.model.Record;
 import org.jiemamy.utils.gtree.model.Sequence;
 import org.jiemamy.utils.gtree.model.Terminal;
 import org.jiemamy.utils.gtree.model.Value;
+import org.jiemamy.utils.gtree.model.ValueInterner;
 
 /**
  * Test for {@link Parser}.
@@ -209,6 +210,52 @@ public class ParserTest {
 		parse("<'a':$a, 'b':$b, 'c':$c, 'd':$d>", vars);
 	}
 	
+	/**
+	 * Test method for {@link Parser#parse(java.io.Reader)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Packed() throws Exception {
+		Value v = parse("[#int[1, -2, 3], #double[ 1.5 , NaN ], #long[]]");
+		assertThat(v, is(ol(ol("1", "-2", "3"), ol("1.5", "NaN"), ol())));
+		Sequence ints = (Sequence) ((Sequence) v).getValues().get(0);
+		assertThat(ints.getPackedType() == int.class, is(true));
+	}
+	
+	/**
+	 * Test method for {@link Parser#parse(java.io.Reader)}.
+	 * @throws Exception if occur
+	 */
+	@Test(expected = IOException.class)
+	public void testParse_Packed_Overflow() throws Exception {
+		parse("#byte[1, 128]");
+	}
+	
+	/**
+	 * Test method for {@link Parser#parse(java.io.Reader)}.
+	 * @throws Exception if occur
+	 */
+	@Test(expected = IOException.class)
+	public void testParse_Packed_Invalid() throws Exception {
+		parse("#int[1,, 2]");
+	}
+	
+	/**
+	 * Test method for {@link Parser#parse(java.io.Reader, java.util.Map, ValueInterner)}.
+	 * @throws Exception if occur
+	 */
+	@Test
+	public void testParse_Interner() throws Exception {
+		ValueInterner interner = new ValueInterner();
+		Map<String, Value> vars = new HashMap<String, Value>();
+		Value v = Parser.parse(new StringReader("<'a':['X', 'Y'], 'b':['X', 'Y']>"), vars, interner);
+		assertThat(v, is(rc("a", ol("X", "Y"), "b", ol("X", "Y"))));
+		Record r = (Record) v;
+		Value a = r.getEntries().get(0).getValue();
+		Value b = r.getEntries().get(1).getValue();
+		assertThat(a == b, is(true));
+	}
+	
 	private Value terminal(Object content) {
 		return Terminal.of(String.valueOf(content));
 	}